@@ -0,0 +1,18 @@
+package org.example.transfer.cache;
+
+import org.example.transfer.comm.Money;
+
+import java.math.BigDecimal;
+
+/**
+ * fx rate of a currency pair
+ *
+ * @param rate  1 from = ? to, stored in transfer log
+ * @param units rate in {@link Money} rate units, used for conversion
+ */
+public record FxQuote(BigDecimal rate, long units) {
+
+    public static FxQuote of(BigDecimal rate) {
+        return new FxQuote(rate, Money.toRateUnits(rate));
+    }
+}
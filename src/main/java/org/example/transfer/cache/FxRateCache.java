@@ -0,0 +1,138 @@
+package org.example.transfer.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.model.FxRate;
+import org.example.transfer.repository.FxRateRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * in-memory fx rate cache
+ * <p>
+ * readers load the current {@link FxRateSnapshot} and index it by currency ordinal.
+ * the snapshot is rebuilt from fx_rate and swapped atomically:
+ * 1. at startup
+ * 2. after a transaction changing fx_rate commits
+ * 3. periodically, to catch changes made outside this application
+ * 4. on a miss that is found in db
+ */
+@Component
+public class FxRateCache {
+    Logger log = LogManager.getLogger(FxRateCache.class);
+
+    @Autowired
+    private FxRateRepository fxRateRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile FxRateSnapshot snapshot = FxRateSnapshot.empty();
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private Counter hitCounter;
+
+    private Counter missCounter;
+
+    @PostConstruct
+    public void init() {
+        hitCounter = Counter.builder("transfer.fx_rate.cache")
+                .tag("result", "hit")
+                .description("fx rate lookups served from the in-memory snapshot")
+                .register(meterRegistry);
+        missCounter = Counter.builder("transfer.fx_rate.cache")
+                .tag("result", "miss")
+                .description("fx rate lookups not in the in-memory snapshot")
+                .register(meterRegistry);
+        Gauge.builder("transfer.fx_rate.cache.snapshot.age", this, c -> (System.currentTimeMillis() - c.snapshot.getCreatedAt()) / 1000.0)
+                .baseUnit("seconds")
+                .description("time since the current fx rate snapshot was built")
+                .register(meterRegistry);
+        refresh();
+    }
+
+    /**
+     * get fx rate
+     *
+     * @param from from currency
+     * @param to   to currency
+     * @return rate of 1 from = ? to, null if not exist
+     */
+    public BigDecimal getRate(Currency from, Currency to) {
+        FxQuote quote = getQuote(from, to);
+        return quote == null ? null : quote.rate();
+    }
+
+    /**
+     * get fx quote
+     *
+     * @param from from currency
+     * @param to   to currency
+     * @return quote of 1 from = ? to, null if not exist
+     */
+    public FxQuote getQuote(Currency from, Currency to) {
+        FxQuote quote = snapshot.quote(from, to);
+        if (quote != null) {
+            hitCounter.increment();
+            return quote;
+        }
+
+        // miss, read through to db in case the snapshot is behind
+        missCounter.increment();
+        Optional<FxRate> fxRateOptional = fxRateRepository.findByFromCurrencyAndToCurrency(from, to);
+        if (fxRateOptional.isEmpty()) {
+            return null;
+        }
+        refresh();
+        return FxQuote.of(fxRateOptional.get().getRate());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFxRateChanged(FxRateChangedEvent event) {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${transfer.fx-rate-cache.refresh-interval:PT60S}",
+            initialDelayString = "${transfer.fx-rate-cache.refresh-interval:PT60S}")
+    public void scheduledRefresh() {
+        refresh();
+    }
+
+    /**
+     * rebuild snapshot from db, swap only if rates changed
+     * <p>
+     * guarded by a ReentrantLock: a synchronized method would pin a virtual thread to its carrier during the db read
+     */
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            List<FxRate> fxRates = fxRateRepository.findAll();
+            FxRateSnapshot fresh = FxRateSnapshot.of(fxRates);
+            if (!fresh.sameRates(snapshot)) {
+                snapshot = fresh;
+                log.info("fx rate snapshot refreshed, rates:{}", fxRates.size());
+            }
+        } catch (Exception e) {
+            log.error("fx rate snapshot refresh error, keep current snapshot", e);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    public FxRateSnapshot getSnapshot() {
+        return snapshot;
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.transfer.cache;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.example.transfer.model.FxRate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * fx rate entity listener, instantiated by hibernate through the spring bean container
+ */
+public class FxRateChangeListener {
+
+    @Autowired
+    private ApplicationEventPublisher publisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(FxRate fxRate) {
+        if (publisher != null) {
+            publisher.publishEvent(new FxRateChangedEvent(fxRate.getId()));
+        }
+    }
+}
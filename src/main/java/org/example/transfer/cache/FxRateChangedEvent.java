@@ -0,0 +1,7 @@
+package org.example.transfer.cache;
+
+/**
+ * published when a fx_rate row is inserted, updated or deleted
+ */
+public record FxRateChangedEvent(Long fxRateId) {
+}
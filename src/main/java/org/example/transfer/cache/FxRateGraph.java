@@ -0,0 +1,110 @@
+package org.example.transfer.cache;
+
+import org.example.transfer.comm.Money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * fx rate graph over currency indexes, resolved into a dense rate matrix
+ * <p>
+ * 1. direct rate: from -> to as configured
+ * 2. inverse rate: to -> from = 1 / rate, if no direct rate
+ * 3. cross rate: from -> pivot -> ... -> to, best path over all pivots
+ * <p>
+ * best path: fewest legs, then fewest inverse legs, then lowest pivot index.
+ * each path keeps numerator / denominator and divides once, so a cross rate is rounded only once.
+ */
+public final class FxRateGraph {
+
+    /**
+     * scale of derived (inverse / cross) rates
+     */
+    public static final int DERIVED_RATE_SCALE = Money.RATE_SCALE;
+
+    private final int size;
+
+    private final BigDecimal[][] direct;
+
+    public FxRateGraph(int size) {
+        this.size = size;
+        this.direct = new BigDecimal[size][size];
+    }
+
+    /**
+     * add direct rate, 1 from = rate to
+     */
+    public FxRateGraph addRate(int from, int to, BigDecimal rate) {
+        if (from != to && rate != null && rate.signum() > 0) {
+            direct[from][to] = rate;
+        }
+        return this;
+    }
+
+    /**
+     * resolve all pairs, O(n^3), only run when rates change
+     *
+     * @return rates[from][to], null if not reachable
+     */
+    public BigDecimal[][] resolve() {
+        // 1. legs, inverse legs, numerator, denominator of the best path found so far
+        int[][] legs = new int[size][size];
+        int[][] inverses = new int[size][size];
+        BigDecimal[][] numerators = new BigDecimal[size][size];
+        BigDecimal[][] denominators = new BigDecimal[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (i == j) {
+                    continue;
+                }
+                if (direct[i][j] != null) {
+                    legs[i][j] = 1;
+                    numerators[i][j] = direct[i][j];
+                    denominators[i][j] = BigDecimal.ONE;
+                } else if (direct[j][i] != null) {
+                    legs[i][j] = 1;
+                    inverses[i][j] = 1;
+                    numerators[i][j] = BigDecimal.ONE;
+                    denominators[i][j] = direct[j][i];
+                }
+            }
+        }
+
+        // 2. relax through every pivot
+        for (int k = 0; k < size; k++) {
+            for (int i = 0; i < size; i++) {
+                if (i == k || numerators[i][k] == null) {
+                    continue;
+                }
+                for (int j = 0; j < size; j++) {
+                    if (j == i || j == k || numerators[k][j] == null) {
+                        continue;
+                    }
+                    int candidateLegs = legs[i][k] + legs[k][j];
+                    int candidateInverses = inverses[i][k] + inverses[k][j];
+                    if (numerators[i][j] == null
+                            || candidateLegs < legs[i][j]
+                            || (candidateLegs == legs[i][j] && candidateInverses < inverses[i][j])) {
+                        legs[i][j] = candidateLegs;
+                        inverses[i][j] = candidateInverses;
+                        numerators[i][j] = numerators[i][k].multiply(numerators[k][j]);
+                        denominators[i][j] = denominators[i][k].multiply(denominators[k][j]);
+                    }
+                }
+            }
+        }
+
+        // 3. direct rates as configured, derived rates divided once
+        BigDecimal[][] rates = new BigDecimal[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (direct[i][j] != null) {
+                    rates[i][j] = direct[i][j];
+                } else if (numerators[i][j] != null) {
+                    rates[i][j] = numerators[i][j].divide(denominators[i][j], DERIVED_RATE_SCALE, RoundingMode.HALF_UP);
+                }
+            }
+        }
+        return rates;
+    }
+}
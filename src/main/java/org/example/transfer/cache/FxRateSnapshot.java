@@ -0,0 +1,90 @@
+package org.example.transfer.cache;
+
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.model.FxRate;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * immutable fx rate matrix
+ * <p>
+ * quotes[from.ordinal()][to.ordinal()], null if no rate.
+ * inverse and cross rates are precomputed by {@link FxRateGraph}, lookup never walks the graph.
+ */
+public final class FxRateSnapshot {
+
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    private final FxQuote[][] quotes;
+
+    private final long createdAt;
+
+    private FxRateSnapshot(BigDecimal[][] rates) {
+        this.quotes = new FxQuote[rates.length][rates.length];
+        for (int i = 0; i < rates.length; i++) {
+            for (int j = 0; j < rates[i].length; j++) {
+                if (rates[i][j] != null) {
+                    quotes[i][j] = FxQuote.of(rates[i][j]);
+                }
+            }
+        }
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    public static FxRateSnapshot empty() {
+        return new FxRateSnapshot(new BigDecimal[CURRENCIES.length][CURRENCIES.length]);
+    }
+
+    public static FxRateSnapshot of(List<FxRate> fxRates) {
+        FxRateGraph graph = new FxRateGraph(CURRENCIES.length);
+        for (FxRate fxRate : fxRates) {
+            graph.addRate(fxRate.getFromCurrency().ordinal(), fxRate.getToCurrency().ordinal(), fxRate.getRate());
+        }
+        return new FxRateSnapshot(graph.resolve());
+    }
+
+    /**
+     * @return rate of 1 from = ? to, null if not exist
+     */
+    public BigDecimal get(Currency from, Currency to) {
+        FxQuote quote = quotes[from.ordinal()][to.ordinal()];
+        return quote == null ? null : quote.rate();
+    }
+
+    /**
+     * @return quote of from -> to, null if not exist
+     */
+    public FxQuote quote(Currency from, Currency to) {
+        return quotes[from.ordinal()][to.ordinal()];
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * @return true if both snapshots hold the same rates
+     */
+    public boolean sameRates(FxRateSnapshot other) {
+        for (int i = 0; i < quotes.length; i++) {
+            for (int j = 0; j < quotes[i].length; j++) {
+                FxQuote a = quotes[i][j];
+                FxQuote b = other.quotes[i][j];
+                if (a == null ? b != null : b == null || a.rate().compareTo(b.rate()) != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "FxRateSnapshot{" +
+                "quotes=" + Arrays.deepToString(quotes) +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
@@ -0,0 +1,279 @@
+package org.example.transfer.clearing;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.comm.Money;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.comm.enums.TransferTypeEnum;
+import org.example.transfer.config.ClearingConfig;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.handler.TransferHandlerFactory;
+import org.example.transfer.handler.TransferQuote;
+import org.example.transfer.model.Account;
+import org.example.transfer.params.req.TransferRequest;
+import org.example.transfer.repository.AccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * multilateral clearing
+ * <p>
+ * transfers are collected over a cycle and settled together at its end, in one transaction:
+ * 1. lock every account of the cycle, in ascending id order
+ * 2. quote each transfer by its {@link org.example.transfer.handler.TransferHandler}, fee and fx as a single transfer
+ * 3. fold the net position of every account in parallel, see {@link NetPositions}
+ * 4. an account whose position exceeds its balance has all its outgoing transfers rejected, fold again
+ * 5. write each account's new balance and every transfer log, in jdbc batches
+ * <p>
+ * a caller's future completes after the commit. the cycle is judged as a whole, not in arrival order.
+ */
+@Component
+public class ClearingEngine {
+    Logger log = LogManager.getLogger(ClearingEngine.class);
+
+    @Autowired
+    private ClearingConfig clearingConfig;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransferHandlerFactory transferHandlerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ReentrantLock pendingLock = new ReentrantLock();
+
+    /**
+     * transfers of the open cycle, guarded by pendingLock
+     */
+    private List<Pending> pending = new ArrayList<>();
+
+    private final ReentrantLock settleLock = new ReentrantLock();
+
+    /**
+     * add a transfer to the open cycle
+     *
+     * @param request transfer
+     * @return completed when the cycle settled, failed with BusinessException if the transfer was rejected
+     * @throws BusinessException SERVER_BUSY if the cycle is full
+     */
+    public CompletableFuture<Void> submit(TransferRequest request) {
+        Pending transfer = new Pending(request);
+        pendingLock.lock();
+        try {
+            if (pending.size() >= clearingConfig.getMaxPending()) {
+                throw new BusinessException(ExceptionEnum.SERVER_BUSY.getErrorCode(), ExceptionEnum.SERVER_BUSY.getErrorMsg());
+            }
+            pending.add(transfer);
+        } finally {
+            pendingLock.unlock();
+        }
+        return transfer.result;
+    }
+
+    /**
+     * close the open cycle and settle it
+     *
+     * @return transfers settled
+     */
+    @Scheduled(fixedDelayString = "${transfer.clearing.cycle:PT1S}")
+    public int settle() {
+        settleLock.lock();
+        try {
+            List<Pending> cycle;
+            pendingLock.lock();
+            try {
+                cycle = pending;
+                pending = new ArrayList<>();
+            } finally {
+                pendingLock.unlock();
+            }
+            if (cycle.isEmpty()) {
+                return 0;
+            }
+            return settle(cycle);
+        } finally {
+            settleLock.unlock();
+        }
+    }
+
+    private int settle(List<Pending> cycle) {
+        long start = System.currentTimeMillis();
+        int settled;
+        try {
+            settled = transactionTemplate.execute(status -> clear(cycle));
+        } catch (RuntimeException e) {
+            // rolled back, nothing of the cycle is applied
+            log.error("clearing cycle failed, size:[{}]", cycle.size(), e);
+            BusinessException busy = new BusinessException(ExceptionEnum.SERVER_BUSY.getErrorCode(), ExceptionEnum.SERVER_BUSY.getErrorMsg());
+            cycle.forEach(transfer -> transfer.result.completeExceptionally(transfer.error != null ? transfer.error : busy));
+            return 0;
+        }
+
+        for (Pending transfer : cycle) {
+            if (transfer.error != null) {
+                transfer.result.completeExceptionally(transfer.error);
+            } else {
+                transfer.result.complete(null);
+            }
+        }
+        log.info("clearing cycle settled {} of {} transfers in {}ms", settled, cycle.size(), System.currentTimeMillis() - start);
+        return settled;
+    }
+
+    private int clear(List<Pending> cycle) {
+        // 1. lock accounts
+        TreeSet<Long> accountIds = new TreeSet<>();
+        for (Pending transfer : cycle) {
+            accountIds.add(transfer.request.getFromId());
+            accountIds.add(transfer.request.getToId());
+        }
+        List<Account> accounts = new ArrayList<>(accountIds.size());
+        List<Long> chunk = new ArrayList<>(clearingConfig.getWriteBatchSize());
+        for (Long accountId : accountIds) {
+            chunk.add(accountId);
+            if (chunk.size() == clearingConfig.getWriteBatchSize()) {
+                accounts.addAll(accountRepository.findAllByIdForUpdate(chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            accounts.addAll(accountRepository.findAllByIdForUpdate(chunk));
+        }
+        Map<Long, Integer> index = new HashMap<>(accounts.size() * 2);
+        long[] balances = new long[accounts.size()];
+        for (int a = 0; a < accounts.size(); a++) {
+            index.put(accounts.get(a).getId(), a);
+            balances[a] = Money.toMinor(accounts.get(a).getBalance(), accounts.get(a).getCurrency());
+        }
+
+        // 2. quote
+        int size = cycle.size();
+        int[] from = new int[size];
+        int[] to = new int[size];
+        long[] debit = new long[size];
+        long[] credit = new long[size];
+        TransferQuote[] quotes = new TransferQuote[size];
+        boolean[] active = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            Pending transfer = cycle.get(i);
+            try {
+                quotes[i] = quote(transfer.request, index, accounts);
+            } catch (BusinessException e) {
+                transfer.error = e;
+                continue;
+            }
+            from[i] = index.get(transfer.request.getFromId());
+            to[i] = index.get(transfer.request.getToId());
+            debit[i] = quotes[i].totalDeduct();
+            credit[i] = quotes[i].credit();
+            active[i] = true;
+        }
+
+        // 3. 4. fold until every account covers its position
+        NetPositions positions = new NetPositions(from, to, debit, credit, accounts.size(), clearingConfig.getPartitions());
+        long[] net;
+        while (true) {
+            net = positions.fold(active, ForkJoinPool.commonPool());
+            boolean[] shortOf = new boolean[accounts.size()];
+            boolean anyShort = false;
+            for (int a = 0; a < net.length; a++) {
+                if (balances[a] + net[a] < 0) {
+                    shortOf[a] = true;
+                    anyShort = true;
+                }
+            }
+            if (!anyShort) {
+                break;
+            }
+            boolean rejected = false;
+            for (int i = 0; i < size; i++) {
+                if (active[i] && shortOf[from[i]]) {
+                    active[i] = false;
+                    rejected = true;
+                    cycle.get(i).error = new BusinessException(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), "Insufficient balance");
+                }
+            }
+            if (!rejected) {
+                // short accounts left only receive, their balance was negative before the cycle and only goes up
+                break;
+            }
+        }
+
+        // 5. write balances, then logs
+        for (int a = 0; a < net.length; a++) {
+            if (net[a] != 0) {
+                Account account = accounts.get(a);
+                account.setBalance(Money.toDecimal(balances[a] + net[a], account.getCurrency()));
+            }
+        }
+        entityManager.flush();
+        int settled = 0;
+        for (int i = 0; i < size; i++) {
+            if (!active[i]) {
+                continue;
+            }
+            TransferRequest request = cycle.get(i).request;
+            entityManager.persist(quotes[i].toLog(accounts.get(from[i]), accounts.get(to[i]), request.getAmount(), request.getRequestId()));
+            if (++settled % clearingConfig.getWriteBatchSize() == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        return settled;
+    }
+
+    /**
+     * same checks as a single transfer
+     */
+    private TransferQuote quote(TransferRequest request, Map<Long, Integer> index, List<Account> accounts) {
+        if (request.getFromId().equals(request.getToId())) {
+            throw new BusinessException(ExceptionEnum.PARAM_ILLEGAL.getErrorCode(), "same account transfer not allowed");
+        }
+        Integer fromIndex = index.get(request.getFromId());
+        if (fromIndex == null) {
+            throw new BusinessException(ExceptionEnum.USER_NOT_EXIST.getErrorCode(), "from account not exist");
+        }
+        Integer toIndex = index.get(request.getToId());
+        if (toIndex == null) {
+            throw new BusinessException(ExceptionEnum.USER_NOT_EXIST.getErrorCode(), "to account not exist");
+        }
+        Account from = accounts.get(fromIndex);
+        Account to = accounts.get(toIndex);
+        if (!from.getCurrency().equals(request.getTransferCurrency())) {
+            throw new BusinessException(ExceptionEnum.PARAM_ILLEGAL.getErrorCode(), "Sender must use base currency.");
+        }
+        TransferTypeEnum type = to.getCurrency().equals(request.getTransferCurrency())
+                ? TransferTypeEnum.SAME
+                : TransferTypeEnum.DIFFERENT;
+        return transferHandlerFactory.getHandler(type).quote(from, to, request.getAmount());
+    }
+
+    private static final class Pending {
+        private final TransferRequest request;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private BusinessException error;
+
+        private Pending(TransferRequest request) {
+            this.request = request;
+        }
+    }
+}
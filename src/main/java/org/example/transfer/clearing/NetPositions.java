@@ -0,0 +1,112 @@
+package org.example.transfer.clearing;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * net position of every account over the transfers of a clearing cycle
+ * <p>
+ * accounts are numbered 0..accounts-1 and split into contiguous partitions.
+ * 1. the debit and credit legs of active transfers are copied into buckets by the partition of their account
+ * 2. a fork/join task per partition sums its bucket, it alone writes the positions of its accounts.
+ * a bucket is read in order and only touches its partition's slice of the positions, which stays in cache.
+ */
+public final class NetPositions {
+
+    private final int[] from;
+    private final int[] to;
+    private final long[] debit;
+    private final long[] credit;
+    private final int accounts;
+    private final int partitions;
+
+    /**
+     * @param from       sender index of each transfer
+     * @param to         receiver index of each transfer
+     * @param debit      amount + fee of each transfer, sender's minor units
+     * @param credit     amount received of each transfer, receiver's minor units
+     * @param accounts   number of accounts
+     * @param partitions number of account partitions, at most accounts
+     */
+    public NetPositions(int[] from, int[] to, long[] debit, long[] credit, int accounts, int partitions) {
+        this.from = from;
+        this.to = to;
+        this.debit = debit;
+        this.credit = credit;
+        this.accounts = accounts;
+        this.partitions = Math.max(1, Math.min(partitions, accounts));
+    }
+
+    /**
+     * @param active transfers taking part, null for all
+     * @param pool   pool running the partition tasks
+     * @return net change of each account, minor units of its currency
+     */
+    public long[] fold(boolean[] active, ForkJoinPool pool) {
+        long[] net = new long[accounts];
+
+        // 1. bucket legs by partition: counting sort of (account, signed amount)
+        int[] bucketStart = new int[partitions + 1];
+        for (int i = 0; i < from.length; i++) {
+            if (active == null || active[i]) {
+                bucketStart[partition(from[i]) + 1]++;
+                bucketStart[partition(to[i]) + 1]++;
+            }
+        }
+        for (int p = 0; p < partitions; p++) {
+            bucketStart[p + 1] += bucketStart[p];
+        }
+        int[] legAccount = new int[bucketStart[partitions]];
+        long[] legAmount = new long[bucketStart[partitions]];
+        int[] fill = bucketStart.clone();
+        for (int i = 0; i < from.length; i++) {
+            if (active == null || active[i]) {
+                int debitLeg = fill[partition(from[i])]++;
+                legAccount[debitLeg] = from[i];
+                legAmount[debitLeg] = -debit[i];
+                int creditLeg = fill[partition(to[i])]++;
+                legAccount[creditLeg] = to[i];
+                legAmount[creditLeg] = credit[i];
+            }
+        }
+
+        // 2. sum each partition in parallel
+        pool.invoke(new FoldTask(legAccount, legAmount, bucketStart, net, 0, partitions));
+        return net;
+    }
+
+    private int partition(int account) {
+        return (int) ((long) account * partitions / accounts);
+    }
+
+    private final class FoldTask extends RecursiveAction {
+        private final int[] legAccount;
+        private final long[] legAmount;
+        private final int[] bucketStart;
+        private final long[] net;
+        private final int lo;
+        private final int hi;
+
+        private FoldTask(int[] legAccount, long[] legAmount, int[] bucketStart, long[] net, int lo, int hi) {
+            this.legAccount = legAccount;
+            this.legAmount = legAmount;
+            this.bucketStart = bucketStart;
+            this.net = net;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new FoldTask(legAccount, legAmount, bucketStart, net, lo, mid),
+                        new FoldTask(legAccount, legAmount, bucketStart, net, mid, hi));
+                return;
+            }
+            for (int k = bucketStart[lo]; k < bucketStart[lo + 1]; k++) {
+                net[legAccount[k]] = Math.addExact(net[legAccount[k]], legAmount[k]);
+            }
+        }
+    }
+}
@@ -3,8 +3,8 @@ package org.example.transfer.comm;
 public class BaseConstant {
 
     /**
-     * Fee Rate
+     * Fee Rate, in basis points (1 bps = 0.01%)
      */
-    public static final double FEE_RATE = 0.01;
+    public static final long FEE_RATE_BPS = 100;
 
 }
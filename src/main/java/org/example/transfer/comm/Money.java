@@ -0,0 +1,103 @@
+package org.example.transfer.comm;
+
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.exception.BusinessException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * fixed-point money math on long minor units
+ * <p>
+ * minor units = amount * 10^currency.scale, e.g. 12.34 USD = 1234.
+ * fee, total deduct, balance check and fx conversion work on long only,
+ * BigDecimal is converted at the JPA / JSON boundary.
+ * all rounding is HALF_UP, same as BigDecimal.setScale(scale, HALF_UP).
+ */
+public final class Money {
+
+    /**
+     * 1 = 10000 bps
+     */
+    public static final long BPS = 10_000;
+
+    /**
+     * fx rate units = rate * 10^RATE_SCALE
+     */
+    public static final int RATE_SCALE = 10;
+
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+            10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+            1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    private Money() {
+    }
+
+    /**
+     * @return amount in minor units
+     * @throws BusinessException if amount has more decimal places than the currency, or overflows long
+     */
+    public static long toMinor(BigDecimal amount, Currency currency) {
+        try {
+            return amount.movePointRight(currency.getScale()).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new BusinessException(ExceptionEnum.PARAM_ILLEGAL.getErrorCode(),
+                    String.format("amount %s not supported for currency %s", amount.toPlainString(), currency));
+        }
+    }
+
+    /**
+     * @return minor units as BigDecimal with the currency scale
+     */
+    public static BigDecimal toDecimal(long minor, Currency currency) {
+        return BigDecimal.valueOf(minor, currency.getScale());
+    }
+
+    /**
+     * @return fx rate in rate units
+     * @throws ArithmeticException if rate overflows long
+     */
+    public static long toRateUnits(BigDecimal rate) {
+        return rate.setScale(RATE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * fee = amount * bps / 10000, HALF_UP
+     *
+     * @param amount non-negative amount in minor units
+     * @param bps    fee rate in basis points
+     * @return fee in minor units
+     */
+    public static long fee(long amount, long bps) {
+        return (Math.multiplyExact(amount, bps) + BPS / 2) / BPS;
+    }
+
+    /**
+     * converted = amount * rate, HALF_UP to the target currency scale
+     *
+     * @param amount    non-negative amount in minor units of from
+     * @param from      from currency
+     * @param to        to currency
+     * @param rateUnits 1 from = ? to, in rate units
+     * @return converted amount in minor units of to
+     */
+    public static long convert(long amount, Currency from, Currency to, long rateUnits) {
+        int shift = RATE_SCALE + from.getScale() - to.getScale();
+        long product = amount * rateUnits;
+        if (Math.multiplyHigh(amount, rateUnits) == 0 && product >= 0 && shift >= 0 && shift < POW10.length) {
+            long divisor = POW10[shift];
+            long quotient = product / divisor;
+            long remainder = product % divisor;
+            return remainder >= divisor - remainder ? quotient + 1 : quotient;
+        }
+
+        // 128-bit product, rare: very large amount or rate
+        return BigDecimal.valueOf(amount).multiply(BigDecimal.valueOf(rateUnits))
+                .movePointLeft(shift)
+                .setScale(0, RoundingMode.HALF_UP)
+                .longValueExact();
+    }
+}
@@ -1,5 +1,18 @@
 package org.example.transfer.comm.enums;
 
 public enum Currency {
-    USD, JPN, AUD, CNY, EUR
-}
\ No newline at end of file
+    USD(2), JPN(2), AUD(2), CNY(2), EUR(2);
+
+    /**
+     * number of decimal places, minor units = amount * 10^scale
+     */
+    private final int scale;
+
+    Currency(int scale) {
+        this.scale = scale;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+}
@@ -17,6 +17,7 @@ public enum ExceptionEnum implements BaseErrorInfoInterface {
     IDEMPOTENT_REQUEST("4012", "duplicate request!"),
     CIRCUIT_OPEN("4013", "service temporarily unavailable due to circuit breaker."),
     RATE_LIMIT_EXCEEDED("4014", "Too many requests, please try again later."),
+    STATEMENT_NOT_SUPPORT("4015", "not support statement!"),
     INTERNAL_SERVER_ERROR("5000", "internal server error!"),
     SERVER_BUSY("5003","server busy, please try later!");
 
@@ -0,0 +1,12 @@
+package org.example.transfer.comm.enums;
+
+public enum IdStrategyEnum {
+    /**
+     * pooled-lo sequence, one sequence call per allocation-size ids, a sequence table where the db has no sequences
+     */
+    POOLED,
+    /**
+     * 64-bit timestamp + node + counter generated in-process, no db call
+     */
+    TIME_ORDERED
+}
@@ -0,0 +1,24 @@
+package org.example.transfer.comm.enums;
+
+public enum LockStrategyEnum {
+    /**
+     * @Version check on commit, retry on conflict
+     */
+    OPTIMISTIC,
+    /**
+     * PESSIMISTIC_WRITE row locks in ascending account id order
+     */
+    PESSIMISTIC,
+    /**
+     * conditional single-statement balance updates, no entity write, no version check, no retry
+     */
+    ATOMIC,
+    /**
+     * transfers with the same min(fromId, toId) run one after another on a single-threaded lane, row locks in id order
+     */
+    SERIAL,
+    /**
+     * optimistic by default, switch to pessimistic while the measured conflict rate is high
+     */
+    ADAPTIVE
+}
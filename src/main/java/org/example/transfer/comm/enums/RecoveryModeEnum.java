@@ -0,0 +1,16 @@
+package org.example.transfer.comm.enums;
+
+public enum RecoveryModeEnum {
+    /**
+     * account balances are trusted as they are
+     */
+    NONE,
+    /**
+     * rebuild balances from the latest snapshot and log the accounts whose row differs
+     */
+    VERIFY,
+    /**
+     * rebuild balances from the latest snapshot and write them to the accounts whose row differs
+     */
+    RECOVER
+}
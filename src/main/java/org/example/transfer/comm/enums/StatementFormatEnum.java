@@ -0,0 +1,29 @@
+package org.example.transfer.comm.enums;
+
+public enum StatementFormatEnum {
+    /**
+     * one json object per line
+     */
+    NDJSON("application/x-ndjson", "ndjson"),
+    /**
+     * header line, then one comma separated line per transfer
+     */
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+
+    private final String extension;
+
+    StatementFormatEnum(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.transfer.comm.enums;
+
+public enum StatementStartEnum {
+    /**
+     * from the first transfer of the account, two passes over its whole history
+     */
+    FIRST,
+    /**
+     * from the latest balance snapshot holding the account, one pass over the transfers created after it.
+     * the balance of the snapshot opens the statement, earlier transfers are not listed
+     */
+    SNAPSHOT
+}
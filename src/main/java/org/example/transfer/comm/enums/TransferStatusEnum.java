@@ -0,0 +1,16 @@
+package org.example.transfer.comm.enums;
+
+public enum TransferStatusEnum {
+    /**
+     * accepted, not completed yet
+     */
+    PENDING,
+    /**
+     * transferred
+     */
+    SUCCESS,
+    /**
+     * rejected, see errorCode and errorMsg
+     */
+    FAILED
+}
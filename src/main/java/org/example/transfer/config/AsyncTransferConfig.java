@@ -0,0 +1,105 @@
+package org.example.transfer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * async transfer config
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.async")
+public class AsyncTransferConfig {
+
+    /**
+     * accept transfers with async=true, requires transfer.idempotency.persistent
+     */
+    private boolean enabled = false;
+
+    /**
+     * worker threads draining the queue
+     */
+    private int workers = 4;
+
+    /**
+     * max accepted but not yet completed transfers, excess submissions are rejected with SERVER_BUSY
+     */
+    private int capacity = 100000;
+
+    /**
+     * journal file, accepted transfers not completed before a restart are replayed from it
+     */
+    private String journalPath = "data/transfer-queue.journal";
+
+    /**
+     * force every journal write to disk before it is acknowledged
+     */
+    private boolean fsync = true;
+
+    /**
+     * max attempts of a transfer failing with a retryable error (circuit open, max retry, busy)
+     */
+    private int maxAttempts = 5;
+
+    /**
+     * wait before the next attempt, multiplied by the attempt number
+     */
+    private Duration retryBackoff = Duration.ofMillis(200);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public String getJournalPath() {
+        return journalPath;
+    }
+
+    public void setJournalPath(String journalPath) {
+        this.journalPath = journalPath;
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    public void setFsync(boolean fsync) {
+        this.fsync = fsync;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public Duration getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    public void setRetryBackoff(Duration retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.transfer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * batch transfer config
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.batch")
+public class BatchConfig {
+
+    /**
+     * max transfers in one batch request
+     */
+    private int maxSize = 5000;
+
+    /**
+     * max transfers applied in one db transaction
+     */
+    private int chunkSize = 500;
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.transfer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * multilateral clearing config
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.clearing")
+public class ClearingConfig {
+
+    /**
+     * transfers are collected and settled by net position at the end of each clearing cycle,
+     *
+     * default: false
+     */
+    private boolean enabled = false;
+
+    /**
+     * max transfers pending in one cycle, excess transfers are rejected with SERVER_BUSY
+     */
+    private int maxPending = 1_000_000;
+
+    /**
+     * account partitions folded in parallel
+     */
+    private int partitions = 64;
+
+    /**
+     * accounts locked per query and transfer logs flushed per jdbc round, during settlement
+     */
+    private int writeBatchSize = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    public void setMaxPending(int maxPending) {
+        this.maxPending = maxPending;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(int partitions) {
+        this.partitions = partitions;
+    }
+
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    public void setWriteBatchSize(int writeBatchSize) {
+        this.writeBatchSize = writeBatchSize;
+    }
+}
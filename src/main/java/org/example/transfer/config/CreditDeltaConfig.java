@@ -0,0 +1,41 @@
+package org.example.transfer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * append-only credit config
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.credit-delta")
+public class CreditDeltaConfig {
+
+    /**
+     * credits insert a balance_delta row instead of writing the receiver's row,
+     * a scheduled task folds them into the row later.
+     *
+     * default: false
+     */
+    private boolean enabled = false;
+
+    /**
+     * max credits of one account folded in one transaction
+     */
+    private int foldBatchSize = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getFoldBatchSize() {
+        return foldBatchSize;
+    }
+
+    public void setFoldBatchSize(int foldBatchSize) {
+        this.foldBatchSize = foldBatchSize;
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.transfer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * group commit config
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.group-commit")
+public class GroupCommitConfig {
+
+    /**
+     * collect concurrent transfers and apply them in one transaction instead of one transaction each,
+     *
+     * default: false
+     */
+    private boolean enabled = false;
+
+    /**
+     * how long a group stays open after its first transfer arrived
+     */
+    private Duration window = Duration.ofMillis(2);
+
+    /**
+     * max transfers in one group, a full group is committed without waiting for the window
+     */
+    private int maxSize = 500;
+
+    /**
+     * max transfers waiting for a group, excess transfers are rejected with SERVER_BUSY
+     */
+    private int queueCapacity = 10000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
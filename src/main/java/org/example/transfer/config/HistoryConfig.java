@@ -0,0 +1,38 @@
+package org.example.transfer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * transfer history query config
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.history")
+public class HistoryConfig {
+
+    /**
+     * transfers per page if the request has no limit
+     */
+    private int defaultLimit = 50;
+
+    /**
+     * max transfers per page
+     */
+    private int maxLimit = 500;
+
+    public int getDefaultLimit() {
+        return defaultLimit;
+    }
+
+    public void setDefaultLimit(int defaultLimit) {
+        this.defaultLimit = defaultLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+}
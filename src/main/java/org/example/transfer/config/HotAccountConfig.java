@@ -0,0 +1,41 @@
+package org.example.transfer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * hot account balance slot config
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.hot-account")
+public class HotAccountConfig {
+
+    /**
+     * accounts whose balance is split into slots at startup, split accounts not listed are merged back
+     */
+    private List<Long> accountIds = new ArrayList<>();
+
+    /**
+     * slots per hot account
+     */
+    private int slots = 8;
+
+    public List<Long> getAccountIds() {
+        return accountIds;
+    }
+
+    public void setAccountIds(List<Long> accountIds) {
+        this.accountIds = accountIds;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public void setSlots(int slots) {
+        this.slots = slots;
+    }
+}
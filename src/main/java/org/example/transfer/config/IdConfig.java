@@ -0,0 +1,65 @@
+package org.example.transfer.config;
+
+import org.example.transfer.comm.enums.IdStrategyEnum;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * id generation config, read by hibernate when the entity mappings are built
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.id")
+public class IdConfig {
+
+    /**
+     * id strategy of account
+     */
+    private IdStrategyEnum account = IdStrategyEnum.POOLED;
+
+    /**
+     * id strategy of transfer_log
+     */
+    private IdStrategyEnum transferLog = IdStrategyEnum.POOLED;
+
+    /**
+     * POOLED: ids taken per sequence call
+     */
+    private int allocationSize = 50;
+
+    /**
+     * TIME_ORDERED: node id in [0, 1023], unique per running instance
+     */
+    private int nodeId = 0;
+
+    public IdStrategyEnum getAccount() {
+        return account;
+    }
+
+    public void setAccount(IdStrategyEnum account) {
+        this.account = account;
+    }
+
+    public IdStrategyEnum getTransferLog() {
+        return transferLog;
+    }
+
+    public void setTransferLog(IdStrategyEnum transferLog) {
+        this.transferLog = transferLog;
+    }
+
+    public int getAllocationSize() {
+        return allocationSize;
+    }
+
+    public void setAllocationSize(int allocationSize) {
+        this.allocationSize = allocationSize;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(int nodeId) {
+        this.nodeId = nodeId;
+    }
+}
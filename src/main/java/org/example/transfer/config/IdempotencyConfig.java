@@ -0,0 +1,68 @@
+package org.example.transfer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * idempotency store config
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.idempotency")
+public class IdempotencyConfig {
+
+    /**
+     * how long a completed requestId is remembered
+     */
+    private Duration ttl = Duration.ofHours(1);
+
+    /**
+     * max requestIds in memory, the oldest completed are evicted before their ttl when exceeded,
+     * new requestIds are rejected with SERVER_BUSY while only in-progress ones are left
+     */
+    private int maxKeys = 2_000_000;
+
+    /**
+     * true: a duplicate of a completed request gets the stored outcome,
+     * false: it is rejected as duplicate request
+     */
+    private boolean replayResult = false;
+
+    /**
+     * persist completed requestIds to db, reloaded at startup
+     */
+    private boolean persistent = false;
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public int getMaxKeys() {
+        return maxKeys;
+    }
+
+    public void setMaxKeys(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    public boolean isReplayResult() {
+        return replayResult;
+    }
+
+    public void setReplayResult(boolean replayResult) {
+        this.replayResult = replayResult;
+    }
+
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    public void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+    }
+}
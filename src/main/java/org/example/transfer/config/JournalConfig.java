@@ -0,0 +1,80 @@
+package org.example.transfer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * write-ahead transfer journal config, used with the in-memory ledger engine
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.journal")
+public class JournalConfig {
+
+    /**
+     * a ledger transfer is committed once its journal record is durable, the projector writes account and transfer_log later
+     *
+     * default: false
+     */
+    private boolean enabled = false;
+
+    /**
+     * directory of the journal segment files
+     */
+    private String directory = "data/journal";
+
+    /**
+     * size of one memory-mapped segment file, a multiple of the 80 byte record size
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(80);
+
+    /**
+     * force appended records to disk before their transfers complete, one force per group of records
+     */
+    private boolean fsync = true;
+
+    /**
+     * max journal records projected in one transaction
+     */
+    private int projectorBatchSize = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public DataSize getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(DataSize segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    public void setFsync(boolean fsync) {
+        this.fsync = fsync;
+    }
+
+    public int getProjectorBatchSize() {
+        return projectorBatchSize;
+    }
+
+    public void setProjectorBatchSize(int projectorBatchSize) {
+        this.projectorBatchSize = projectorBatchSize;
+    }
+}
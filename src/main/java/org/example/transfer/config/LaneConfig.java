@@ -0,0 +1,38 @@
+package org.example.transfer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * SERIAL lock strategy config
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.lane")
+public class LaneConfig {
+
+    /**
+     * number of single-threaded lanes, transfers are routed by min(fromId, toId)
+     */
+    private int lanes = 8;
+
+    /**
+     * max pending transfers per lane, excess transfers are rejected with SERVER_BUSY
+     */
+    private int queueCapacity = 10000;
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    public void setLanes(int lanes) {
+        this.lanes = lanes;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
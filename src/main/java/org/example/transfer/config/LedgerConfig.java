@@ -0,0 +1,93 @@
+package org.example.transfer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * in-memory ledger engine config
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.ledger")
+public class LedgerConfig {
+
+    /**
+     * apply transfers on the in-memory ledger engine instead of JPA optimistic locking,
+     *
+     * default: false
+     */
+    private boolean enabled = false;
+
+    /**
+     * number of single-threaded shards, accounts are partitioned by id
+     */
+    private int shards = 4;
+
+    /**
+     * max pending events per shard, excess transfers are rejected with SERVER_BUSY
+     */
+    private int queueCapacity = 65536;
+
+    /**
+     * max balance updates + transfer logs persisted by the writer in one transaction
+     */
+    private int writerBatchSize = 1000;
+
+    /**
+     * attempts of a failing writer batch before it is split in halves, a single failing change is dead-lettered.
+     * not counted while the database itself is unreachable
+     */
+    private int writerMaxAttempts = 3;
+
+    /**
+     * file the writer appends changes it could not persist to, one json line each, for manual repair
+     */
+    private String deadLetterPath = "data/ledger-dead-letter.log";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getWriterBatchSize() {
+        return writerBatchSize;
+    }
+
+    public void setWriterBatchSize(int writerBatchSize) {
+        this.writerBatchSize = writerBatchSize;
+    }
+
+    public int getWriterMaxAttempts() {
+        return writerMaxAttempts;
+    }
+
+    public void setWriterMaxAttempts(int writerMaxAttempts) {
+        this.writerMaxAttempts = writerMaxAttempts;
+    }
+
+    public String getDeadLetterPath() {
+        return deadLetterPath;
+    }
+
+    public void setDeadLetterPath(String deadLetterPath) {
+        this.deadLetterPath = deadLetterPath;
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.transfer.config;
+
+import org.example.transfer.comm.enums.LockStrategyEnum;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * account locking strategy config
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.lock")
+public class LockConfig {
+
+    /**
+     * locking strategy,
+     *
+     * default: OPTIMISTIC
+     */
+    private LockStrategyEnum strategy = LockStrategyEnum.OPTIMISTIC;
+
+    /**
+     * ADAPTIVE: switch to pessimistic when conflicts / attempts in a window reach this rate
+     */
+    private double conflictRateThreshold = 0.2;
+
+    /**
+     * ADAPTIVE: min attempts in a window before the conflict rate is trusted
+     */
+    private int minAttempts = 20;
+
+    /**
+     * ADAPTIVE: conflict rate measurement window
+     */
+    private Duration window = Duration.ofSeconds(1);
+
+    /**
+     * ADAPTIVE: how long to stay pessimistic before measuring optimistic conflicts again
+     */
+    private Duration pessimisticDuration = Duration.ofSeconds(10);
+
+    public LockStrategyEnum getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(LockStrategyEnum strategy) {
+        this.strategy = strategy;
+    }
+
+    public double getConflictRateThreshold() {
+        return conflictRateThreshold;
+    }
+
+    public void setConflictRateThreshold(double conflictRateThreshold) {
+        this.conflictRateThreshold = conflictRateThreshold;
+    }
+
+    public int getMinAttempts() {
+        return minAttempts;
+    }
+
+    public void setMinAttempts(int minAttempts) {
+        this.minAttempts = minAttempts;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public Duration getPessimisticDuration() {
+        return pessimisticDuration;
+    }
+
+    public void setPessimisticDuration(Duration pessimisticDuration) {
+        this.pessimisticDuration = pessimisticDuration;
+    }
+}
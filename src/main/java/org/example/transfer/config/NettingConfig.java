@@ -0,0 +1,27 @@
+package org.example.transfer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * bilateral netting config
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.netting")
+public class NettingConfig {
+
+    /**
+     * batch chunks and group commits write one net movement per account pair instead of one per transfer,
+     *
+     * default: false
+     */
+    private boolean enabled = false;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+}
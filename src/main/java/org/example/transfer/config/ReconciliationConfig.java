@@ -0,0 +1,66 @@
+package org.example.transfer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * ledger reconciliation config
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.reconciliation")
+public class ReconciliationConfig {
+
+    /**
+     * reconcile every transfer.reconciliation.interval, account balances against the latest snapshot plus transfer_log
+     *
+     * default: false
+     */
+    private boolean enabled = false;
+
+    /**
+     * threads reading transfer_log, each one pages through its own time slice
+     */
+    private int workers = 4;
+
+    /**
+     * accounts and transfer logs read per query, each query is a short transaction of its own
+     */
+    private int pageSize = 10_000;
+
+    /**
+     * mismatches kept in the report, all of them are counted
+     */
+    private int maxReported = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public int getMaxReported() {
+        return maxReported;
+    }
+
+    public void setMaxReported(int maxReported) {
+        this.maxReported = maxReported;
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.transfer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * optimistic conflict retry config
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.retry")
+public class RetryConfig {
+
+    /**
+     * max retries of one transfer after optimistic conflicts
+     */
+    private int maxRetries = 3;
+
+    /**
+     * decorrelated jitter: lowest backoff, raised by the conflict rate of the transfer's accounts
+     */
+    private Duration baseDelay = Duration.ofMillis(100);
+
+    /**
+     * decorrelated jitter: highest backoff
+     */
+    private Duration maxDelay = Duration.ofSeconds(1);
+
+    /**
+     * time budget of all attempts of a transfer, counted from its first call
+     */
+    private Duration timeout = Duration.ofSeconds(2);
+
+    /**
+     * retries allowed per window, as a ratio of transfers started in this and the previous window
+     */
+    private double budgetRatio = 0.2;
+
+    /**
+     * retries always allowed per window, so a quiet service can still retry
+     */
+    private int budgetMinRetries = 10;
+
+    /**
+     * retry budget window
+     */
+    private Duration budgetWindow = Duration.ofSeconds(1);
+
+    /**
+     * forget the conflict rate of an account without attempts for this long
+     */
+    private Duration contentionTtl = Duration.ofSeconds(30);
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public Duration getBaseDelay() {
+        return baseDelay;
+    }
+
+    public void setBaseDelay(Duration baseDelay) {
+        this.baseDelay = baseDelay;
+    }
+
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    public void setMaxDelay(Duration maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    public void setBudgetRatio(double budgetRatio) {
+        this.budgetRatio = budgetRatio;
+    }
+
+    public int getBudgetMinRetries() {
+        return budgetMinRetries;
+    }
+
+    public void setBudgetMinRetries(int budgetMinRetries) {
+        this.budgetMinRetries = budgetMinRetries;
+    }
+
+    public Duration getBudgetWindow() {
+        return budgetWindow;
+    }
+
+    public void setBudgetWindow(Duration budgetWindow) {
+        this.budgetWindow = budgetWindow;
+    }
+
+    public Duration getContentionTtl() {
+        return contentionTtl;
+    }
+
+    public void setContentionTtl(Duration contentionTtl) {
+        this.contentionTtl = contentionTtl;
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.transfer.config;
+
+import org.example.transfer.comm.enums.RecoveryModeEnum;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * balance snapshot and rebuild config
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.snapshot")
+public class SnapshotConfig {
+
+    /**
+     * take a balance snapshot every transfer.snapshot.interval, balances are rebuilt from the latest one
+     *
+     * default: false
+     */
+    private boolean enabled = false;
+
+    /**
+     * a snapshot covers the logs created until settle before it is taken,
+     * longer than any transfer transaction so no log below its watermark commits after it
+     */
+    private Duration settle = Duration.ofSeconds(10);
+
+    /**
+     * snapshots kept, older ones are deleted after a new one is taken
+     */
+    private int retain = 2;
+
+    /**
+     * accounts and transfer logs read per query
+     */
+    private int pageSize = 100_000;
+
+    /**
+     * account partitions folded in parallel
+     */
+    private int partitions = 64;
+
+    /**
+     * what to do with the rebuilt balances at startup, before any transfer
+     */
+    private RecoveryModeEnum startup = RecoveryModeEnum.NONE;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getSettle() {
+        return settle;
+    }
+
+    public void setSettle(Duration settle) {
+        this.settle = settle;
+    }
+
+    public int getRetain() {
+        return retain;
+    }
+
+    public void setRetain(int retain) {
+        this.retain = retain;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(int partitions) {
+        this.partitions = partitions;
+    }
+
+    public RecoveryModeEnum getStartup() {
+        return startup;
+    }
+
+    public void setStartup(RecoveryModeEnum startup) {
+        this.startup = startup;
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.transfer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * account statement export config
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.statement")
+public class StatementConfig {
+
+    /**
+     * async timeout of a statement response, other async responses keep spring.mvc.async.request-timeout
+     */
+    private Duration timeout = Duration.ofMinutes(10);
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
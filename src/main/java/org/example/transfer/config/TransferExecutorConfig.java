@@ -0,0 +1,70 @@
+package org.example.transfer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * non-blocking transfer execution config
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.executor")
+public class TransferExecutorConfig {
+
+    /**
+     * threads running db transfer attempts, request threads only wait on a future.
+     * each attempt holds a db connection, more threads than connections only wait for one
+     */
+    private int threads = 10;
+
+    /**
+     * optimistic transfers attempting or backing off at once, later ones wait in arrival order.
+     * each one admitted next to a retrying transfer is another chance for it to conflict again,
+     * below the thread count threads stay idle while transfers on unrelated accounts wait
+     */
+    private int maxInFlight = 10;
+
+    /**
+     * transfers waiting for an admission slot, excess transfers are rejected with SERVER_BUSY
+     */
+    private int maxWaiting = 10_000;
+
+    /**
+     * time a POST /api/transfer response waits for its transfer, then it is answered with SERVER_BUSY.
+     * a transfer still waiting for an admission slot or a thread by then is dropped without starting
+     */
+    private Duration timeout = Duration.ofSeconds(10);
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public int getMaxWaiting() {
+        return maxWaiting;
+    }
+
+    public void setMaxWaiting(int maxWaiting) {
+        this.maxWaiting = maxWaiting;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
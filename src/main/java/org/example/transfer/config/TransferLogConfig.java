@@ -0,0 +1,80 @@
+package org.example.transfer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * transfer log write-behind config
+ */
+@Component
+@ConfigurationProperties(prefix = "transfer.transfer-log")
+public class TransferLogConfig {
+
+    /**
+     * journal transfer logs after the transfer commits and insert them in batches by a background writer,
+     * instead of inserting them in the transfer's transaction
+     *
+     * default: false
+     */
+    private boolean writeBehind = false;
+
+    /**
+     * max journaled transfer logs waiting for the writer, committing transfers wait while it is full
+     */
+    private int ringCapacity = 65536;
+
+    /**
+     * max transfer logs inserted by the writer in one transaction
+     */
+    private int batchSize = 1000;
+
+    /**
+     * journal file, transfer logs not inserted before a restart are replayed from it
+     */
+    private String journalPath = "data/transfer-log.journal";
+
+    /**
+     * force the journal to disk once per committed transaction
+     */
+    private boolean fsync = true;
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    public int getRingCapacity() {
+        return ringCapacity;
+    }
+
+    public void setRingCapacity(int ringCapacity) {
+        this.ringCapacity = ringCapacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public String getJournalPath() {
+        return journalPath;
+    }
+
+    public void setJournalPath(String journalPath) {
+        this.journalPath = journalPath;
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    public void setFsync(boolean fsync) {
+        this.fsync = fsync;
+    }
+}
@@ -1,15 +1,45 @@
 package org.example.transfer.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.comm.enums.StatementFormatEnum;
+import org.example.transfer.comm.enums.StatementStartEnum;
+import org.example.transfer.config.StatementConfig;
+import org.example.transfer.config.TransferExecutorConfig;
+import org.example.transfer.config.WebConfig;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.params.req.BatchTransferRequest;
 import org.example.transfer.params.req.TransferRequest;
+import org.example.transfer.params.resp.BatchTransferResult;
 import org.example.transfer.params.resp.CommonResponse;
+import org.example.transfer.params.resp.TransferHistoryResult;
+import org.example.transfer.params.resp.TransferStatusResult;
+import org.example.transfer.service.StatementService;
 import org.example.transfer.service.TransferService;
+import org.example.transfer.util.FutureUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * transfer controller
@@ -21,12 +51,115 @@ public class TransferController {
     @Autowired
     private TransferService transferService;
 
+    @Autowired
+    private StatementService statementService;
+
+    @Autowired
+    private StatementConfig statementConfig;
+
+    @Autowired
+    private TransferExecutorConfig transferExecutorConfig;
+
     @RequestMapping(value = "/transfer", method = RequestMethod.POST)
     @ResponseBody
-    public CommonResponse<Void> transfer(@RequestBody @Valid TransferRequest request) {
-        CommonResponse<Void> result = new CommonResponse<>();
-        transferService.transfer(request);
+    public DeferredResult<CommonResponse<Void>> transfer(@RequestBody @Valid TransferRequest request) {
+        // the request thread returns at once, the response is written when the transfer completes.
+        // on timeout a transfer not started yet is dropped by the executor, one started still completes
+        DeferredResult<CommonResponse<Void>> result = new DeferredResult<>(transferExecutorConfig.getTimeout().toMillis(),
+                () -> new BusinessException(ExceptionEnum.SERVER_BUSY.getErrorCode(), ExceptionEnum.SERVER_BUSY.getErrorMsg()));
+        transferService.transferAsync(request).whenComplete((ignored, error) -> {
+            if (error != null) {
+                result.setErrorResult(FutureUtils.unwrap(error));
+                return;
+            }
+            CommonResponse<Void> response = new CommonResponse<>();
+            response.setSuccess(true);
+            result.setResult(response);
+        });
+        return result;
+    }
+
+    /**
+     * accept the transfer and return at once, poll GET /api/transfer/{requestId} for the result
+     */
+    @RequestMapping(value = "/transfer", method = RequestMethod.POST, params = "async=true")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @ResponseBody
+    public CommonResponse<String> submitTransfer(@RequestBody @Valid TransferRequest request) {
+        CommonResponse<String> result = new CommonResponse<>();
+        transferService.submit(request);
+        result.setSuccess(true);
+        result.setData(request.getRequestId());
+        return result;
+    }
+
+    @RequestMapping(value = "/transfer/{requestId}", method = RequestMethod.GET)
+    @ResponseBody
+    public CommonResponse<TransferStatusResult> getTransfer(@PathVariable String requestId) {
+        CommonResponse<TransferStatusResult> result = new CommonResponse<>();
+        result.setData(transferService.getStatus(requestId));
+        result.setSuccess(true);
+        return result;
+    }
+
+    @RequestMapping(value = "/transfers/batch", method = RequestMethod.POST)
+    @ResponseBody
+    public CommonResponse<List<BatchTransferResult>> batchTransfer(@RequestBody @Valid BatchTransferRequest request) {
+        CommonResponse<List<BatchTransferResult>> result = new CommonResponse<>();
+        result.setData(transferService.batchTransfer(request.getTransfers()));
         result.setSuccess(true);
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * transfers of an account, newest first, pass nextCursor of a page as cursor to get the next one
+     */
+    @RequestMapping(value = "/accounts/{accountId}/transfers", method = RequestMethod.GET)
+    @ResponseBody
+    public CommonResponse<TransferHistoryResult> getTransfers(
+            @PathVariable Long accountId,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant since,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant until,
+            @RequestParam(required = false) Integer limit) {
+        CommonResponse<TransferHistoryResult> result = new CommonResponse<>();
+        result.setData(transferService.getTransfers(accountId, cursor, since, until, limit));
+        result.setSuccess(true);
+        return result;
+    }
+
+    /**
+     * statement of an account streamed while it is read, gzip compressed if the client accepts it.
+     * without a cursor it lists the whole history, or starts at the latest balance snapshot, if any, with from = SNAPSHOT.
+     * an interrupted download resumes with cursor = id of the last line received
+     */
+    @RequestMapping(value = "/accounts/{accountId}/statement", method = RequestMethod.GET)
+    public ResponseEntity<StreamingResponseBody> getStatement(
+            @PathVariable Long accountId,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "FIRST") StatementStartEnum from,
+            @RequestParam(defaultValue = "NDJSON") StatementFormatEnum format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request) {
+        // fail with a json response before the statement is committed
+        statementService.checkAccount(accountId);
+        request.setAttribute(WebConfig.ASYNC_TIMEOUT_ATTRIBUTE, statementConfig.getTimeout().toMillis());
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+            statementService.write(accountId, cursor, from, format, target);
+            if (gzip) {
+                ((GZIPOutputStream) target).finish();
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        String.format("attachment; filename=\"statement-%d.%s\"", accountId, format.getExtension()))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+}
@@ -0,0 +1,254 @@
+package org.example.transfer.executor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.config.RetryConfig;
+import org.example.transfer.exception.BusinessException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * decide whether and when an optimistic conflict is retried
+ * <p>
+ * 1. max retries: at most maxRetries per transfer
+ * 2. backoff: decorrelated jitter, random in [base, 3 x previous backoff], at most maxDelay.
+ * base grows with the conflict rate of the transfer's accounts, hot accounts back off longer.
+ * 3. timeout: no retry if it can not finish within the transfer's time budget
+ * 4. budget: retries per window are limited to a ratio of the transfers started, a conflict storm is not doubled by retries
+ * <p>
+ * a transfer which gives up fails with OPTIMISTIC_LOCK_MAX_RETRY_ERROR.
+ */
+@Component
+public class AdaptiveRetryPolicy {
+
+    /**
+     * weight of the latest attempt in an account's conflict rate
+     */
+    private static final double CONTENTION_ALPHA = 0.1;
+
+    /**
+     * base backoff of accounts where every attempt conflicts, in multiples of baseDelay, minus one
+     */
+    private static final double CONTENTION_FACTOR = 3;
+
+    /**
+     * weight of the latest attempt in the expected attempt duration
+     */
+    private static final double DURATION_ALPHA = 0.2;
+
+    @Autowired
+    private RetryConfig retryConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Long, Contention> contentions = new ConcurrentHashMap<>();
+
+    /**
+     * expected duration of one attempt in millis, double bits
+     */
+    private final AtomicLong attemptMillis = new AtomicLong(Double.doubleToLongBits(0));
+
+    private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLong windowTransfers = new AtomicLong();
+    private final AtomicLong windowRetries = new AtomicLong();
+    private volatile long previousWindowTransfers;
+
+    private Counter conflictCounter;
+
+    private Counter retryCounter;
+
+    private Counter maxRetriesCounter;
+
+    private Counter timeoutCounter;
+
+    private Counter budgetCounter;
+
+    @PostConstruct
+    public void init() {
+        conflictCounter = Counter.builder("transfer.retry.conflicts")
+                .description("optimistic attempts failed by a conflict")
+                .register(meterRegistry);
+        retryCounter = Counter.builder("transfer.retry.retries")
+                .description("optimistic attempts retried after a conflict")
+                .register(meterRegistry);
+        maxRetriesCounter = giveUpCounter("max_retries");
+        timeoutCounter = giveUpCounter("timeout");
+        budgetCounter = giveUpCounter("budget");
+        Gauge.builder("transfer.retry.accounts", contentions, Map::size)
+                .description("accounts with a tracked conflict rate")
+                .register(meterRegistry);
+    }
+
+    /**
+     * a transfer makes its first attempt
+     *
+     * @param accountIds accounts written by the transfer
+     * @return retry state of the transfer, pass it to the other methods
+     */
+    public RetryState start(long... accountIds) {
+        rollWindow();
+        windowTransfers.incrementAndGet();
+        return new RetryState(accountIds, System.currentTimeMillis() + retryConfig.getTimeout().toMillis());
+    }
+
+    /**
+     * record the result of one attempt
+     *
+     * @param state    retry state of the transfer
+     * @param conflict true if the attempt failed by optimistic lock
+     * @param millis   duration of the attempt
+     */
+    public void recordAttempt(RetryState state, boolean conflict, long millis) {
+        if (conflict) {
+            conflictCounter.increment();
+        }
+        long now = System.currentTimeMillis();
+        for (long accountId : state.accountIds) {
+            contentions.computeIfAbsent(accountId, id -> new Contention()).record(conflict, now);
+        }
+        attemptMillis.getAndUpdate(bits -> Double.doubleToLongBits(
+                ewma(Double.longBitsToDouble(bits), millis, DURATION_ALPHA)));
+    }
+
+    /**
+     * a conflicted transfer asks for another attempt
+     *
+     * @param state retry state of the transfer
+     * @return millis to wait before the next attempt
+     * @throws BusinessException OPTIMISTIC_LOCK_MAX_RETRY_ERROR if the transfer must give up
+     */
+    public long nextDelay(RetryState state) {
+        if (state.retries >= retryConfig.getMaxRetries()) {
+            throw giveUp(maxRetriesCounter, ExceptionEnum.OPTIMISTIC_LOCK_MAX_RETRY_ERROR.getErrorMsg());
+        }
+
+        // 1. decorrelated jitter, from a base raised by the hottest account
+        long base = Math.round(retryConfig.getBaseDelay().toMillis() * (1 + CONTENTION_FACTOR * contention(state.accountIds)));
+        long upper = Math.max(base, state.previousDelay * 3);
+        long delay = Math.min(retryConfig.getMaxDelay().toMillis(), ThreadLocalRandom.current().nextLong(base, upper + 1));
+
+        // 2. the wait and one more attempt must fit in the time budget
+        long expectedAttempt = Math.round(Double.longBitsToDouble(attemptMillis.get()));
+        if (System.currentTimeMillis() + delay + expectedAttempt > state.deadline) {
+            throw giveUp(timeoutCounter, "optimistic lock retry can not finish in time");
+        }
+
+        // 3. take a retry from the budget, checked last so a transfer giving up does not spend it
+        if (!acquireRetry()) {
+            throw giveUp(budgetCounter, "optimistic lock retry budget exhausted");
+        }
+
+        state.retries++;
+        state.previousDelay = delay;
+        retryCounter.increment();
+        return delay;
+    }
+
+    /**
+     * @return conflict rate of the hottest account, 0 if none is tracked
+     */
+    public double contention(long... accountIds) {
+        double max = 0;
+        for (long accountId : accountIds) {
+            Contention contention = contentions.get(accountId);
+            if (contention != null) {
+                max = Math.max(max, contention.rate());
+            }
+        }
+        return max;
+    }
+
+    /**
+     * forget accounts without recent attempts
+     */
+    @Scheduled(fixedDelayString = "${transfer.retry.contention-ttl:PT30S}")
+    public void sweep() {
+        long expired = System.currentTimeMillis() - retryConfig.getContentionTtl().toMillis();
+        contentions.values().removeIf(contention -> contention.lastSeen < expired);
+    }
+
+    private boolean acquireRetry() {
+        rollWindow();
+        long allowed = retryConfig.getBudgetMinRetries()
+                + (long) (retryConfig.getBudgetRatio() * (windowTransfers.get() + previousWindowTransfers));
+        if (windowRetries.incrementAndGet() <= allowed) {
+            return true;
+        }
+        windowRetries.decrementAndGet();
+        return false;
+    }
+
+    private void rollWindow() {
+        long now = System.currentTimeMillis();
+        long start = windowStart.get();
+        if (now - start < retryConfig.getBudgetWindow().toMillis() || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        // only the thread which rolled the window resets it
+        previousWindowTransfers = windowTransfers.getAndSet(0);
+        windowRetries.set(0);
+    }
+
+    private BusinessException giveUp(Counter reason, String msg) {
+        reason.increment();
+        return new BusinessException(ExceptionEnum.OPTIMISTIC_LOCK_MAX_RETRY_ERROR.getErrorCode(), msg);
+    }
+
+    private Counter giveUpCounter(String reason) {
+        return Counter.builder("transfer.retry.give_up")
+                .tag("reason", reason)
+                .description("conflicted transfers failed without another attempt")
+                .register(meterRegistry);
+    }
+
+    private static double ewma(double average, double sample, double alpha) {
+        return average + alpha * (sample - average);
+    }
+
+    /**
+     * attempts of one transfer, used by one attempt at a time
+     */
+    public static final class RetryState {
+        private final long[] accountIds;
+        private final long deadline;
+        private int retries;
+        private long previousDelay;
+
+        private RetryState(long[] accountIds, long deadline) {
+            this.accountIds = accountIds;
+            this.deadline = deadline;
+        }
+
+        public int getRetries() {
+            return retries;
+        }
+    }
+
+    /**
+     * conflict rate of one account, exponentially weighted over its attempts
+     */
+    private static final class Contention {
+        private final AtomicLong rateBits = new AtomicLong(Double.doubleToLongBits(0));
+        private volatile long lastSeen;
+
+        void record(boolean conflict, long now) {
+            rateBits.getAndUpdate(bits -> Double.doubleToLongBits(
+                    ewma(Double.longBitsToDouble(bits), conflict ? 1 : 0, CONTENTION_ALPHA)));
+            lastSeen = now;
+        }
+
+        double rate() {
+            return Double.longBitsToDouble(rateBits.get());
+        }
+    }
+}
@@ -5,8 +5,10 @@ import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import org.example.transfer.comm.enums.ExceptionEnum;
 import org.example.transfer.exception.BusinessException;
+import org.example.transfer.util.FutureUtils;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
 @Component
@@ -40,4 +42,25 @@ public class CircuitBreakerExecutor {
                     ExceptionEnum.CIRCUIT_OPEN.getErrorMsg());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Executes the given async task within a circuit breaker context, the outcome is recorded when the task completes.
+     *
+     * @param task async business task
+     * @return business result, failed with BusinessException if the circuit is open
+     */
+    public <T> CompletableFuture<T> executeAsync(Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        circuitBreaker.executeCompletionStage(task::get).whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            } else if (FutureUtils.unwrap(error) instanceof CallNotPermittedException) {
+                result.completeExceptionally(new BusinessException(ExceptionEnum.CIRCUIT_OPEN.getErrorCode(),
+                        ExceptionEnum.CIRCUIT_OPEN.getErrorMsg()));
+            } else {
+                result.completeExceptionally(FutureUtils.unwrap(error));
+            }
+        });
+        return result;
+    }
+}
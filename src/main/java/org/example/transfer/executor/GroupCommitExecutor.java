@@ -0,0 +1,172 @@
+package org.example.transfer.executor;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.config.GroupCommitConfig;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.params.req.TransferRequest;
+import org.example.transfer.params.resp.BatchTransferResult;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * group commit of concurrent transfers
+ * <p>
+ * 1. transfers are queued, one committer thread takes the first and collects more until the window closes or the group is full
+ * 2. the group is applied by the handler in one transaction, see TransferServiceImpl#applyGroup
+ * 3. every transfer's future is completed with its own result, a rejected transfer does not fail the group
+ * <p>
+ * while a group commits, the next one fills up in the queue.
+ */
+@Component
+public class GroupCommitExecutor {
+    Logger log = LogManager.getLogger(GroupCommitExecutor.class);
+
+    @Autowired
+    private GroupCommitConfig groupCommitConfig;
+
+    @Autowired
+    private WorkerThreadFactory workerThreadFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private DistributionSummary groupSize;
+
+    private BlockingQueue<Pending> queue;
+
+    private Thread committer;
+
+    private volatile Function<List<TransferRequest>, List<BatchTransferResult>> handler;
+
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void start() {
+        groupSize = DistributionSummary.builder("transfer.group_commit.size")
+                .description("transfers committed in one transaction")
+                .register(meterRegistry);
+        queue = new ArrayBlockingQueue<>(groupCommitConfig.getQueueCapacity());
+        committer = workerThreadFactory.newThread("transfer-group-commit", this::run);
+        committer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        committer.interrupt();
+        try {
+            committer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param handler applies a group in one transaction, returns one result per transfer in the same order
+     */
+    public void setHandler(Function<List<TransferRequest>, List<BatchTransferResult>> handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * add a transfer to the next group
+     *
+     * @param request transfer
+     * @return completed when the transfer's group committed, failed with BusinessException if it was rejected
+     * @throws BusinessException SERVER_BUSY if too many transfers wait for a group
+     */
+    public CompletableFuture<Void> submit(TransferRequest request) {
+        Pending pending = new Pending(request, MDC.getCopyOfContextMap());
+        if (!running || !queue.offer(pending)) {
+            throw new BusinessException(ExceptionEnum.SERVER_BUSY.getErrorCode(), ExceptionEnum.SERVER_BUSY.getErrorMsg());
+        }
+        return pending.result;
+    }
+
+    private void run() {
+        List<Pending> group = new ArrayList<>(groupCommitConfig.getMaxSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(group);
+            } catch (InterruptedException e) {
+                queue.drainTo(group, groupCommitConfig.getMaxSize() - group.size());
+            }
+            if (!group.isEmpty()) {
+                commit(group);
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * wait for the first transfer, then collect until the window closes or the group is full
+     */
+    private void collect(List<Pending> group) throws InterruptedException {
+        group.add(queue.take());
+        long deadline = System.nanoTime() + groupCommitConfig.getWindow().toNanos();
+        while (group.size() < groupCommitConfig.getMaxSize()) {
+            // take what is already there without waking up per transfer
+            queue.drainTo(group, groupCommitConfig.getMaxSize() - group.size());
+            long remaining = deadline - System.nanoTime();
+            if (group.size() >= groupCommitConfig.getMaxSize() || remaining <= 0) {
+                return;
+            }
+            Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+        }
+    }
+
+    private void commit(List<Pending> group) {
+        // logs of the group carry the first transfer's traceId
+        if (group.get(0).mdc != null) {
+            MDC.setContextMap(group.get(0).mdc);
+        }
+        groupSize.record(group.size());
+        try {
+            List<BatchTransferResult> results = handler.apply(group.stream().map(pending -> pending.request).toList());
+            for (int i = 0; i < group.size(); i++) {
+                BatchTransferResult result = results.get(i);
+                if (result.isSuccess()) {
+                    group.get(i).result.complete(null);
+                } else {
+                    group.get(i).result.completeExceptionally(new BusinessException(result.getErrorCode(), result.getErrorMsg()));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("group commit failed, size:[{}]", group.size(), e);
+            group.forEach(pending -> pending.result.completeExceptionally(e));
+        } finally {
+            MDC.clear();
+        }
+    }
+
+    private static final class Pending {
+        private final TransferRequest request;
+        private final Map<String, String> mdc;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private Pending(TransferRequest request, Map<String, String> mdc) {
+            this.request = request;
+            this.mdc = mdc;
+        }
+    }
+}
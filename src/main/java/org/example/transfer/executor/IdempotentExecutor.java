@@ -1,18 +1,50 @@
 package org.example.transfer.executor;
 
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.config.IdempotencyConfig;
 import org.example.transfer.exception.BusinessException;
+import org.example.transfer.idempotent.IdempotencyKey;
+import org.example.transfer.idempotent.IdempotencyOutcome;
+import org.example.transfer.idempotent.IdempotencyStore;
+import org.example.transfer.util.FutureUtils;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
+/**
+ * idempotent execution by requestId
+ * <p>
+ * a requestId runs at most once within the ttl:
+ * 1. success and business failures are remembered, duplicates are rejected (or replayed)
+ * 2. transient failures (rate limit, circuit open, busy, max retry, unknown error) release the requestId,
+ * so the client can retry with the same requestId
+ */
 @Component
 public class IdempotentExecutor {
+    Logger log = LogManager.getLogger(IdempotentExecutor.class);
 
-    private static Map<String, Boolean> idempotentMap = new ConcurrentHashMap<>();
+    /**
+     * failures the client may retry with the same requestId
+     */
+    private static final Set<String> RETRYABLE_ERROR_CODES = Set.of(
+            ExceptionEnum.RATE_LIMIT_EXCEEDED.getErrorCode(),
+            ExceptionEnum.CIRCUIT_OPEN.getErrorCode(),
+            ExceptionEnum.SERVER_BUSY.getErrorCode(),
+            ExceptionEnum.OPTIMISTIC_LOCK_MAX_RETRY_ERROR.getErrorCode(),
+            ExceptionEnum.INTERNAL_SERVER_ERROR.getErrorCode());
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private IdempotencyConfig idempotencyConfig;
 
     public void execute(String requestId, Runnable task) {
         execute(requestId, () -> {
@@ -26,21 +58,118 @@ public class IdempotentExecutor {
      *
      * @param requestId idempotent key
      * @param task      business task
-     * @return business result
-     * @throws BusinessException if duplicate request
+     * @return business result, null if a successful outcome is replayed
+     * @throws BusinessException if duplicate request, or the replayed failure
      */
-    public static <T> T execute(String requestId, Supplier<T> task) {
-        boolean isFirst = idempotentMap.putIfAbsent(requestId, Boolean.TRUE) == null;
-        if (!isFirst) {
-            throw new BusinessException(ExceptionEnum.IDEMPOTENT_REQUEST.getErrorCode(),
-                    String.format("Duplicate request, requestId: %s", requestId));
+    public <T> T execute(String requestId, Supplier<T> task) {
+        IdempotencyKey key = IdempotencyKey.of(requestId);
+        IdempotencyOutcome duplicate = begin(key, requestId);
+        if (duplicate != null) {
+            if (duplicate.status() == IdempotencyOutcome.Status.SUCCESS) {
+                return null;
+            }
+            throw new BusinessException(duplicate.errorCode(), duplicate.errorMsg());
         }
 
         try {
-            return task.get();
-        } finally {
-            idempotentMap.remove(requestId);
+            T result = task.get();
+            idempotencyStore.complete(key, IdempotencyOutcome.SUCCESS);
+            return result;
+        } catch (RuntimeException | Error e) {
+            finish(key, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Executes idempotent async task, the outcome is recorded when the task completes
+     *
+     * @param requestId idempotent key
+     * @param task      async business task
+     * @return business result, null if a successful outcome is replayed,
+     * failed with BusinessException if duplicate request, or the replayed failure
+     */
+    public <T> CompletableFuture<T> executeAsync(String requestId, Supplier<CompletableFuture<T>> task) {
+        IdempotencyKey key = IdempotencyKey.of(requestId);
+        IdempotencyOutcome duplicate = begin(key, requestId);
+        if (duplicate != null) {
+            if (duplicate.status() == IdempotencyOutcome.Status.SUCCESS) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return CompletableFuture.failedFuture(new BusinessException(duplicate.errorCode(), duplicate.errorMsg()));
+        }
+
+        CompletableFuture<T> future;
+        try {
+            future = task.get();
+        } catch (RuntimeException | Error e) {
+            finish(key, e);
+            return CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, error) -> {
+            if (error == null) {
+                idempotencyStore.complete(key, IdempotencyOutcome.SUCCESS);
+            } else {
+                finish(key, FutureUtils.unwrap(error));
+            }
+        });
+    }
+
+    /**
+     * begin a request without running it, for callers applying many requests together
+     *
+     * @return null if the caller owns the requestId, must then {@link #complete} or {@link #release} it,
+     * otherwise the outcome to answer the duplicate with (replayed outcome or duplicate request error)
+     */
+    public IdempotencyOutcome begin(String requestId) {
+        return begin(IdempotencyKey.of(requestId), requestId);
+    }
+
+    public void complete(String requestId, IdempotencyOutcome outcome) {
+        idempotencyStore.complete(IdempotencyKey.of(requestId), outcome);
+    }
+
+    public void release(String requestId) {
+        idempotencyStore.release(IdempotencyKey.of(requestId));
+    }
+
+    /**
+     * @return outcome of a requestId, null if unknown or expired
+     */
+    public IdempotencyOutcome get(String requestId) {
+        return idempotencyStore.get(IdempotencyKey.of(requestId));
+    }
+
+    /**
+     * @return true if a request failed with errorCode may be retried with the same requestId
+     */
+    public boolean isRetryable(String errorCode) {
+        return RETRYABLE_ERROR_CODES.contains(errorCode);
+    }
+
+    /**
+     * record a business failure, release the requestId on a transient failure
+     */
+    private void finish(IdempotencyKey key, Throwable error) {
+        if (error instanceof BusinessException e && !isRetryable(e.getErrorCode())) {
+            idempotencyStore.complete(key, IdempotencyOutcome.failed(e.getErrorCode(), e.getErrorMsg()));
+        } else {
+            idempotencyStore.release(key);
+        }
+    }
+
+    private IdempotencyOutcome begin(IdempotencyKey key, String requestId) {
+        IdempotencyOutcome existing = idempotencyStore.begin(key);
+        if (existing == null) {
+            return null;
+        }
+        if (idempotencyConfig.isReplayResult() && existing.isCompleted()) {
+            log.info("traceId:{}, replay completed request, requestId:{}, status:{}",
+                    MDC.get("traceId"), requestId, existing.status());
+            return existing;
         }
+        return IdempotencyOutcome.failed(ExceptionEnum.IDEMPOTENT_REQUEST.getErrorCode(),
+                String.format("Duplicate request, requestId: %s", requestId));
     }
 
 
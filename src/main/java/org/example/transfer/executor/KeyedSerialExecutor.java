@@ -0,0 +1,91 @@
+package org.example.transfer.executor;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.config.LaneConfig;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.util.FutureUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * runs tasks with the same key one after another, tasks with different keys in parallel
+ * <p>
+ * a key is hashed to one of a fixed number of single-threaded lanes, so the same key always runs on the same thread.
+ * each lane queues at most queueCapacity tasks, the next one is rejected with SERVER_BUSY instead of waiting.
+ */
+@Component
+public class KeyedSerialExecutor {
+
+    @Autowired
+    private LaneConfig laneConfig;
+
+    @Autowired
+    private WorkerThreadFactory workerThreadFactory;
+
+    private ExecutorService[] lanes;
+
+    @PostConstruct
+    public void start() {
+        lanes = new ExecutorService[laneConfig.getLanes()];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "transfer-lane-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(laneConfig.getQueueCapacity()),
+                    task -> workerThreadFactory.newThread(name, task));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            try {
+                lane.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * run the task on the key's lane
+     *
+     * @param key  tasks with the same key never run at the same time
+     * @param task blocking task
+     * @return result of the task
+     * @throws BusinessException SERVER_BUSY if the lane is full
+     */
+    public <T> CompletableFuture<T> submit(long key, Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(TransferTaskExecutor.withMdc(task), lanes[lane(key)]);
+        } catch (RejectedExecutionException e) {
+            throw new BusinessException(ExceptionEnum.SERVER_BUSY.getErrorCode(), ExceptionEnum.SERVER_BUSY.getErrorMsg());
+        }
+    }
+
+    /**
+     * run the task on the key's lane and wait for it, its exception is rethrown as is
+     */
+    public <T> T execute(long key, Supplier<T> task) {
+        return FutureUtils.join(submit(key, task));
+    }
+
+    private int lane(long key) {
+        // spread sequential ids, then take the non-negative remainder
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(hash ^ (hash >>> 32), (long) lanes.length);
+    }
+}
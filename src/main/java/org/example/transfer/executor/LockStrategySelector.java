@@ -0,0 +1,74 @@
+package org.example.transfer.executor;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.comm.enums.LockStrategyEnum;
+import org.example.transfer.config.LockConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * choose account locking strategy per transfer
+ * <p>
+ * ADAPTIVE measures the optimistic conflict rate in fixed windows,
+ * if it reaches the threshold, transfers take pessimistic locks for pessimisticDuration,
+ * then go back to optimistic and measure again.
+ */
+@Component
+public class LockStrategySelector {
+    Logger log = LogManager.getLogger(LockStrategySelector.class);
+
+    @Autowired
+    private LockConfig lockConfig;
+
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+    private volatile long pessimisticUntil;
+
+    /**
+     * @return lock strategy of this transfer, never ADAPTIVE
+     */
+    public LockStrategyEnum select() {
+        LockStrategyEnum strategy = lockConfig.getStrategy();
+        if (strategy != LockStrategyEnum.ADAPTIVE) {
+            return strategy;
+        }
+        return System.currentTimeMillis() < pessimisticUntil ? LockStrategyEnum.PESSIMISTIC : LockStrategyEnum.OPTIMISTIC;
+    }
+
+    /**
+     * record one optimistic attempt
+     *
+     * @param conflict true if the attempt failed by optimistic lock
+     */
+    public void recordOptimisticAttempt(boolean conflict) {
+        if (lockConfig.getStrategy() != LockStrategyEnum.ADAPTIVE) {
+            return;
+        }
+        attempts.incrementAndGet();
+        if (conflict) {
+            conflicts.incrementAndGet();
+        }
+
+        long now = System.currentTimeMillis();
+        long start = windowStart.get();
+        if (now - start < lockConfig.getWindow().toMillis() || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        // only the thread which rolled the window evaluates it
+        long windowAttempts = attempts.getAndSet(0);
+        long windowConflicts = conflicts.getAndSet(0);
+        if (windowAttempts < lockConfig.getMinAttempts()) {
+            return;
+        }
+        double conflictRate = (double) windowConflicts / windowAttempts;
+        if (conflictRate >= lockConfig.getConflictRateThreshold()) {
+            pessimisticUntil = now + lockConfig.getPessimisticDuration().toMillis();
+            log.warn("optimistic conflict rate:{} reached threshold:{}, switch to pessimistic lock for {}",
+                    conflictRate, lockConfig.getConflictRateThreshold(), lockConfig.getPessimisticDuration());
+        }
+    }
+}
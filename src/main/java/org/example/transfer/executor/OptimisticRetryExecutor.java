@@ -1,57 +1,66 @@
 package org.example.transfer.executor;
 
 import jakarta.persistence.OptimisticLockException;
-import org.example.transfer.comm.enums.ExceptionEnum;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.example.transfer.exception.BusinessException;
+import org.example.transfer.executor.AdaptiveRetryPolicy.RetryState;
+import org.example.transfer.util.FutureUtils;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Component;
 
-import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
 /**
  * transfer retry
+ * <p>
+ * whether and when a conflicted attempt is retried is decided by {@link AdaptiveRetryPolicy}.
  */
 @Component
 public class OptimisticRetryExecutor {
+    Logger log = LogManager.getLogger(OptimisticRetryExecutor.class);
 
-    // default retry time
-    // todo maintain it in ConfigCenter
-    private static final int DEFAULT_MAX_RETRIES = 3;
+    @Autowired
+    private TransferTaskExecutor transferTaskExecutor;
 
-    public void executeWithRetry(Runnable task) {
+    @Autowired
+    private AdaptiveRetryPolicy retryPolicy;
+
+    public void executeWithRetry(Runnable task, long... accountIds) {
         executeWithRetry(() -> {
             task.run();
             return null;
-        }, DEFAULT_MAX_RETRIES);
+        }, accountIds);
     }
 
     /**
      * Executes a task with retries on optimistic lock exceptions.
+     * the calling thread sleeps while backing off, use {@link #executeWithRetryAsync} where it must not be held.
      *
      * @param task       business task
-     * @param maxRetries max retry times
+     * @param accountIds accounts written by the task, their conflict rate stretches the backoff
      * @return business result
-     * @throws BusinessException if retries exceed maxRetries
+     * @throws BusinessException if the retry policy gives up
      */
-    public <T> T executeWithRetry(Supplier<T> task, int maxRetries) {
-        int retry = 0;
-        Random random = new Random();
+    public <T> T executeWithRetry(Supplier<T> task, long... accountIds) {
+        String traceId = MDC.get("traceId");
+        RetryState state = retryPolicy.start(accountIds);
         while (true) {
+            long start = System.currentTimeMillis();
             try {
-                return task.get();
+                T result = task.get();
+                retryPolicy.recordAttempt(state, false, System.currentTimeMillis() - start);
+                return result;
             } catch (ObjectOptimisticLockingFailureException | OptimisticLockException e) {
-                retry++;
-                System.out.println("retry:" + retry);
-                if (retry > maxRetries) {
-                    //todo 1. save to error table; 2. send email to developer
-                    throw new BusinessException(ExceptionEnum.OPTIMISTIC_LOCK_MAX_RETRY_ERROR.getErrorCode(),
-                            ExceptionEnum.OPTIMISTIC_LOCK_MAX_RETRY_ERROR.getErrorMsg());
-                }
-
+                retryPolicy.recordAttempt(state, true, System.currentTimeMillis() - start);
+                long delay = nextDelay(state, traceId);
                 try {
-                    // Random retry wait time, improve concurrency
-                    Thread.sleep(100L * retry + random.nextInt(200));
+                    Thread.sleep(delay);
                 } catch (InterruptedException ie) {
                     Thread.currentThread().interrupt();
                     throw new RuntimeException("Retry interrupted", ie);
@@ -59,4 +68,70 @@ public class OptimisticRetryExecutor {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Executes a task on the transfer task executor with retries on optimistic lock exceptions.
+     * the backoff waits on the shared timer, no thread is held between attempts.
+     * the transfer holds an admission slot of the executor until its last attempt completes.
+     *
+     * @param task       business task, blocking
+     * @param accountIds accounts written by the task, their conflict rate stretches the backoff
+     * @return business result, failed with BusinessException if the retry policy gives up
+     */
+    public <T> CompletableFuture<T> executeWithRetryAsync(Supplier<T> task, long... accountIds) {
+        // retries are scheduled from a worker callback, keep the request's traceId
+        String traceId = MDC.get("traceId");
+        Supplier<T> traced = TransferTaskExecutor.withMdc(task);
+        return transferTaskExecutor.admit(() -> {
+            // the time budget starts on admission, not while waiting for a slot
+            RetryState state = retryPolicy.start(accountIds);
+            CompletableFuture<T> result = new CompletableFuture<>();
+            attempt(traced, state, traceId, 0, result);
+            return result;
+        });
+    }
+
+    private <T> void attempt(Supplier<T> task, RetryState state, String traceId, long delay, CompletableFuture<T> result) {
+        AtomicLong start = new AtomicLong();
+        Supplier<T> timed = () -> {
+            start.set(System.currentTimeMillis());
+            return task.get();
+        };
+        CompletableFuture<T> attempt = delay == 0 ? transferTaskExecutor.supply(timed) : transferTaskExecutor.supplyAfter(delay, timed);
+        attempt.whenComplete((value, error) -> {
+            Throwable cause = error == null ? null : FutureUtils.unwrap(error);
+            boolean conflict = cause instanceof ObjectOptimisticLockingFailureException || cause instanceof OptimisticLockException;
+            // not started if the executor rejected it
+            if (start.get() > 0 && (error == null || conflict)) {
+                retryPolicy.recordAttempt(state, conflict, System.currentTimeMillis() - start.get());
+            }
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            if (!conflict) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            try {
+                attempt(task, state, traceId, nextDelay(state, traceId), result);
+            } catch (BusinessException | RejectedExecutionException e) {
+                // gave up, or the executor is shut down
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    private long nextDelay(RetryState state, String traceId) {
+        try {
+            long delay = retryPolicy.nextDelay(state);
+            log.info("traceId:{}, optimistic lock conflict, retry:{} in {}ms", traceId, state.getRetries(), delay);
+            return delay;
+        } catch (BusinessException e) {
+            //todo 1. save to error table; 2. send email to developer
+            log.warn("traceId:{}, optimistic lock conflict, give up after {} retries: {}",
+                    traceId, state.getRetries(), e.getErrorMsg());
+            throw e;
+        }
+    }
+}
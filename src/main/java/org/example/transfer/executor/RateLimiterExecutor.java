@@ -7,6 +7,7 @@ import org.example.transfer.comm.enums.ExceptionEnum;
 import org.example.transfer.exception.BusinessException;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
 @Component
@@ -40,4 +41,18 @@ public class RateLimiterExecutor {
                     ExceptionEnum.RATE_LIMIT_EXCEEDED.getErrorMsg());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Starts the given async task if permitted by the rate limiter.
+     *
+     * @param task async business task
+     * @return business result, failed with BusinessException if the request is not allowed due to rate limits
+     */
+    public <T> CompletableFuture<T> executeAsync(Supplier<CompletableFuture<T>> task) {
+        if (!rateLimiter.acquirePermission()) {
+            return CompletableFuture.failedFuture(new BusinessException(ExceptionEnum.RATE_LIMIT_EXCEEDED.getErrorCode(),
+                    ExceptionEnum.RATE_LIMIT_EXCEEDED.getErrorMsg()));
+        }
+        return task.get();
+    }
+}
@@ -0,0 +1,213 @@
+package org.example.transfer.executor;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.config.TransferExecutorConfig;
+import org.example.transfer.exception.BusinessException;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * runs blocking transfer attempts off the request thread
+ * <p>
+ * delayed attempts (retry backoff) wait on one shared timer thread, no thread sleeps while backing off.
+ * the caller's MDC (traceId) is carried to the attempt.
+ * {@link #admit} bounds the transfers in flight, a transfer keeps its slot while backing off.
+ * a task not started within the executor timeout, waiting for a slot or for a thread, fails with SERVER_BUSY
+ * instead of running for a caller which has given up on it.
+ */
+@Component
+public class TransferTaskExecutor {
+
+    @Autowired
+    private TransferExecutorConfig transferExecutorConfig;
+
+    @Autowired
+    private WorkerThreadFactory workerThreadFactory;
+
+    private ExecutorService workers;
+
+    private ScheduledExecutorService timer;
+
+    private final ReentrantLock admissionLock = new ReentrantLock();
+
+    /**
+     * admitted transfers not completed yet, guarded by admissionLock
+     */
+    private int admitted;
+
+    /**
+     * transfers waiting for a slot, in arrival order, guarded by admissionLock
+     */
+    private final Queue<Waiting> waiting = new ArrayDeque<>();
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger index = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(transferExecutorConfig.getThreads(),
+                task -> workerThreadFactory.newThread("transfer-task-" + index.getAndIncrement(), task));
+        timer = Executors.newSingleThreadScheduledExecutor(
+                task -> workerThreadFactory.newThread("transfer-retry-timer", task));
+    }
+
+    @PreDestroy
+    public void stop() {
+        timer.shutdownNow();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * run the task on a worker, failed with SERVER_BUSY if no worker takes it within the timeout
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+        long deadline = deadline();
+        Supplier<T> attempt = withMdc(task);
+        return CompletableFuture.supplyAsync(() -> {
+            if (System.nanoTime() - deadline > 0) {
+                throw serverBusy();
+            }
+            return attempt.get();
+        }, workers);
+    }
+
+    /**
+     * run the task on a worker once delayMillis elapsed
+     */
+    public <T> CompletableFuture<T> supplyAfter(long delayMillis, Supplier<T> task) {
+        Supplier<T> attempt = withMdc(task);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        timer.schedule(() -> {
+            try {
+                CompletableFuture.supplyAsync(attempt, workers).whenComplete((value, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(e);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    /**
+     * start the task once less than maxInFlight admitted tasks are running, the slot is freed when its future completes
+     *
+     * @param task starts the work, called on the admitting thread or on the thread completing another task
+     * @return result of the task's future, failed with SERVER_BUSY if it did not start within the timeout
+     * @throws BusinessException SERVER_BUSY if maxWaiting tasks are waiting already
+     */
+    public <T> CompletableFuture<T> admit(Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            CompletableFuture<T> started;
+            try {
+                started = task.get();
+            } catch (RuntimeException e) {
+                started = CompletableFuture.failedFuture(e);
+            }
+            started.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+
+        admissionLock.lock();
+        try {
+            if (admitted >= transferExecutorConfig.getMaxInFlight()) {
+                if (waiting.size() >= transferExecutorConfig.getMaxWaiting()) {
+                    throw serverBusy();
+                }
+                waiting.add(new Waiting(deadline(), start, result));
+                return result;
+            }
+            admitted++;
+        } finally {
+            admissionLock.unlock();
+        }
+        start.run();
+        return result;
+    }
+
+    private void release() {
+        while (true) {
+            Waiting next;
+            admissionLock.lock();
+            try {
+                // hand the slot over, admitted stays the same
+                next = waiting.poll();
+                if (next == null) {
+                    admitted--;
+                }
+            } finally {
+                admissionLock.unlock();
+            }
+            if (next == null) {
+                return;
+            }
+            if (System.nanoTime() - next.deadline <= 0) {
+                next.start.run();
+                return;
+            }
+            // its caller has timed out, the slot goes to the next one
+            next.result.completeExceptionally(serverBusy());
+        }
+    }
+
+    private long deadline() {
+        return System.nanoTime() + transferExecutorConfig.getTimeout().toNanos();
+    }
+
+    private static BusinessException serverBusy() {
+        return new BusinessException(ExceptionEnum.SERVER_BUSY.getErrorCode(), ExceptionEnum.SERVER_BUSY.getErrorMsg());
+    }
+
+    /**
+     * bind the caller's MDC to the task, wherever it runs
+     */
+    public static <T> Supplier<T> withMdc(Supplier<T> task) {
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        return () -> {
+            if (mdc != null) {
+                MDC.setContextMap(mdc);
+            }
+            try {
+                return task.get();
+            } finally {
+                MDC.clear();
+            }
+        };
+    }
+
+    /**
+     * a task waiting for an admission slot, dropped if the slot frees after its deadline
+     */
+    private record Waiting(long deadline, Runnable start, CompletableFuture<?> result) {
+    }
+}
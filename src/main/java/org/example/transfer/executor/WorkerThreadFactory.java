@@ -0,0 +1,52 @@
+package org.example.transfer.executor;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * creates the internal worker threads (ledger shards, ledger writer, queue workers)
+ * <p>
+ * spring.threads.virtual.enabled=true on java 21+: virtual threads, same as tomcat request threads and scheduled tasks.
+ * otherwise: daemon platform threads.
+ */
+@Component
+public class WorkerThreadFactory {
+
+    @Autowired
+    private Environment environment;
+
+    private volatile ThreadFactory virtualThreadFactory;
+
+    /**
+     * @param name thread name
+     * @param task thread body
+     * @return new thread, not started
+     */
+    public Thread newThread(String name, Runnable task) {
+        Thread thread;
+        if (isVirtual()) {
+            thread = virtualThreadFactory().newThread(task);
+        } else {
+            thread = new Thread(task);
+            thread.setDaemon(true);
+        }
+        thread.setName(name);
+        return thread;
+    }
+
+    public boolean isVirtual() {
+        return Threading.VIRTUAL.isActive(environment);
+    }
+
+    private ThreadFactory virtualThreadFactory() {
+        if (virtualThreadFactory == null) {
+            virtualThreadFactory = new VirtualThreadTaskExecutor().getVirtualThreadFactory();
+        }
+        return virtualThreadFactory;
+    }
+}
@@ -0,0 +1,189 @@
+package org.example.transfer.handler;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.comm.Money;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.comm.enums.LockStrategyEnum;
+import org.example.transfer.config.LockConfig;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.model.Account;
+import org.example.transfer.repository.AccountRepository;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.function.Supplier;
+
+/**
+ * apply balance changes of a transfer
+ * <p>
+ * ATOMIC lock strategy: conditional update statements, the loaded entities are left untouched.
+ * others: read-modify-write on the entity, checked by @Version or row lock.
+ * amounts are {@link Money} minor units, converted to BigDecimal only when written.
+ * hot accounts are written to their balance slots whatever the strategy, see {@link HotAccountSlots}.
+ * with credit deltas enabled, other receivers get an appended delta row, see {@link CreditDeltas}.
+ * inside {@link #netted} only the net change of each account pair is written, once at the end.
+ */
+@Component
+public class AccountBalanceUpdater {
+    Logger log = LogManager.getLogger(AccountBalanceUpdater.class);
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private LockConfig lockConfig;
+
+    @Autowired
+    private HotAccountSlots hotAccountSlots;
+
+    @Autowired
+    private CreditDeltas creditDeltas;
+
+    /**
+     * netting window of the current thread, null if updates are written at once
+     */
+    private final ThreadLocal<BalanceNetting> netting = new ThreadLocal<>();
+
+    /**
+     * deduct from sender and add to receiver
+     *
+     * @param from        sender
+     * @param totalDeduct amount + fee, in sender's currency minor units
+     * @param to          receiver
+     * @param amount      amount in receiver's currency minor units
+     * @throws BusinessException if insufficient balance
+     */
+    public void update(Account from, long totalDeduct, Account to, long amount) {
+        BalanceNetting window = netting.get();
+        if (window != null) {
+            net(window, from, totalDeduct, to, amount);
+            return;
+        }
+
+        if (isAtomic() && to.getId() < from.getId()) {
+            // each UPDATE locks its row until commit, take them in ascending account id order like the pessimistic
+            // strategy, so two opposite transfers can not deadlock. a failed debit rolls the credit back
+            credit(to, amount);
+            debit(from, totalDeduct);
+            return;
+        }
+
+        // 1. check balance, deduct from balance
+        debit(from, totalDeduct);
+
+        // 2. add to balance
+        credit(to, amount);
+    }
+
+    /**
+     * run work in a netting window: updates are checked against running balances and summed per account pair,
+     * then each pair's net change is written, credits before debits so no account dips below its final balance.
+     * <p>
+     * must be called in a transaction holding the row locks of every account the work touches
+     *
+     * @param work transfers, a transfer failing inside leaves the window unchanged
+     * @return result of work
+     */
+    public <T> T netted(Supplier<T> work) {
+        BalanceNetting window = new BalanceNetting();
+        netting.set(window);
+        T result;
+        try {
+            result = work.get();
+        } finally {
+            netting.remove();
+        }
+
+        for (BalanceNetting.Pair pair : window.pairs()) {
+            if (pair.lowNet > 0) {
+                credit(pair.low, pair.lowNet);
+            }
+            if (pair.highNet > 0) {
+                credit(pair.high, pair.highNet);
+            }
+        }
+        int movements = 0;
+        for (BalanceNetting.Pair pair : window.pairs()) {
+            if (pair.lowNet < 0) {
+                debit(pair.low, -pair.lowNet);
+            }
+            if (pair.highNet < 0) {
+                debit(pair.high, -pair.highNet);
+            }
+            movements += (pair.lowNet != 0 ? 1 : 0) + (pair.highNet != 0 ? 1 : 0);
+        }
+        log.info("traceId:{}, netted {} transfers into {} balance movements",
+                MDC.get("traceId"), window.transfers(), movements);
+        return result;
+    }
+
+    private void net(BalanceNetting window, Account from, long totalDeduct, Account to, long amount) {
+        if (!window.add(from, totalDeduct, to, amount)) {
+            log.error("traceId:{}, insufficient balance, from:[{}], fromBalance:[{}], totalDeduct:[{}]",
+                    MDC.get("traceId"), from.getId(), Money.toDecimal(window.runningBalance(from), from.getCurrency()),
+                    Money.toDecimal(totalDeduct, from.getCurrency()));
+            throw new BusinessException(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), "Insufficient balance");
+        }
+    }
+
+    private void debit(Account from, long totalDeduct) {
+        String traceId = MDC.get("traceId");
+
+        if (hotAccountSlots.isHot(from.getId())) {
+            hotAccountSlots.debit(from, totalDeduct);
+            return;
+        }
+
+        if (isAtomic()) {
+            BigDecimal deduct = Money.toDecimal(totalDeduct, from.getCurrency());
+            // unfolded credits can be spent, as with the other strategies
+            int debited = creditDeltas.isEnabled()
+                    ? accountRepository.debitWithDeltas(from.getId(), deduct)
+                    : accountRepository.debit(from.getId(), deduct);
+            if (debited == 0) {
+                log.error("traceId:{}, insufficient balance, from:[{}], totalDeduct:[{}]",
+                        traceId, from.getId(), Money.toDecimal(totalDeduct, from.getCurrency()));
+                throw new BusinessException(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), "Insufficient balance");
+            }
+            return;
+        }
+
+        long fromBalance = Money.toMinor(from.getBalance(), from.getCurrency());
+        if (fromBalance < totalDeduct) {
+            log.error("traceId:{}, insufficient balance, from:[{}], fromBalance:[{}], totalDeduct:[{}]",
+                    traceId, from.getId(), from.getBalance(), Money.toDecimal(totalDeduct, from.getCurrency()));
+            throw new BusinessException(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), "Insufficient balance");
+        }
+        from.setBalance(Money.toDecimal(fromBalance - totalDeduct, from.getCurrency()));
+        // todo distribute lock in microservices (redis:redlock)
+        accountRepository.save(from);
+    }
+
+    private void credit(Account to, long amount) {
+        if (hotAccountSlots.isHot(to.getId())) {
+            hotAccountSlots.credit(to, amount);
+            return;
+        }
+
+        if (creditDeltas.isEnabled()) {
+            creditDeltas.credit(to, amount);
+            return;
+        }
+
+        if (isAtomic()) {
+            accountRepository.credit(to.getId(), Money.toDecimal(amount, to.getCurrency()));
+            return;
+        }
+
+        long toBalance = Money.toMinor(to.getBalance(), to.getCurrency());
+        to.setBalance(Money.toDecimal(Math.addExact(toBalance, amount), to.getCurrency()));
+        accountRepository.save(to);
+    }
+
+    private boolean isAtomic() {
+        return lockConfig.getStrategy() == LockStrategyEnum.ATOMIC;
+    }
+}
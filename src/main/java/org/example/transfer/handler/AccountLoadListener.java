@@ -0,0 +1,50 @@
+package org.example.transfer.handler;
+
+import jakarta.persistence.PostLoad;
+import org.example.transfer.config.CreditDeltaConfig;
+import org.example.transfer.model.Account;
+import org.example.transfer.repository.AccountBalanceSlotRepository;
+import org.example.transfer.repository.BalanceDeltaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * add what an account holds outside its row when it is loaded
+ * <p>
+ * 1. hot accounts: the sum of their balance slots, see {@link HotAccountSlots}
+ * 2. credit deltas enabled: the sum of the unfolded credits, see {@link CreditDeltas}
+ * <p>
+ * one query per hot account, one per account with credit deltas enabled, none otherwise.
+ * run in the loading session, so locked loads read the slots and deltas of their own transaction.
+ * dependencies are lazy, the listener is created with the entity manager factory they need.
+ */
+@Component
+public class AccountLoadListener {
+
+    @Lazy
+    @Autowired
+    private HotAccountSlots hotAccountSlots;
+
+    @Lazy
+    @Autowired
+    private CreditDeltaConfig creditDeltaConfig;
+
+    @Lazy
+    @Autowired
+    private AccountBalanceSlotRepository slotRepository;
+
+    @Lazy
+    @Autowired
+    private BalanceDeltaRepository balanceDeltaRepository;
+
+    @PostLoad
+    public void loaded(Account account) {
+        if (hotAccountSlots.isHot(account.getId())) {
+            account.setSlotBalance(slotRepository.sumBalance(account.getId()));
+        }
+        if (creditDeltaConfig.isEnabled()) {
+            account.setDeltaBalance(balanceDeltaRepository.sumAmount(account.getId()));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.transfer.handler;
+
+import org.example.transfer.comm.Money;
+import org.example.transfer.model.Account;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * balance changes of the transfers in one netting window
+ * <p>
+ * every transfer is checked against the running balance of its sender, as if the earlier ones had been written.
+ * changes are summed per account pair, both directions of a pair cancel out.
+ * an account's currency never changes, so a pair also fixes the currency of each side.
+ */
+class BalanceNetting {
+
+    /**
+     * accountId -> balance in minor units, after the transfers netted so far
+     */
+    private final Map<Long, Long> running = new HashMap<>();
+
+    /**
+     * (low accountId, high accountId) -> net change of each side, ordered so pairs are written in a stable order
+     */
+    private final Map<PairKey, Pair> pairs = new TreeMap<>(
+            Comparator.comparingLong(PairKey::low).thenComparingLong(PairKey::high));
+
+    private int transfers;
+
+    /**
+     * @return false if the sender's running balance is short, nothing is netted then
+     */
+    boolean add(Account from, long totalDeduct, Account to, long amount) {
+        long fromBalance = balance(from);
+        if (fromBalance < totalDeduct) {
+            return false;
+        }
+        running.put(from.getId(), fromBalance - totalDeduct);
+        running.put(to.getId(), Math.addExact(balance(to), amount));
+
+        boolean fromLow = from.getId() < to.getId();
+        Pair pair = pairs.computeIfAbsent(fromLow ? new PairKey(from.getId(), to.getId()) : new PairKey(to.getId(), from.getId()),
+                key -> fromLow ? new Pair(from, to) : new Pair(to, from));
+        if (fromLow) {
+            pair.lowNet -= totalDeduct;
+            pair.highNet = Math.addExact(pair.highNet, amount);
+        } else {
+            pair.highNet -= totalDeduct;
+            pair.lowNet = Math.addExact(pair.lowNet, amount);
+        }
+        transfers++;
+        return true;
+    }
+
+    long runningBalance(Account account) {
+        return balance(account);
+    }
+
+    Iterable<Pair> pairs() {
+        return pairs.values();
+    }
+
+    int transfers() {
+        return transfers;
+    }
+
+    private long balance(Account account) {
+        return running.computeIfAbsent(account.getId(), id -> Money.toMinor(account.getBalance(), account.getCurrency()));
+    }
+
+    private record PairKey(long low, long high) {
+    }
+
+    /**
+     * net change of both accounts of a pair, minor units of each account's currency
+     */
+    static final class Pair {
+        final Account low;
+        final Account high;
+        long lowNet;
+        long highNet;
+
+        private Pair(Account low, Account high) {
+            this.low = low;
+            this.high = high;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.transfer.handler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.comm.Money;
+import org.example.transfer.config.CreditDeltaConfig;
+import org.example.transfer.config.LedgerConfig;
+import org.example.transfer.model.Account;
+import org.example.transfer.model.BalanceDelta;
+import org.example.transfer.repository.AccountRepository;
+import org.example.transfer.repository.BalanceDeltaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * append-only credits
+ * <p>
+ * 1. credit: insert a balance_delta row, the receiver's row is neither written nor locked
+ * 2. fold: periodically add the oldest deltas of each account to its row and delete them, in one transaction
+ * <p>
+ * concurrent credits to one account no longer conflict on its version, {@link Account#getBalance()} adds the deltas up.
+ * unfolded credits can be spent at once, the row alone may go below zero until they are folded.
+ * folding bumps the row version, an optimistic debit which loaded the account before retries instead of overwriting it.
+ */
+@Component
+public class CreditDeltas {
+    Logger log = LogManager.getLogger(CreditDeltas.class);
+
+    @Autowired
+    private CreditDeltaConfig creditDeltaConfig;
+
+    @Autowired
+    private LedgerConfig ledgerConfig;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private BalanceDeltaRepository balanceDeltaRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter foldedCounter;
+
+    @PostConstruct
+    public void init() {
+        if (ledgerConfig.isEnabled() && creditDeltaConfig.isEnabled()) {
+            throw new IllegalStateException("transfer.credit-delta.enabled can not be used with transfer.ledger.enabled");
+        }
+        foldedCounter = Counter.builder("transfer.credit_delta.folded")
+                .description("credits folded into their account row")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return creditDeltaConfig.isEnabled();
+    }
+
+    /**
+     * add to an account, must be called in the transfer's transaction
+     *
+     * @param account receiver
+     * @param amount  minor units of the account's currency
+     */
+    public void credit(Account account, long amount) {
+        BalanceDelta delta = new BalanceDelta();
+        delta.setAccountId(account.getId());
+        delta.setAmount(Money.toDecimal(amount, account.getCurrency()));
+        balanceDeltaRepository.save(delta);
+    }
+
+    /**
+     * fold the deltas of every account, at most foldBatchSize per account and run
+     */
+    @Scheduled(fixedDelayString = "${transfer.credit-delta.fold-interval:PT1S}")
+    public void fold() {
+        for (Long accountId : balanceDeltaRepository.findAccountIds()) {
+            try {
+                fold(accountId);
+            } catch (Exception e) {
+                // deltas stay and are folded in a later run
+                log.error("fold credits of account:{} failed", accountId, e);
+            }
+        }
+    }
+
+    private void fold(Long accountId) {
+        Integer folded = transactionTemplate.execute(status -> {
+            // 1. lock the oldest deltas, a concurrent fold waits and then finds them gone
+            List<BalanceDelta> deltas = balanceDeltaRepository.findByAccountIdForUpdate(accountId,
+                    PageRequest.of(0, creditDeltaConfig.getFoldBatchSize()));
+            if (deltas.isEmpty()) {
+                return 0;
+            }
+
+            // 2. one statement on the row column, the entity's getBalance() would include the deltas
+            BigDecimal total = deltas.stream().map(BalanceDelta::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+            if (accountRepository.credit(accountId, total) == 0) {
+                log.warn("fold credits of account:{} skipped, account not found", accountId);
+                return 0;
+            }
+
+            // 3. delete exactly the deltas folded, credits inserted meanwhile wait for the next run
+            balanceDeltaRepository.deleteAllInBatch(deltas);
+            return deltas.size();
+        });
+        if (folded != null && folded > 0) {
+            foldedCounter.increment(folded);
+        }
+    }
+}
@@ -2,37 +2,33 @@ package org.example.transfer.handler;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.example.transfer.cache.FxQuote;
+import org.example.transfer.cache.FxRateCache;
 import org.example.transfer.comm.BaseConstant;
+import org.example.transfer.comm.Money;
 import org.example.transfer.comm.enums.ExceptionEnum;
 import org.example.transfer.comm.enums.TransferTypeEnum;
 import org.example.transfer.config.TransferConfig;
 import org.example.transfer.exception.BusinessException;
 import org.example.transfer.model.Account;
-import org.example.transfer.model.FxRate;
-import org.example.transfer.model.TransferLog;
-import org.example.transfer.repository.AccountRepository;
-import org.example.transfer.repository.FxRateRepository;
-import org.example.transfer.repository.TransferLogRepository;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.Optional;
 
 @Component
 public class DifferentCurrencyTransferHandler implements TransferHandler {
     Logger log = LogManager.getLogger(TransferHandlerFactory.class);
 
     @Autowired
-    private AccountRepository accountRepository;
+    private AccountBalanceUpdater balanceUpdater;
 
     @Autowired
-    private FxRateRepository fxRateRepository;
+    private FxRateCache fxRateCache;
 
     @Autowired
-    private TransferLogRepository transferLogRepository;
+    private TransferLogWriter transferLogWriter;
 
     @Autowired
     private TransferConfig transferConfig;
@@ -48,12 +44,24 @@ public class DifferentCurrencyTransferHandler implements TransferHandler {
      * diff currency:
      * from -> fromCurrency(USD) -> fxRate(USD->JPN) -> toCurrency(JPN) -> to
      *
-     * @param from   source account
-     * @param to     target account
-     * @param amount req amount
+     * @param from      source account
+     * @param to        target account
+     * @param amount    req amount
+     * @param requestId req id
      */
     @Override
-    public void transfer(Account from, Account to, BigDecimal amount) {
+    public void transfer(Account from, Account to, BigDecimal amount, String requestId) {
+        TransferQuote quote = quote(from, to, amount);
+
+        // 3. check balance, deduct from balance, add to balance
+        balanceUpdater.update(from, quote.totalDeduct(), to, quote.credit());
+
+        // 4. save log
+        transferLogWriter.write(quote.toLog(from, to, amount, requestId));
+    }
+
+    @Override
+    public TransferQuote quote(Account from, Account to, BigDecimal amount) {
         String traceId = MDC.get("traceId");
 
         if (!transferConfig.isEnableDifferentCurrencyTransfer()) {
@@ -62,58 +70,25 @@ public class DifferentCurrencyTransferHandler implements TransferHandler {
             throw new BusinessException(ExceptionEnum.TRANSFER_TYPE_NOT_SUPPORT.getErrorCode(),
                     String.format("not support transfer type: %s, fromCurrency:%s, toCurrency:%s",
                             getTransferType(), from.getCurrency(), to.getCurrency()));
-        } else {
-            /*
-                1. check exchange rate
-                    1.1 not exist, can't transfer
-                    1.2 exist, transfer
-            */
-            // todo get fxRate from redis
-            Optional<FxRate> fxRateOptional = fxRateRepository.findByFromCurrencyAndToCurrency(from.getCurrency(), to.getCurrency());
-            if (fxRateOptional.isEmpty()) {
-                log.error("traceId:{}, receiver:[{}] doesn't support:[{}], and no existing rate support, toCurrency:[{}]",
-                        traceId, to.getId(), from.getCurrency(), to.getCurrency());
-                throw new BusinessException(ExceptionEnum.RATE_NOT_SUPPORT.getErrorCode(), ExceptionEnum.RATE_NOT_SUPPORT.getErrorMsg());
-            }
-
-            BigDecimal fxRate = fxRateOptional.get().getRate();
-            BigDecimal fee = amount.multiply(BigDecimal.valueOf(BaseConstant.FEE_RATE)).setScale(2, RoundingMode.HALF_UP);
-            BigDecimal totalDeduct = amount.add(fee).setScale(2, RoundingMode.HALF_UP);
-
-            // 2. check balance
-            if (from.getBalance().compareTo(totalDeduct) < 0) {
-                log.error("traceId:{}, insufficient balance, from:[{}], fromBalance:[{}], totalDeduct:[{}]",
-                        traceId, from.getId(), from.getBalance(), totalDeduct);
-                throw new BusinessException(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), "Insufficient balance");
-            }
-
-            // 3. deduct from balance
-            from.setBalance(from.getBalance().subtract(totalDeduct));
-
-            // 4. rate exchange
-            BigDecimal convertedAmount = amount.multiply(fxRate).setScale(2, RoundingMode.HALF_UP);
-
-            // 5. add to balance
-            to.setBalance(to.getBalance().add(convertedAmount));
-
-            // 6. save to db
-            accountRepository.save(from);
-            accountRepository.save(to);
-
-            // 7. save log
-            TransferLog transferLog = new TransferLog();
-            transferLog.setFromAccountId(from.getId());
-            transferLog.setFromCurrency(from.getCurrency());
-            transferLog.setToAccountId(to.getId());
-            transferLog.setToCurrency(to.getCurrency());
-            transferLog.setAmount(amount);
-            transferLog.setFee(fee);
-            transferLog.setFxRate(fxRate);
-            transferLogRepository.save(transferLog);
         }
 
+        /*
+            1. check exchange rate
+                1.1 not exist, can't transfer
+                1.2 exist, transfer
+        */
+        FxQuote fxQuote = fxRateCache.getQuote(from.getCurrency(), to.getCurrency());
+        if (fxQuote == null) {
+            log.error("traceId:{}, receiver:[{}] doesn't support:[{}], and no existing rate support, toCurrency:[{}]",
+                    traceId, to.getId(), from.getCurrency(), to.getCurrency());
+            throw new BusinessException(ExceptionEnum.RATE_NOT_SUPPORT.getErrorCode(), ExceptionEnum.RATE_NOT_SUPPORT.getErrorMsg());
+        }
 
+        long amountMinor = Money.toMinor(amount, from.getCurrency());
+        long fee = Money.fee(amountMinor, BaseConstant.FEE_RATE_BPS);
 
-
+        // 2. rate exchange
+        long convertedAmount = Money.convert(amountMinor, from.getCurrency(), to.getCurrency(), fxQuote.units());
+        return new TransferQuote(Math.addExact(amountMinor, fee), convertedAmount, fee, fxQuote.rate());
     }
 }
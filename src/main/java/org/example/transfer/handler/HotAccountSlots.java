@@ -0,0 +1,210 @@
+package org.example.transfer.handler;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.comm.Money;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.config.HotAccountConfig;
+import org.example.transfer.config.LedgerConfig;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.model.Account;
+import org.example.transfer.model.AccountBalanceSlot;
+import org.example.transfer.repository.AccountBalanceSlotRepository;
+import org.example.transfer.repository.AccountRepository;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * balance slots of hot accounts
+ * <p>
+ * a hot account's balance is moved from its row into N slot rows, the row keeps 0.
+ * 1. debit: conditional update of the first slot, the next slots if it is short
+ * 2. credit: add to a random slot
+ * 3. no slot holds the whole debit: lock all slots, debit their total and spread the rest evenly again
+ * <p>
+ * a debit locks slots in ascending order only, a probe that falls through to the rebalance holds a prefix of what it
+ * locks next, so two debits never wait for each other in a cycle.
+ * credits pick different rows, so they neither conflict on the account's version nor wait for one row lock.
+ * the account row is not written, {@link Account#getBalance()} adds the slots up.
+ */
+@Component
+public class HotAccountSlots {
+    Logger log = LogManager.getLogger(HotAccountSlots.class);
+
+    @Autowired
+    private HotAccountConfig hotAccountConfig;
+
+    @Autowired
+    private LedgerConfig ledgerConfig;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountBalanceSlotRepository slotRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * accountId -> slot count of split accounts
+     */
+    private final Map<Long, Integer> slotCounts = new ConcurrentHashMap<>();
+
+    /**
+     * split the configured accounts, merge split accounts no longer configured
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (ledgerConfig.isEnabled() && !hotAccountConfig.getAccountIds().isEmpty()) {
+            throw new IllegalStateException("transfer.hot-account can not be used with transfer.ledger.enabled");
+        }
+        for (Object[] row : slotRepository.countSlotsByAccount()) {
+            slotCounts.put((Long) row[0], ((Long) row[1]).intValue());
+        }
+
+        Set<Long> configured = new HashSet<>(hotAccountConfig.getAccountIds());
+        for (Long accountId : new ArrayList<>(slotCounts.keySet())) {
+            if (!configured.contains(accountId)) {
+                merge(accountId);
+            }
+        }
+        for (Long accountId : configured) {
+            split(accountId);
+        }
+    }
+
+    public boolean isHot(Long accountId) {
+        return slotCounts.containsKey(accountId);
+    }
+
+    /**
+     * move the balance of an account into slots, nothing if it is split already or does not exist
+     */
+    public void split(Long accountId) {
+        if (isHot(accountId)) {
+            return;
+        }
+        int slots = hotAccountConfig.getSlots();
+        Boolean split = transactionTemplate.execute(status -> {
+            List<Account> accounts = accountRepository.findAllByIdForUpdate(List.of(accountId));
+            if (accounts.isEmpty()) {
+                return false;
+            }
+            Account account = accounts.get(0);
+            long[] shares = spread(Money.toMinor(account.getBalance(), account.getCurrency()), slots);
+            List<AccountBalanceSlot> created = new ArrayList<>(slots);
+            for (int slot = 0; slot < slots; slot++) {
+                AccountBalanceSlot balanceSlot = new AccountBalanceSlot();
+                balanceSlot.setAccountId(accountId);
+                balanceSlot.setSlot(slot);
+                balanceSlot.setBalance(Money.toDecimal(shares[slot], account.getCurrency()));
+                created.add(balanceSlot);
+            }
+            slotRepository.saveAll(created);
+            account.setBalance(BigDecimal.ZERO);
+            accountRepository.save(account);
+            return true;
+        });
+        if (Boolean.TRUE.equals(split)) {
+            slotCounts.put(accountId, slots);
+            log.info("hot account:{} split into {} balance slots", accountId, slots);
+        }
+    }
+
+    /**
+     * move the slots of an account back into its row
+     */
+    public void merge(Long accountId) {
+        slotCounts.remove(accountId);
+        transactionTemplate.executeWithoutResult(status -> {
+            List<AccountBalanceSlot> slots = slotRepository.findByAccountIdForUpdate(accountId);
+            BigDecimal total = slots.stream().map(AccountBalanceSlot::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+            // one statement on the row column, the entity's getBalance() would include the slots
+            accountRepository.credit(accountId, total);
+            slotRepository.deleteAll(slots);
+        });
+        log.info("hot account:{} balance slots merged", accountId);
+    }
+
+    /**
+     * deduct from a hot account, must be called in the transfer's transaction
+     *
+     * @param account     hot account
+     * @param totalDeduct minor units of the account's currency
+     * @throws BusinessException if the slots together do not hold enough
+     */
+    public void debit(Account account, long totalDeduct) {
+        int slots = slotCounts.get(account.getId());
+        BigDecimal amount = Money.toDecimal(totalDeduct, account.getCurrency());
+        // ascending like the rebalance, a short slot stays locked until commit
+        for (int slot = 0; slot < slots; slot++) {
+            if (slotRepository.debit(account.getId(), slot, amount) == 1) {
+                return;
+            }
+        }
+        rebalance(account, totalDeduct);
+    }
+
+    /**
+     * add to a hot account, must be called in the transfer's transaction
+     *
+     * @param account hot account
+     * @param amount  minor units of the account's currency
+     */
+    public void credit(Account account, long amount) {
+        int slot = ThreadLocalRandom.current().nextInt(slotCounts.get(account.getId()));
+        slotRepository.credit(account.getId(), slot, Money.toDecimal(amount, account.getCurrency()));
+    }
+
+    /**
+     * every slot is short: debit the total of all slots, spread the rest evenly
+     * <p>
+     * read and written with statements, not entities: a managed slot loaded earlier in a batch or group commit
+     * transaction misses the bulk debits and credits since, saving it would overwrite them
+     */
+    private void rebalance(Account account, long totalDeduct) {
+        List<BigDecimal> balances = slotRepository.findBalancesForUpdate(account.getId());
+        long total = 0;
+        for (BigDecimal balance : balances) {
+            total = Math.addExact(total, Money.toMinor(balance, account.getCurrency()));
+        }
+        if (total < totalDeduct) {
+            log.error("traceId:{}, insufficient balance, from:[{}], fromBalance:[{}], totalDeduct:[{}]",
+                    MDC.get("traceId"), account.getId(), Money.toDecimal(total, account.getCurrency()),
+                    Money.toDecimal(totalDeduct, account.getCurrency()));
+            throw new BusinessException(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), "Insufficient balance");
+        }
+        long[] shares = spread(total - totalDeduct, balances.size());
+        for (int slot = 0; slot < shares.length; slot++) {
+            slotRepository.setBalance(account.getId(), slot, Money.toDecimal(shares[slot], account.getCurrency()));
+        }
+        log.info("traceId:{}, hot account:{} balance slots rebalanced", MDC.get("traceId"), account.getId());
+    }
+
+    /**
+     * divide minor units evenly, the first slots take the remainder
+     */
+    private static long[] spread(long total, int slots) {
+        long share = total / slots;
+        long remainder = total % slots;
+        long[] shares = new long[slots];
+        for (int i = 0; i < slots; i++) {
+            shares[i] = i < remainder ? share + 1 : share;
+        }
+        return shares;
+    }
+}
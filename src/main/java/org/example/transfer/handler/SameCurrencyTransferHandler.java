@@ -3,28 +3,22 @@ package org.example.transfer.handler;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.example.transfer.comm.BaseConstant;
-import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.comm.Money;
 import org.example.transfer.comm.enums.TransferTypeEnum;
-import org.example.transfer.exception.BusinessException;
 import org.example.transfer.model.Account;
-import org.example.transfer.model.TransferLog;
-import org.example.transfer.repository.AccountRepository;
-import org.example.transfer.repository.TransferLogRepository;
-import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 
 @Component
 public class SameCurrencyTransferHandler implements TransferHandler {
     Logger log = LogManager.getLogger(TransferHandlerFactory.class);
 
     @Autowired
-    private AccountRepository accountRepository;
+    private AccountBalanceUpdater balanceUpdater;
     @Autowired
-    private TransferLogRepository transferLogRepository;
+    private TransferLogWriter transferLogWriter;
 
     @Override
     public TransferTypeEnum getTransferType() {
@@ -37,45 +31,26 @@ public class SameCurrencyTransferHandler implements TransferHandler {
      * same currency:
      * from -> fromCurrency(USD) -> toCurrency(JPN) -> to
      *
-     * @param from   source account
-     * @param to     target account
-     * @param amount req amount
+     * @param from      source account
+     * @param to        target account
+     * @param amount    req amount
+     * @param requestId req id
      */
     @Override
-    public void transfer(Account from, Account to, BigDecimal amount) {
-        String traceId = MDC.get("traceId");
+    public void transfer(Account from, Account to, BigDecimal amount, String requestId) {
+        TransferQuote quote = quote(from, to, amount);
 
-        BigDecimal fee = amount.multiply(BigDecimal.valueOf(BaseConstant.FEE_RATE)).setScale(2, RoundingMode.HALF_UP);
-        BigDecimal totalDeduct = amount.add(fee).setScale(2, RoundingMode.HALF_UP);
+        // 1. check balance, deduct from balance, add to balance
+        balanceUpdater.update(from, quote.totalDeduct(), to, quote.credit());
 
-        // 1. check balance
-        if (from.getBalance().compareTo(totalDeduct) < 0) {
-            log.error("traceId:{}, insufficient balance, from:[{}], fromBalance:[{}], totalDeduct:[{}]",
-                    traceId, from.getId(), from.getBalance(), totalDeduct);
-            throw new BusinessException(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), "Insufficient balance");
-        }
-
-        // 2. deduct from balance
-        from.setBalance(from.getBalance().subtract(totalDeduct));
-
-        // 3. add to balance
-        to.setBalance(to.getBalance().add(amount));
-
-        // 4. save to db
-        // todo distribute lock in microservices (redis:redlock)
-        // todo async, send to message queue
-        accountRepository.save(from);
-        accountRepository.save(to);
+        // 2. save log
+        transferLogWriter.write(quote.toLog(from, to, amount, requestId));
+    }
 
-        // 6. save log
-        TransferLog transferLog = new TransferLog();
-        transferLog.setFromAccountId(from.getId());
-        transferLog.setFromCurrency(from.getCurrency());
-        transferLog.setToAccountId(to.getId());
-        transferLog.setToCurrency(to.getCurrency());
-        transferLog.setAmount(amount);
-        transferLog.setFee(fee);
-        transferLog.setFxRate(BigDecimal.ONE);
-        transferLogRepository.save(transferLog);
+    @Override
+    public TransferQuote quote(Account from, Account to, BigDecimal amount) {
+        long amountMinor = Money.toMinor(amount, from.getCurrency());
+        long fee = Money.fee(amountMinor, BaseConstant.FEE_RATE_BPS);
+        return new TransferQuote(Math.addExact(amountMinor, fee), amountMinor, fee, BigDecimal.ONE);
     }
 }
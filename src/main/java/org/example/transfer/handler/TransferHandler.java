@@ -19,6 +19,17 @@ public interface TransferHandler {
      * @param from      transfer sender
      * @param to        transfer receiver
      * @param amount    transfer amount
+     * @param requestId request of the transfer, kept in its log
      */
-    void transfer(Account from, Account to, BigDecimal amount);
+    void transfer(Account from, Account to, BigDecimal amount, String requestId);
+
+    /**
+     * fee and fx of a transfer, balances and logs are left to the caller
+     *
+     * @param from      transfer sender
+     * @param to        transfer receiver
+     * @param amount    transfer amount
+     * @return balance changes of the transfer
+     */
+    TransferQuote quote(Account from, Account to, BigDecimal amount);
 }
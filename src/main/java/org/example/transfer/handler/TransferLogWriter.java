@@ -0,0 +1,537 @@
+package org.example.transfer.handler;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.config.TransferLogConfig;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.executor.WorkerThreadFactory;
+import org.example.transfer.model.TransferLog;
+import org.example.transfer.model.TransferLogCommit;
+import org.example.transfer.repository.TransferLogCommitRepository;
+import org.example.transfer.repository.TransferLogRepository;
+import org.example.transfer.util.JsonUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * write transfer logs, in the transfer's transaction or write-behind
+ * <p>
+ * write-behind:
+ * 1. before commit: the logs of the transaction get the next journal positions and are appended with one fsync,
+ * a journal error fails the transfer and rolls it back. their position range goes into transfer_log_commit,
+ * in the transaction
+ * 2. after completion: a commit marker and the logs go into a bounded ring, or an abort marker on rollback
+ * 3. writer: drains the ring and inserts up to batchSize logs per transaction, jdbc batched by the pooled sequence
+ * 4. restart: journaled logs whose position is not in transfer_log and not aborted are inserted again.
+ * a log without any marker crashed between its fsync and the marker, it is inserted only if transfer_log_commit
+ * covers its position: a row is never lost for a committed transfer, never made up for a rolled back one
+ * <p>
+ * the transfer's transaction writes balances and one transfer_log_commit row. the journal is truncated, and the
+ * commit rows below it deleted, whenever the writer catches up, so both only grow with the backlog.
+ */
+@Component
+public class TransferLogWriter {
+    Logger log = LogManager.getLogger(TransferLogWriter.class);
+
+    private static final char LOG = 'L';
+
+    private static final char COMMIT = 'C';
+
+    private static final char ABORT = 'A';
+
+    private static final long RETRY_INTERVAL_MS = 1000L;
+
+    /**
+     * truncate the drained journal only once it is larger than this
+     */
+    private static final long COMPACT_SIZE = 1L << 20;
+
+    @Autowired
+    private TransferLogConfig transferLogConfig;
+
+    @Autowired
+    private TransferLogRepository transferLogRepository;
+
+    @Autowired
+    private TransferLogCommitRepository transferLogCommitRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private WorkerThreadFactory workerThreadFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BlockingQueue<TransferLog> ring;
+
+    /**
+     * journaled and not inserted: not committed yet, in the ring, being inserted
+     */
+    private final AtomicLong pending = new AtomicLong();
+
+    /**
+     * inserted since start, the recovered logs are the first ones
+     */
+    private final AtomicLong inserted = new AtomicLong();
+
+    private volatile long recoveredCount;
+
+    /**
+     * serializes journal appends and truncation.
+     * not a monitor so a virtual thread blocked in fsync can unmount
+     */
+    private final ReentrantLock journalLock = new ReentrantLock();
+
+    /**
+     * next journal position, guarded by journalLock
+     */
+    private long nextSeq;
+
+    private Path journalPath;
+
+    private FileChannel journal;
+
+    private Thread thread;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!transferLogConfig.isWriteBehind()) {
+            return;
+        }
+        ring = new ArrayBlockingQueue<>(transferLogConfig.getRingCapacity());
+        journalPath = Paths.get(transferLogConfig.getJournalPath()).toAbsolutePath();
+        Files.createDirectories(journalPath.getParent());
+
+        // 1. logs journaled but not inserted before a restart
+        List<TransferLog> recovered = recover();
+        recoveredCount = recovered.size();
+        journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        running = true;
+        thread = workerThreadFactory.newThread("transfer-log-writer", this::run);
+        thread.start();
+
+        // 2. insert them ahead of new logs, they stay in the journal until it is truncated
+        for (TransferLog transferLog : recovered) {
+            pending.incrementAndGet();
+            putUninterruptibly(transferLog);
+        }
+        Gauge.builder("transfer.transfer_log.pending", pending, AtomicLong::get)
+                .description("transfer logs journaled and not inserted yet")
+                .register(meterRegistry);
+        log.info("transfer log writer started, journal:{}, recovered:{}", journalPath, recovered.size());
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+        journalLock.lock();
+        try {
+            journal.close();
+            if (pending.get() == 0) {
+                Files.deleteIfExists(journalPath);
+            } else {
+                log.warn("transfer log writer stopped with {} logs not inserted, they are replayed at restart", pending.get());
+            }
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    /**
+     * write a transfer log, call it in the transfer's transaction
+     *
+     * @param transferLog applied transfer
+     */
+    public void write(TransferLog transferLog) {
+        if (!transferLogConfig.isWriteBehind()) {
+            transferLogRepository.save(transferLog);
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // no transaction to roll back, journaled as committed
+            List<TransferLog> logs = List.of(transferLog);
+            journal(logs, true);
+            enqueue(logs);
+            return;
+        }
+        // one synchronization per transaction, its logs are journaled with one fsync
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof JournaledLogs journaled) {
+                journaled.logs.add(transferLog);
+                return;
+            }
+        }
+        JournaledLogs journaled = new JournaledLogs();
+        journaled.logs.add(transferLog);
+        TransactionSynchronizationManager.registerSynchronization(journaled);
+    }
+
+    /**
+     * wait until every log written so far is inserted
+     *
+     * @param timeout max wait time
+     * @param unit    time unit
+     * @return true if flushed before timeout
+     */
+    public boolean awaitFlushed(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (pending.get() > 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * wait until the logs recovered at start are inserted, a transfer committed before a restart is then in transfer_log
+     *
+     * @param timeout max wait time
+     * @param unit    time unit
+     * @return true if inserted before timeout
+     */
+    public boolean awaitRecovered(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (inserted.get() < recoveredCount) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * next journal positions, appended with one fsync, before the transfer commits
+     *
+     * @param committed append the commit marker with the logs
+     * @throws BusinessException if not journaled, the transfer must not commit
+     */
+    private void journal(List<TransferLog> transferLogs, boolean committed) {
+        journalLock.lock();
+        try {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            for (TransferLog transferLog : transferLogs) {
+                transferLog.setJournalSeq(nextSeq++);
+                lines.writeBytes((LOG + JsonUtils.toJson(transferLog) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            if (committed) {
+                lines.writeBytes(marker(COMMIT, transferLogs).getBytes(StandardCharsets.UTF_8));
+            }
+            append(ByteBuffer.wrap(lines.toByteArray()), transferLogConfig.isFsync());
+            // not truncated until inserted or aborted
+            pending.addAndGet(transferLogs.size());
+        } catch (IOException e) {
+            log.error("transfer log journal write error, {} logs are not journaled", transferLogs.size(), e);
+            throw new BusinessException(ExceptionEnum.INTERNAL_SERVER_ERROR.getErrorCode(), "transfer log journal write error");
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    /**
+     * commit or abort marker of journaled logs, not forced, the next fsync carries it.
+     * a lost marker leaves the logs in doubt, transfer_log_commit resolves them at restart
+     */
+    private void mark(char marker, List<TransferLog> transferLogs) {
+        String line = marker(marker, transferLogs);
+        journalLock.lock();
+        try {
+            append(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)), false);
+        } catch (IOException e) {
+            log.warn("transfer log journal marker write error, {} logs are in doubt until inserted", transferLogs.size(), e);
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    private static String marker(char marker, List<TransferLog> transferLogs) {
+        return marker + transferLogs.get(0).getJournalSeq() + "-" + transferLogs.get(transferLogs.size() - 1).getJournalSeq() + "\n";
+    }
+
+    /**
+     * a full ring holds back committed transfers until the writer catches up
+     */
+    private void enqueue(List<TransferLog> transferLogs) {
+        for (TransferLog transferLog : transferLogs) {
+            putUninterruptibly(transferLog);
+        }
+    }
+
+    private void append(ByteBuffer buffer, boolean force) throws IOException {
+        while (buffer.hasRemaining()) {
+            journal.write(buffer);
+        }
+        if (force) {
+            journal.force(false);
+        }
+    }
+
+    private void putUninterruptibly(TransferLog transferLog) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                ring.put(transferLog);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<TransferLog> batch = new ArrayList<>(transferLogConfig.getBatchSize());
+        while (running || !ring.isEmpty()) {
+            try {
+                TransferLog first = ring.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                ring.drainTo(batch, transferLogConfig.getBatchSize() - 1);
+                insertWithRetry(batch);
+                inserted.addAndGet(batch.size());
+                if (pending.addAndGet(-batch.size()) == 0) {
+                    compact();
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void insertWithRetry(List<TransferLog> batch) throws InterruptedException {
+        while (true) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> transferLogRepository.saveAll(batch));
+                return;
+            } catch (Exception e) {
+                // the transfers are committed, keep retrying instead of dropping their logs
+                log.error("transfer log writer insert error, batch size:{}, retry in {}ms", batch.size(), RETRY_INTERVAL_MS, e);
+                // a failed insert may have assigned ids, let the retry take new ones
+                batch.forEach(transferLog -> transferLog.setId(null));
+                Thread.sleep(RETRY_INTERVAL_MS);
+            }
+        }
+    }
+
+    private void compact() {
+        // a committing transfer blocked on the full ring holds the lock, skip instead of waiting for it
+        if (!journalLock.tryLock()) {
+            return;
+        }
+        long truncatedBelow;
+        try {
+            if (pending.get() != 0 || journal.size() <= COMPACT_SIZE) {
+                return;
+            }
+            journal.truncate(0);
+            truncatedBelow = nextSeq;
+        } catch (IOException e) {
+            log.warn("transfer log journal compact error", e);
+            return;
+        } finally {
+            journalLock.unlock();
+        }
+
+        // the logs below are inserted or aborted, their commit rows are no longer needed
+        try {
+            transferLogCommitRepository.deleteBelow(truncatedBelow);
+        } catch (Exception e) {
+            log.warn("transfer log commit rows delete error, retried at the next compaction", e);
+        }
+    }
+
+    private List<TransferLog> recover() throws IOException {
+        // 1. journaled logs by position, minus the aborted ones
+        Map<Long, TransferLog> journaled = new LinkedHashMap<>();
+        Set<Long> committed = new HashSet<>();
+        long maxJournaled = 0;
+        if (Files.exists(journalPath)) {
+            try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    if (line.charAt(0) == COMMIT || line.charAt(0) == ABORT) {
+                        long[] range = range(line);
+                        for (long seq = range[0]; range.length == 2 && seq <= range[1]; seq++) {
+                            if (line.charAt(0) == COMMIT) {
+                                committed.add(seq);
+                            } else {
+                                journaled.remove(seq);
+                            }
+                        }
+                        continue;
+                    }
+                    TransferLog transferLog = line.charAt(0) == LOG ? JsonUtils.fromJson(line.substring(1), TransferLog.class) : null;
+                    if (transferLog == null || transferLog.getJournalSeq() == null) {
+                        // torn write of the last line before a crash, its transfer was never answered
+                        log.warn("transfer log journal skip unreadable line:{}", line);
+                        continue;
+                    }
+                    maxJournaled = Math.max(maxJournaled, transferLog.getJournalSeq());
+                    journaled.put(transferLog.getJournalSeq(), transferLog);
+                }
+            }
+        }
+
+        // 2. minus the inserted ones, the ring is in commit order so any position may be missing
+        List<TransferLogCommit> commitRows = new ArrayList<>();
+        if (!journaled.isEmpty()) {
+            long minJournaled = journaled.keySet().stream().mapToLong(Long::longValue).min().getAsLong();
+            transferLogRepository.findJournalSeqsFrom(minJournaled).forEach(journaled::remove);
+            commitRows = transferLogCommitRepository.findByLastSeqGreaterThanEqual(minJournaled);
+        }
+
+        // 3. no marker: committed only if its transaction wrote the commit row
+        List<TransferLog> recovered = new ArrayList<>();
+        int resolved = 0;
+        int rolledBack = 0;
+        for (TransferLog transferLog : journaled.values()) {
+            long seq = transferLog.getJournalSeq();
+            if (!committed.contains(seq)) {
+                if (commitRows.stream().noneMatch(row -> row.getFirstSeq() <= seq && seq <= row.getLastSeq())) {
+                    rolledBack++;
+                    continue;
+                }
+                resolved++;
+            }
+            transferLog.setId(null);
+            recovered.add(transferLog);
+        }
+        if (resolved > 0 || rolledBack > 0) {
+            log.warn("transfer log journal had {} logs without a commit marker, committed:{}, rolled back:{}",
+                    resolved + rolledBack, resolved, rolledBack);
+        }
+
+        // positions keep growing across truncations, the highest inserted one is in transfer_log
+        Long inserted = transferLogRepository.findMaxJournalSeq();
+        nextSeq = Math.max(inserted == null ? 0 : inserted, maxJournaled) + 1;
+        return recovered;
+    }
+
+    /**
+     * @return first and last position of a marker line, empty if torn
+     */
+    private long[] range(String line) {
+        int dash = line.indexOf('-');
+        try {
+            return new long[]{Long.parseLong(line.substring(1, dash)), Long.parseLong(line.substring(dash + 1))};
+        } catch (RuntimeException e) {
+            log.warn("transfer log journal skip unreadable marker:{}", line);
+            return new long[0];
+        }
+    }
+
+    /**
+     * commit or abort logs whose transaction outcome is unknown, by their commit row read in a transaction of its own.
+     * if it can't be read they stay in doubt until the restart
+     */
+    private void resolve(List<TransferLog> transferLogs) {
+        TransactionTemplate lookup = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        lookup.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        boolean committed;
+        try {
+            committed = Boolean.TRUE.equals(lookup.execute(status ->
+                    transferLogCommitRepository.existsById(transferLogs.get(0).getJournalSeq())));
+        } catch (Exception e) {
+            log.error("transfer log commit in doubt, {} logs are resolved at restart", transferLogs.size(), e);
+            return;
+        }
+        if (committed) {
+            mark(COMMIT, transferLogs);
+            enqueue(transferLogs);
+        } else {
+            mark(ABORT, transferLogs);
+            pending.addAndGet(-transferLogs.size());
+        }
+    }
+
+    /**
+     * logs written in one transaction, journaled before it commits
+     */
+    private final class JournaledLogs implements TransactionSynchronization {
+        private final List<TransferLog> logs = new ArrayList<>();
+
+        private boolean journaled;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            journal(logs, false);
+            journaled = true;
+            // commits or rolls back with the balances, resolves the logs if the marker is lost
+            transferLogCommitRepository.insert(logs.get(0).getJournalSeq(), logs.get(logs.size() - 1).getJournalSeq());
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (!journaled) {
+                return;
+            }
+            if (status == STATUS_COMMITTED) {
+                mark(COMMIT, logs);
+                enqueue(logs);
+            } else if (status == STATUS_ROLLED_BACK) {
+                // the commit failed after the fsync
+                mark(ABORT, logs);
+                pending.addAndGet(-logs.size());
+            } else {
+                // outcome unknown, the commit row tells whether the balances were committed
+                resolve(logs);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.transfer.handler;
+
+import org.example.transfer.comm.Money;
+import org.example.transfer.idempotent.IdempotencyKey;
+import org.example.transfer.model.Account;
+import org.example.transfer.model.TransferLog;
+
+import java.math.BigDecimal;
+
+/**
+ * balance changes of one transfer, computed by a {@link TransferHandler} without writing anything
+ *
+ * @param totalDeduct amount + fee, minor units of the sender's currency
+ * @param credit      amount received, minor units of the receiver's currency
+ * @param fee         minor units of the sender's currency
+ * @param fxRate      sender's to receiver's currency, 1 for same currency
+ */
+public record TransferQuote(long totalDeduct, long credit, long fee, BigDecimal fxRate) {
+
+    /**
+     * @param amount    requested amount
+     * @param requestId request of the transfer
+     * @return log of the transfer, not saved
+     */
+    public TransferLog toLog(Account from, Account to, BigDecimal amount, String requestId) {
+        TransferLog transferLog = new TransferLog();
+        transferLog.setFromAccountId(from.getId());
+        transferLog.setFromCurrency(from.getCurrency());
+        transferLog.setToAccountId(to.getId());
+        transferLog.setToCurrency(to.getCurrency());
+        transferLog.setAmount(amount);
+        transferLog.setFee(Money.toDecimal(fee, from.getCurrency()));
+        transferLog.setFxRate(fxRate);
+        transferLog.setRequestKey(IdempotencyKey.of(requestId).toHex());
+        return transferLog;
+    }
+}
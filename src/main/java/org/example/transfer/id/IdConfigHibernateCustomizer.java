@@ -0,0 +1,23 @@
+package org.example.transfer.id;
+
+import org.example.transfer.config.IdConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * hand transfer.id to hibernate, its id generators are not spring beans
+ */
+@Component
+public class IdConfigHibernateCustomizer implements HibernatePropertiesCustomizer {
+
+    @Autowired
+    private IdConfig idConfig;
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(TransferIdGenerator.SETTING, idConfig);
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.transfer.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * time-ordered 64-bit ids: 41 bits millis since 2024-01-01 | 10 bits node | 12 bits counter
+ * <p>
+ * lock-free, one CAS per id. ids of one node strictly increase, ids of several nodes sort by time to the millisecond.
+ * more than 4096 ids in a millisecond borrow the next millisecond, a clock moving back continues from the last id.
+ * a restart with the clock set back behind the last id issued may repeat ids, keep node clocks synchronized.
+ */
+public final class TimeOrderedIdGenerator {
+
+    /**
+     * 2024-01-01T00:00:00Z
+     */
+    static final long EPOCH_MILLIS = 1704067200000L;
+
+    static final int NODE_BITS = 10;
+
+    static final int COUNTER_BITS = 12;
+
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+
+    private final long node;
+
+    /**
+     * millis << COUNTER_BITS | counter of the last id
+     */
+    private final AtomicLong last = new AtomicLong();
+
+    public TimeOrderedIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("node id must be in [0, " + MAX_NODE_ID + "]: " + nodeId);
+        }
+        this.node = nodeId;
+    }
+
+    public long next() {
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << COUNTER_BITS;
+        // counter overflow carries into the millis, the clock never goes back
+        long state = last.updateAndGet(previous -> Math.max(previous + 1, now));
+        return (state >>> COUNTER_BITS) << (NODE_BITS + COUNTER_BITS) | node << COUNTER_BITS | state & COUNTER_MASK;
+    }
+
+    /**
+     * @return millis since the unix epoch in which the id was generated, or borrowed
+     */
+    public static long timestamp(long id) {
+        return (id >>> (NODE_BITS + COUNTER_BITS)) + EPOCH_MILLIS;
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.transfer.id;
+
+import org.example.transfer.comm.enums.IdStrategyEnum;
+import org.example.transfer.config.IdConfig;
+import org.hibernate.boot.model.relational.Database;
+import org.hibernate.boot.model.relational.SqlStringGenerationContext;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.OptimizableGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * id generator of an entity, strategy chosen per entity by transfer.id
+ * <p>
+ * 1. POOLED: pooled-lo sequence, the next allocationSize ids come from one sequence call.
+ * on a db without sequences (mysql) hibernate keeps the sequence in a one-row table.
+ * 2. TIME_ORDERED: {@link TimeOrderedIdGenerator}, no db call at all
+ * <p>
+ * both assign the id before the insert, so inserts stay jdbc batched, unlike IDENTITY.
+ * ids grow with insert time, usable as a keyset paging key.
+ */
+public class TransferIdGenerator implements IdentifierGenerator {
+
+    /**
+     * hibernate setting holding the {@link IdConfig}, see {@link IdConfigHibernateCustomizer}
+     */
+    public static final String SETTING = "transfer.id";
+
+    /**
+     * generator parameter: entity key, account | transfer_log
+     */
+    public static final String ENTITY_PARAM = "entity";
+
+    private SequenceStyleGenerator sequence;
+
+    private TimeOrderedIdGenerator timeOrdered;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+        Object setting = serviceRegistry.requireService(ConfigurationService.class).getSettings().get(SETTING);
+        IdConfig idConfig = setting instanceof IdConfig ? (IdConfig) setting : new IdConfig();
+
+        if (strategy(idConfig, params.getProperty(ENTITY_PARAM)) == IdStrategyEnum.TIME_ORDERED) {
+            timeOrdered = new TimeOrderedIdGenerator(idConfig.getNodeId());
+            return;
+        }
+        Properties sequenceParams = new Properties();
+        sequenceParams.putAll(params);
+        sequenceParams.put(SequenceStyleGenerator.INCREMENT_PARAM, String.valueOf(idConfig.getAllocationSize()));
+        sequenceParams.put(OptimizableGenerator.OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        sequence = new SequenceStyleGenerator();
+        sequence.configure(type, sequenceParams, serviceRegistry);
+    }
+
+    @Override
+    public void registerExportables(Database database) {
+        if (sequence != null) {
+            sequence.registerExportables(database);
+        }
+    }
+
+    @Override
+    public void initialize(SqlStringGenerationContext context) {
+        if (sequence != null) {
+            sequence.initialize(context);
+        }
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return sequence != null ? sequence.generate(session, object) : timeOrdered.next();
+    }
+
+    private static IdStrategyEnum strategy(IdConfig idConfig, String entity) {
+        return switch (entity) {
+            case "account" -> idConfig.getAccount();
+            case "transfer_log" -> idConfig.getTransferLog();
+            default -> throw new IllegalArgumentException("unknown id entity: " + entity);
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.transfer.idempotent;
+
+import org.example.transfer.util.HashUtils;
+
+/**
+ * 128-bit murmur3 hash of a requestId
+ * <p>
+ * fixed size whatever the requestId length, collision probability is negligible at billions of keys
+ */
+public record IdempotencyKey(long high, long low) {
+
+    public static IdempotencyKey of(String requestId) {
+        long[] hash = HashUtils.murmur3x64128(requestId);
+        return new IdempotencyKey(hash[0], hash[1]);
+    }
+
+    /**
+     * @return 32 hex chars, used as db primary key
+     */
+    public String toHex() {
+        return String.format("%016x%016x", high, low);
+    }
+
+    public static IdempotencyKey fromHex(String hex) {
+        return new IdempotencyKey(Long.parseUnsignedLong(hex.substring(0, 16), 16),
+                Long.parseUnsignedLong(hex.substring(16), 16));
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.transfer.idempotent;
+
+/**
+ * stored state of a requestId
+ *
+ * @param status    IN_PROGRESS | SUCCESS | FAILED
+ * @param errorCode error code if FAILED
+ * @param errorMsg  error message if FAILED
+ */
+public record IdempotencyOutcome(Status status, String errorCode, String errorMsg) {
+
+    public enum Status {
+        IN_PROGRESS, SUCCESS, FAILED
+    }
+
+    public static final IdempotencyOutcome IN_PROGRESS = new IdempotencyOutcome(Status.IN_PROGRESS, null, null);
+
+    public static final IdempotencyOutcome SUCCESS = new IdempotencyOutcome(Status.SUCCESS, null, null);
+
+    public static IdempotencyOutcome failed(String errorCode, String errorMsg) {
+        return new IdempotencyOutcome(Status.FAILED, errorCode, errorMsg);
+    }
+
+    public static IdempotencyOutcome of(Status status, String errorCode, String errorMsg) {
+        return switch (status) {
+            case IN_PROGRESS -> IN_PROGRESS;
+            case SUCCESS -> SUCCESS;
+            case FAILED -> failed(errorCode, errorMsg);
+        };
+    }
+
+    public boolean isCompleted() {
+        return status != Status.IN_PROGRESS;
+    }
+}
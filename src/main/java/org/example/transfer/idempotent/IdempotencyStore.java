@@ -0,0 +1,236 @@
+package org.example.transfer.idempotent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.config.IdempotencyConfig;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.model.IdempotencyRecord;
+import org.example.transfer.repository.IdempotencyRecordRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * idempotency store
+ * <p>
+ * requestId -> 128-bit key -> outcome, kept for the configured ttl.
+ * 1. begin: putIfAbsent, O(1), only the first caller of a key gets to run
+ * 2. complete: record SUCCESS / FAILED outcome, optionally persisted
+ * 3. release: forget the key, the request can be retried
+ * <p>
+ * memory: ~120 bytes per key (map node, key, entry, expiry queue node), bounded by max-keys.
+ * keys are queued in begin order, the ttl is the same for all, so the sweeper only looks at the head.
+ * over max-keys the oldest completed keys are evicted, in-progress keys never are: evicting one would let a
+ * duplicate run while the first is still running.
+ */
+@Component
+public class IdempotencyStore {
+    Logger log = LogManager.getLogger(IdempotencyStore.class);
+
+    @Autowired
+    private IdempotencyConfig idempotencyConfig;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<IdempotencyKey, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Queue<Entry> expiryQueue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private Counter duplicateCounter;
+
+    private Counter evictedCounter;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("transfer.idempotency.keys", size, AtomicInteger::get)
+                .description("requestIds in the idempotency store")
+                .register(meterRegistry);
+        duplicateCounter = Counter.builder("transfer.idempotency.duplicate")
+                .description("requests rejected or replayed as duplicate")
+                .register(meterRegistry);
+        evictedCounter = Counter.builder("transfer.idempotency.evicted")
+                .description("requestIds evicted before ttl because max-keys was reached")
+                .register(meterRegistry);
+
+        if (idempotencyConfig.isPersistent()) {
+            warmUp();
+        }
+    }
+
+    /**
+     * begin a request
+     *
+     * @param key request key
+     * @return null if the caller owns the key now, otherwise the current outcome of the key
+     * @throws BusinessException SERVER_BUSY if max-keys is reached and only in-progress keys are left
+     */
+    public IdempotencyOutcome begin(IdempotencyKey key) {
+        long now = System.currentTimeMillis();
+        Entry fresh = new Entry(key, now + idempotencyConfig.getTtl().toMillis(), IdempotencyOutcome.IN_PROGRESS);
+        while (true) {
+            Entry existing = entries.putIfAbsent(key, fresh);
+            if (existing == null) {
+                added(fresh);
+                return null;
+            }
+            if (existing.expireAt > now) {
+                duplicateCounter.increment();
+                return existing.outcome;
+            }
+            // expired, not swept yet
+            if (entries.replace(key, existing, fresh)) {
+                expiryQueue.add(fresh);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * record outcome of a request started by {@link #begin(IdempotencyKey)}
+     */
+    public void complete(IdempotencyKey key, IdempotencyOutcome outcome) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return;
+        }
+        entry.outcome = outcome;
+
+        if (idempotencyConfig.isPersistent()) {
+            IdempotencyRecord record = new IdempotencyRecord();
+            record.setKeyHash(key.toHex());
+            record.setStatus(outcome.status());
+            record.setErrorCode(outcome.errorCode());
+            record.setErrorMsg(outcome.errorMsg());
+            record.setExpireAt(entry.expireAt);
+            try {
+                idempotencyRecordRepository.save(record);
+            } catch (Exception e) {
+                // in-memory record still rejects duplicates until restart
+                log.error("persist idempotency record error, key:{}", record.getKeyHash(), e);
+            }
+        }
+    }
+
+    /**
+     * forget a request started by {@link #begin(IdempotencyKey)}, so it can be retried
+     */
+    public void release(IdempotencyKey key) {
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.outcome.isCompleted() && entries.remove(key, entry)) {
+            size.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return outcome of the key, null if unknown or expired
+     */
+    public IdempotencyOutcome get(IdempotencyKey key) {
+        Entry entry = entries.get(key);
+        return entry == null || entry.expireAt <= System.currentTimeMillis() ? null : entry.outcome;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * remove expired keys from memory and db
+     */
+    @Scheduled(fixedDelayString = "${transfer.idempotency.sweep-interval:PT1S}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        Entry head;
+        while ((head = expiryQueue.peek()) != null && head.expireAt <= now) {
+            expiryQueue.poll();
+            remove(head);
+        }
+
+        if (idempotencyConfig.isPersistent()) {
+            try {
+                idempotencyRecordRepository.deleteExpired(now);
+            } catch (Exception e) {
+                log.error("delete expired idempotency records error", e);
+            }
+        }
+    }
+
+    private void added(Entry entry) {
+        expiryQueue.add(entry);
+        if (size.incrementAndGet() <= idempotencyConfig.getMaxKeys()) {
+            return;
+        }
+
+        // over max-keys, evict the oldest completed, in-progress keys are queued again
+        List<Entry> inProgress = new ArrayList<>();
+        Entry oldest;
+        while (size.get() > idempotencyConfig.getMaxKeys() && (oldest = expiryQueue.poll()) != null) {
+            if (entries.get(oldest.key) == oldest && !oldest.outcome.isCompleted()) {
+                inProgress.add(oldest);
+            } else if (remove(oldest)) {
+                evictedCounter.increment();
+            }
+        }
+        expiryQueue.addAll(inProgress);
+        if (size.get() > idempotencyConfig.getMaxKeys() && remove(entry)) {
+            log.warn("idempotency store full of in-progress keys, max-keys:{}", idempotencyConfig.getMaxKeys());
+            throw new BusinessException(ExceptionEnum.SERVER_BUSY.getErrorCode(), ExceptionEnum.SERVER_BUSY.getErrorMsg());
+        }
+    }
+
+    private boolean remove(Entry entry) {
+        if (entries.remove(entry.key, entry)) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private void warmUp() {
+        long now = System.currentTimeMillis();
+        List<IdempotencyRecord> records = idempotencyRecordRepository.findByExpireAtGreaterThan(now);
+        records.sort((a, b) -> Long.compare(a.getExpireAt(), b.getExpireAt()));
+        for (IdempotencyRecord record : records) {
+            IdempotencyKey key = IdempotencyKey.fromHex(record.getKeyHash());
+            Entry entry = new Entry(key, record.getExpireAt(),
+                    IdempotencyOutcome.of(record.getStatus(), record.getErrorCode(), record.getErrorMsg()));
+            if (entries.putIfAbsent(key, entry) == null) {
+                added(entry);
+            }
+        }
+        log.info("idempotency store warmed up, keys:{}", size.get());
+    }
+
+    private static final class Entry {
+
+        private final IdempotencyKey key;
+
+        private final long expireAt;
+
+        private volatile IdempotencyOutcome outcome;
+
+        private Entry(IdempotencyKey key, long expireAt, IdempotencyOutcome outcome) {
+            this.key = key;
+            this.expireAt = expireAt;
+            this.outcome = outcome;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.example.transfer.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.comm.Money;
+import org.example.transfer.config.JournalConfig;
+import org.example.transfer.executor.WorkerThreadFactory;
+import org.example.transfer.model.JournalCheckpoint;
+import org.example.transfer.model.TransferLog;
+import org.example.transfer.repository.AccountRepository;
+import org.example.transfer.repository.JournalCheckpointRepository;
+import org.example.transfer.repository.TransferLogRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * apply durable journal records to account and transfer_log
+ * <p>
+ * one transaction per batch of records: balance changes are summed per account and written with one statement each,
+ * transfer logs are inserted in jdbc batches, the checkpoint moves to the batch's last seq.
+ * records above the checkpoint are projected on start, before the ledger engine loads any balance.
+ */
+@Component
+public class JournalProjector {
+    Logger log = LogManager.getLogger(JournalProjector.class);
+
+    private static final String CONSUMER = "projector";
+
+    private static final long RETRY_INTERVAL_MS = 1000L;
+
+    @Autowired
+    private JournalConfig journalConfig;
+
+    @Autowired
+    private TransferJournal transferJournal;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransferLogRepository transferLogRepository;
+
+    @Autowired
+    private JournalCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private WorkerThreadFactory workerThreadFactory;
+
+    /**
+     * last projected seq, written by the projector thread only
+     */
+    private volatile long checkpoint;
+
+    private Thread thread;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!journalConfig.isEnabled()) {
+            return;
+        }
+        checkpoint = checkpointRepository.findById(CONSUMER).map(JournalCheckpoint::getSeq).orElse(0L);
+        if (checkpoint > transferJournal.lastSeq()) {
+            throw new IllegalStateException("transfer journal ends at " + transferJournal.lastSeq()
+                    + " behind projected seq " + checkpoint + ", journal directory lost?");
+        }
+
+        // 1. catch up synchronously, balances in the db are stale until then
+        long replayed = 0;
+        for (int projected = project(); projected > 0; projected = project()) {
+            replayed += projected;
+        }
+        log.info("journal projector started, replayed:{}, checkpoint:{}", replayed, checkpoint);
+
+        // 2. follow new records
+        running = true;
+        thread = workerThreadFactory.newThread("journal-projector", this::run);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /**
+     * @return last projected seq
+     */
+    public long checkpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * wait until every record appended so far is projected
+     *
+     * @param timeout max wait time
+     * @param unit    time unit
+     * @return true if projected before timeout
+     */
+    public boolean awaitProjected(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long target = transferJournal.lastSeq();
+        while (checkpoint < target) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private void run() {
+        while (running || checkpoint < transferJournal.durableSeq()) {
+            try {
+                if (project() == 0) {
+                    transferJournal.awaitDurable(checkpoint + 1, 100, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // the transfers are committed in the journal, keep retrying instead of skipping them
+                log.error("journal projector error at seq:{}, retry in {}ms", checkpoint + 1, RETRY_INTERVAL_MS, e);
+                try {
+                    Thread.sleep(RETRY_INTERVAL_MS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * project the next batch of durable records
+     *
+     * @return records projected
+     */
+    private int project() {
+        long from = checkpoint + 1;
+        long to = Math.min(transferJournal.durableSeq(), checkpoint + journalConfig.getProjectorBatchSize());
+        if (to < from) {
+            return 0;
+        }
+        List<JournalRecord> records = transferJournal.read(from, to);
+
+        // 1. net balance change per account, ascending id so two writers can't deadlock
+        Map<Long, BigDecimal> changes = new TreeMap<>();
+        List<TransferLog> transferLogs = new ArrayList<>(records.size());
+        for (JournalRecord record : records) {
+            changes.merge(record.fromAccountId(), Money.toDecimal(-record.totalDeduct(), record.fromCurrency()), BigDecimal::add);
+            changes.merge(record.toAccountId(), Money.toDecimal(record.credit(), record.toCurrency()), BigDecimal::add);
+            transferLogs.add(record.toLog());
+        }
+
+        // 2. balances, logs and checkpoint in one transaction, a batch is projected exactly once
+        transactionTemplate.executeWithoutResult(status -> {
+            changes.forEach(accountRepository::credit);
+            transferLogRepository.saveAll(transferLogs);
+            checkpointRepository.save(new JournalCheckpoint(CONSUMER, to));
+        });
+        checkpoint = to;
+
+        // 3. segments below the checkpoint are no longer needed
+        transferJournal.release(to);
+        return records.size();
+    }
+}
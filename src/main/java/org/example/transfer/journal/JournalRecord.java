@@ -0,0 +1,112 @@
+package org.example.transfer.journal;
+
+import org.example.transfer.comm.Money;
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.idempotent.IdempotencyKey;
+import org.example.transfer.model.TransferLog;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * one committed transfer, stored as a fixed-size binary record
+ * <p>
+ * layout, 80 bytes: seq | from | to | amount | fee | credit | fx rate unscaled | request key high | request key low
+ * (8 bytes each) | from currency | to currency | fx rate scale | reserved (1 byte each) | crc32c of the first 76 bytes
+ * (4 bytes)
+ *
+ * @param seq        journal position, starts at 1 and has no gaps
+ * @param amount     minor units of the from currency, fee excluded
+ * @param fee        minor units of the from currency
+ * @param credit     minor units of the to currency added to the receiver
+ * @param requestKey key of the request, kept in the transfer's log
+ */
+public record JournalRecord(long seq, long fromAccountId, long toAccountId, long amount, long fee, long credit,
+                            BigDecimal fxRate, IdempotencyKey requestKey, Currency fromCurrency, Currency toCurrency) {
+
+    public static final int SIZE = 80;
+
+    private static final int CRC_OFFSET = 76;
+
+    JournalRecord withSeq(long seq) {
+        return new JournalRecord(seq, fromAccountId, toAccountId, amount, fee, credit, fxRate, requestKey,
+                fromCurrency, toCurrency);
+    }
+
+    /**
+     * @return minor units of the from currency deducted from the sender
+     */
+    public long totalDeduct() {
+        return amount + fee;
+    }
+
+    /**
+     * write at the buffer's position, the position is advanced by {@link #SIZE}
+     */
+    void write(ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.putLong(seq)
+                .putLong(fromAccountId)
+                .putLong(toAccountId)
+                .putLong(amount)
+                .putLong(fee)
+                .putLong(credit)
+                .putLong(fxRate.unscaledValue().longValueExact())
+                .putLong(requestKey.high())
+                .putLong(requestKey.low())
+                .put((byte) fromCurrency.ordinal())
+                .put((byte) toCurrency.ordinal())
+                .put((byte) fxRate.scale())
+                .put((byte) 0);
+        buffer.putInt(crc(buffer, start));
+    }
+
+    /**
+     * read at the buffer's position, the position is advanced by {@link #SIZE}
+     *
+     * @return record, null if the bytes are not a complete record (never written, torn write)
+     */
+    static JournalRecord read(ByteBuffer buffer) {
+        int start = buffer.position();
+        long seq = buffer.getLong();
+        long fromAccountId = buffer.getLong();
+        long toAccountId = buffer.getLong();
+        long amount = buffer.getLong();
+        long fee = buffer.getLong();
+        long credit = buffer.getLong();
+        long fxUnscaled = buffer.getLong();
+        IdempotencyKey requestKey = new IdempotencyKey(buffer.getLong(), buffer.getLong());
+        int fromCurrency = buffer.get();
+        int toCurrency = buffer.get();
+        int fxScale = buffer.get();
+        buffer.get();
+        int crc = crc(buffer, start);
+        if (seq <= 0 || buffer.getInt() != crc) {
+            return null;
+        }
+        Currency[] currencies = Currency.values();
+        return new JournalRecord(seq, fromAccountId, toAccountId, amount, fee, credit,
+                new BigDecimal(BigInteger.valueOf(fxUnscaled), fxScale), requestKey, currencies[fromCurrency], currencies[toCurrency]);
+    }
+
+    TransferLog toLog() {
+        TransferLog transferLog = new TransferLog();
+        transferLog.setFromAccountId(fromAccountId);
+        transferLog.setFromCurrency(fromCurrency);
+        transferLog.setToAccountId(toAccountId);
+        transferLog.setToCurrency(toCurrency);
+        transferLog.setAmount(Money.toDecimal(amount, fromCurrency));
+        transferLog.setFee(Money.toDecimal(fee, fromCurrency));
+        transferLog.setFxRate(fxRate);
+        transferLog.setRequestKey(requestKey.toHex());
+        return transferLog;
+    }
+
+    private static int crc(ByteBuffer buffer, int start) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(start).limit(start + CRC_OFFSET));
+        return (int) crc.getValue();
+    }
+}
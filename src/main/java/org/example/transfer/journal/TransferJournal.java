@@ -0,0 +1,493 @@
+package org.example.transfer.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.config.JournalConfig;
+import org.example.transfer.config.LedgerConfig;
+import org.example.transfer.executor.WorkerThreadFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * append-only write-ahead journal of committed transfers
+ * <p>
+ * 1. append: the record is copied into the memory-mapped active segment, no system call
+ * 2. sync: one thread forces everything appended since its last force with one call,
+ * then completes the appends it covered (group fsync)
+ * 3. roll: a full segment is forced and a new one, named by its first seq, is mapped
+ * 4. restart: the last segment is scanned up to its last valid record, the torn rest is zeroed
+ * <p>
+ * a failed force stops the journal: the appends it covered fail, their records are zeroed so a restart does not
+ * replay them, and later appends are rejected until the journal is restarted.
+ * <p>
+ * an append is committed once its future completes, {@link JournalProjector} applies it to the db later.
+ * segments fully projected are deleted by {@link #release}.
+ */
+@Component
+public class TransferJournal {
+    Logger log = LogManager.getLogger(TransferJournal.class);
+
+    private static final String SUFFIX = ".journal";
+
+    @Autowired
+    private JournalConfig journalConfig;
+
+    @Autowired
+    private LedgerConfig ledgerConfig;
+
+    @Autowired
+    private WorkerThreadFactory workerThreadFactory;
+
+    /**
+     * serializes appends, rolls and segment deletes.
+     * not a monitor so a virtual thread blocked in a force can unmount
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition appended = lock.newCondition();
+
+    private final Condition synced = lock.newCondition();
+
+    /**
+     * first seq -> segment, guarded by lock
+     */
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+    /**
+     * appends not durable yet, in seq order, guarded by lock
+     */
+    private final ArrayDeque<PendingAppend> pendingAppends = new ArrayDeque<>();
+
+    private final ByteBuffer scratch = ByteBuffer.allocate(JournalRecord.SIZE);
+
+    private Path directory;
+
+    private Segment active;
+
+    /**
+     * last appended seq, guarded by lock
+     */
+    private long lastSeq;
+
+    private volatile long durableSeq;
+
+    /**
+     * set once a force failed, appends are rejected from then on
+     */
+    private volatile UncheckedIOException failure;
+
+    private Thread syncer;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!journalConfig.isEnabled()) {
+            return;
+        }
+        if (!ledgerConfig.isEnabled()) {
+            throw new IllegalStateException("transfer.journal.enabled requires transfer.ledger.enabled");
+        }
+        if (journalConfig.getSegmentSize().toBytes() % JournalRecord.SIZE != 0) {
+            throw new IllegalStateException("transfer.journal.segment-size must be a multiple of " + JournalRecord.SIZE);
+        }
+        directory = Paths.get(journalConfig.getDirectory()).toAbsolutePath();
+        Files.createDirectories(directory);
+        recover();
+        failure = null;
+
+        running = true;
+        syncer = workerThreadFactory.newThread("journal-sync", this::run);
+        syncer.start();
+        log.info("transfer journal started, directory:{}, segments:{}, last seq:{}", directory, segments.size(), lastSeq);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (syncer == null) {
+            return;
+        }
+        running = false;
+        lock.lock();
+        try {
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            syncer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        syncer = null;
+        lock.lock();
+        try {
+            for (Segment segment : segments.values()) {
+                segment.channel.close();
+            }
+            segments.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * append a committed transfer
+     *
+     * @param record record, its seq is assigned here
+     * @return completed with the record's seq once it is durable, completed exceptionally if it can not be forced
+     * @throws UncheckedIOException if the journal failed or a new segment can not be created, nothing is appended
+     */
+    public CompletableFuture<Long> append(JournalRecord record) {
+        CompletableFuture<Long> durable = new CompletableFuture<>();
+        long seq;
+        List<PendingAppend> dropped = List.of();
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new UncheckedIOException("transfer journal stopped after a failed force", failure.getCause());
+            }
+            if (active.isFull(lastSeq + 1)) {
+                try {
+                    active.buffer.force();
+                } catch (UncheckedIOException e) {
+                    log.error("transfer journal force error on roll, segment:{}, journal stopped", active.path, e);
+                    dropped = fail(e);
+                    throw e;
+                }
+                roll();
+            }
+            seq = lastSeq + 1;
+            scratch.clear();
+            record.withSeq(seq).write(scratch);
+            active.buffer.put(active.offset(seq), scratch.array());
+            lastSeq = seq;
+            if (journalConfig.isFsync()) {
+                pendingAppends.add(new PendingAppend(seq, durable));
+                appended.signal();
+                return durable;
+            }
+            durableSeq = seq;
+        } finally {
+            lock.unlock();
+            settle(dropped);
+        }
+        durable.complete(seq);
+        return durable;
+    }
+
+    /**
+     * @return highest seq appended
+     */
+    public long lastSeq() {
+        lock.lock();
+        try {
+            return lastSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return highest seq which is durable
+     */
+    public long durableSeq() {
+        return durableSeq;
+    }
+
+    /**
+     * wait until a seq is durable
+     *
+     * @return true if durable before timeout
+     */
+    public boolean awaitDurable(long seq, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (durableSeq < seq) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = synced.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * read durable records
+     *
+     * @param fromSeq first seq, inclusive
+     * @param toSeq   last seq, inclusive, at most {@link #durableSeq()}
+     * @return records in seq order
+     */
+    public List<JournalRecord> read(long fromSeq, long toSeq) {
+        List<JournalRecord> records = new ArrayList<>((int) Math.max(0, toSeq - fromSeq + 1));
+        long seq = fromSeq;
+        while (seq <= toSeq) {
+            Segment segment;
+            lock.lock();
+            try {
+                segment = segments.floorEntry(seq).getValue();
+            } finally {
+                lock.unlock();
+            }
+            // absolute reads of a durable region, appends only write behind it
+            ByteBuffer view = segment.buffer.duplicate();
+            for (; seq <= toSeq && !segment.isFull(seq); seq++) {
+                view.position(segment.offset(seq));
+                JournalRecord record = JournalRecord.read(view);
+                if (record == null || record.seq() != seq) {
+                    throw new IllegalStateException("transfer journal record " + seq + " unreadable in " + segment.path);
+                }
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * delete the segments whose records are all at or below a seq, the active segment is kept
+     *
+     * @param seq highest seq no longer needed
+     */
+    public void release(long seq) {
+        List<Segment> released = new ArrayList<>();
+        lock.lock();
+        try {
+            Iterator<Map.Entry<Long, Segment>> iterator = segments.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Segment segment = iterator.next().getValue();
+                if (segment == active || segment.lastSeq() > seq) {
+                    break;
+                }
+                iterator.remove();
+                released.add(segment);
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Segment segment : released) {
+            try {
+                segment.channel.close();
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                log.warn("transfer journal delete segment error, segment:{}", segment.path, e);
+            }
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Segment segment;
+            long target;
+            int from;
+            lock.lock();
+            try {
+                while (lastSeq == durableSeq && running) {
+                    appended.awaitNanos(TimeUnit.MILLISECONDS.toNanos(100));
+                }
+                if (lastSeq == durableSeq) {
+                    return;
+                }
+                // older segments are forced when rolled, only the active one has unforced records
+                target = lastSeq;
+                segment = active;
+                from = segment.firstSeq > durableSeq ? 0 : segment.offset(durableSeq + 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            // 1. one force for every record appended since the last one
+            try {
+                segment.buffer.force(from, segment.offset(target) + JournalRecord.SIZE - from);
+            } catch (UncheckedIOException e) {
+                log.error("transfer journal force error, seq:{}..{}, journal stopped", durableSeq + 1, target, e);
+                List<PendingAppend> dropped;
+                lock.lock();
+                try {
+                    dropped = fail(e);
+                } finally {
+                    lock.unlock();
+                }
+                settle(dropped);
+                return;
+            }
+
+            // 2. complete the appends it covered, outside the lock
+            List<PendingAppend> covered = new ArrayList<>();
+            lock.lock();
+            try {
+                if (failure != null) {
+                    // a roll failed meanwhile, its records are zeroed and their appends failed
+                    return;
+                }
+                durableSeq = target;
+                while (!pendingAppends.isEmpty() && pendingAppends.peek().seq <= target) {
+                    covered.add(pendingAppends.poll());
+                }
+                synced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            covered.forEach(pending -> pending.durable.complete(pending.seq));
+        }
+    }
+
+    /**
+     * map the next segment once the full active one is forced, called under lock
+     */
+    private void roll() {
+        try {
+            active = openSegment(lastSeq + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segments.put(active.firstSeq, active);
+    }
+
+    /**
+     * stop the journal after a failed force, called under lock.
+     * records of rolled segments were forced by the roll, the active segment's records above durableSeq are not
+     * durable: zeroed so a restart ends the journal before them, and their appends fail
+     *
+     * @return appends not durable before the failure, to {@link #settle} outside the lock
+     */
+    private List<PendingAppend> fail(UncheckedIOException cause) {
+        failure = cause;
+        long kept = Math.max(durableSeq, active.firstSeq - 1);
+        byte[] zeros = new byte[JournalRecord.SIZE];
+        for (long seq = kept + 1; seq <= lastSeq; seq++) {
+            active.buffer.put(active.offset(seq), zeros);
+        }
+        try {
+            active.buffer.force();
+        } catch (UncheckedIOException e) {
+            log.error("transfer journal force of zeroed records error, segment:{}", active.path, e);
+        }
+        lastSeq = kept;
+        durableSeq = kept;
+        synced.signalAll();
+
+        List<PendingAppend> dropped = new ArrayList<>(pendingAppends);
+        pendingAppends.clear();
+        return dropped;
+    }
+
+    /**
+     * complete the appends taken by {@link #fail}, those at or below durableSeq were forced by a roll
+     */
+    private void settle(List<PendingAppend> dropped) {
+        for (PendingAppend pending : dropped) {
+            if (pending.seq <= durableSeq) {
+                pending.durable.complete(pending.seq);
+            } else {
+                pending.durable.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).toList()) {
+                String name = path.getFileName().toString();
+                long firstSeq = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+                segments.put(firstSeq, openSegment(firstSeq));
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.put(1L, openSegment(1));
+        }
+        active = segments.lastEntry().getValue();
+
+        // 1. the last segment ends at its first record which is missing, torn, or out of sequence
+        ByteBuffer view = active.buffer.duplicate();
+        long seq = active.firstSeq;
+        while (!active.isFull(seq)) {
+            view.position(active.offset(seq));
+            JournalRecord record = JournalRecord.read(view);
+            if (record == null || record.seq() != seq) {
+                break;
+            }
+            seq++;
+        }
+        lastSeq = seq - 1;
+
+        // 2. zero the rest, a record written after a torn one was never acknowledged and must not reappear
+        byte[] zeros = new byte[JournalRecord.SIZE];
+        for (long rest = seq; !active.isFull(rest); rest++) {
+            active.buffer.put(active.offset(rest), zeros);
+        }
+        active.buffer.force();
+        durableSeq = lastSeq;
+    }
+
+    private Segment openSegment(long firstSeq) throws IOException {
+        Path path = directory.resolve(String.format("%020d%s", firstSeq, SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Files.size(path) > 0 ? Files.size(path) : journalConfig.getSegmentSize().toBytes();
+        return new Segment(firstSeq, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    /**
+     * one segment file, mapped as a whole
+     */
+    private static final class Segment {
+        private final long firstSeq;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+
+        private Segment(long firstSeq, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.firstSeq = firstSeq;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity() / JournalRecord.SIZE;
+        }
+
+        boolean isFull(long seq) {
+            return seq - firstSeq >= capacity;
+        }
+
+        int offset(long seq) {
+            return (int) (seq - firstSeq) * JournalRecord.SIZE;
+        }
+
+        long lastSeq() {
+            return firstSeq + capacity - 1;
+        }
+    }
+
+    private record PendingAppend(long seq, CompletableFuture<Long> durable) {
+    }
+}
@@ -0,0 +1,349 @@
+package org.example.transfer.ledger;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.config.LedgerConfig;
+import org.example.transfer.executor.WorkerThreadFactory;
+import org.example.transfer.model.Account;
+import org.example.transfer.model.TransferLog;
+import org.example.transfer.repository.AccountRepository;
+import org.example.transfer.repository.TransferLogRepository;
+import org.example.transfer.util.JsonUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * background writer, persist ledger changes by JPA in batches
+ * <p>
+ * one transaction per batch, only the last balance of each account in the batch is written.
+ * the ledger engine is the only writer of account balances, so the version check never fails.
+ * <p>
+ * a batch failing writerMaxAttempts times is split in halves, each persisted on its own, down to the failing change,
+ * which is appended to the dead-letter file instead of blocking every later change. while the database can not be
+ * reached at all nothing is dead-lettered, the batch is retried until it is back.
+ * <p>
+ * the changes in the dead-letter file are counted by transfer.ledger.dead_letters. once the cause is repaired,
+ * {@link #replayDeadLetters()} persists them again on the writer thread, in line with the queue:
+ * 1. logs are persisted as they are in the file
+ * 2. a balance is persisted only if no later balance of its account was persisted since it was dead-lettered,
+ * that one supersedes it. balances dead-lettered before a restart are not replayed, the accounts must be reconciled
+ * 3. changes failing again are dead-lettered again
+ */
+@Component
+public class JpaLedgerWriter implements LedgerWriter {
+    Logger log = LogManager.getLogger(JpaLedgerWriter.class);
+
+    private static final long RETRY_INTERVAL_MS = 1000L;
+
+    @Autowired
+    private LedgerConfig ledgerConfig;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransferLogRepository transferLogRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private WorkerThreadFactory workerThreadFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong pending = new AtomicLong();
+
+    /**
+     * changes in the dead-letter file
+     */
+    private final AtomicLong deadLetters = new AtomicLong();
+
+    /**
+     * account id -> last dead-lettered balance not superseded since, only touched by the writer thread
+     */
+    private final Map<Long, BigDecimal> deadBalances = new HashMap<>();
+    private Thread thread;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!ledgerConfig.isEnabled()) {
+            return;
+        }
+        deadLetters.set(countDeadLetters());
+        if (deadLetters.get() > 0) {
+            log.warn("ledger writer dead-letter file has {} changes, path:{}", deadLetters.get(), ledgerConfig.getDeadLetterPath());
+        }
+        Gauge.builder("transfer.ledger.dead_letters", deadLetters, AtomicLong::get)
+                .description("ledger changes in the dead-letter file, not persisted")
+                .register(meterRegistry);
+        running = true;
+        thread = workerThreadFactory.newThread("ledger-writer", this::run);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (pending.get() > 0) {
+            log.error("ledger writer stopped with {} unpersisted changes", pending.get());
+        }
+    }
+
+    @Override
+    public void writeBalance(Long accountId, BigDecimal balance) {
+        pending.incrementAndGet();
+        queue.add(new BalanceUpdate(accountId, balance));
+    }
+
+    @Override
+    public void writeLog(TransferLog transferLog) {
+        pending.incrementAndGet();
+        queue.add(transferLog);
+    }
+
+    /**
+     * @return changes in the dead-letter file
+     */
+    public long getDeadLetters() {
+        return deadLetters.get();
+    }
+
+    /**
+     * persist the dead-lettered changes again, after the writer persisted everything queued before
+     *
+     * @return completed with the number of changes persisted, those failing again are back in the dead-letter file
+     */
+    public CompletableFuture<Integer> replayDeadLetters() {
+        Replay replay = new Replay(new CompletableFuture<>());
+        if (thread == null) {
+            replay.replayed().complete(0);
+            return replay.replayed();
+        }
+        pending.incrementAndGet();
+        queue.add(replay);
+        return replay.replayed();
+    }
+
+    @Override
+    public boolean awaitFlushed(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (pending.get() > 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private void run() {
+        List<Object> batch = new ArrayList<>(ledgerConfig.getWriterBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                Object first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, ledgerConfig.getWriterBatchSize() - 1);
+                persistWithRetry(batch);
+                for (Object item : batch) {
+                    if (item instanceof Replay replay) {
+                        replay(replay);
+                    }
+                }
+                pending.addAndGet(-batch.size());
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void persistWithRetry(List<Object> batch) throws InterruptedException {
+        for (int attempt = 1; ; ) {
+            try {
+                persist(batch);
+                return;
+            } catch (Exception e) {
+                // balances are already applied in memory, an outage is waited out, not counted
+                if (isDatabaseUp() && attempt++ >= ledgerConfig.getWriterMaxAttempts()) {
+                    if (batch.size() == 1) {
+                        deadLetter(batch.get(0), e);
+                        return;
+                    }
+                    log.warn("ledger writer persist error, split batch of size:{}", batch.size(), e);
+                    int half = batch.size() / 2;
+                    persistWithRetry(batch.subList(0, half));
+                    persistWithRetry(batch.subList(half, batch.size()));
+                    return;
+                }
+                log.error("ledger writer persist error, batch size:{}, retry in {}ms", batch.size(), RETRY_INTERVAL_MS, e);
+                Thread.sleep(RETRY_INTERVAL_MS);
+            }
+        }
+    }
+
+    private boolean isDatabaseUp() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> accountRepository.existsById(0L));
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void deadLetter(Object change, Exception cause) {
+        String type = change instanceof BalanceUpdate ? "balance" : "log";
+        String line = JsonUtils.toJson(Map.of("type", type, "change", change));
+        log.error("ledger writer dead-letter {}:{}", type, line, cause);
+        if (change instanceof BalanceUpdate update) {
+            deadBalances.put(update.accountId(), update.balance());
+        }
+        deadLetters.incrementAndGet();
+        Path path = Paths.get(ledgerConfig.getDeadLetterPath());
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.writeString(path, line + "\n", StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.error("ledger writer dead-letter write error, path:{}", path, e);
+        }
+    }
+
+    private long countDeadLetters() {
+        Path path = Paths.get(ledgerConfig.getDeadLetterPath());
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)) {
+            return lines.filter(line -> !line.isBlank()).count();
+        } catch (IOException e) {
+            log.error("ledger writer dead-letter read error, path:{}", path, e);
+            return 0;
+        }
+    }
+
+    /**
+     * runs on the writer thread, every change queued before the replay request is persisted or dead-lettered
+     */
+    private void replay(Replay replay) {
+        Path path = Paths.get(ledgerConfig.getDeadLetterPath());
+        Path replaying = Paths.get(ledgerConfig.getDeadLetterPath() + ".replay");
+        List<Object> changes = new ArrayList<>();
+        try {
+            if (!Files.exists(path)) {
+                replay.replayed().complete(0);
+                return;
+            }
+            // changes failing again go to a new file
+            Files.move(path, replaying, StandardCopyOption.REPLACE_EXISTING);
+            deadLetters.set(0);
+            for (String line : Files.readAllLines(replaying, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                DeadLetter deadLetter = JsonUtils.fromJson(line, DeadLetter.class);
+                if ("log".equals(deadLetter.type())) {
+                    changes.add(JsonUtils.fromJson(JsonUtils.toJson(deadLetter.change()), TransferLog.class));
+                    continue;
+                }
+                BalanceUpdate update = JsonUtils.fromJson(JsonUtils.toJson(deadLetter.change()), BalanceUpdate.class);
+                BigDecimal balance = deadBalances.remove(update.accountId());
+                if (balance == null) {
+                    log.warn("ledger writer dead-letter balance not replayed, superseded or before a restart:{}", line);
+                    continue;
+                }
+                changes.add(new BalanceUpdate(update.accountId(), balance));
+            }
+        } catch (IOException e) {
+            log.error("ledger writer dead-letter replay error, path:{}", path, e);
+            deadLetters.set(countDeadLetters());
+            replay.replayed().completeExceptionally(e);
+            return;
+        }
+        try {
+            long before = deadLetters.get();
+            persistWithRetry(changes);
+            Files.delete(replaying);
+            int replayed = changes.size() - (int) (deadLetters.get() - before);
+            log.info("ledger writer dead-letters replayed:{}, failed again:{}", replayed, changes.size() - replayed);
+            replay.replayed().complete(replayed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            replay.replayed().completeExceptionally(e);
+        } catch (IOException e) {
+            log.error("ledger writer dead-letter replay error, path:{}", replaying, e);
+            replay.replayed().completeExceptionally(e);
+        }
+    }
+
+    private void persist(List<Object> batch) {
+        Map<Long, BigDecimal> balances = new LinkedHashMap<>();
+        List<TransferLog> transferLogs = new ArrayList<>();
+        for (Object item : batch) {
+            if (item instanceof BalanceUpdate update) {
+                balances.put(update.accountId(), update.balance());
+            } else if (item instanceof TransferLog transferLog) {
+                transferLogs.add(transferLog);
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Account> accounts = accountRepository.findAllById(balances.keySet());
+            accounts.forEach(account -> account.setBalance(balances.get(account.getId())));
+            accountRepository.saveAll(accounts);
+            transferLogRepository.saveAll(transferLogs);
+        });
+        // a later balance of a dead-lettered account supersedes it
+        balances.keySet().forEach(deadBalances::remove);
+    }
+
+    private record BalanceUpdate(Long accountId, BigDecimal balance) {
+    }
+
+    private record DeadLetter(String type, Map<String, Object> change) {
+    }
+
+    private record Replay(CompletableFuture<Integer> replayed) {
+    }
+}
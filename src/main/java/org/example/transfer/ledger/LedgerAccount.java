@@ -0,0 +1,40 @@
+package org.example.transfer.ledger;
+
+import org.example.transfer.comm.enums.Currency;
+
+/**
+ * in-memory account balance
+ * <p>
+ * owned by exactly one {@link LedgerShard}, only read and written by that shard's thread.
+ * balance is in minor units, see {@link org.example.transfer.comm.Money}
+ */
+class LedgerAccount {
+
+    private final Long id;
+
+    private final Currency currency;
+
+    private long balance;
+
+    LedgerAccount(Long id, Currency currency, long balance) {
+        this.id = id;
+        this.currency = currency;
+        this.balance = balance;
+    }
+
+    Long getId() {
+        return id;
+    }
+
+    Currency getCurrency() {
+        return currency;
+    }
+
+    long getBalance() {
+        return balance;
+    }
+
+    void setBalance(long balance) {
+        this.balance = balance;
+    }
+}
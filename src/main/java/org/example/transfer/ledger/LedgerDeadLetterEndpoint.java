@@ -0,0 +1,37 @@
+package org.example.transfer.ledger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * dead-lettered ledger changes
+ * <p>
+ * GET /actuator/ledgerdeadletters counts them, POST replays them once the cause is repaired
+ */
+@Component
+@Endpoint(id = "ledgerdeadletters")
+public class LedgerDeadLetterEndpoint {
+
+    @Autowired
+    private JpaLedgerWriter jpaLedgerWriter;
+
+    @ReadOperation
+    public Map<String, Long> deadLetters() {
+        return Map.of("deadLetters", jpaLedgerWriter.getDeadLetters());
+    }
+
+    @WriteOperation
+    public Map<String, Long> replay() throws InterruptedException, ExecutionException, TimeoutException {
+        // runs after every change queued before it, bounded in case the database is down
+        int replayed = jpaLedgerWriter.replayDeadLetters().get(1, TimeUnit.MINUTES);
+        return Map.of("replayed", (long) replayed, "deadLetters", jpaLedgerWriter.getDeadLetters());
+    }
+}
@@ -0,0 +1,313 @@
+package org.example.transfer.ledger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.cache.FxQuote;
+import org.example.transfer.cache.FxRateCache;
+import org.example.transfer.comm.BaseConstant;
+import org.example.transfer.comm.Money;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.comm.enums.TransferTypeEnum;
+import org.example.transfer.config.JournalConfig;
+import org.example.transfer.config.LedgerConfig;
+import org.example.transfer.config.TransferConfig;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.executor.WorkerThreadFactory;
+import org.example.transfer.idempotent.IdempotencyKey;
+import org.example.transfer.journal.JournalRecord;
+import org.example.transfer.journal.TransferJournal;
+import org.example.transfer.model.Account;
+import org.example.transfer.model.TransferLog;
+import org.example.transfer.params.req.TransferRequest;
+import org.example.transfer.repository.AccountRepository;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * sharded single-writer ledger engine
+ * <p>
+ * balances live in memory, accounts are partitioned by id across single-threaded shards:
+ * 1. the sender's shard validates and debits the sender
+ * 2. the credit is forwarded to the receiver's shard, which credits the receiver and completes the transfer
+ * 3. both shards hand the new balances and the transfer log to the {@link LedgerWriter}
+ * <p>
+ * with transfer.journal.enabled the sender's shard appends the transfer to the {@link TransferJournal} instead,
+ * the transfer completes once the record is durable and the journal projector writes balances and logs.
+ * the debit holds the money meanwhile, the credit is only forwarded once the record is durable,
+ * a failed append returns the debit to the sender.
+ * <p>
+ * no lock, no version check and no retry on the transfer path.
+ */
+@Component
+@DependsOn({"journalProjector", "balanceRecovery"})
+public class LedgerEngine {
+    Logger log = LogManager.getLogger(LedgerEngine.class);
+
+    @Autowired
+    private LedgerConfig ledgerConfig;
+
+    @Autowired
+    private TransferConfig transferConfig;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private FxRateCache fxRateCache;
+
+    @Autowired
+    private LedgerWriter ledgerWriter;
+
+    @Autowired
+    private JournalConfig journalConfig;
+
+    @Autowired
+    private TransferJournal transferJournal;
+
+    @Autowired
+    private WorkerThreadFactory workerThreadFactory;
+
+    /**
+     * account id -> account loaded from db, only immutable fields (id, currency) are read after the first touch
+     */
+    private final Map<Long, Account> accountDirectory = new ConcurrentHashMap<>();
+
+    private LedgerShard[] shards;
+
+    @PostConstruct
+    public void start() {
+        if (!ledgerConfig.isEnabled()) {
+            return;
+        }
+        shards = new LedgerShard[ledgerConfig.getShards()];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new LedgerShard(i, ledgerConfig.getQueueCapacity(), workerThreadFactory);
+            shards[i].start();
+        }
+        log.info("ledger engine started, shards:{}", shards.length);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (shards == null) {
+            return;
+        }
+        for (LedgerShard shard : shards) {
+            shard.stop();
+        }
+    }
+
+    /**
+     * transfer and wait for completion
+     *
+     * @param request money transfer request
+     * @throws BusinessException if transfer fails
+     */
+    public void transfer(TransferRequest request) {
+        try {
+            submit(request).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof BusinessException) {
+                throw (BusinessException) e.getCause();
+            }
+            throw new BusinessException(ExceptionEnum.MONEY_TRANSFER_ERROR, e.getCause());
+        }
+    }
+
+    /**
+     * submit transfer to the sender's shard
+     *
+     * @param request money transfer request
+     * @return completion, completed after both balances are applied in memory
+     */
+    public CompletableFuture<Void> submit(TransferRequest request) {
+        String traceId = MDC.get("traceId");
+        if (request.getFromId().equals(request.getToId())) {
+            log.warn("traceId:{}, same account transfer not allowed, from:[{}], to:[{}]",
+                    traceId, request.getFromId(), request.getToId());
+            throw new BusinessException(ExceptionEnum.PARAM_ILLEGAL.getErrorCode(), "same account transfer not allowed");
+        }
+
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        LedgerShard fromShard = shardOf(request.getFromId());
+        fromShard.admit(() -> {
+            try {
+                debit(fromShard, request, traceId, completion);
+            } catch (BusinessException e) {
+                completion.completeExceptionally(e);
+            } catch (Exception e) {
+                log.error("traceId:{}, ledger debit error, from:[{}]", traceId, request.getFromId(), e);
+                completion.completeExceptionally(e);
+            }
+        });
+        return completion;
+    }
+
+    /**
+     * runs on the sender's shard
+     */
+    private void debit(LedgerShard fromShard, TransferRequest request, String traceId, CompletableFuture<Void> completion) {
+        // 1. check user
+        LedgerAccount from = fromShard.account(request.getFromId(), this::loadAccount);
+        if (from == null) {
+            log.error("traceId:{}, sender account not exist, from:[{}]", traceId, request.getFromId());
+            throw new BusinessException(ExceptionEnum.USER_NOT_EXIST.getErrorCode(), "from account not exist");
+        }
+        Account to = findAccount(request.getToId());
+        if (to == null) {
+            log.error("traceId:{}, receiver account not exist, to:[{}]", traceId, request.getToId());
+            throw new BusinessException(ExceptionEnum.USER_NOT_EXIST.getErrorCode(), "to account not exist");
+        }
+
+        // 2. check from currency
+        if (!from.getCurrency().equals(request.getTransferCurrency())) {
+            log.error("traceId:{}, sender must use base currency, sender:[{}], baseCurrency:[{}], requestCurrency:[{}]",
+                    traceId, request.getFromId(), from.getCurrency(), request.getTransferCurrency());
+            throw new BusinessException(ExceptionEnum.PARAM_ILLEGAL.getErrorCode(), "Sender must use base currency.");
+        }
+
+        // 3. check rate
+        FxQuote fxQuote = null;
+        if (!to.getCurrency().equals(request.getTransferCurrency())) {
+            fxQuote = findFxQuote(from, to, traceId);
+        }
+
+        // 4. check balance
+        BigDecimal amount = request.getAmount();
+        long amountMinor = Money.toMinor(amount, from.getCurrency());
+        long fee = Money.fee(amountMinor, BaseConstant.FEE_RATE_BPS);
+        long totalDeduct = Math.addExact(amountMinor, fee);
+        if (from.getBalance() < totalDeduct) {
+            log.error("traceId:{}, insufficient balance, from:[{}], fromBalance:[{}], totalDeduct:[{}]",
+                    traceId, from.getId(), Money.toDecimal(from.getBalance(), from.getCurrency()),
+                    Money.toDecimal(totalDeduct, from.getCurrency()));
+            throw new BusinessException(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), "Insufficient balance");
+        }
+
+        // 5. commit point: with the journal the transfer is committed once its record is durable,
+        // appended before any balance changes so a rejected append leaves nothing applied
+        long convertedAmount = fxQuote == null
+                ? amountMinor
+                : Money.convert(amountMinor, from.getCurrency(), to.getCurrency(), fxQuote.units());
+        BigDecimal fxRate = fxQuote == null ? BigDecimal.ONE : fxQuote.rate();
+        IdempotencyKey requestKey = IdempotencyKey.of(request.getRequestId());
+        CompletableFuture<?> committed = journalConfig.isEnabled()
+                ? append(new JournalRecord(0, from.getId(), to.getId(), amountMinor, fee, convertedAmount, fxRate,
+                requestKey, from.getCurrency(), to.getCurrency()), traceId)
+                : CompletableFuture.completedFuture(null);
+
+        // 6. deduct from balance
+        from.setBalance(from.getBalance() - totalDeduct);
+        if (!journalConfig.isEnabled()) {
+            ledgerWriter.writeBalance(from.getId(), Money.toDecimal(from.getBalance(), from.getCurrency()));
+        }
+
+        // 7. forward credit to the receiver's shard once committed
+        TransferLog transferLog = new TransferLog();
+        transferLog.setFromAccountId(from.getId());
+        transferLog.setFromCurrency(from.getCurrency());
+        transferLog.setToAccountId(to.getId());
+        transferLog.setToCurrency(to.getCurrency());
+        transferLog.setAmount(amount);
+        transferLog.setFee(Money.toDecimal(fee, from.getCurrency()));
+        transferLog.setFxRate(fxRate);
+        transferLog.setRequestKey(requestKey.toHex());
+
+        LedgerShard toShard = shardOf(to.getId());
+        committed.whenComplete((seq, error) -> {
+            if (error != null) {
+                // not durable, the journal zeroed its record so neither the projector nor a restart applies it,
+                // neither may the in-memory ledger
+                log.error("traceId:{}, transfer journal not durable, debit returned, from:[{}], amount:[{}]",
+                        traceId, from.getId(), Money.toDecimal(totalDeduct, from.getCurrency()), error);
+                fromShard.forward(() -> from.setBalance(Math.addExact(from.getBalance(), totalDeduct)));
+                completion.completeExceptionally(error);
+                return;
+            }
+            toShard.forward(() -> {
+                try {
+                    credit(toShard, transferLog, convertedAmount);
+                } catch (Exception e) {
+                    log.error("traceId:{}, ledger credit error, to:[{}], amount:[{}]", traceId, to.getId(), convertedAmount, e);
+                    completion.completeExceptionally(e);
+                    return;
+                }
+                completion.complete(null);
+            });
+        });
+    }
+
+    /**
+     * runs on the receiver's shard
+     */
+    private void credit(LedgerShard toShard, TransferLog transferLog, long convertedAmount) {
+        LedgerAccount to = toShard.account(transferLog.getToAccountId(), this::loadAccount);
+        to.setBalance(Math.addExact(to.getBalance(), convertedAmount));
+        if (journalConfig.isEnabled()) {
+            // balance and log are written by the journal projector
+            return;
+        }
+        ledgerWriter.writeBalance(to.getId(), Money.toDecimal(to.getBalance(), to.getCurrency()));
+        ledgerWriter.writeLog(transferLog);
+    }
+
+    private CompletableFuture<Long> append(JournalRecord record, String traceId) {
+        try {
+            return transferJournal.append(record);
+        } catch (UncheckedIOException e) {
+            log.error("traceId:{}, transfer journal append error, from:[{}]", traceId, record.fromAccountId(), e);
+            throw new BusinessException(ExceptionEnum.INTERNAL_SERVER_ERROR, e);
+        }
+    }
+
+    private FxQuote findFxQuote(LedgerAccount from, Account to, String traceId) {
+        if (!transferConfig.isEnableDifferentCurrencyTransfer()) {
+            log.error("traceId:{}, not support transfer type:{}, fromCurrency:{}, toCurrency:{}",
+                    traceId, TransferTypeEnum.DIFFERENT, from.getCurrency(), to.getCurrency());
+            throw new BusinessException(ExceptionEnum.TRANSFER_TYPE_NOT_SUPPORT.getErrorCode(),
+                    String.format("not support transfer type: %s, fromCurrency:%s, toCurrency:%s",
+                            TransferTypeEnum.DIFFERENT, from.getCurrency(), to.getCurrency()));
+        }
+
+        FxQuote fxQuote = fxRateCache.getQuote(from.getCurrency(), to.getCurrency());
+        if (fxQuote == null) {
+            log.error("traceId:{}, receiver:[{}] doesn't support:[{}], and no existing rate support, toCurrency:[{}]",
+                    traceId, to.getId(), from.getCurrency(), to.getCurrency());
+            throw new BusinessException(ExceptionEnum.RATE_NOT_SUPPORT.getErrorCode(), ExceptionEnum.RATE_NOT_SUPPORT.getErrorMsg());
+        }
+        return fxQuote;
+    }
+
+    private LedgerAccount loadAccount(Long accountId) {
+        Account account = findAccount(accountId);
+        return account == null ? null
+                : new LedgerAccount(account.getId(), account.getCurrency(), Money.toMinor(account.getBalance(), account.getCurrency()));
+    }
+
+    private Account findAccount(Long accountId) {
+        Account account = accountDirectory.get(accountId);
+        if (account == null) {
+            account = accountRepository.findById(accountId).orElse(null);
+            if (account != null) {
+                Account existing = accountDirectory.putIfAbsent(accountId, account);
+                account = existing == null ? account : existing;
+            }
+        }
+        return account;
+    }
+
+    private LedgerShard shardOf(Long accountId) {
+        return shards[(int) Math.floorMod(accountId, (long) shards.length)];
+    }
+}
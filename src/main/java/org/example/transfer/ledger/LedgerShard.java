@@ -0,0 +1,130 @@
+package org.example.transfer.ledger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.executor.WorkerThreadFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * single-threaded ledger shard
+ * <p>
+ * every account is owned by one shard, all balance changes of that account run on the shard thread,
+ * so no lock or version check is needed (single writer principle).
+ * <p>
+ * new transfers are admitted up to queueCapacity, credits forwarded by other shards are always accepted,
+ * otherwise a debit which has already been applied could never be credited.
+ */
+class LedgerShard {
+    Logger log = LogManager.getLogger(LedgerShard.class);
+
+    private static final int DRAIN_BATCH = 256;
+
+    private final int index;
+    private final int queueCapacity;
+    private final BlockingQueue<Runnable> events = new LinkedBlockingQueue<>();
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final Map<Long, LedgerAccount> accounts = new HashMap<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    LedgerShard(int index, int queueCapacity, WorkerThreadFactory threadFactory) {
+        this.index = index;
+        this.queueCapacity = queueCapacity;
+        this.thread = threadFactory.newThread("ledger-shard-" + index, this::run);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * admit a new transfer, reject it if the shard is saturated
+     *
+     * @param event debit event
+     * @throws BusinessException if too many events are pending
+     */
+    void admit(Runnable event) {
+        if (admitted.incrementAndGet() > queueCapacity) {
+            admitted.decrementAndGet();
+            throw new BusinessException(ExceptionEnum.SERVER_BUSY.getErrorCode(), ExceptionEnum.SERVER_BUSY.getErrorMsg());
+        }
+        events.add(() -> {
+            admitted.decrementAndGet();
+            event.run();
+        });
+    }
+
+    /**
+     * forward an event from another shard, never rejected
+     *
+     * @param event credit event
+     */
+    void forward(Runnable event) {
+        events.add(event);
+    }
+
+    /**
+     * get the account owned by this shard, load it on first touch
+     * <p>
+     * must be called on the shard thread
+     *
+     * @param accountId account id
+     * @param loader    load account from db
+     * @return account, null if not exist
+     */
+    LedgerAccount account(Long accountId, Function<Long, LedgerAccount> loader) {
+        LedgerAccount account = accounts.get(accountId);
+        if (account == null) {
+            account = loader.apply(accountId);
+            if (account != null) {
+                accounts.put(accountId, account);
+            }
+        }
+        return account;
+    }
+
+    void stop() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Runnable> batch = new ArrayList<>(DRAIN_BATCH);
+        while (running || !events.isEmpty()) {
+            try {
+                batch.add(events.take());
+            } catch (InterruptedException e) {
+                if (!running) {
+                    events.drainTo(batch);
+                } else {
+                    continue;
+                }
+            }
+            events.drainTo(batch, DRAIN_BATCH - batch.size());
+            for (Runnable event : batch) {
+                try {
+                    event.run();
+                } catch (Exception e) {
+                    log.error("ledger shard:{} event error", index, e);
+                }
+            }
+            batch.clear();
+        }
+    }
+}
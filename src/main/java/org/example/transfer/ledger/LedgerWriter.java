@@ -0,0 +1,38 @@
+package org.example.transfer.ledger;
+
+import org.example.transfer.model.TransferLog;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * persist ledger changes out of the transfer path
+ * <p>
+ * balance updates of one account are always written by its owning shard, in apply order
+ */
+public interface LedgerWriter {
+
+    /**
+     * write new account balance
+     *
+     * @param accountId account id
+     * @param balance   balance after apply
+     */
+    void writeBalance(Long accountId, BigDecimal balance);
+
+    /**
+     * write transfer log
+     *
+     * @param transferLog applied transfer
+     */
+    void writeLog(TransferLog transferLog);
+
+    /**
+     * wait until everything written so far is persisted
+     *
+     * @param timeout max wait time
+     * @param unit    time unit
+     * @return true if flushed before timeout
+     */
+    boolean awaitFlushed(long timeout, TimeUnit unit) throws InterruptedException;
+}
@@ -1,28 +1,53 @@
 package org.example.transfer.model;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import jakarta.persistence.Version;
 import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.handler.AccountLoadListener;
+import org.example.transfer.id.TransferIdGenerator;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import java.math.BigDecimal;
 
 @Entity
 @Table(name = "account")
+@EntityListeners(AccountLoadListener.class)
 public class Account {
+    /**
+     * assigned before the insert by transfer.id.account, not identity, so account inserts can be jdbc batched
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "account_id")
+    @GenericGenerator(name = "account_id", type = TransferIdGenerator.class, parameters = {
+            @Parameter(name = TransferIdGenerator.ENTITY_PARAM, value = "account"),
+            @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "account_seq")})
     private Long id;
 
     private String name;
 
     private BigDecimal balance;
 
+    /**
+     * sum of the balance slots of a hot account, null otherwise. set by {@link AccountLoadListener} on load
+     */
+    @Transient
+    private BigDecimal slotBalance;
+
+    /**
+     * sum of the credits not folded into the row yet, null if credit deltas are off. set by {@link AccountLoadListener} on load
+     */
+    @Transient
+    private BigDecimal deltaBalance;
+
     @Enumerated(EnumType.STRING)
     private Currency currency;
 
@@ -45,12 +70,34 @@ public class Account {
         this.name = name;
     }
 
+    /**
+     * @return total balance, the account row plus its slots and unfolded credits
+     */
     public BigDecimal getBalance() {
-        return balance;
+        if (balance == null) {
+            return null;
+        }
+        return balance.add(outsideRow());
     }
 
+    /**
+     * @param balance total balance, the row keeps what the loaded slots and unfolded credits do not hold
+     */
     public void setBalance(BigDecimal balance) {
-        this.balance = balance;
+        this.balance = balance == null ? null : balance.subtract(outsideRow());
+    }
+
+    public void setSlotBalance(BigDecimal slotBalance) {
+        this.slotBalance = slotBalance;
+    }
+
+    public void setDeltaBalance(BigDecimal deltaBalance) {
+        this.deltaBalance = deltaBalance;
+    }
+
+    private BigDecimal outsideRow() {
+        BigDecimal outside = slotBalance == null ? BigDecimal.ZERO : slotBalance;
+        return deltaBalance == null ? outside : outside.add(deltaBalance);
     }
 
     public Currency getCurrency() {
@@ -0,0 +1,65 @@
+package org.example.transfer.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import java.math.BigDecimal;
+
+/**
+ * one part of a hot account's balance, the account's balance is its own balance plus all its slots
+ */
+@Entity
+@Table(name = "account_balance_slot",
+        uniqueConstraints = @UniqueConstraint(name = "uk_account_balance_slot", columnNames = {"accountId", "slot"}),
+        indexes = @Index(name = "idx_account_balance_slot_account", columnList = "accountId"))
+public class AccountBalanceSlot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long accountId;
+
+    /**
+     * 0 .. slots - 1
+     */
+    private Integer slot;
+
+    private BigDecimal balance;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(Long accountId) {
+        this.accountId = accountId;
+    }
+
+    public Integer getSlot() {
+        return slot;
+    }
+
+    public void setSlot(Integer slot) {
+        this.slot = slot;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.transfer.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+import java.math.BigDecimal;
+
+/**
+ * a credit not folded into its account row yet, never updated, deleted once folded
+ */
+@Entity
+@Table(name = "balance_delta", indexes = @Index(name = "idx_balance_delta_account", columnList = "accountId"))
+public class BalanceDelta {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "balance_delta_seq")
+    @SequenceGenerator(name = "balance_delta_seq", sequenceName = "balance_delta_seq", allocationSize = 50)
+    private Long id;
+
+    private Long accountId;
+
+    private BigDecimal amount;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(Long accountId) {
+        this.accountId = accountId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+}
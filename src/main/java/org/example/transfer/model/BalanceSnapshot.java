@@ -0,0 +1,63 @@
+package org.example.transfer.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * header of a balance snapshot, its balances are in balance_snapshot_entry
+ */
+@Entity
+@Table(name = "balance_snapshot")
+public class BalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * epoch millis, the balances include exactly the transfer logs created at or before it
+     */
+    private Long logsUntil;
+
+    /**
+     * epoch millis the snapshot was taken
+     */
+    private Long createdAt;
+
+    private Integer accounts;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getLogsUntil() {
+        return logsUntil;
+    }
+
+    public void setLogsUntil(Long logsUntil) {
+        this.logsUntil = logsUntil;
+    }
+
+    public Long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Integer getAccounts() {
+        return accounts;
+    }
+
+    public void setAccounts(Integer accounts) {
+        this.accounts = accounts;
+    }
+}
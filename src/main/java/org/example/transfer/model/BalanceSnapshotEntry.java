@@ -0,0 +1,101 @@
+package org.example.transfer.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import org.example.transfer.comm.enums.Currency;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * balance of one account in a snapshot, never updated
+ */
+@Entity
+@IdClass(BalanceSnapshotEntry.Key.class)
+@Table(name = "balance_snapshot_entry")
+public class BalanceSnapshotEntry {
+
+    @Id
+    private Long snapshotId;
+
+    @Id
+    private Long accountId;
+
+    private BigDecimal balance;
+
+    @Enumerated(EnumType.STRING)
+    private Currency currency;
+
+    public BalanceSnapshotEntry() {
+    }
+
+    public BalanceSnapshotEntry(Long snapshotId, Long accountId, BigDecimal balance, Currency currency) {
+        this.snapshotId = snapshotId;
+        this.accountId = accountId;
+        this.balance = balance;
+        this.currency = currency;
+    }
+
+    public Long getSnapshotId() {
+        return snapshotId;
+    }
+
+    public void setSnapshotId(Long snapshotId) {
+        this.snapshotId = snapshotId;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(Long accountId) {
+        this.accountId = accountId;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(Currency currency) {
+        this.currency = currency;
+    }
+
+    /**
+     * primary key, (snapshotId, accountId)
+     */
+    public static class Key implements Serializable {
+        private Long snapshotId;
+        private Long accountId;
+
+        public Key() {
+        }
+
+        public Key(Long snapshotId, Long accountId) {
+            this.snapshotId = snapshotId;
+            this.accountId = accountId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && Objects.equals(snapshotId, key.snapshotId) && Objects.equals(accountId, key.accountId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(snapshotId, accountId);
+        }
+    }
+}
@@ -1,17 +1,20 @@
 package org.example.transfer.model;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import org.example.transfer.cache.FxRateChangeListener;
 import org.example.transfer.comm.enums.Currency;
 
 import java.math.BigDecimal;
 
 @Entity
+@EntityListeners(FxRateChangeListener.class)
 @Table(name = "fx_rate")
 public class FxRate {
 
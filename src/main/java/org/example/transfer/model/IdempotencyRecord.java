@@ -0,0 +1,74 @@
+package org.example.transfer.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import org.example.transfer.idempotent.IdempotencyOutcome;
+
+@Entity
+@Table(name = "idempotency_record", indexes = @Index(name = "idx_idempotency_expire_at", columnList = "expireAt"))
+public class IdempotencyRecord {
+
+    /**
+     * 128-bit hash of requestId, hex
+     */
+    @Id
+    @Column(length = 32)
+    private String keyHash;
+
+    @Enumerated(EnumType.STRING)
+    private IdempotencyOutcome.Status status;
+
+    private String errorCode;
+
+    private String errorMsg;
+
+    /**
+     * epoch millis
+     */
+    private Long expireAt;
+
+    public String getKeyHash() {
+        return keyHash;
+    }
+
+    public void setKeyHash(String keyHash) {
+        this.keyHash = keyHash;
+    }
+
+    public IdempotencyOutcome.Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(IdempotencyOutcome.Status status) {
+        this.status = status;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public void setErrorCode(String errorCode) {
+        this.errorCode = errorCode;
+    }
+
+    public String getErrorMsg() {
+        return errorMsg;
+    }
+
+    public void setErrorMsg(String errorMsg) {
+        this.errorMsg = errorMsg;
+    }
+
+    public Long getExpireAt() {
+        return expireAt;
+    }
+
+    public void setExpireAt(Long expireAt) {
+        this.expireAt = expireAt;
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.transfer.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * last journal seq applied by a consumer, written in the same transaction as what it applied
+ */
+@Entity
+@Table(name = "journal_checkpoint")
+public class JournalCheckpoint {
+
+    @Id
+    @Column(length = 32)
+    private String consumer;
+
+    private Long seq;
+
+    public JournalCheckpoint() {
+    }
+
+    public JournalCheckpoint(String consumer, Long seq) {
+        this.consumer = consumer;
+        this.seq = seq;
+    }
+
+    public String getConsumer() {
+        return consumer;
+    }
+
+    public void setConsumer(String consumer) {
+        this.consumer = consumer;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
+}
@@ -1,21 +1,42 @@
 package org.example.transfer.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import org.example.transfer.comm.Money;
 import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.id.TransferIdGenerator;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "transfer_log")
+@Table(name = "transfer_log", indexes = {
+        @Index(name = "idx_transfer_log_journal_seq", columnList = "journalSeq"),
+        @Index(name = "idx_transfer_log_created_at", columnList = "createdAt, id"),
+        @Index(name = "idx_transfer_log_from", columnList = "fromAccountId, id, createdAt"),
+        @Index(name = "idx_transfer_log_to", columnList = "toAccountId, id, createdAt"),
+        @Index(name = "idx_transfer_log_from_created_at", columnList = "fromAccountId, createdAt, id"),
+        @Index(name = "idx_transfer_log_to_created_at", columnList = "toAccountId, createdAt, id"),
+        @Index(name = "idx_transfer_log_request_key", columnList = "requestKey")
+})
 public class TransferLog {
+    /**
+     * pooled sequence or time-ordered by transfer.id.transfer-log, never identity, so inserts can be jdbc batched
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "transfer_log_id")
+    @GenericGenerator(name = "transfer_log_id", type = TransferIdGenerator.class, parameters = {
+            @Parameter(name = TransferIdGenerator.ENTITY_PARAM, value = "transfer_log"),
+            @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "transfer_log_seq")})
     private Long id;
 
     private Long fromAccountId;
@@ -23,6 +44,10 @@ public class TransferLog {
 
     private BigDecimal amount;
     private BigDecimal fee;
+    /**
+     * as quoted, a derived rate has {@link Money#RATE_SCALE} decimals, the credit is recomputed from it
+     */
+    @Column(precision = 38, scale = Money.RATE_SCALE)
     private BigDecimal fxRate;
 
     @Enumerated(EnumType.STRING)
@@ -30,6 +55,23 @@ public class TransferLog {
     @Enumerated(EnumType.STRING)
     private Currency toCurrency;
 
+    /**
+     * 128-bit hash of the requestId as 32 hex chars, see {@link org.example.transfer.idempotent.IdempotencyKey}.
+     * written with the transfer, a request replayed after a crash finds it even if its outcome was not recorded
+     */
+    @Column(length = 32)
+    private String requestKey;
+
+    /**
+     * position in the write-behind journal, null if inserted in the transfer's transaction
+     */
+    private Long journalSeq;
+
+    /**
+     * epoch millis of the insert, balance snapshots fold the logs after theirs, history queries filter on it
+     */
+    private Long createdAt;
+
     public Long getId() {
         return id;
     }
@@ -93,4 +135,35 @@ public class TransferLog {
     public void setToCurrency(Currency toCurrency) {
         this.toCurrency = toCurrency;
     }
-}
\ No newline at end of file
+
+    public String getRequestKey() {
+        return requestKey;
+    }
+
+    public void setRequestKey(String requestKey) {
+        this.requestKey = requestKey;
+    }
+
+    public Long getJournalSeq() {
+        return journalSeq;
+    }
+
+    public void setJournalSeq(Long journalSeq) {
+        this.journalSeq = journalSeq;
+    }
+
+    public Long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @PrePersist
+    void prePersist() {
+        if (createdAt == null) {
+            createdAt = System.currentTimeMillis();
+        }
+    }
+}
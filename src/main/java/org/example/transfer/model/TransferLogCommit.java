@@ -0,0 +1,36 @@
+package org.example.transfer.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * write-behind journal positions of one committed transaction, written in that transaction
+ * <p>
+ * logs journaled without a commit marker are inserted at restart only if a row covers them
+ */
+@Entity
+@Table(name = "transfer_log_commit")
+public class TransferLogCommit {
+
+    @Id
+    private Long firstSeq;
+
+    private Long lastSeq;
+
+    public Long getFirstSeq() {
+        return firstSeq;
+    }
+
+    public void setFirstSeq(Long firstSeq) {
+        this.firstSeq = firstSeq;
+    }
+
+    public Long getLastSeq() {
+        return lastSeq;
+    }
+
+    public void setLastSeq(Long lastSeq) {
+        this.lastSeq = lastSeq;
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.transfer.params.req;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public class BatchTransferRequest {
+
+    /**
+     * transfers, each with its own requestId
+     */
+    @NotEmpty(message = "transfers can not be empty")
+    private List<@Valid TransferRequest> transfers;
+
+    public List<TransferRequest> getTransfers() {
+        return transfers;
+    }
+
+    public void setTransfers(List<TransferRequest> transfers) {
+        this.transfers = transfers;
+    }
+}
@@ -1,6 +1,7 @@
 package org.example.transfer.params.req;
 
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotNull;
 import org.example.transfer.comm.enums.Currency;
 
@@ -23,6 +24,7 @@ public class TransferRequest {
 
     @NotNull(message = "amount can not be null")
     @DecimalMin(value = "0.01", message = "amount must be greater than 0")
+    @Digits(integer = 15, fraction = 2, message = "amount must have at most 15 integer digits and 2 decimal places")
     private BigDecimal amount;
 
     /**
@@ -0,0 +1,70 @@
+package org.example.transfer.params.resp;
+
+/**
+ * result of one transfer in a batch
+ */
+public class BatchTransferResult {
+
+    private String requestId;
+    private boolean success;
+    private String errorCode;
+    private String errorMsg;
+
+    public static BatchTransferResult success(String requestId) {
+        BatchTransferResult result = new BatchTransferResult();
+        result.setRequestId(requestId);
+        result.setSuccess(true);
+        return result;
+    }
+
+    public static BatchTransferResult fail(String requestId, String errorCode, String errorMsg) {
+        BatchTransferResult result = new BatchTransferResult();
+        result.setRequestId(requestId);
+        result.setSuccess(false);
+        result.setErrorCode(errorCode);
+        result.setErrorMsg(errorMsg);
+        return result;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public void setErrorCode(String errorCode) {
+        this.errorCode = errorCode;
+    }
+
+    public String getErrorMsg() {
+        return errorMsg;
+    }
+
+    public void setErrorMsg(String errorMsg) {
+        this.errorMsg = errorMsg;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchTransferResult{" +
+                "requestId='" + requestId + '\'' +
+                ", success=" + success +
+                ", errorCode='" + errorCode + '\'' +
+                ", errorMsg='" + errorMsg + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.transfer.params.resp;
+
+import org.example.transfer.comm.enums.Currency;
+
+import java.math.BigDecimal;
+
+/**
+ * one transfer of an account statement, amounts in the account's currency
+ */
+public class StatementLine {
+
+    /**
+     * transfer_log id, resume a download after it with cursor=id
+     */
+    private Long id;
+
+    /**
+     * ISO-8601 instant
+     */
+    private String createdAt;
+
+    private Long fromAccountId;
+
+    private Long toAccountId;
+
+    /**
+     * balance change without the fee, negative when sent
+     */
+    private BigDecimal amount;
+
+    /**
+     * fee paid by the account, 0 when received
+     */
+    private BigDecimal fee;
+
+    private Currency currency;
+
+    /**
+     * balance after the transfer
+     */
+    private BigDecimal balance;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(String createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Long getFromAccountId() {
+        return fromAccountId;
+    }
+
+    public void setFromAccountId(Long fromAccountId) {
+        this.fromAccountId = fromAccountId;
+    }
+
+    public Long getToAccountId() {
+        return toAccountId;
+    }
+
+    public void setToAccountId(Long toAccountId) {
+        this.toAccountId = toAccountId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public BigDecimal getFee() {
+        return fee;
+    }
+
+    public void setFee(BigDecimal fee) {
+        this.fee = fee;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(Currency currency) {
+        this.currency = currency;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.transfer.params.resp;
+
+import java.util.List;
+
+/**
+ * one page of an account's transfers, newest first
+ */
+public class TransferHistoryResult {
+
+    private List<TransferLogResult> transfers;
+
+    /**
+     * cursor of the next page, null on the last page
+     */
+    private Long nextCursor;
+
+    public List<TransferLogResult> getTransfers() {
+        return transfers;
+    }
+
+    public void setTransfers(List<TransferLogResult> transfers) {
+        this.transfers = transfers;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.transfer.params.resp;
+
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.recovery.LoggedTransfer;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * one applied transfer
+ */
+public class TransferLogResult {
+
+    private Long id;
+    private Long fromAccountId;
+    private Long toAccountId;
+    private BigDecimal amount;
+    private BigDecimal fee;
+    private BigDecimal fxRate;
+    private Currency fromCurrency;
+    private Currency toCurrency;
+    private Instant createdAt;
+
+    public static TransferLogResult of(LoggedTransfer transfer) {
+        TransferLogResult result = new TransferLogResult();
+        result.setId(transfer.id());
+        result.setFromAccountId(transfer.fromAccountId());
+        result.setToAccountId(transfer.toAccountId());
+        result.setAmount(transfer.amount());
+        result.setFee(transfer.fee());
+        result.setFxRate(transfer.fxRate());
+        result.setFromCurrency(transfer.fromCurrency());
+        result.setToCurrency(transfer.toCurrency());
+        result.setCreatedAt(transfer.createdAt() == null ? null : Instant.ofEpochMilli(transfer.createdAt()));
+        return result;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getFromAccountId() {
+        return fromAccountId;
+    }
+
+    public void setFromAccountId(Long fromAccountId) {
+        this.fromAccountId = fromAccountId;
+    }
+
+    public Long getToAccountId() {
+        return toAccountId;
+    }
+
+    public void setToAccountId(Long toAccountId) {
+        this.toAccountId = toAccountId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public BigDecimal getFee() {
+        return fee;
+    }
+
+    public void setFee(BigDecimal fee) {
+        this.fee = fee;
+    }
+
+    public BigDecimal getFxRate() {
+        return fxRate;
+    }
+
+    public void setFxRate(BigDecimal fxRate) {
+        this.fxRate = fxRate;
+    }
+
+    public Currency getFromCurrency() {
+        return fromCurrency;
+    }
+
+    public void setFromCurrency(Currency fromCurrency) {
+        this.fromCurrency = fromCurrency;
+    }
+
+    public Currency getToCurrency() {
+        return toCurrency;
+    }
+
+    public void setToCurrency(Currency toCurrency) {
+        this.toCurrency = toCurrency;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.transfer.params.resp;
+
+import org.example.transfer.comm.enums.TransferStatusEnum;
+import org.example.transfer.idempotent.IdempotencyOutcome;
+
+/**
+ * status of one transfer
+ */
+public class TransferStatusResult {
+
+    private String requestId;
+    private TransferStatusEnum status;
+    private String errorCode;
+    private String errorMsg;
+
+    public static TransferStatusResult of(String requestId, IdempotencyOutcome outcome) {
+        TransferStatusResult result = new TransferStatusResult();
+        result.setRequestId(requestId);
+        result.setStatus(switch (outcome.status()) {
+            case IN_PROGRESS -> TransferStatusEnum.PENDING;
+            case SUCCESS -> TransferStatusEnum.SUCCESS;
+            case FAILED -> TransferStatusEnum.FAILED;
+        });
+        result.setErrorCode(outcome.errorCode());
+        result.setErrorMsg(outcome.errorMsg());
+        return result;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public TransferStatusEnum getStatus() {
+        return status;
+    }
+
+    public void setStatus(TransferStatusEnum status) {
+        this.status = status;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public void setErrorCode(String errorCode) {
+        this.errorCode = errorCode;
+    }
+
+    public String getErrorMsg() {
+        return errorMsg;
+    }
+
+    public void setErrorMsg(String errorMsg) {
+        this.errorMsg = errorMsg;
+    }
+}
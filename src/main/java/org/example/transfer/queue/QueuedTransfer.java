@@ -0,0 +1,12 @@
+package org.example.transfer.queue;
+
+import org.example.transfer.params.req.TransferRequest;
+
+/**
+ * transfer waiting in the {@link TransferQueue}
+ *
+ * @param request   accepted transfer request
+ * @param recovered true if replayed from the journal after a restart, its requestId is not owned yet
+ */
+public record QueuedTransfer(TransferRequest request, boolean recovered) {
+}
@@ -0,0 +1,307 @@
+package org.example.transfer.queue;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.config.AsyncTransferConfig;
+import org.example.transfer.config.IdempotencyConfig;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.params.req.TransferRequest;
+import org.example.transfer.util.JsonUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * in-process durable transfer queue, a local stand-in for a message broker
+ * <p>
+ * 1. offer: the request is appended to the journal (E line) before it is queued
+ * 2. ack: the completion is appended to the journal (A line)
+ * 3. restart: requests without an ack are replayed, the journal is rewritten with only those
+ * <p>
+ * the journal is compacted up to the oldest request not acked yet, so it only grows with the backlog.
+ * a restart between the db commit and the ack replays the request, so transfer.idempotency.persistent
+ * is required for the replayed request to be recognized as completed.
+ */
+@Component
+public class TransferQueue {
+    Logger log = LogManager.getLogger(TransferQueue.class);
+
+    private static final char ENQUEUE = 'E';
+    private static final char ACK = 'A';
+
+    /**
+     * compact the journal only once it is larger than this, and at least half of it is acked
+     */
+    private static final long COMPACT_SIZE = 1L << 20;
+
+    @Autowired
+    private AsyncTransferConfig asyncTransferConfig;
+
+    @Autowired
+    private IdempotencyConfig idempotencyConfig;
+
+    private final BlockingQueue<QueuedTransfer> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * accepted and not acked, queued + in progress
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * serializes journal writes, not a monitor so a virtual thread blocked in fsync can unmount
+     */
+    private final ReentrantLock journalLock = new ReentrantLock();
+
+    private Path journalPath;
+
+    private FileChannel journal;
+
+    /**
+     * offset of the journal's first byte since start, it grows each time an acked prefix is compacted away.
+     * the offsets below are since start too, guarded by journalLock
+     */
+    private long journalBase;
+
+    /**
+     * offset of the E line of every request not acked yet, the journal before the first one is dead
+     */
+    private final NavigableMap<Long, String> unacked = new TreeMap<>();
+
+    private final Map<String, Long> unackedOffsets = new HashMap<>();
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!asyncTransferConfig.isEnabled()) {
+            return;
+        }
+        if (!idempotencyConfig.isPersistent()) {
+            throw new IllegalStateException("transfer.async.enabled requires transfer.idempotency.persistent, "
+                    + "otherwise a transfer committed before a restart is replayed");
+        }
+
+        journalPath = Paths.get(asyncTransferConfig.getJournalPath()).toAbsolutePath();
+        Files.createDirectories(journalPath.getParent());
+
+        // 1. replay requests without ack
+        List<TransferRequest> recovered = recover();
+
+        // 2. rewrite the journal with only those, then append to it
+        journalBase = 0;
+        unacked.clear();
+        unackedOffsets.clear();
+        Path rewritten = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(rewritten, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (TransferRequest request : recovered) {
+                unacked.put(channel.position(), request.getRequestId());
+                unackedOffsets.put(request.getRequestId(), channel.position());
+                channel.write(line(ENQUEUE, JsonUtils.toJson(request)));
+            }
+            channel.force(true);
+        }
+        Files.move(rewritten, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journal = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        for (TransferRequest request : recovered) {
+            queue.add(new QueuedTransfer(request, true));
+        }
+        pending.set(recovered.size());
+        log.info("transfer queue started, journal:{}, recovered:{}", journalPath, recovered.size());
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        journalLock.lock();
+        try {
+            journal.close();
+            if (pending.get() == 0) {
+                Files.deleteIfExists(journalPath);
+            }
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    /**
+     * accept a transfer, durable once this returns
+     *
+     * @param request transfer request
+     * @throws BusinessException if async transfer is disabled, the queue is full, or the journal can not be written
+     */
+    public void offer(TransferRequest request) {
+        if (!asyncTransferConfig.isEnabled()) {
+            throw new BusinessException(ExceptionEnum.PARAM_ILLEGAL.getErrorCode(), "async transfer is not enabled");
+        }
+        if (pending.incrementAndGet() > asyncTransferConfig.getCapacity()) {
+            pending.decrementAndGet();
+            throw new BusinessException(ExceptionEnum.SERVER_BUSY.getErrorCode(), ExceptionEnum.SERVER_BUSY.getErrorMsg());
+        }
+        journalLock.lock();
+        try {
+            long offset = append(ENQUEUE, JsonUtils.toJson(request));
+            unacked.put(offset, request.getRequestId());
+            unackedOffsets.put(request.getRequestId(), offset);
+        } catch (UncheckedIOException e) {
+            pending.decrementAndGet();
+            log.error("transfer queue journal write error, requestId:{}", request.getRequestId(), e);
+            throw new BusinessException(ExceptionEnum.INTERNAL_SERVER_ERROR, e);
+        } finally {
+            journalLock.unlock();
+        }
+        queue.add(new QueuedTransfer(request, false));
+    }
+
+    /**
+     * wait for the next transfer, it must be {@link #ack}ed once completed
+     */
+    public QueuedTransfer take() throws InterruptedException {
+        return queue.take();
+    }
+
+    /**
+     * mark a transfer completed, it is not replayed after a restart
+     *
+     * @param requestId requestId of a taken transfer
+     */
+    public void ack(String requestId) {
+        journalLock.lock();
+        try {
+            append(ACK, JsonUtils.toJson(requestId));
+            Long offset = unackedOffsets.remove(requestId);
+            if (offset != null) {
+                unacked.remove(offset);
+            }
+            compact();
+        } finally {
+            journalLock.unlock();
+        }
+        pending.decrementAndGet();
+    }
+
+    /**
+     * @return accepted transfers not acked yet
+     */
+    public int pending() {
+        return pending.get();
+    }
+
+    /**
+     * @return offset of the appended line
+     */
+    private long append(char op, String payload) {
+        ByteBuffer buffer = line(op, payload);
+        journalLock.lock();
+        try {
+            long offset = journalBase + journal.size();
+            while (buffer.hasRemaining()) {
+                journal.write(buffer);
+            }
+            if (asyncTransferConfig.isFsync()) {
+                journal.force(false);
+            }
+            return offset;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    /**
+     * drop the journal before the oldest request not acked yet, called holding journalLock.
+     * the acks kept after it may belong to dropped requests, recover() ignores those
+     */
+    private void compact() {
+        try {
+            long size = journal.size();
+            long dead = (unacked.isEmpty() ? journalBase + size : unacked.firstKey()) - journalBase;
+            if (size <= COMPACT_SIZE || dead < size / 2) {
+                return;
+            }
+            if (dead == size) {
+                journal.truncate(0);
+            } else {
+                // copy the live tail, swap it in, the appending channel follows the new file
+                Path compacted = journalPath.resolveSibling(journalPath.getFileName() + ".compact");
+                try (FileChannel source = FileChannel.open(journalPath, StandardOpenOption.READ);
+                     FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                             StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    for (long copied = 0; copied < size - dead; ) {
+                        copied += source.transferTo(dead + copied, size - dead - copied, target);
+                    }
+                    target.force(true);
+                }
+                Files.move(compacted, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                journal.close();
+                journal = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            journalBase += dead;
+        } catch (IOException e) {
+            log.warn("transfer queue journal compact error", e);
+        }
+    }
+
+    private List<TransferRequest> recover() throws IOException {
+        if (!Files.exists(journalPath)) {
+            return new ArrayList<>();
+        }
+        Map<String, TransferRequest> unacked = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String payload = line.substring(1);
+                if (line.charAt(0) == ENQUEUE) {
+                    TransferRequest request = JsonUtils.fromJson(payload, TransferRequest.class);
+                    if (request != null) {
+                        unacked.put(request.getRequestId(), request);
+                        continue;
+                    }
+                } else if (line.charAt(0) == ACK) {
+                    String requestId = JsonUtils.fromJson(payload, String.class);
+                    if (requestId != null) {
+                        unacked.remove(requestId);
+                        continue;
+                    }
+                }
+                // torn write of the last line before a crash, never acknowledged
+                log.warn("transfer queue journal skip unreadable line:{}", line);
+            }
+        }
+        return new ArrayList<>(unacked.values());
+    }
+
+    private static ByteBuffer line(char op, String payload) {
+        return ByteBuffer.wrap((op + payload + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
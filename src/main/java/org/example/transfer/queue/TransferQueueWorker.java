@@ -0,0 +1,173 @@
+package org.example.transfer.queue;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.config.AsyncTransferConfig;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.executor.IdempotentExecutor;
+import org.example.transfer.executor.WorkerThreadFactory;
+import org.example.transfer.handler.TransferLogWriter;
+import org.example.transfer.idempotent.IdempotencyKey;
+import org.example.transfer.idempotent.IdempotencyOutcome;
+import org.example.transfer.params.req.TransferRequest;
+import org.example.transfer.repository.TransferLogRepository;
+import org.example.transfer.service.TransferService;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * drains the {@link TransferQueue} into the transfer handlers
+ * <p>
+ * a fixed number of workers, so a burst waits in the queue instead of being rejected by the rate limiter.
+ * retryable failures are retried with a growing backoff, the final outcome is recorded by requestId.
+ * a replayed request whose transfer is already in transfer_log is completed without transferring again: the transfer
+ * commits before its outcome is recorded, a crash in between must not apply it twice.
+ */
+@Component
+public class TransferQueueWorker {
+    Logger log = LogManager.getLogger(TransferQueueWorker.class);
+
+    @Autowired
+    private AsyncTransferConfig asyncTransferConfig;
+
+    @Autowired
+    private TransferQueue transferQueue;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private IdempotentExecutor idempotentExecutor;
+
+    @Autowired
+    private WorkerThreadFactory workerThreadFactory;
+
+    @Autowired
+    private TransferLogWriter transferLogWriter;
+
+    @Autowired
+    private TransferLogRepository transferLogRepository;
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void start() {
+        if (!asyncTransferConfig.isEnabled()) {
+            return;
+        }
+        for (int i = 0; i < asyncTransferConfig.getWorkers(); i++) {
+            Thread worker = workerThreadFactory.newThread("transfer-queue-worker-" + i, this::run);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        // replayed requests are checked against transfer_log, write-behind logs committed before the restart must be in it
+        try {
+            while (running && !transferLogWriter.awaitRecovered(1, TimeUnit.SECONDS)) {
+                log.info("transfer queue worker waiting for recovered transfer logs");
+            }
+        } catch (InterruptedException e) {
+            return;
+        }
+        while (running) {
+            QueuedTransfer queued;
+            try {
+                queued = transferQueue.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            MDC.put("traceId", queued.request().getRequestId());
+            try {
+                if (process(queued)) {
+                    transferQueue.ack(queued.request().getRequestId());
+                }
+            } catch (Exception e) {
+                log.error("transfer queue worker error, requestId:{}", queued.request().getRequestId(), e);
+            } finally {
+                MDC.remove("traceId");
+            }
+        }
+    }
+
+    /**
+     * @return true if completed, false if interrupted by shutdown, replayed after restart
+     */
+    private boolean process(QueuedTransfer queued) {
+        TransferRequest request = queued.request();
+        String traceId = MDC.get("traceId");
+
+        // 1. a replayed request must be owned again, it may have completed before the restart
+        if (queued.recovered()) {
+            if (idempotentExecutor.begin(request.getRequestId()) != null) {
+                log.info("traceId:{}, skip recovered request already completed", traceId);
+                return true;
+            }
+            // committed, the crash came before its outcome was recorded
+            if (transferLogRepository.existsByRequestKey(IdempotencyKey.of(request.getRequestId()).toHex())) {
+                log.info("traceId:{}, skip recovered request already transferred", traceId);
+                idempotentExecutor.complete(request.getRequestId(), IdempotencyOutcome.SUCCESS);
+                return true;
+            }
+        }
+
+        // 2. transfer, retry transient failures
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transferService.process(request);
+                idempotentExecutor.complete(request.getRequestId(), IdempotencyOutcome.SUCCESS);
+                return true;
+            } catch (BusinessException e) {
+                if (idempotentExecutor.isRetryable(e.getErrorCode()) && attempt < asyncTransferConfig.getMaxAttempts()) {
+                    log.warn("traceId:{}, async transfer attempt:{} failed, errorCode:{}, retry",
+                            traceId, attempt, e.getErrorCode());
+                    if (!backoff(attempt)) {
+                        idempotentExecutor.release(request.getRequestId());
+                        return false;
+                    }
+                    continue;
+                }
+                idempotentExecutor.complete(request.getRequestId(), IdempotencyOutcome.failed(e.getErrorCode(), e.getErrorMsg()));
+                return true;
+            } catch (RuntimeException e) {
+                log.error("traceId:{}, async transfer error", traceId, e);
+                idempotentExecutor.complete(request.getRequestId(), IdempotencyOutcome.failed(
+                        ExceptionEnum.INTERNAL_SERVER_ERROR.getErrorCode(), ExceptionEnum.INTERNAL_SERVER_ERROR.getErrorMsg()));
+                return true;
+            }
+        }
+    }
+
+    private boolean backoff(int attempt) {
+        try {
+            Thread.sleep(asyncTransferConfig.getRetryBackoff().toMillis() * attempt);
+            return running;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+}
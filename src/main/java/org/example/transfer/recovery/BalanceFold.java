@@ -0,0 +1,81 @@
+package org.example.transfer.recovery;
+
+import org.example.transfer.clearing.NetPositions;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * net balance change of a fixed set of accounts over pages of transfer logs
+ * <p>
+ * accounts are numbered by their position in the ascending id array, a leg of an account outside it is dropped.
+ * each page is folded by {@link NetPositions} over account partitions in parallel and added to the running total,
+ * so memory stays at one page plus one long per account however long the history is.
+ */
+public final class BalanceFold {
+
+    private final long[] accountIds;
+    private final int partitions;
+    private final long[] net;
+    private long folded;
+
+    /**
+     * @param accountIds accounts, ascending
+     * @param partitions number of account partitions folded in parallel
+     */
+    public BalanceFold(long[] accountIds, int partitions) {
+        this.accountIds = accountIds;
+        this.partitions = partitions;
+        this.net = new long[accountIds.length];
+    }
+
+    /**
+     * add the balance changes of a page of logs
+     *
+     * @param page logs, any order
+     * @param pool pool running the partition tasks
+     */
+    public void fold(List<LoggedTransfer> page, ForkJoinPool pool) {
+        // 1. legs in minor units, accounts outside the set go to one extra index which is not kept
+        int outside = accountIds.length;
+        int size = page.size();
+        int[] from = new int[size];
+        int[] to = new int[size];
+        long[] debit = new long[size];
+        long[] credit = new long[size];
+        for (int i = 0; i < size; i++) {
+            LoggedTransfer transfer = page.get(i);
+            from[i] = indexOf(transfer.fromAccountId(), outside);
+            to[i] = indexOf(transfer.toAccountId(), outside);
+            debit[i] = transfer.debit();
+            credit[i] = transfer.credit();
+        }
+
+        // 2. net change per account of the page, partitions in parallel
+        long[] pageNet = new NetPositions(from, to, debit, credit, outside + 1, partitions).fold(null, pool);
+        for (int a = 0; a < outside; a++) {
+            net[a] += pageNet[a];
+        }
+        folded += size;
+    }
+
+    /**
+     * @return net change of each account so far, minor units of its currency, indexed like the account ids
+     */
+    public long[] net() {
+        return net;
+    }
+
+    /**
+     * @return logs folded so far
+     */
+    public long folded() {
+        return folded;
+    }
+
+    private int indexOf(long accountId, int outside) {
+        int index = Arrays.binarySearch(accountIds, accountId);
+        return index < 0 ? outside : index;
+    }
+}
@@ -0,0 +1,359 @@
+package org.example.transfer.recovery;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.comm.Money;
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.comm.enums.RecoveryModeEnum;
+import org.example.transfer.config.JournalConfig;
+import org.example.transfer.config.LedgerConfig;
+import org.example.transfer.config.SnapshotConfig;
+import org.example.transfer.config.TransferLogConfig;
+import org.example.transfer.model.Account;
+import org.example.transfer.model.BalanceSnapshot;
+import org.example.transfer.model.BalanceSnapshotEntry;
+import org.example.transfer.repository.AccountRepository;
+import org.example.transfer.repository.BalanceSnapshotEntryRepository;
+import org.example.transfer.repository.BalanceSnapshotRepository;
+import org.example.transfer.repository.TransferLogRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * balance snapshots, and balances rebuilt from the latest snapshot plus the transfer logs after it
+ * <p>
+ * snapshot, in one repeatable read transaction:
+ * 1. read every account balance and fold the logs created after the watermark W = now - settle
+ * 2. store balance - folded change, the balance as of W. a transfer's balances and log commit together
+ * and no transaction runs longer than settle, so every log created at or before W is in the balances read
+ * <p>
+ * rebuild: the latest snapshot plus the logs created after its W, paged by (createdAt, id) and folded
+ * over account partitions in parallel, see {@link BalanceFold}. the work grows with the logs since the snapshot,
+ * not with the whole history. accounts created after the snapshot are not covered.
+ */
+@Component
+@DependsOn("journalProjector")
+public class BalanceRecovery {
+    Logger log = LogManager.getLogger(BalanceRecovery.class);
+
+    /**
+     * snapshot entries persisted per flush
+     */
+    private static final int WRITE_BATCH_SIZE = 1000;
+
+    @Autowired
+    private SnapshotConfig snapshotConfig;
+
+    @Autowired
+    private TransferLogConfig transferLogConfig;
+
+    @Autowired
+    private LedgerConfig ledgerConfig;
+
+    @Autowired
+    private JournalConfig journalConfig;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransferLogRepository transferLogRepository;
+
+    @Autowired
+    private BalanceSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private BalanceSnapshotEntryRepository snapshotEntryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * balances and logs read at one point in time
+     */
+    private TransactionTemplate consistentRead;
+
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    @PostConstruct
+    public void start() {
+        if (snapshotConfig.isEnabled() || snapshotConfig.getStartup() != RecoveryModeEnum.NONE) {
+            checkLogsCommitWithBalances();
+        }
+        consistentRead = new TransactionTemplate(transactionManager);
+        consistentRead.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        // the journal projector has caught up, the ledger engine has not loaded any balance yet
+        switch (snapshotConfig.getStartup()) {
+            case VERIFY -> verify();
+            case RECOVER -> recover();
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * take a snapshot every transfer.snapshot.interval, the first one at startup
+     */
+    @Scheduled(fixedDelayString = "${transfer.snapshot.interval:PT1H}")
+    public void scheduledSnapshot() {
+        if (!snapshotConfig.isEnabled()) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (Exception e) {
+            // the previous snapshots are kept, the next run tries again
+            log.error("balance snapshot failed", e);
+        }
+    }
+
+    /**
+     * take a balance snapshot, then delete the ones beyond transfer.snapshot.retain
+     *
+     * @return new snapshot
+     */
+    public BalanceSnapshot snapshot() {
+        checkLogsCommitWithBalances();
+        snapshotLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            long logsUntil = start - snapshotConfig.getSettle().toMillis();
+            BalanceSnapshot snapshot = consistentRead.execute(status -> takeSnapshot(start, logsUntil));
+            prune();
+            log.info("balance snapshot:{} taken, accounts:{}, logs until:{} in {}ms",
+                    snapshot.getId(), snapshot.getAccounts(), logsUntil, System.currentTimeMillis() - start);
+            return snapshot;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * compare every account covered by the latest snapshot with its rebuilt balance
+     *
+     * @return account id -> rebuilt balance, of the accounts whose balance differs
+     */
+    public Map<Long, BigDecimal> verify() {
+        checkLogsCommitWithBalances();
+        Map<Long, BigDecimal> mismatches = consistentRead.execute(status -> mismatches(false));
+        log.info("balance verify done, mismatches:{}", mismatches.size());
+        return mismatches;
+    }
+
+    /**
+     * write the rebuilt balance to every account whose balance differs, no transfer may run meanwhile
+     *
+     * @return account id -> rebuilt balance, of the accounts repaired
+     */
+    public Map<Long, BigDecimal> recover() {
+        checkLogsCommitWithBalances();
+        Map<Long, BigDecimal> repaired = transactionTemplate.execute(status -> mismatches(true));
+        log.info("balance recover done, repaired:{}", repaired.size());
+        return repaired;
+    }
+
+    /**
+     * snapshots and rebuilds read balances and logs together, each transfer's balances and log must commit together
+     *
+     * @throws IllegalStateException if they commit apart
+     */
+    private void checkLogsCommitWithBalances() {
+        if (transferLogConfig.isWriteBehind()) {
+            // balances commit before their logs are inserted, a snapshot would count those transfers twice
+            throw new IllegalStateException("transfer.snapshot can not be used with transfer.transfer-log.write-behind");
+        }
+        if (ledgerConfig.isEnabled() && !journalConfig.isEnabled()) {
+            // the ledger writer persists balances and logs in whichever batches they fall into
+            throw new IllegalStateException("transfer.snapshot can not be used with transfer.ledger.enabled "
+                    + "unless transfer.journal.enabled");
+        }
+    }
+
+    private BalanceSnapshot takeSnapshot(long createdAt, long logsUntil) {
+        // 1. every balance, and the change of the logs after the watermark, at one point in time
+        Balances balances = new Balances();
+        List<Account> page;
+        long lastId = 0;
+        do {
+            page = accountRepository.findPage(lastId, PageRequest.of(0, snapshotConfig.getPageSize()));
+            for (Account account : page) {
+                balances.add(account.getId(), Money.toMinor(account.getBalance(), account.getCurrency()), account.getCurrency());
+                lastId = account.getId();
+            }
+            entityManager.clear();
+        } while (page.size() == snapshotConfig.getPageSize());
+        long[] net = foldLogsAfter(logsUntil, balances.accountIds()).net();
+
+        // 2. balance as of the watermark, entries flushed in jdbc batches
+        BalanceSnapshot snapshot = new BalanceSnapshot();
+        snapshot.setLogsUntil(logsUntil);
+        snapshot.setCreatedAt(createdAt);
+        snapshot.setAccounts(balances.size);
+        entityManager.persist(snapshot);
+        for (int a = 0; a < balances.size; a++) {
+            Currency currency = balances.currencies[a];
+            entityManager.persist(new BalanceSnapshotEntry(snapshot.getId(), balances.accountIds[a],
+                    Money.toDecimal(balances.minor[a] - net[a], currency), currency));
+            if ((a + 1) % WRITE_BATCH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        return snapshot;
+    }
+
+    private void prune() {
+        List<BalanceSnapshot> snapshots = snapshotRepository.findAllByOrderByIdDesc();
+        for (BalanceSnapshot expired : snapshots.subList(Math.min(snapshotConfig.getRetain(), snapshots.size()), snapshots.size())) {
+            transactionTemplate.executeWithoutResult(status -> {
+                snapshotEntryRepository.deleteBySnapshotId(expired.getId());
+                snapshotRepository.deleteById(expired.getId());
+            });
+        }
+    }
+
+    /**
+     * @param repair write the rebuilt balances, must be called in a read-write transaction
+     */
+    private Map<Long, BigDecimal> mismatches(boolean repair) {
+        Map<Long, BigDecimal> mismatches = new TreeMap<>();
+        BalanceSnapshot snapshot = snapshotRepository.findFirstByOrderByIdDesc().orElse(null);
+        if (snapshot == null) {
+            log.warn("balance rebuild skipped, no snapshot");
+            return mismatches;
+        }
+        long start = System.currentTimeMillis();
+
+        // 1. snapshot balances plus the logs after it
+        Balances rebuilt = new Balances();
+        List<BalanceSnapshotEntry> entries;
+        long lastId = 0;
+        do {
+            entries = snapshotEntryRepository.findPage(snapshot.getId(), lastId, PageRequest.of(0, snapshotConfig.getPageSize()));
+            for (BalanceSnapshotEntry entry : entries) {
+                rebuilt.add(entry.getAccountId(), Money.toMinor(entry.getBalance(), entry.getCurrency()), entry.getCurrency());
+                lastId = entry.getAccountId();
+            }
+            entityManager.clear();
+        } while (entries.size() == snapshotConfig.getPageSize());
+        BalanceFold fold = foldLogsAfter(snapshot.getLogsUntil(), rebuilt.accountIds());
+        long[] net = fold.net();
+        for (int a = 0; a < rebuilt.size; a++) {
+            rebuilt.minor[a] += net[a];
+        }
+        log.info("balance rebuild from snapshot:{}, accounts:{}, logs folded:{} in {}ms",
+                snapshot.getId(), rebuilt.size, fold.folded(), System.currentTimeMillis() - start);
+
+        // 2. compare with the accounts, accounts created after the snapshot are skipped
+        List<Account> page;
+        lastId = 0;
+        do {
+            page = accountRepository.findPage(lastId, PageRequest.of(0, snapshotConfig.getPageSize()));
+            List<Long> differing = new ArrayList<>();
+            for (Account account : page) {
+                lastId = account.getId();
+                int index = Arrays.binarySearch(rebuilt.accountIds, 0, rebuilt.size, account.getId());
+                if (index < 0) {
+                    continue;
+                }
+                long balance = Money.toMinor(account.getBalance(), account.getCurrency());
+                if (balance != rebuilt.minor[index]) {
+                    BigDecimal expected = Money.toDecimal(rebuilt.minor[index], account.getCurrency());
+                    log.warn("balance mismatch, account:{}, balance:{}, rebuilt:{}", account.getId(), account.getBalance(), expected);
+                    mismatches.put(account.getId(), expected);
+                    differing.add(account.getId());
+                }
+            }
+            // 3. repair under row locks, the entity keeps slots and unfolded credits out of the row
+            if (repair && !differing.isEmpty()) {
+                for (Account account : accountRepository.findAllByIdForUpdate(differing)) {
+                    account.setBalance(mismatches.get(account.getId()));
+                }
+                entityManager.flush();
+            }
+            entityManager.clear();
+        } while (page.size() == snapshotConfig.getPageSize());
+        return mismatches;
+    }
+
+    /**
+     * fold the logs created after a point in time, a page is folded while the next one is read
+     *
+     * @param logsUntil  epoch millis, logs created after it are folded
+     * @param accountIds accounts, ascending
+     */
+    private BalanceFold foldLogsAfter(long logsUntil, long[] accountIds) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        BalanceFold fold = new BalanceFold(accountIds, snapshotConfig.getPartitions());
+        CompletableFuture<Void> folding = CompletableFuture.completedFuture(null);
+        List<LoggedTransfer> page;
+        long createdAt = logsUntil;
+        long id = Long.MAX_VALUE;
+        do {
+            page = transferLogRepository.findPage(createdAt, id, Long.MAX_VALUE, PageRequest.of(0, snapshotConfig.getPageSize()));
+            if (page.isEmpty()) {
+                break;
+            }
+            LoggedTransfer last = page.get(page.size() - 1);
+            createdAt = last.createdAt();
+            id = last.id();
+            List<LoggedTransfer> folded = page;
+            // one page folding at a time, the fold is not thread safe
+            folding = folding.thenRunAsync(() -> fold.fold(folded, pool), pool);
+        } while (page.size() == snapshotConfig.getPageSize());
+        folding.join();
+        return fold;
+    }
+
+    /**
+     * balances in minor units, ascending account id
+     */
+    private static final class Balances {
+        private long[] accountIds = new long[16];
+        private long[] minor = new long[16];
+        private Currency[] currencies = new Currency[16];
+        private int size;
+
+        private void add(long accountId, long balance, Currency currency) {
+            if (size == accountIds.length) {
+                accountIds = Arrays.copyOf(accountIds, size * 2);
+                minor = Arrays.copyOf(minor, size * 2);
+                currencies = Arrays.copyOf(currencies, size * 2);
+            }
+            accountIds[size] = accountId;
+            minor[size] = balance;
+            currencies[size] = currency;
+            size++;
+        }
+
+        private long[] accountIds() {
+            return Arrays.copyOf(accountIds, size);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package org.example.transfer.recovery;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.comm.Money;
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.config.JournalConfig;
+import org.example.transfer.config.LedgerConfig;
+import org.example.transfer.config.ReconciliationConfig;
+import org.example.transfer.config.SnapshotConfig;
+import org.example.transfer.config.TransferLogConfig;
+import org.example.transfer.executor.WorkerThreadFactory;
+import org.example.transfer.model.Account;
+import org.example.transfer.model.BalanceSnapshot;
+import org.example.transfer.model.BalanceSnapshotEntry;
+import org.example.transfer.repository.AccountRepository;
+import org.example.transfer.repository.BalanceSnapshotEntryRepository;
+import org.example.transfer.repository.BalanceSnapshotRepository;
+import org.example.transfer.repository.TransferLogRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * reconcile account balances with transfer_log, on a live system
+ * <p>
+ * balances are checked as of a cutoff C = now - settle, from the latest snapshot:
+ * 1. sum: workers split (snapshot watermark, C] into time slices, each pages through its slice by (createdAt, id)
+ * and sums the debits, the fees and the credits of every account into its own primitive maps, merged at the end
+ * 2. compare: accounts are read in pages, each page together with the logs created after C in one short
+ * repeatable read transaction, so balance - newer logs is the balance as of C
+ * 3. report: every account whose balance is not snapshot - debits - fees + credits
+ * <p>
+ * no row is locked and no transaction spans more than one page.
+ */
+@Component
+public class LedgerReconciler {
+    Logger log = LogManager.getLogger(LedgerReconciler.class);
+
+    @Autowired
+    private ReconciliationConfig reconciliationConfig;
+
+    @Autowired
+    private SnapshotConfig snapshotConfig;
+
+    @Autowired
+    private TransferLogConfig transferLogConfig;
+
+    @Autowired
+    private LedgerConfig ledgerConfig;
+
+    @Autowired
+    private JournalConfig journalConfig;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransferLogRepository transferLogRepository;
+
+    @Autowired
+    private BalanceSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private BalanceSnapshotEntryRepository snapshotEntryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private WorkerThreadFactory workerThreadFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ExecutorService workers;
+
+    /**
+     * one page of balances and the logs after the cutoff, read at one point in time
+     */
+    private TransactionTemplate consistentRead;
+
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    private final AtomicInteger mismatched = new AtomicInteger();
+
+    private volatile ReconciliationReport lastReport;
+
+    @PostConstruct
+    public void start() {
+        if (reconciliationConfig.isEnabled() && transferLogConfig.isWriteBehind()) {
+            // balances commit before their logs are inserted, every recent transfer would be reported
+            throw new IllegalStateException("transfer.reconciliation can not be used with transfer.transfer-log.write-behind");
+        }
+        if (reconciliationConfig.isEnabled() && ledgerConfig.isEnabled() && !journalConfig.isEnabled()) {
+            // the ledger writer persists balances and logs in whichever batches they fall into
+            throw new IllegalStateException("transfer.reconciliation can not be used with transfer.ledger.enabled "
+                    + "unless transfer.journal.enabled");
+        }
+        AtomicInteger index = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(reconciliationConfig.getWorkers(),
+                task -> workerThreadFactory.newThread("reconciliation-" + index.getAndIncrement(), task));
+        consistentRead = new TransactionTemplate(transactionManager);
+        consistentRead.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        consistentRead.setReadOnly(true);
+        Gauge.builder("transfer.reconciliation.mismatches", mismatched, AtomicInteger::get)
+                .description("accounts whose balance differs from transfer_log in the last reconciliation")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdownNow();
+        try {
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * reconcile every transfer.reconciliation.interval
+     */
+    @Scheduled(fixedDelayString = "${transfer.reconciliation.interval:PT10M}")
+    public void scheduledReconcile() {
+        if (!reconciliationConfig.isEnabled()) {
+            return;
+        }
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.error("reconciliation failed", e);
+        }
+    }
+
+    /**
+     * @return report of the last run, null before the first one
+     */
+    public ReconciliationReport lastReport() {
+        return lastReport;
+    }
+
+    /**
+     * reconcile every account of the latest snapshot
+     *
+     * @return report, null if there is no snapshot to start from
+     */
+    public ReconciliationReport reconcile() {
+        runLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            BalanceSnapshot snapshot = snapshotRepository.findFirstByOrderByIdDesc().orElse(null);
+            if (snapshot == null) {
+                log.warn("reconciliation skipped, no balance snapshot");
+                return null;
+            }
+            long logsFrom = snapshot.getLogsUntil();
+            long logsUntil = Math.max(logsFrom, start - snapshotConfig.getSettle().toMillis());
+
+            // 1. debits, fees and credits since the snapshot, one time slice per worker
+            int slices = reconciliationConfig.getWorkers();
+            List<CompletableFuture<Legs>> parts = new ArrayList<>(slices);
+            for (int i = 0; i < slices; i++) {
+                long sliceFrom = logsFrom + (logsUntil - logsFrom) * i / slices;
+                long sliceUntil = logsFrom + (logsUntil - logsFrom) * (i + 1) / slices;
+                parts.add(CompletableFuture.supplyAsync(() -> sum(sliceFrom, sliceUntil), workers));
+            }
+            LongLongMap snapshotBalances = snapshotBalances(snapshot);
+            Legs legs = new Legs();
+            for (CompletableFuture<Legs> part : parts) {
+                legs.addAll(part.join());
+            }
+
+            // 2. 3. compare as of the cutoff, page by page
+            List<ReconciliationReport.Mismatch> reported = new ArrayList<>();
+            int accounts = 0;
+            int mismatches = 0;
+            long lastId = 0;
+            List<Account> page;
+            do {
+                long after = lastId;
+                Page current = consistentRead.execute(status -> readPage(after, logsUntil));
+                page = current.accounts;
+                for (Account account : page) {
+                    lastId = account.getId();
+                    if (!snapshotBalances.containsKey(account.getId())) {
+                        // created after the snapshot
+                        continue;
+                    }
+                    accounts++;
+                    long expected = snapshotBalances.get(account.getId()) + legs.net(account.getId());
+                    long actual = Money.toMinor(account.getBalance(), account.getCurrency()) - current.newer.net(account.getId());
+                    if (expected == actual) {
+                        continue;
+                    }
+                    mismatches++;
+                    ReconciliationReport.Mismatch mismatch = mismatch(account, snapshotBalances, legs, expected, actual);
+                    log.warn("reconciliation mismatch:{}", mismatch);
+                    if (reported.size() < reconciliationConfig.getMaxReported()) {
+                        reported.add(mismatch);
+                    }
+                }
+            } while (page.size() == reconciliationConfig.getPageSize());
+
+            ReconciliationReport report = new ReconciliationReport(snapshot.getId(), logsFrom, logsUntil, legs.logs,
+                    accounts, mismatches, reported, System.currentTimeMillis() - start);
+            lastReport = report;
+            mismatched.set(mismatches);
+            log.info("reconciliation done from snapshot:{}, logs:{}, accounts:{}, mismatches:{} in {}ms",
+                    snapshot.getId(), report.logs(), accounts, mismatches, report.elapsedMs());
+            return report;
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    /**
+     * sum the logs of a time slice, one query per page
+     *
+     * @param from  epoch millis, exclusive
+     * @param until epoch millis, inclusive
+     */
+    private Legs sum(long from, long until) {
+        Legs legs = new Legs();
+        List<LoggedTransfer> page;
+        long createdAt = from;
+        long id = Long.MAX_VALUE;
+        do {
+            page = transferLogRepository.findPage(createdAt, id, until, PageRequest.of(0, reconciliationConfig.getPageSize()));
+            for (LoggedTransfer transfer : page) {
+                legs.add(transfer);
+            }
+            if (!page.isEmpty()) {
+                createdAt = page.get(page.size() - 1).createdAt();
+                id = page.get(page.size() - 1).id();
+            }
+        } while (page.size() == reconciliationConfig.getPageSize());
+        return legs;
+    }
+
+    private LongLongMap snapshotBalances(BalanceSnapshot snapshot) {
+        LongLongMap balances = new LongLongMap(snapshot.getAccounts());
+        List<BalanceSnapshotEntry> entries;
+        long lastId = 0;
+        do {
+            entries = snapshotEntryRepository.findPage(snapshot.getId(), lastId, PageRequest.of(0, reconciliationConfig.getPageSize()));
+            for (BalanceSnapshotEntry entry : entries) {
+                balances.add(entry.getAccountId(), Money.toMinor(entry.getBalance(), entry.getCurrency()));
+                lastId = entry.getAccountId();
+            }
+        } while (entries.size() == reconciliationConfig.getPageSize());
+        return balances;
+    }
+
+    /**
+     * a page of accounts and the change of every log created after the cutoff, in one transaction
+     */
+    private Page readPage(long afterId, long logsUntil) {
+        List<Account> accounts = accountRepository.findPage(afterId, PageRequest.of(0, reconciliationConfig.getPageSize()));
+        Legs newer = new Legs();
+        List<LoggedTransfer> logs;
+        long createdAt = logsUntil;
+        long id = Long.MAX_VALUE;
+        do {
+            logs = transferLogRepository.findPage(createdAt, id, Long.MAX_VALUE, PageRequest.of(0, reconciliationConfig.getPageSize()));
+            for (LoggedTransfer transfer : logs) {
+                newer.add(transfer);
+            }
+            if (!logs.isEmpty()) {
+                createdAt = logs.get(logs.size() - 1).createdAt();
+                id = logs.get(logs.size() - 1).id();
+            }
+        } while (logs.size() == reconciliationConfig.getPageSize());
+        return new Page(accounts, newer);
+    }
+
+    private ReconciliationReport.Mismatch mismatch(Account account, LongLongMap snapshotBalances, Legs legs, long expected, long actual) {
+        Currency currency = account.getCurrency();
+        long id = account.getId();
+        return new ReconciliationReport.Mismatch(id, currency,
+                Money.toDecimal(snapshotBalances.get(id), currency),
+                Money.toDecimal(legs.debits.get(id), currency),
+                Money.toDecimal(legs.fees.get(id), currency),
+                Money.toDecimal(legs.credits.get(id), currency),
+                Money.toDecimal(expected, currency),
+                Money.toDecimal(actual, currency));
+    }
+
+    /**
+     * debits, fees and credits per account, minor units of the account's currency
+     */
+    private static final class Legs {
+        private final LongLongMap debits = new LongLongMap();
+        private final LongLongMap fees = new LongLongMap();
+        private final LongLongMap credits = new LongLongMap();
+        private long logs;
+
+        private void add(LoggedTransfer transfer) {
+            debits.add(transfer.fromAccountId(), Money.toMinor(transfer.amount(), transfer.fromCurrency()));
+            fees.add(transfer.fromAccountId(), Money.toMinor(transfer.fee(), transfer.fromCurrency()));
+            credits.add(transfer.toAccountId(), transfer.credit());
+            logs++;
+        }
+
+        private void addAll(Legs other) {
+            debits.addAll(other.debits);
+            fees.addAll(other.fees);
+            credits.addAll(other.credits);
+            logs += other.logs;
+        }
+
+        private long net(long accountId) {
+            return credits.get(accountId) - debits.get(accountId) - fees.get(accountId);
+        }
+    }
+
+    private record Page(List<Account> accounts, Legs newer) {
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.transfer.recovery;
+
+import org.example.transfer.comm.Money;
+import org.example.transfer.comm.enums.Currency;
+
+import java.math.BigDecimal;
+
+/**
+ * columns of a transfer_log row needed to replay its balance changes
+ *
+ * @param amount requested amount, sender's currency
+ * @param fee    sender's currency
+ * @param fxRate 1 from = ? to, as quoted
+ */
+public record LoggedTransfer(Long id, Long createdAt, Long fromAccountId, Long toAccountId,
+                             BigDecimal amount, BigDecimal fee, BigDecimal fxRate,
+                             Currency fromCurrency, Currency toCurrency) {
+
+    /**
+     * @return amount + fee, minor units of the sender's currency
+     */
+    public long debit() {
+        return Math.addExact(Money.toMinor(amount, fromCurrency), Money.toMinor(fee, fromCurrency));
+    }
+
+    /**
+     * @return amount received, minor units of the receiver's currency, converted the same way as the quote
+     */
+    public long credit() {
+        long amountMinor = Money.toMinor(amount, fromCurrency);
+        if (fromCurrency == toCurrency) {
+            return amountMinor;
+        }
+        return Money.convert(amountMinor, fromCurrency, toCurrency, Money.toRateUnits(fxRate));
+    }
+}
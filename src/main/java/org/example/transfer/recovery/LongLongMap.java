@@ -0,0 +1,124 @@
+package org.example.transfer.recovery;
+
+import java.util.Arrays;
+
+/**
+ * long -> long sum per key, open addressing with linear probing
+ * <p>
+ * no boxing and two arrays instead of an entry object per key, so summing millions of legs per account
+ * only writes to primitive arrays. not thread safe, one map per thread and {@link #addAll} to merge.
+ * key 0 marks a free slot and can not be used, account ids start at 1.
+ */
+public final class LongLongMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    public LongLongMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expected keys expected, the map grows beyond it
+     */
+    public LongLongMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expected * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new long[capacity];
+    }
+
+    /**
+     * add to the value of a key, a missing key starts at 0
+     */
+    public void add(long key, long delta) {
+        if (key == 0) {
+            throw new IllegalArgumentException("key 0 is not supported");
+        }
+        int slot = slot(key);
+        if (keys[slot] == 0) {
+            // at most half full, probes stay short
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                slot = slot(key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] += delta;
+    }
+
+    /**
+     * @return value of the key, 0 if missing
+     */
+    public long get(long key) {
+        if (key == 0) {
+            return 0;
+        }
+        int slot = slot(key);
+        return keys[slot] == 0 ? 0 : values[slot];
+    }
+
+    public boolean containsKey(long key) {
+        return key != 0 && keys[slot(key)] == key;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * add every value of another map
+     */
+    public void addAll(LongLongMap other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != 0) {
+                add(other.keys[i], other.values[i]);
+            }
+        }
+    }
+
+    /**
+     * @return keys, ascending
+     */
+    public long[] keys() {
+        long[] present = new long[size];
+        int n = 0;
+        for (long key : keys) {
+            if (key != 0) {
+                present[n++] = key;
+            }
+        }
+        Arrays.sort(present);
+        return present;
+    }
+
+    /**
+     * @return slot holding the key, or the free slot where it goes
+     */
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        // fibonacci hashing, sequential account ids spread over the table
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.transfer.recovery;
+
+import org.example.transfer.comm.enums.Currency;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * result of one reconciliation run
+ *
+ * @param snapshotId  snapshot the balances start from
+ * @param logsFrom    epoch millis, logs created after it are counted
+ * @param logsUntil   epoch millis, logs created at or before it are counted, balances are compared as of it
+ * @param logs        transfer logs read
+ * @param accounts    accounts compared
+ * @param mismatched  accounts whose balance differs
+ * @param mismatches  the first transfer.reconciliation.max-reported of them, ascending account id
+ * @param elapsedMs   run time
+ */
+public record ReconciliationReport(Long snapshotId, long logsFrom, long logsUntil, long logs, int accounts,
+                                   int mismatched, List<Mismatch> mismatches, long elapsedMs) {
+
+    /**
+     * an account whose balance is not snapshot - debits - fees + credits
+     *
+     * @param snapshot balance in the snapshot
+     * @param debits   amounts sent since the snapshot
+     * @param fees     fees charged on them
+     * @param credits  amounts received since the snapshot, converted to the account's currency
+     * @param expected snapshot - debits - fees + credits
+     * @param actual   account balance as of logsUntil
+     */
+    public record Mismatch(Long accountId, Currency currency, BigDecimal snapshot, BigDecimal debits, BigDecimal fees,
+                           BigDecimal credits, BigDecimal expected, BigDecimal actual) {
+    }
+}
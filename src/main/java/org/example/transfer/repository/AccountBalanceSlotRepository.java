@@ -0,0 +1,79 @@
+package org.example.transfer.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
+import org.example.transfer.model.AccountBalanceSlot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface AccountBalanceSlotRepository extends JpaRepository<AccountBalanceSlot, Long> {
+
+    /**
+     * select all slots of an account for update, in slot order
+     * <p>
+     * must be called in a transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM AccountBalanceSlot s WHERE s.accountId = :accountId ORDER BY s.slot ASC")
+    List<AccountBalanceSlot> findByAccountIdForUpdate(@Param("accountId") Long accountId);
+
+    /**
+     * select the balances of all slots of an account for update, in slot order
+     * <p>
+     * values, not entities, so bulk debits and credits earlier in the transaction are never read stale.
+     * must be called in a transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s.balance FROM AccountBalanceSlot s WHERE s.accountId = :accountId ORDER BY s.slot ASC")
+    List<BigDecimal> findBalancesForUpdate(@Param("accountId") Long accountId);
+
+    /**
+     * @return sum of the slots of an account, 0 if it is not split
+     */
+    @Query("SELECT COALESCE(SUM(s.balance), 0) FROM AccountBalanceSlot s WHERE s.accountId = :accountId")
+    BigDecimal sumBalance(@Param("accountId") Long accountId);
+
+    /**
+     * @return [accountId, slot count] of every split account
+     */
+    @Query("SELECT s.accountId, COUNT(s) FROM AccountBalanceSlot s GROUP BY s.accountId")
+    List<Object[]> countSlotsByAccount();
+
+    /**
+     * deduct from one slot, only if the slot holds enough
+     *
+     * @return affected rows, 0 means the slot is short
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE AccountBalanceSlot s SET s.balance = s.balance - :amount "
+            + "WHERE s.accountId = :accountId AND s.slot = :slot AND s.balance >= :amount")
+    int debit(@Param("accountId") Long accountId, @Param("slot") int slot, @Param("amount") BigDecimal amount);
+
+    /**
+     * add to one slot
+     *
+     * @return affected rows
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE AccountBalanceSlot s SET s.balance = s.balance + :amount "
+            + "WHERE s.accountId = :accountId AND s.slot = :slot")
+    int credit(@Param("accountId") Long accountId, @Param("slot") int slot, @Param("amount") BigDecimal amount);
+
+    /**
+     * set the balance of one slot
+     *
+     * @return affected rows
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE AccountBalanceSlot s SET s.balance = :balance WHERE s.accountId = :accountId AND s.slot = :slot")
+    int setBalance(@Param("accountId") Long accountId, @Param("slot") int slot, @Param("balance") BigDecimal balance);
+}
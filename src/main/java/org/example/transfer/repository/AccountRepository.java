@@ -1,14 +1,85 @@
 package org.example.transfer.repository;
 
+import jakarta.persistence.LockModeType;
 import jakarta.transaction.Transactional;
 import org.example.transfer.model.Account;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
     @Modifying
     @Transactional
     @Query(value = "DELETE FROM account", nativeQuery = true)
     void deleteAllAccountsNative();
-}
\ No newline at end of file
+
+    /**
+     * select accounts for update
+     * <p>
+     * rows are locked in ascending id order, so two transfers on the same accounts can't deadlock.
+     * must be called in a transaction.
+     *
+     * @param ids account ids
+     * @return locked accounts, ordered by id
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id IN :ids ORDER BY a.id ASC")
+    List<Account> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * deduct balance in one statement, only if balance is sufficient
+     *
+     * @param id     account id
+     * @param amount total deduct
+     * @return affected rows, 0 means insufficient balance
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Account a SET a.balance = a.balance - :amount, a.version = COALESCE(a.version, 0) + 1 "
+            + "WHERE a.id = :id AND a.balance >= :amount")
+    int debit(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * deduct balance in one statement, only if balance plus the unfolded credit deltas is sufficient.
+     * the row may go below zero, the deltas cover it until they are folded
+     *
+     * @param id     account id
+     * @param amount total deduct
+     * @return affected rows, 0 means insufficient balance
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Account a SET a.balance = a.balance - :amount, a.version = COALESCE(a.version, 0) + 1 "
+            + "WHERE a.id = :id AND a.balance + (SELECT COALESCE(SUM(d.amount), 0) FROM BalanceDelta d "
+            + "WHERE d.accountId = :id) >= :amount")
+    int debitWithDeltas(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * add balance in one statement
+     *
+     * @param id     account id
+     * @param amount credit amount
+     * @return affected rows
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Account a SET a.balance = a.balance + :amount, a.version = COALESCE(a.version, 0) + 1 "
+            + "WHERE a.id = :id")
+    int credit(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * next page of accounts, keyset paging by id
+     *
+     * @param id last id of the previous page, 0 for the first page
+     * @return accounts ordered by id
+     */
+    @Query("SELECT a FROM Account a WHERE a.id > :id ORDER BY a.id ASC")
+    List<Account> findPage(@Param("id") Long id, Pageable pageable);
+}
@@ -0,0 +1,37 @@
+package org.example.transfer.repository;
+
+import jakarta.persistence.LockModeType;
+import org.example.transfer.model.BalanceDelta;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface BalanceDeltaRepository extends JpaRepository<BalanceDelta, Long> {
+
+    /**
+     * @return accounts with unfolded credits
+     */
+    @Query("SELECT DISTINCT d.accountId FROM BalanceDelta d")
+    List<Long> findAccountIds();
+
+    /**
+     * @return sum of the unfolded credits of an account, 0 if none
+     */
+    @Query("SELECT COALESCE(SUM(d.amount), 0) FROM BalanceDelta d WHERE d.accountId = :accountId")
+    BigDecimal sumAmount(@Param("accountId") Long accountId);
+
+    /**
+     * select the oldest unfolded credits of an account for update
+     * <p>
+     * a concurrent folder waits, then no longer finds the rows it waited for.
+     * must be called in a transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM BalanceDelta d WHERE d.accountId = :accountId ORDER BY d.id ASC")
+    List<BalanceDelta> findByAccountIdForUpdate(@Param("accountId") Long accountId, Pageable pageable);
+}
@@ -0,0 +1,30 @@
+package org.example.transfer.repository;
+
+import jakarta.transaction.Transactional;
+import org.example.transfer.model.BalanceSnapshotEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface BalanceSnapshotEntryRepository extends JpaRepository<BalanceSnapshotEntry, BalanceSnapshotEntry.Key> {
+
+    /**
+     * next page of a snapshot, keyset paging by account id
+     *
+     * @param snapshotId snapshot id
+     * @param accountId  last account id of the previous page, 0 for the first page
+     * @return entries ordered by account id
+     */
+    @Query("SELECT e FROM BalanceSnapshotEntry e WHERE e.snapshotId = :snapshotId AND e.accountId > :accountId "
+            + "ORDER BY e.accountId ASC")
+    List<BalanceSnapshotEntry> findPage(@Param("snapshotId") Long snapshotId, @Param("accountId") Long accountId, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM BalanceSnapshotEntry e WHERE e.snapshotId = :snapshotId")
+    int deleteBySnapshotId(@Param("snapshotId") Long snapshotId);
+}
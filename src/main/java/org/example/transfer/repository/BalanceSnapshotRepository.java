@@ -0,0 +1,20 @@
+package org.example.transfer.repository;
+
+import org.example.transfer.model.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+
+    /**
+     * @return latest snapshot
+     */
+    Optional<BalanceSnapshot> findFirstByOrderByIdDesc();
+
+    /**
+     * @return snapshots, latest first
+     */
+    List<BalanceSnapshot> findAllByOrderByIdDesc();
+}
@@ -0,0 +1,20 @@
+package org.example.transfer.repository;
+
+import jakarta.transaction.Transactional;
+import org.example.transfer.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    List<IdempotencyRecord> findByExpireAtGreaterThan(Long now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expireAt <= :now")
+    int deleteExpired(@Param("now") Long now);
+}
@@ -0,0 +1,7 @@
+package org.example.transfer.repository;
+
+import org.example.transfer.model.JournalCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface JournalCheckpointRepository extends JpaRepository<JournalCheckpoint, String> {
+}
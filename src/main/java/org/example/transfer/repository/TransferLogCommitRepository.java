@@ -0,0 +1,33 @@
+package org.example.transfer.repository;
+
+import org.example.transfer.model.TransferLogCommit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface TransferLogCommitRepository extends JpaRepository<TransferLogCommit, Long> {
+
+    /**
+     * plain insert in the caller's transaction, no select of the assigned id first
+     */
+    @Modifying
+    @Query(value = "INSERT INTO transfer_log_commit (first_seq, last_seq) VALUES (:firstSeq, :lastSeq)", nativeQuery = true)
+    void insert(@Param("firstSeq") Long firstSeq, @Param("lastSeq") Long lastSeq);
+
+    /**
+     * @return committed position ranges ending at or after a position
+     */
+    List<TransferLogCommit> findByLastSeqGreaterThanEqual(Long seq);
+
+    /**
+     * forget the ranges below a position, their logs are inserted or aborted
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM TransferLogCommit c WHERE c.lastSeq < :seq")
+    void deleteBelow(@Param("seq") Long seq);
+}
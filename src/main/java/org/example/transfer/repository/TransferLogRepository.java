@@ -1,7 +1,161 @@
 package org.example.transfer.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.transfer.model.TransferLog;
+import org.example.transfer.recovery.LoggedTransfer;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface TransferLogRepository extends JpaRepository<TransferLog, Long> {
-}
\ No newline at end of file
+
+    /**
+     * rows per round trip of a streamed query
+     */
+    String STREAM_FETCH_SIZE = "1000";
+
+    /**
+     * @return highest write-behind journal position inserted, null if none
+     */
+    @Query("SELECT MAX(t.journalSeq) FROM TransferLog t")
+    Long findMaxJournalSeq();
+
+    /**
+     * @return write-behind journal positions inserted from a position on
+     */
+    @Query("SELECT t.journalSeq FROM TransferLog t WHERE t.journalSeq >= :from")
+    List<Long> findJournalSeqsFrom(@Param("from") Long from);
+
+    /**
+     * @param requestKey {@link org.example.transfer.idempotent.IdempotencyKey#toHex()} of the request
+     * @return true if the request's transfer is logged
+     */
+    boolean existsByRequestKey(String requestKey);
+
+    /**
+     * next page of logs created in a time range, keyset paging on (createdAt, id), no entity is managed
+     *
+     * @param createdAt createdAt of the last log of the previous page
+     * @param id        id of the last log of the previous page, Long.MAX_VALUE to start after createdAt
+     * @param until     createdAt of the last logs of the range, inclusive
+     * @return logs ordered by createdAt, id
+     */
+    @Query("SELECT new org.example.transfer.recovery.LoggedTransfer(t.id, t.createdAt, t.fromAccountId, t.toAccountId, "
+            + "t.amount, t.fee, t.fxRate, t.fromCurrency, t.toCurrency) FROM TransferLog t "
+            + "WHERE (t.createdAt > :createdAt OR (t.createdAt = :createdAt AND t.id > :id)) AND t.createdAt <= :until "
+            + "ORDER BY t.createdAt ASC, t.id ASC")
+    List<LoggedTransfer> findPage(@Param("createdAt") Long createdAt, @Param("id") Long id, @Param("until") Long until,
+                                  Pageable pageable);
+
+    /**
+     * ids of the transfers sent by an account below a cursor, newest first, read from idx_transfer_log_from alone,
+     * the scan stops after one page
+     *
+     * @param accountId sender
+     * @param cursor    id of the last transfer of the previous page, exclusive
+     * @return ids descending
+     */
+    @Query("SELECT t.id FROM TransferLog t WHERE t.fromAccountId = :accountId AND t.id < :cursor ORDER BY t.id DESC")
+    List<Long> findSentIds(@Param("accountId") Long accountId, @Param("cursor") Long cursor, Pageable pageable);
+
+    /**
+     * ids of the transfers received by an account below a cursor, newest first, read from idx_transfer_log_to alone
+     *
+     * @see #findSentIds
+     */
+    @Query("SELECT t.id FROM TransferLog t WHERE t.toAccountId = :accountId AND t.id < :cursor ORDER BY t.id DESC")
+    List<Long> findReceivedIds(@Param("accountId") Long accountId, @Param("cursor") Long cursor, Pageable pageable);
+
+    /**
+     * ids of the transfers sent by an account in a time range below a cursor, newest first.
+     * a range scan of idx_transfer_log_from_created_at seeks on (fromAccountId, createdAt), the ids of the range
+     * are then sorted, so the cost grows with the transfers in the range, not with the account's history
+     *
+     * @param accountId sender
+     * @param cursor    id of the last transfer of the previous page, exclusive
+     * @param since     epoch millis, inclusive
+     * @param until     epoch millis, exclusive
+     * @return ids descending
+     */
+    @Query("SELECT t.id FROM TransferLog t WHERE t.fromAccountId = :accountId "
+            + "AND t.createdAt >= :since AND t.createdAt < :until AND t.id < :cursor ORDER BY t.id DESC")
+    List<Long> findSentIdsBetween(@Param("accountId") Long accountId, @Param("cursor") Long cursor,
+                                  @Param("since") Long since, @Param("until") Long until, Pageable pageable);
+
+    /**
+     * ids of the transfers received by an account in a time range below a cursor, newest first,
+     * from idx_transfer_log_to_created_at
+     *
+     * @see #findSentIdsBetween
+     */
+    @Query("SELECT t.id FROM TransferLog t WHERE t.toAccountId = :accountId "
+            + "AND t.createdAt >= :since AND t.createdAt < :until AND t.id < :cursor ORDER BY t.id DESC")
+    List<Long> findReceivedIdsBetween(@Param("accountId") Long accountId, @Param("cursor") Long cursor,
+                                      @Param("since") Long since, @Param("until") Long until, Pageable pageable);
+
+    /**
+     * transfers by id, no entity is managed
+     *
+     * @return transfers ordered by id descending
+     */
+    @Query("SELECT new org.example.transfer.recovery.LoggedTransfer(t.id, t.createdAt, t.fromAccountId, t.toAccountId, "
+            + "t.amount, t.fee, t.fxRate, t.fromCurrency, t.toCurrency) FROM TransferLog t "
+            + "WHERE t.id IN :ids ORDER BY t.id DESC")
+    List<LoggedTransfer> findTransfers(@Param("ids") Collection<Long> ids);
+
+    /**
+     * transfers sent by an account above a cursor, oldest first, a forward-only cursor over idx_transfer_log_from,
+     * no entity is managed. needs a transaction, close the stream
+     *
+     * @param accountId sender
+     * @param cursor    id of the last transfer already read, exclusive
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT new org.example.transfer.recovery.LoggedTransfer(t.id, t.createdAt, t.fromAccountId, t.toAccountId, "
+            + "t.amount, t.fee, t.fxRate, t.fromCurrency, t.toCurrency) FROM TransferLog t "
+            + "WHERE t.fromAccountId = :accountId AND t.id > :cursor ORDER BY t.id ASC")
+    Stream<LoggedTransfer> streamSent(@Param("accountId") Long accountId, @Param("cursor") Long cursor);
+
+    /**
+     * transfers received by an account above a cursor, oldest first, a forward-only cursor over idx_transfer_log_to
+     *
+     * @see #streamSent
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT new org.example.transfer.recovery.LoggedTransfer(t.id, t.createdAt, t.fromAccountId, t.toAccountId, "
+            + "t.amount, t.fee, t.fxRate, t.fromCurrency, t.toCurrency) FROM TransferLog t "
+            + "WHERE t.toAccountId = :accountId AND t.id > :cursor ORDER BY t.id ASC")
+    Stream<LoggedTransfer> streamReceived(@Param("accountId") Long accountId, @Param("cursor") Long cursor);
+
+    /**
+     * transfers sent by an account created after a point in time, oldest id first, a forward-only cursor over
+     * idx_transfer_log_from_created_at, no entity is managed. needs a transaction, close the stream
+     *
+     * @param accountId sender
+     * @param createdAt epoch millis, exclusive
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT new org.example.transfer.recovery.LoggedTransfer(t.id, t.createdAt, t.fromAccountId, t.toAccountId, "
+            + "t.amount, t.fee, t.fxRate, t.fromCurrency, t.toCurrency) FROM TransferLog t "
+            + "WHERE t.fromAccountId = :accountId AND t.createdAt > :createdAt ORDER BY t.id ASC")
+    Stream<LoggedTransfer> streamSentAfter(@Param("accountId") Long accountId, @Param("createdAt") Long createdAt);
+
+    /**
+     * transfers received by an account created after a point in time, oldest id first,
+     * a forward-only cursor over idx_transfer_log_to_created_at
+     *
+     * @see #streamSentAfter
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT new org.example.transfer.recovery.LoggedTransfer(t.id, t.createdAt, t.fromAccountId, t.toAccountId, "
+            + "t.amount, t.fee, t.fxRate, t.fromCurrency, t.toCurrency) FROM TransferLog t "
+            + "WHERE t.toAccountId = :accountId AND t.createdAt > :createdAt ORDER BY t.id ASC")
+    Stream<LoggedTransfer> streamReceivedAfter(@Param("accountId") Long accountId, @Param("createdAt") Long createdAt);
+}
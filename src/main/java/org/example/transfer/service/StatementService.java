@@ -0,0 +1,27 @@
+package org.example.transfer.service;
+
+import org.example.transfer.comm.enums.StatementFormatEnum;
+import org.example.transfer.comm.enums.StatementStartEnum;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface StatementService {
+
+    /**
+     * check the account, and that balances and logs commit together, before a statement response is committed
+     * @param accountId account id
+     */
+    public void checkAccount(Long accountId);
+
+    /**
+     * stream the statement of an account, oldest transfer first, with the balance after every transfer
+     * @param accountId account id
+     * @param cursor id of the last transfer already received, null for the whole history
+     * @param from where a statement without cursor starts, ignored with a cursor
+     * @param format line format
+     * @param out written and flushed, not closed
+     */
+    public void write(Long accountId, Long cursor, StatementStartEnum from, StatementFormatEnum format,
+                      OutputStream out) throws IOException;
+}
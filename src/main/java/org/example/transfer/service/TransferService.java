@@ -1,8 +1,13 @@
 package org.example.transfer.service;
 
 import org.example.transfer.params.req.TransferRequest;
+import org.example.transfer.params.resp.BatchTransferResult;
+import org.example.transfer.params.resp.TransferHistoryResult;
+import org.example.transfer.params.resp.TransferStatusResult;
 
-import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface TransferService {
 
@@ -11,4 +16,48 @@ public interface TransferService {
      * @param request money transfer request
      */
     public void transfer(TransferRequest request);
-}
\ No newline at end of file
+
+    /**
+     * money transfer without blocking the caller
+     * @param request money transfer request
+     * @return completed when transferred, failed with BusinessException otherwise
+     */
+    public CompletableFuture<Void> transferAsync(TransferRequest request);
+
+    /**
+     * batch money transfer
+     * @param requests money transfer requests
+     * @return result of each request, in request order
+     */
+    public List<BatchTransferResult> batchTransfer(List<TransferRequest> requests);
+
+    /**
+     * transfer a request already accepted, without idempotent check and rate limit
+     * @param request money transfer request
+     */
+    public void process(TransferRequest request);
+
+    /**
+     * accept a money transfer, applied later by queue workers
+     * @param request money transfer request
+     */
+    public void submit(TransferRequest request);
+
+    /**
+     * status of a transfer
+     * @param requestId requestId
+     * @return status, errorCode and errorMsg if failed
+     */
+    public TransferStatusResult getStatus(String requestId);
+
+    /**
+     * transfers sent or received by an account, newest first
+     * @param accountId account id
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @param since created at or after, null for no lower bound
+     * @param until created before, null for no upper bound
+     * @param limit max transfers, null for transfer.history.default-limit
+     * @return page of transfers and the cursor of the next one
+     */
+    public TransferHistoryResult getTransfers(Long accountId, Long cursor, Instant since, Instant until, Integer limit);
+}
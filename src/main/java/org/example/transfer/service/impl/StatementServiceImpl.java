@@ -0,0 +1,332 @@
+package org.example.transfer.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.transfer.comm.Money;
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.comm.enums.StatementFormatEnum;
+import org.example.transfer.comm.enums.StatementStartEnum;
+import org.example.transfer.config.JournalConfig;
+import org.example.transfer.config.LedgerConfig;
+import org.example.transfer.config.TransferLogConfig;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.model.Account;
+import org.example.transfer.model.BalanceSnapshot;
+import org.example.transfer.model.BalanceSnapshotEntry;
+import org.example.transfer.params.resp.StatementLine;
+import org.example.transfer.recovery.LoggedTransfer;
+import org.example.transfer.repository.AccountRepository;
+import org.example.transfer.repository.BalanceSnapshotEntryRepository;
+import org.example.transfer.repository.BalanceSnapshotRepository;
+import org.example.transfer.repository.TransferLogRepository;
+import org.example.transfer.service.StatementService;
+import org.example.transfer.util.JsonUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * account statement, streamed from transfer_log with constant heap
+ * <p>
+ * sent and received transfers are read through two forward-only cursors, one per (account, id) index, merged by id.
+ * everything is read in one repeatable read transaction.
+ * by default, or with a cursor, two passes over the logs after the cursor:
+ * 1. opening balance = current balance - every change after the cursor
+ * 2. one line per transfer, running balance from the opening one
+ * <p>
+ * from = SNAPSHOT without a cursor starts at the latest balance snapshot holding the account, one pass:
+ * 1. opening balance = the snapshot's
+ * 2. one line per transfer created after the snapshot, running balance from the opening one
+ * <p>
+ * every pass holds one row per cursor plus the fetch buffer, whatever the length of the history.
+ * the balances must commit with their logs, statements are refused with write-behind logs or the ledger without journal.
+ */
+@Service
+public class StatementServiceImpl implements StatementService {
+    Logger log = LogManager.getLogger(StatementServiceImpl.class);
+
+    private static final String CSV_HEADER = "id,createdAt,fromAccountId,toAccountId,amount,fee,currency,balance";
+
+    /**
+     * chars buffered before a chunk is written to the response
+     */
+    private static final int WRITE_BUFFER = 64 * 1024;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransferLogRepository transferLogRepository;
+
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Autowired
+    private BalanceSnapshotEntryRepository balanceSnapshotEntryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransferLogConfig transferLogConfig;
+
+    @Autowired
+    private LedgerConfig ledgerConfig;
+
+    @Autowired
+    private JournalConfig journalConfig;
+
+    /**
+     * why balances and logs may commit apart, null if they commit together
+     */
+    private String unsupported;
+
+    /**
+     * the balance and the logs read at one point in time
+     */
+    private TransactionTemplate consistentRead;
+
+    @PostConstruct
+    public void start() {
+        consistentRead = new TransactionTemplate(transactionManager);
+        consistentRead.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        consistentRead.setReadOnly(true);
+        if (transferLogConfig.isWriteBehind()) {
+            // balances commit before their logs are inserted, the opening balance would miss those transfers
+            unsupported = "statement can not be used with transfer.transfer-log.write-behind";
+        } else if (ledgerConfig.isEnabled() && !journalConfig.isEnabled()) {
+            // the ledger writer persists balances and logs in whichever batches they fall into
+            unsupported = "statement can not be used with transfer.ledger.enabled unless transfer.journal.enabled";
+        }
+        if (unsupported != null) {
+            log.warn("statements disabled, {}", unsupported);
+        }
+    }
+
+    @Override
+    public void checkAccount(Long accountId) {
+        checkSupported();
+        if (!accountRepository.existsById(accountId)) {
+            throw new BusinessException(ExceptionEnum.USER_NOT_EXIST.getErrorCode(),
+                    String.format("account not exist, accountId: %d", accountId));
+        }
+    }
+
+    @Override
+    public void write(Long accountId, Long cursor, StatementStartEnum from, StatementFormatEnum format,
+                      OutputStream out) throws IOException {
+        checkSupported();
+        long start = System.currentTimeMillis();
+        try {
+            long lines = consistentRead.execute(status -> {
+                try {
+                    return doWrite(accountId, cursor, from, format, out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            log.info("statement of account:{} after:{} written, lines:{} in {}ms",
+                    accountId, cursor, lines, System.currentTimeMillis() - start);
+        } catch (UncheckedIOException e) {
+            // mostly the client went away, a later download resumes from the last id it got
+            log.warn("statement of account:{} after:{} aborted, {}", accountId, cursor, e.getCause().getMessage());
+            throw e.getCause();
+        }
+    }
+
+    private void checkSupported() {
+        if (unsupported != null) {
+            throw new BusinessException(ExceptionEnum.STATEMENT_NOT_SUPPORT.getErrorCode(), unsupported);
+        }
+    }
+
+    private long doWrite(Long accountId, Long cursor, StatementStartEnum from, StatementFormatEnum format,
+                         OutputStream out) throws IOException {
+        Account account = accountRepository.findById(accountId).orElseThrow(() ->
+                new BusinessException(ExceptionEnum.USER_NOT_EXIST.getErrorCode(),
+                        String.format("account not exist, accountId: %d", accountId)));
+        Currency currency = account.getCurrency();
+
+        // 1. balance before the first line
+        Optional<BalanceSnapshot> snapshot = cursor == null && from == StatementStartEnum.SNAPSHOT
+                ? balanceSnapshotRepository.findFirstByOrderByIdDesc() : Optional.empty();
+        Optional<BalanceSnapshotEntry> entry = snapshot.flatMap(header -> balanceSnapshotEntryRepository.findById(
+                new BalanceSnapshotEntry.Key(header.getId(), accountId)));
+        long balance;
+        if (entry.isPresent()) {
+            balance = Money.toMinor(entry.get().getBalance(), currency);
+        } else {
+            balance = Money.toMinor(account.getBalance(), currency);
+            try (Transfers transfers = transfersAfter(accountId, cursor)) {
+                while (transfers.hasNext()) {
+                    LoggedTransfer transfer = transfers.next();
+                    balance -= change(accountId, transfer) - fee(accountId, transfer);
+                }
+            }
+        }
+
+        // 2. one line per transfer
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER);
+        if (format == StatementFormatEnum.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        long lines = 0;
+        try (Transfers transfers = entry.isPresent() ? transfersCreatedAfter(accountId, snapshot.get().getLogsUntil())
+                : transfersAfter(accountId, cursor)) {
+            while (transfers.hasNext()) {
+                LoggedTransfer transfer = transfers.next();
+                long change = change(accountId, transfer);
+                long fee = fee(accountId, transfer);
+                balance += change - fee;
+                writeLine(writer, format, line(transfer, currency, change, fee, balance));
+                lines++;
+            }
+        }
+        writer.flush();
+        return lines;
+    }
+
+    /**
+     * @param cursor id of the last transfer already read, null from the first one
+     */
+    private Transfers transfersAfter(Long accountId, Long cursor) {
+        long after = cursor == null ? 0 : cursor;
+        return new Transfers(transferLogRepository.streamSent(accountId, after),
+                transferLogRepository.streamReceived(accountId, after));
+    }
+
+    /**
+     * @param createdAt epoch millis, transfers created at or before it are not read
+     */
+    private Transfers transfersCreatedAfter(Long accountId, long createdAt) {
+        return new Transfers(transferLogRepository.streamSentAfter(accountId, createdAt),
+                transferLogRepository.streamReceivedAfter(accountId, createdAt));
+    }
+
+    /**
+     * @return balance change of the account without the fee, minor units of its currency
+     */
+    private long change(Long accountId, LoggedTransfer transfer) {
+        long change = 0;
+        if (accountId.equals(transfer.toAccountId())) {
+            change += transfer.credit();
+        }
+        if (accountId.equals(transfer.fromAccountId())) {
+            change -= Money.toMinor(transfer.amount(), transfer.fromCurrency());
+        }
+        return change;
+    }
+
+    private long fee(Long accountId, LoggedTransfer transfer) {
+        return accountId.equals(transfer.fromAccountId()) ? Money.toMinor(transfer.fee(), transfer.fromCurrency()) : 0;
+    }
+
+    private StatementLine line(LoggedTransfer transfer, Currency currency, long change, long fee, long balance) {
+        StatementLine line = new StatementLine();
+        line.setId(transfer.id());
+        line.setCreatedAt(transfer.createdAt() == null ? null : Instant.ofEpochMilli(transfer.createdAt()).toString());
+        line.setFromAccountId(transfer.fromAccountId());
+        line.setToAccountId(transfer.toAccountId());
+        line.setAmount(Money.toDecimal(change, currency));
+        line.setFee(Money.toDecimal(fee, currency));
+        line.setCurrency(currency);
+        line.setBalance(Money.toDecimal(balance, currency));
+        return line;
+    }
+
+    private void writeLine(Writer writer, StatementFormatEnum format, StatementLine line) throws IOException {
+        if (format == StatementFormatEnum.NDJSON) {
+            writer.write(JsonUtils.toJson(line));
+        } else {
+            writer.write(String.valueOf(line.getId()));
+            writer.write(',');
+            writer.write(line.getCreatedAt() == null ? "" : line.getCreatedAt());
+            writer.write(',');
+            writer.write(String.valueOf(line.getFromAccountId()));
+            writer.write(',');
+            writer.write(String.valueOf(line.getToAccountId()));
+            writer.write(',');
+            writer.write(line.getAmount().toPlainString());
+            writer.write(',');
+            writer.write(line.getFee().toPlainString());
+            writer.write(',');
+            writer.write(line.getCurrency().name());
+            writer.write(',');
+            writer.write(line.getBalance().toPlainString());
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * sent and received transfers of an account above a cursor or created after a point in time,
+     * merged by id ascending, a transfer to the account itself once
+     */
+    private final class Transfers implements Iterator<LoggedTransfer>, AutoCloseable {
+        private final Stream<LoggedTransfer> sentStream;
+        private final Stream<LoggedTransfer> receivedStream;
+        private final Iterator<LoggedTransfer> sent;
+        private final Iterator<LoggedTransfer> received;
+        private LoggedTransfer nextSent;
+        private LoggedTransfer nextReceived;
+
+        private Transfers(Stream<LoggedTransfer> sentStream, Stream<LoggedTransfer> receivedStream) {
+            this.sentStream = sentStream;
+            this.receivedStream = receivedStream;
+            sent = sentStream.iterator();
+            received = receivedStream.iterator();
+            nextSent = sent.hasNext() ? sent.next() : null;
+            nextReceived = received.hasNext() ? received.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextSent != null || nextReceived != null;
+        }
+
+        @Override
+        public LoggedTransfer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            LoggedTransfer next;
+            if (nextReceived == null || (nextSent != null && nextSent.id() <= nextReceived.id())) {
+                next = nextSent;
+                if (nextReceived != null && nextReceived.id().equals(nextSent.id())) {
+                    nextReceived = received.hasNext() ? received.next() : null;
+                }
+                nextSent = sent.hasNext() ? sent.next() : null;
+            } else {
+                next = nextReceived;
+                nextReceived = received.hasNext() ? received.next() : null;
+            }
+            return next;
+        }
+
+        @Override
+        public void close() {
+            try {
+                sentStream.close();
+            } finally {
+                receivedStream.close();
+            }
+        }
+    }
+}
@@ -1,29 +1,62 @@
 package org.example.transfer.service.impl;
 
-import jakarta.transaction.Transactional;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.OptimisticLockException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.example.transfer.clearing.ClearingEngine;
 import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.comm.enums.LockStrategyEnum;
 import org.example.transfer.comm.enums.TransferTypeEnum;
+import org.example.transfer.config.BatchConfig;
+import org.example.transfer.config.ClearingConfig;
+import org.example.transfer.config.GroupCommitConfig;
+import org.example.transfer.config.HistoryConfig;
+import org.example.transfer.config.LedgerConfig;
+import org.example.transfer.config.NettingConfig;
 import org.example.transfer.exception.BusinessException;
 import org.example.transfer.executor.CircuitBreakerExecutor;
+import org.example.transfer.executor.GroupCommitExecutor;
 import org.example.transfer.executor.IdempotentExecutor;
+import org.example.transfer.executor.KeyedSerialExecutor;
+import org.example.transfer.executor.LockStrategySelector;
 import org.example.transfer.executor.OptimisticRetryExecutor;
 import org.example.transfer.executor.RateLimiterExecutor;
+import org.example.transfer.executor.TransferTaskExecutor;
+import org.example.transfer.handler.AccountBalanceUpdater;
 import org.example.transfer.handler.TransferHandlerFactory;
+import org.example.transfer.idempotent.IdempotencyOutcome;
+import org.example.transfer.ledger.LedgerEngine;
 import org.example.transfer.model.Account;
 import org.example.transfer.params.req.TransferRequest;
+import org.example.transfer.params.resp.BatchTransferResult;
+import org.example.transfer.params.resp.TransferHistoryResult;
+import org.example.transfer.params.resp.TransferLogResult;
+import org.example.transfer.params.resp.TransferStatusResult;
+import org.example.transfer.queue.TransferQueue;
 import org.example.transfer.repository.AccountRepository;
 import org.example.transfer.repository.FxRateRepository;
 import org.example.transfer.repository.TransferLogRepository;
 import org.example.transfer.service.TransferService;
+import org.example.transfer.util.FutureUtils;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -58,6 +91,56 @@ public class TransferServiceImpl implements TransferService {
     @Autowired
     private TransferHandlerFactory transferHandlerFactory;
 
+    @Autowired
+    private LedgerConfig ledgerConfig;
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Autowired
+    private LockStrategySelector lockStrategySelector;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BatchConfig batchConfig;
+
+    @Autowired
+    private TransferQueue transferQueue;
+
+    @Autowired
+    private TransferTaskExecutor transferTaskExecutor;
+
+    @Autowired
+    private KeyedSerialExecutor keyedSerialExecutor;
+
+    @Autowired
+    private GroupCommitConfig groupCommitConfig;
+
+    @Autowired
+    private GroupCommitExecutor groupCommitExecutor;
+
+    @Autowired
+    private NettingConfig nettingConfig;
+
+    @Autowired
+    private ClearingConfig clearingConfig;
+
+    @Autowired
+    private ClearingEngine clearingEngine;
+
+    @Autowired
+    private AccountBalanceUpdater balanceUpdater;
+
+    @Autowired
+    private HistoryConfig historyConfig;
+
+    @PostConstruct
+    public void init() {
+        groupCommitExecutor.setHandler(this::applyGroup);
+    }
+
     @Override
     public void transfer(TransferRequest request) {
 //        String lockKey = String.format("transfer-lock:%d-%d",
@@ -73,18 +156,421 @@ public class TransferServiceImpl implements TransferService {
 
         idempotentExecutor.execute(request.getRequestId(), () ->
                 rateLimiterExecutor.execute(() ->
-                        circuitBreakerExecutor.execute(() ->
-                                retryExecutor.executeWithRetry(() ->
-                                        doTransfer(request)))));
+                        process(request)));
+    }
+
+    @Override
+    public void process(TransferRequest request) {
+        if (ledgerConfig.isEnabled()) {
+            // in-memory ledger, single writer per account, no optimistic retry
+            circuitBreakerExecutor.execute(() ->
+                    ledgerEngine.transfer(request));
+            return;
+        }
+
+        if (clearingConfig.isEnabled()) {
+            // settled with the other transfers of the clearing cycle, by net position
+            circuitBreakerExecutor.execute(() ->
+                    FutureUtils.join(clearingEngine.submit(request)));
+            return;
+        }
+
+        if (groupCommitConfig.isEnabled()) {
+            // one transaction for all transfers arriving within the window
+            circuitBreakerExecutor.execute(() ->
+                    FutureUtils.join(groupCommitExecutor.submit(request)));
+            return;
+        }
+
+        LockStrategyEnum lockStrategy = lockStrategySelector.select();
+        if (lockStrategy == LockStrategyEnum.SERIAL) {
+            // one lane per account pair, the row locks only wait for transfers of other lanes sharing an account
+            circuitBreakerExecutor.execute(() ->
+                    keyedSerialExecutor.execute(laneKey(request), () -> {
+                        doTransactionalTransfer(request, true);
+                        return null;
+                    }));
+            return;
+        }
+        if (lockStrategy != LockStrategyEnum.OPTIMISTIC) {
+            // PESSIMISTIC: row locks in id order, concurrent transfers wait for each other instead of retry
+            // ATOMIC: conditional balance updates, nothing to retry
+            boolean lockAccounts = lockStrategy == LockStrategyEnum.PESSIMISTIC;
+            circuitBreakerExecutor.execute(() ->
+                    doTransactionalTransfer(request, lockAccounts));
+            return;
+        }
+
+        circuitBreakerExecutor.execute(() ->
+                retryExecutor.executeWithRetry(() ->
+                        doOptimisticTransfer(request), request.getFromId(), request.getToId()));
+    }
+
+    @Override
+    public CompletableFuture<Void> transferAsync(TransferRequest request) {
+        return idempotentExecutor.executeAsync(request.getRequestId(), () ->
+                rateLimiterExecutor.executeAsync(() ->
+                        processAsync(request)));
+    }
+
+    /**
+     * same as {@link #process}, db attempts run on the transfer task executor and retries wait on its timer
+     */
+    private CompletableFuture<Void> processAsync(TransferRequest request) {
+        if (ledgerConfig.isEnabled()) {
+            return circuitBreakerExecutor.executeAsync(() ->
+                    ledgerEngine.submit(request));
+        }
+
+        if (clearingConfig.isEnabled()) {
+            return circuitBreakerExecutor.executeAsync(() ->
+                    clearingEngine.submit(request));
+        }
+
+        if (groupCommitConfig.isEnabled()) {
+            return circuitBreakerExecutor.executeAsync(() ->
+                    groupCommitExecutor.submit(request));
+        }
+
+        LockStrategyEnum lockStrategy = lockStrategySelector.select();
+        if (lockStrategy == LockStrategyEnum.SERIAL) {
+            return circuitBreakerExecutor.executeAsync(() ->
+                    keyedSerialExecutor.submit(laneKey(request), () -> {
+                        doTransactionalTransfer(request, true);
+                        return null;
+                    }));
+        }
+        if (lockStrategy != LockStrategyEnum.OPTIMISTIC) {
+            boolean lockAccounts = lockStrategy == LockStrategyEnum.PESSIMISTIC;
+            return circuitBreakerExecutor.executeAsync(() ->
+                    transferTaskExecutor.supply(() -> {
+                        doTransactionalTransfer(request, lockAccounts);
+                        return null;
+                    }));
+        }
+
+        return circuitBreakerExecutor.executeAsync(() ->
+                retryExecutor.executeWithRetryAsync(() -> {
+                    doOptimisticTransfer(request);
+                    return null;
+                }, request.getFromId(), request.getToId()));
+    }
+
+    @Override
+    public void submit(TransferRequest request) {
+        IdempotencyOutcome duplicate = idempotentExecutor.begin(request.getRequestId());
+        if (duplicate != null) {
+            if (duplicate.status() == IdempotencyOutcome.Status.SUCCESS) {
+                return;
+            }
+            throw new BusinessException(duplicate.errorCode(), duplicate.errorMsg());
+        }
+
+        try {
+            transferQueue.offer(request);
+        } catch (RuntimeException e) {
+            idempotentExecutor.release(request.getRequestId());
+            throw e;
+        }
+    }
+
+    @Override
+    public TransferStatusResult getStatus(String requestId) {
+        IdempotencyOutcome outcome = idempotentExecutor.get(requestId);
+        if (outcome == null) {
+            throw new BusinessException(ExceptionEnum.NOT_FOUND.getErrorCode(),
+                    String.format("transfer not found, requestId: %s", requestId));
+        }
+        return TransferStatusResult.of(requestId, outcome);
+    }
+
+    /**
+     * 1. one page of sent and one of received ids, each a range scan of its own (account, id, createdAt) index,
+     * or of its (account, createdAt, id) index when a time range is given
+     * 2. merge both by id descending and keep the first limit
+     * 3. read the rows of the kept ids by primary key
+     * <p>
+     * limit + 1 ids are read from each side so the next cursor is known without a count
+     */
+    @Override
+    public TransferHistoryResult getTransfers(Long accountId, Long cursor, Instant since, Instant until, Integer limit) {
+        int pageSize = limit == null ? historyConfig.getDefaultLimit() : limit;
+        if (pageSize < 1 || pageSize > historyConfig.getMaxLimit()) {
+            throw new BusinessException(ExceptionEnum.PARAM_ILLEGAL.getErrorCode(),
+                    String.format("limit must be between 1 and %d", historyConfig.getMaxLimit()));
+        }
+        if (since != null && until != null && !since.isBefore(until)) {
+            throw new BusinessException(ExceptionEnum.PARAM_ILLEGAL.getErrorCode(), "since must be before until");
+        }
+        if (!accountRepository.existsById(accountId)) {
+            throw new BusinessException(ExceptionEnum.USER_NOT_EXIST.getErrorCode(),
+                    String.format("account not exist, accountId: %d", accountId));
+        }
+
+        // 1. sent and received ids, from the indexes alone
+        long before = cursor == null ? Long.MAX_VALUE : cursor;
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<Long> sent;
+        List<Long> received;
+        if (since == null && until == null) {
+            sent = transferLogRepository.findSentIds(accountId, before, page);
+            received = transferLogRepository.findReceivedIds(accountId, before, page);
+        } else {
+            long sinceMillis = since == null ? 0L : since.toEpochMilli();
+            long untilMillis = until == null ? Long.MAX_VALUE : until.toEpochMilli();
+            sent = transferLogRepository.findSentIdsBetween(accountId, before, sinceMillis, untilMillis, page);
+            received = transferLogRepository.findReceivedIdsBetween(accountId, before, sinceMillis, untilMillis, page);
+        }
+
+        // 2. merge, a transfer to the account itself is in both pages
+        List<Long> ids = new ArrayList<>(pageSize);
+        int i = 0;
+        int j = 0;
+        boolean more = false;
+        while (i < sent.size() || j < received.size()) {
+            Long next;
+            if (j >= received.size() || (i < sent.size() && sent.get(i) >= received.get(j))) {
+                next = sent.get(i++);
+                if (j < received.size() && received.get(j).equals(next)) {
+                    j++;
+                }
+            } else {
+                next = received.get(j++);
+            }
+            if (ids.size() == pageSize) {
+                more = true;
+                break;
+            }
+            ids.add(next);
+        }
 
+        // 3. rows of the page only
+        List<TransferLogResult> transfers = ids.isEmpty() ? new ArrayList<>()
+                : transferLogRepository.findTransfers(ids).stream().map(TransferLogResult::of).toList();
+
+        TransferHistoryResult result = new TransferHistoryResult();
+        result.setTransfers(transfers);
+        result.setNextCursor(more ? ids.get(ids.size() - 1) : null);
+        return result;
     }
 
-    @Transactional
-    public void doTransfer(TransferRequest request) {
+    @Override
+    public List<BatchTransferResult> batchTransfer(List<TransferRequest> requests) {
+        String traceId = MDC.get("traceId");
+        if (requests.size() > batchConfig.getMaxSize()) {
+            log.error("traceId:{}, batch size exceeded, size:[{}], maxSize:[{}]",
+                    traceId, requests.size(), batchConfig.getMaxSize());
+            throw new BusinessException(ExceptionEnum.PARAM_ILLEGAL.getErrorCode(),
+                    String.format("batch size must not exceed %d", batchConfig.getMaxSize()));
+        }
+
+        // one permit and one circuit breaker call per batch, not per transfer
+        BatchTransferResult[] results = new BatchTransferResult[requests.size()];
+        rateLimiterExecutor.execute(() ->
+                circuitBreakerExecutor.execute(() ->
+                        doBatchTransfer(requests, results, traceId)));
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 1. idempotent check of every requestId
+     * 2. sort by account pair, transfers of the same accounts are applied next to each other
+     * 3. apply in chunks, one transaction per chunk
+     */
+    private void doBatchTransfer(List<TransferRequest> requests, BatchTransferResult[] results, String traceId) {
+        // 1. idempotent check
+        List<Integer> accepted = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            String requestId = requests.get(i).getRequestId();
+            IdempotencyOutcome duplicate = idempotentExecutor.begin(requestId);
+            if (duplicate == null) {
+                accepted.add(i);
+            } else if (duplicate.status() == IdempotencyOutcome.Status.SUCCESS) {
+                results[i] = BatchTransferResult.success(requestId);
+            } else {
+                results[i] = BatchTransferResult.fail(requestId, duplicate.errorCode(), duplicate.errorMsg());
+            }
+        }
+
+        if (ledgerConfig.isEnabled()) {
+            ledgerBatchTransfer(requests, accepted, results, traceId);
+            return;
+        }
+
+        // 2. sort by account pair
+        accepted.sort(Comparator.<Integer>comparingLong(i -> Math.min(requests.get(i).getFromId(), requests.get(i).getToId()))
+                .thenComparingLong(i -> Math.max(requests.get(i).getFromId(), requests.get(i).getToId()))
+                .thenComparingInt(i -> i));
+
+        // 3. apply in chunks
+        for (int start = 0; start < accepted.size(); start += batchConfig.getChunkSize()) {
+            List<Integer> chunk = accepted.subList(start, Math.min(start + batchConfig.getChunkSize(), accepted.size()));
+            applyChunk(requests, chunk, results, traceId);
+            for (int i : chunk) {
+                completeBatchItem(results[i]);
+            }
+        }
+    }
+
+    /**
+     * apply a group commit in one transaction, same as a batch chunk
+     * <p>
+     * the callers' requestIds are checked and completed by {@link #transfer}, not here.
+     *
+     * @return one result per transfer, in request order
+     */
+    private List<BatchTransferResult> applyGroup(List<TransferRequest> requests) {
+        String traceId = MDC.get("traceId");
+        List<Integer> group = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            group.add(i);
+        }
+        BatchTransferResult[] results = new BatchTransferResult[requests.size()];
+        applyChunk(requests, group, results, traceId);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * apply a chunk of transfers in one transaction
+     * <p>
+     * all accounts of the chunk are locked up front in ascending id order, so concurrent batches never deadlock.
+     * a failed transfer is only reported, it changes nothing and the rest of the chunk goes on.
+     * with netting, each account pair's net change is written once at the end, see {@link AccountBalanceUpdater#netted}.
+     * balance updates and transfer logs are flushed at commit, in jdbc batches.
+     */
+    private void applyChunk(List<TransferRequest> requests, List<Integer> chunk, BatchTransferResult[] results, String traceId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<Long> accountIds = new TreeSet<>();
+                for (int i : chunk) {
+                    accountIds.add(requests.get(i).getFromId());
+                    accountIds.add(requests.get(i).getToId());
+                }
+                Map<Long, Account> accountMap = accountRepository.findAllByIdForUpdate(accountIds).stream()
+                        .collect(Collectors.toMap(Account::getId, Function.identity()));
+
+                if (nettingConfig.isEnabled()) {
+                    balanceUpdater.netted(() -> applyEach(requests, chunk, accountMap, results, traceId));
+                } else {
+                    applyEach(requests, chunk, accountMap, results, traceId);
+                }
+            });
+        } catch (RuntimeException e) {
+            // rolled back, nothing of the chunk is applied
+            log.error("traceId:{}, batch chunk failed, size:[{}]", traceId, chunk.size(), e);
+            BusinessException error = e instanceof BusinessException
+                    ? (BusinessException) e
+                    : new BusinessException(ExceptionEnum.SERVER_BUSY.getErrorCode(), ExceptionEnum.SERVER_BUSY.getErrorMsg());
+            for (int i : chunk) {
+                results[i] = BatchTransferResult.fail(requests.get(i).getRequestId(), error.getErrorCode(), error.getErrorMsg());
+            }
+        }
+    }
+
+    private Void applyEach(List<TransferRequest> requests, List<Integer> chunk, Map<Long, Account> accountMap,
+                           BatchTransferResult[] results, String traceId) {
+        for (int i : chunk) {
+            TransferRequest request = requests.get(i);
+            try {
+                checkUser(request.getFromId(), request.getToId(), accountMap, traceId);
+                applyTransfer(request, accountMap, traceId);
+                results[i] = BatchTransferResult.success(request.getRequestId());
+            } catch (BusinessException e) {
+                results[i] = BatchTransferResult.fail(request.getRequestId(), e.getErrorCode(), e.getErrorMsg());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * batch on the in-memory ledger engine, all transfers are submitted before waiting
+     */
+    private void ledgerBatchTransfer(List<TransferRequest> requests, List<Integer> accepted, BatchTransferResult[] results, String traceId) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(accepted.size());
+        for (int i : accepted) {
+            try {
+                futures.add(ledgerEngine.submit(requests.get(i)));
+            } catch (BusinessException e) {
+                futures.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        for (int k = 0; k < accepted.size(); k++) {
+            int i = accepted.get(k);
+            String requestId = requests.get(i).getRequestId();
+            try {
+                futures.get(k).join();
+                results[i] = BatchTransferResult.success(requestId);
+            } catch (CompletionException e) {
+                BusinessException error = e.getCause() instanceof BusinessException
+                        ? (BusinessException) e.getCause()
+                        : new BusinessException(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorMsg());
+                log.error("traceId:{}, batch ledger transfer failed, requestId:[{}]", traceId, requestId, e.getCause());
+                results[i] = BatchTransferResult.fail(requestId, error.getErrorCode(), error.getErrorMsg());
+            }
+            completeBatchItem(results[i]);
+        }
+    }
+
+    private void completeBatchItem(BatchTransferResult result) {
+        if (result.isSuccess()) {
+            idempotentExecutor.complete(result.getRequestId(), IdempotencyOutcome.SUCCESS);
+        } else if (idempotentExecutor.isRetryable(result.getErrorCode())) {
+            idempotentExecutor.release(result.getRequestId());
+        } else {
+            idempotentExecutor.complete(result.getRequestId(), IdempotencyOutcome.failed(result.getErrorCode(), result.getErrorMsg()));
+        }
+    }
+
+    /**
+     * one optimistic attempt, conflicts are recorded for ADAPTIVE lock strategy
+     */
+    private void doOptimisticTransfer(TransferRequest request) {
+        try {
+            // one transaction, both balances and the log commit together also off the request thread (no open session)
+            transactionTemplate.executeWithoutResult(status -> doTransfer(request, false));
+            lockStrategySelector.recordOptimisticAttempt(false);
+        } catch (ObjectOptimisticLockingFailureException | OptimisticLockException e) {
+            lockStrategySelector.recordOptimisticAttempt(true);
+            throw e;
+        }
+    }
+
+    /**
+     * SERIAL lane key, both directions between two accounts share a lane
+     */
+    private static long laneKey(TransferRequest request) {
+        return Math.min(request.getFromId(), request.getToId());
+    }
+
+    /**
+     * transfer in one transaction
+     *
+     * @param request      money transfer request
+     * @param lockAccounts lock both accounts before transfer
+     */
+    private void doTransactionalTransfer(TransferRequest request, boolean lockAccounts) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> doTransfer(request, lockAccounts));
+        } catch (PessimisticLockingFailureException e) {
+            log.error("traceId:{}, acquire account lock failed, from:[{}], to:[{}]",
+                    MDC.get("traceId"), request.getFromId(), request.getToId(), e);
+            throw new BusinessException(ExceptionEnum.SERVER_BUSY.getErrorCode(), ExceptionEnum.SERVER_BUSY.getErrorMsg());
+        }
+    }
+
+    private void doTransfer(TransferRequest request, boolean lockAccounts) {
         String traceId = MDC.get("traceId");
 
         // 1. check user
-        Map<Long, Account> accountMap = checkUser(request.getFromId(), request.getToId(), traceId);
+        Map<Long, Account> accountMap = checkUser(request.getFromId(), request.getToId(), lockAccounts, traceId);
+        applyTransfer(request, accountMap, traceId);
+    }
+
+    /**
+     * check currency and transfer between loaded accounts
+     */
+    private void applyTransfer(TransferRequest request, Map<Long, Account> accountMap, String traceId) {
         Account from = accountMap.get(request.getFromId());
         Account to = accountMap.get(request.getToId());
 
@@ -99,26 +585,41 @@ public class TransferServiceImpl implements TransferService {
         TransferTypeEnum type = to.getCurrency().equals(request.getTransferCurrency())
                 ? TransferTypeEnum.SAME
                 : TransferTypeEnum.DIFFERENT;
-        transferHandlerFactory.getHandler(type).transfer(from, to, request.getAmount());
+        transferHandlerFactory.getHandler(type).transfer(from, to, request.getAmount(), request.getRequestId());
     }
 
     /**
      * check user
      *
-     * @param fromId  sender
-     * @param toId    receiver
-     * @param traceId uuid
+     * @param fromId       sender
+     * @param toId         receiver
+     * @param lockAccounts select for update, in ascending id order
+     * @param traceId      uuid
      * @return Map<userId, Account>
      */
-    private Map<Long, Account> checkUser(Long fromId, Long toId, String traceId) {
+    private Map<Long, Account> checkUser(Long fromId, Long toId, boolean lockAccounts, String traceId) {
+        List<Account> accounts = lockAccounts
+                ? accountRepository.findAllByIdForUpdate(Arrays.asList(fromId, toId))
+                : accountRepository.findAllById(Arrays.asList(fromId, toId));
+        Map<Long, Account> accountMap = accounts.stream().collect(Collectors.toMap(Account::getId, Function.identity()));
+        checkUser(fromId, toId, accountMap, traceId);
+        return accountMap;
+    }
+
+    /**
+     * check user in loaded accounts
+     *
+     * @param fromId     sender
+     * @param toId       receiver
+     * @param accountMap Map<userId, Account>
+     * @param traceId    uuid
+     */
+    private void checkUser(Long fromId, Long toId, Map<Long, Account> accountMap, String traceId) {
         if (fromId.equals(toId)) {
             log.warn("traceId:{}, same account transfer not allowed, from:[{}], to:[{}]",
                     traceId, fromId, toId);
             throw new BusinessException(ExceptionEnum.PARAM_ILLEGAL.getErrorCode(), "same account transfer not allowed");
         }
-
-        List<Account> accounts = accountRepository.findAllById(Arrays.asList(fromId, toId));
-        Map<Long, Account> accountMap = accounts.stream().collect(Collectors.toMap(Account::getId, Function.identity()));
         if (accountMap.get(fromId) == null) {
             log.error("traceId:{}, sender account not exist, from:[{}]", traceId, fromId);
             throw new BusinessException(ExceptionEnum.USER_NOT_EXIST.getErrorCode(), "from account not exist");
@@ -127,6 +628,5 @@ public class TransferServiceImpl implements TransferService {
             log.error("traceId:{}, receiver account not exist, to:[{}]", traceId, fromId);
             throw new BusinessException(ExceptionEnum.USER_NOT_EXIST.getErrorCode(), "to account not exist");
         }
-        return accountMap;
     }
 }
\ No newline at end of file
@@ -0,0 +1,143 @@
+-- MySQL 8 schema of the transfer service, application-prod.yml validates it (ddl-auto: validate), nothing creates it.
+-- run once, by hand or from the deploy, before the first start of this version:
+-- 1. on a new database it creates every table
+-- 2. on a database of the first release (account, fx_rate, transfer_log with identity ids) it adds what is new
+-- generated from the entities with the MySQL dialect, keep it in step with them.
+
+-- 1. tables of the first release, skipped when present
+
+CREATE TABLE IF NOT EXISTS account (
+    balance decimal(38,2),
+    id bigint not null auto_increment,
+    version bigint,
+    name varchar(255),
+    currency enum ('USD','JPN','AUD','CNY','EUR'),
+    primary key (id)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS fx_rate (
+    rate decimal(38,2),
+    id bigint not null auto_increment,
+    from_currency enum ('USD','JPN','AUD','CNY','EUR'),
+    to_currency enum ('USD','JPN','AUD','CNY','EUR'),
+    primary key (id)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS transfer_log (
+    amount decimal(38,2),
+    fee decimal(38,2),
+    fx_rate decimal(38,2),
+    from_account_id bigint,
+    id bigint not null auto_increment,
+    to_account_id bigint,
+    from_currency enum ('USD','JPN','AUD','CNY','EUR'),
+    to_currency enum ('USD','JPN','AUD','CNY','EUR'),
+    primary key (id)
+) engine=InnoDB;
+
+-- 2. transfer_log: columns and indexes of this release, one rebuild.
+-- fx_rate keeps Money.RATE_SCALE digits, a derived rate rounded to 2 would credit the wrong amount.
+-- the column type change copies the table and blocks writes while it runs, plan a window on a large transfer_log.
+-- rows of the first release keep created_at null, time-bounded history and statements from a snapshot skip them
+
+ALTER TABLE transfer_log
+    MODIFY fx_rate decimal(38,10),
+    ADD COLUMN created_at bigint,
+    ADD COLUMN journal_seq bigint,
+    ADD COLUMN request_key varchar(32),
+    ADD INDEX idx_transfer_log_journal_seq (journal_seq),
+    ADD INDEX idx_transfer_log_created_at (created_at, id),
+    ADD INDEX idx_transfer_log_from (from_account_id, id, created_at),
+    ADD INDEX idx_transfer_log_to (to_account_id, id, created_at),
+    ADD INDEX idx_transfer_log_from_created_at (from_account_id, created_at, id),
+    ADD INDEX idx_transfer_log_to_created_at (to_account_id, created_at, id),
+    ADD INDEX idx_transfer_log_request_key (request_key);
+
+-- 3. id sequences of transfer.id.*=POOLED, one row table per sequence on MySQL.
+-- ids are assigned before the insert from here on, the sequences start above the identity ids already used
+
+CREATE TABLE account_seq (
+    next_val bigint
+) engine=InnoDB;
+
+INSERT INTO account_seq SELECT COALESCE(MAX(id), 0) + 1 FROM account;
+
+CREATE TABLE transfer_log_seq (
+    next_val bigint
+) engine=InnoDB;
+
+INSERT INTO transfer_log_seq SELECT COALESCE(MAX(id), 0) + 1 FROM transfer_log;
+
+-- 4. tables of this release, validated whether their feature is on or not
+
+-- write-behind journal positions committed with each transaction, transfer.transfer-log.write-behind
+CREATE TABLE transfer_log_commit (
+    first_seq bigint not null,
+    last_seq bigint,
+    primary key (first_seq)
+) engine=InnoDB;
+
+-- append-only credits, transfer.credit-delta.enabled
+CREATE TABLE balance_delta (
+    amount decimal(38,2),
+    account_id bigint,
+    id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+CREATE INDEX idx_balance_delta_account ON balance_delta (account_id);
+
+CREATE TABLE balance_delta_seq (
+    next_val bigint
+) engine=InnoDB;
+
+INSERT INTO balance_delta_seq VALUES (1);
+
+-- hot account balance slots, transfer.hot-account.account-ids
+CREATE TABLE account_balance_slot (
+    balance decimal(38,2),
+    slot integer,
+    account_id bigint,
+    id bigint not null auto_increment,
+    primary key (id)
+) engine=InnoDB;
+
+CREATE INDEX idx_account_balance_slot_account ON account_balance_slot (account_id);
+
+ALTER TABLE account_balance_slot ADD CONSTRAINT uk_account_balance_slot UNIQUE (account_id, slot);
+
+-- completed requests, transfer.idempotency.persistent
+CREATE TABLE idempotency_record (
+    expire_at bigint,
+    key_hash varchar(32) not null,
+    error_code varchar(255),
+    error_msg varchar(255),
+    status enum ('IN_PROGRESS','SUCCESS','FAILED'),
+    primary key (key_hash)
+) engine=InnoDB;
+
+CREATE INDEX idx_idempotency_expire_at ON idempotency_record (expire_at);
+
+-- journal position of each consumer, transfer.journal.enabled
+CREATE TABLE journal_checkpoint (
+    seq bigint,
+    consumer varchar(32) not null,
+    primary key (consumer)
+) engine=InnoDB;
+
+-- balance snapshots, transfer.snapshot.enabled
+CREATE TABLE balance_snapshot (
+    accounts integer,
+    created_at bigint,
+    id bigint not null auto_increment,
+    logs_until bigint,
+    primary key (id)
+) engine=InnoDB;
+
+CREATE TABLE balance_snapshot_entry (
+    balance decimal(38,2),
+    account_id bigint not null,
+    snapshot_id bigint not null,
+    currency enum ('USD','JPN','AUD','CNY','EUR'),
+    primary key (account_id, snapshot_id)
+) engine=InnoDB;
@@ -0,0 +1,103 @@
+package org.example.transfer.benchmark;
+
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.recovery.BalanceFold;
+import org.example.transfer.recovery.LoggedTransfer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * balance rebuild over a history of 10M transfer log rows, from a snapshot vs from the start
+ * <p>
+ * one op: fold the logs after the snapshot, tail rows out of 10M, in pages of 100k as read from transfer_log.
+ * tail = 10M is a rebuild without a snapshot. the db read is not measured, pages are built once and reused
+ * round robin to keep the heap small. a quarter of the transfers are USD -> AUD at rate 2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class BalanceRebuildBenchmark {
+
+    private static final int PAGE_SIZE = 100_000;
+
+    private static final int DISTINCT_PAGES = 8;
+
+    @Param({"100000", "1000000", "10000000"})
+    private int tail;
+
+    @Param({"100000"})
+    private int accounts;
+
+    @Param({"1", "64"})
+    private int partitions;
+
+    private long[] accountIds;
+
+    private List<List<LoggedTransfer>> pages;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        accountIds = new long[accounts];
+        for (int a = 0; a < accounts; a++) {
+            accountIds[a] = a + 1;
+        }
+        BigDecimal rate = new BigDecimal("2");
+        pages = new ArrayList<>(DISTINCT_PAGES);
+        long id = 0;
+        for (int p = 0; p < DISTINCT_PAGES; p++) {
+            List<LoggedTransfer> page = new ArrayList<>(PAGE_SIZE);
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                long from = random.nextInt(accounts) + 1;
+                long to = (from + random.nextInt(1, accounts)) % accounts + 1;
+                long amount = random.nextLong(1, 1_000_000);
+                boolean fx = random.nextInt(4) == 0;
+                page.add(new LoggedTransfer(++id, id, from, to,
+                        BigDecimal.valueOf(amount, 2), BigDecimal.valueOf((amount + 50) / 100, 2),
+                        fx ? rate : BigDecimal.ONE, Currency.USD, fx ? Currency.AUD : Currency.USD));
+            }
+            pages.add(page);
+        }
+    }
+
+    /**
+     * @return net change of every account
+     */
+    @Benchmark
+    public long[] rebuild() {
+        BalanceFold fold = new BalanceFold(accountIds, partitions);
+        for (int p = 0; p < tail / PAGE_SIZE; p++) {
+            fold.fold(pages.get(p % DISTINCT_PAGES), ForkJoinPool.commonPool());
+        }
+        return fold.net();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BalanceRebuildBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.transfer.benchmark;
+
+import org.example.transfer.cache.FxRateGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * fx rate lookup benchmark
+ * <p>
+ * n currencies, only pivot(0) -> i configured, every other pair is an inverse or cross rate.
+ * precomputed: matrix lookup, cost stays flat as n grows.
+ * walk: breadth-first search per lookup, cost grows with n.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FxRateLookupBenchmark {
+
+    @Param({"5", "50", "500"})
+    private int currencies;
+
+    private BigDecimal[][] direct;
+
+    private BigDecimal[][] precomputed;
+
+    private int[] froms;
+
+    private int[] tos;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        direct = new BigDecimal[currencies][currencies];
+        FxRateGraph graph = new FxRateGraph(currencies);
+        for (int i = 1; i < currencies; i++) {
+            direct[0][i] = BigDecimal.valueOf(i + 1);
+            graph.addRate(0, i, direct[0][i]);
+        }
+        precomputed = graph.resolve();
+
+        SplittableRandom random = new SplittableRandom(42);
+        froms = new int[1024];
+        tos = new int[1024];
+        for (int i = 0; i < froms.length; i++) {
+            froms[i] = random.nextInt(1, currencies);
+            tos[i] = (froms[i] + random.nextInt(1, currencies)) % currencies;
+        }
+    }
+
+    @Benchmark
+    public BigDecimal precomputed() {
+        int i = cursor++ & 1023;
+        return precomputed[froms[i]][tos[i]];
+    }
+
+    @Benchmark
+    public BigDecimal walk() {
+        int i = cursor++ & 1023;
+        return walk(froms[i], tos[i]);
+    }
+
+    private BigDecimal walk(int from, int to) {
+        BigDecimal[] rates = new BigDecimal[currencies];
+        rates[from] = BigDecimal.ONE;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(from);
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            if (current == to) {
+                return rates[to].setScale(FxRateGraph.DERIVED_RATE_SCALE, RoundingMode.HALF_UP);
+            }
+            for (int next = 0; next < currencies; next++) {
+                if (rates[next] != null) {
+                    continue;
+                }
+                if (direct[current][next] != null) {
+                    rates[next] = rates[current].multiply(direct[current][next]);
+                } else if (direct[next][current] != null) {
+                    rates[next] = rates[current].divide(direct[next][current], FxRateGraph.DERIVED_RATE_SCALE, RoundingMode.HALF_UP);
+                } else {
+                    continue;
+                }
+                queue.add(next);
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FxRateLookupBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
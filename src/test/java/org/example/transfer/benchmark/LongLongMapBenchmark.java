@@ -0,0 +1,87 @@
+package org.example.transfer.benchmark;
+
+import org.example.transfer.recovery.LongLongMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * reconciliation per-account sums, primitive open addressing map vs HashMap&lt;Long, Long&gt;
+ * <p>
+ * one op: sum 10M legs (account id, amount) into one map, account ids random in 1..accounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class LongLongMapBenchmark {
+
+    private static final int LEGS = 10_000_000;
+
+    @Param({"100000", "1000000"})
+    private int accounts;
+
+    private long[] accountIds;
+
+    private long[] amounts;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        accountIds = new long[LEGS];
+        amounts = new long[LEGS];
+        for (int i = 0; i < LEGS; i++) {
+            accountIds[i] = random.nextInt(accounts) + 1;
+            amounts[i] = random.nextLong(1, 1_000_000);
+        }
+    }
+
+    /**
+     * @return sums
+     */
+    @Benchmark
+    public LongLongMap longLongMap() {
+        LongLongMap sums = new LongLongMap();
+        for (int i = 0; i < LEGS; i++) {
+            sums.add(accountIds[i], amounts[i]);
+        }
+        return sums;
+    }
+
+    /**
+     * @return sums
+     */
+    @Benchmark
+    public Map<Long, Long> hashMap() {
+        Map<Long, Long> sums = new HashMap<>();
+        for (int i = 0; i < LEGS; i++) {
+            sums.merge(accountIds[i], amounts[i], Long::sum);
+        }
+        return sums;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LongLongMapBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
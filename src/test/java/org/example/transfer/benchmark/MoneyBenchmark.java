@@ -0,0 +1,99 @@
+package org.example.transfer.benchmark;
+
+import org.example.transfer.comm.BaseConstant;
+import org.example.transfer.comm.Money;
+import org.example.transfer.comm.enums.Currency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * transfer money math benchmark
+ * <p>
+ * fee, total deduct, balance check and fx conversion of one cross-currency transfer.
+ * bigDecimal: previous handler code, double fee rate.
+ * minorUnits: {@link Money} long minor units.
+ * run with -prof gc to compare allocation per op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final double FEE_RATE = 0.01;
+
+    private BigDecimal[] amounts;
+
+    private long[] amountMinors;
+
+    private BigDecimal balance;
+
+    private long balanceMinor;
+
+    private BigDecimal rate;
+
+    private long rateUnits;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        amounts = new BigDecimal[1024];
+        amountMinors = new long[1024];
+        for (int i = 0; i < amounts.length; i++) {
+            amountMinors[i] = random.nextLong(1, 1_000_000);
+            amounts[i] = BigDecimal.valueOf(amountMinors[i], 2);
+        }
+        balance = new BigDecimal("100000.00");
+        balanceMinor = Money.toMinor(balance, Currency.USD);
+        rate = new BigDecimal("1.5234");
+        rateUnits = Money.toRateUnits(rate);
+    }
+
+    @Benchmark
+    public void bigDecimal(Blackhole blackhole) {
+        BigDecimal amount = amounts[cursor++ & 1023];
+        BigDecimal fee = amount.multiply(BigDecimal.valueOf(FEE_RATE)).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal totalDeduct = amount.add(fee).setScale(2, RoundingMode.HALF_UP);
+        blackhole.consume(balance.compareTo(totalDeduct) >= 0);
+        blackhole.consume(balance.subtract(totalDeduct));
+        blackhole.consume(amount.multiply(rate).setScale(2, RoundingMode.HALF_UP));
+    }
+
+    @Benchmark
+    public void minorUnits(Blackhole blackhole) {
+        long amount = amountMinors[cursor++ & 1023];
+        long fee = Money.fee(amount, BaseConstant.FEE_RATE_BPS);
+        long totalDeduct = Math.addExact(amount, fee);
+        blackhole.consume(balanceMinor >= totalDeduct);
+        blackhole.consume(balanceMinor - totalDeduct);
+        blackhole.consume(Money.convert(amount, Currency.USD, Currency.AUD, rateUnits));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MoneyBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
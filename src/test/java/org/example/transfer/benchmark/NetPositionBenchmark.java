@@ -0,0 +1,78 @@
+package org.example.transfer.benchmark;
+
+import org.example.transfer.clearing.NetPositions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * clearing cycle net position fold, one partition (sequential) vs many (fork/join)
+ * <p>
+ * one op: fold the net position of every account over all pending transfers of a cycle.
+ * transfers are random pairs of accounts, amounts in minor units with a 1% fee.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NetPositionBenchmark {
+
+    @Param({"1000000", "5000000"})
+    private int transfers;
+
+    @Param({"100000"})
+    private int accounts;
+
+    @Param({"1", "64"})
+    private int partitions;
+
+    private NetPositions positions;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        int[] from = new int[transfers];
+        int[] to = new int[transfers];
+        long[] debit = new long[transfers];
+        long[] credit = new long[transfers];
+        for (int i = 0; i < transfers; i++) {
+            from[i] = random.nextInt(accounts);
+            to[i] = (from[i] + random.nextInt(1, accounts)) % accounts;
+            credit[i] = random.nextLong(1, 1_000_000);
+            debit[i] = credit[i] + credit[i] / 100;
+        }
+        positions = new NetPositions(from, to, debit, credit, accounts, partitions);
+    }
+
+    /**
+     * @return net positions
+     */
+    @Benchmark
+    public long[] fold() {
+        return positions.fold(null, ForkJoinPool.commonPool());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(NetPositionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.transfer.benchmark;
+
+import org.example.transfer.TransferApplication;
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.model.Account;
+import org.example.transfer.repository.AccountRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * transfer load benchmark, platform vs virtual request threads
+ * <p>
+ * one op: clients concurrent POST /api/transfer between random accounts, until all are answered.
+ * few accounts, so optimistic conflicts back off on the retry timer while the request waits on a DeferredResult.
+ * platform: tomcat and transfer attempt threads are platform threads.
+ * virtual: one virtual thread per request and per transfer attempt worker.
+ * virtualThreads=true needs java 21+.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransferLoadBenchmark {
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    @Param({"1000"})
+    private int clients;
+
+    @Param({"100"})
+    private int accounts;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient httpClient;
+
+    private URI transferUri;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if (virtualThreads && !JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            throw new IllegalStateException("virtual threads need java 21+, running " + JavaVersion.getJavaVersion());
+        }
+        context = new SpringApplicationBuilder(TransferApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=error",
+                        "resilience4j.ratelimiter.instances.transferRateLimiter.limitForPeriod=100000000",
+                        "resilience4j.circuitbreaker.instances.transferCircuitBreaker.failureRateThreshold=100",
+                        "transfer.async.journal-path=target/transfer-load-benchmark.journal")
+                .run();
+
+        AccountRepository accountRepository = context.getBean(AccountRepository.class);
+        accountRepository.deleteAllAccountsNative();
+        List<Account> seeded = new ArrayList<>();
+        for (int i = 0; i < accounts; i++) {
+            Account account = new Account();
+            account.setName("load-" + i);
+            account.setCurrency(Currency.USD);
+            account.setBalance(new BigDecimal("1000000000"));
+            seeded.add(account);
+        }
+        accountRepository.saveAll(seeded);
+
+        String port = context.getEnvironment().getProperty("local.server.port");
+        transferUri = URI.create("http://localhost:" + port + "/api/transfer");
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * @return successful transfers
+     */
+    @Benchmark
+    public long concurrentClients() {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            long fromId = random.nextInt(accounts) + 1;
+            long toId = (fromId + random.nextInt(1, accounts)) % accounts + 1;
+            String body = String.format("{\"requestId\":\"%s\",\"fromId\":%d,\"toId\":%d,\"amount\":1,\"transferCurrency\":\"USD\"}",
+                    UUID.randomUUID(), fromId, toId);
+            responses.add(httpClient.sendAsync(HttpRequest.newBuilder(transferUri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build(), HttpResponse.BodyHandlers.ofString()));
+        }
+        return responses.stream()
+                .map(CompletableFuture::join)
+                .filter(response -> response.body().contains("\"success\":true"))
+                .count();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TransferLoadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -13,8 +13,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -22,8 +25,10 @@ import java.util.Objects;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 
 @SpringBootTest
@@ -79,10 +84,10 @@ public abstract class BaseControllerTest {
             request.setAmount(BigDecimal.valueOf(amount));
             request.setTransferCurrency(currency);
 
-            String content = mockMvc.perform(post(TRANSFER_URL)
+            String content = perform(post(TRANSFER_URL)
                             .contentType(MediaType.APPLICATION_JSON)
                             .content(Objects.requireNonNull(JsonUtils.toJson(request))))
-                    .andReturn().getResponse().getContentAsString();
+                    .getContentAsString();
             return JsonUtils.fromJson(content, CommonResponse.class);
         } catch (Exception e) {
             e.printStackTrace();
@@ -90,6 +95,19 @@ public abstract class BaseControllerTest {
         }
     }
 
+    /**
+     * perform request, wait for the deferred response of an async handler
+     */
+    protected MockHttpServletResponse perform(RequestBuilder requestBuilder) throws Exception {
+        MvcResult result = mockMvc.perform(requestBuilder).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            // asyncDispatch waits 10s at most, queued retries of a 1000 request burst take longer
+            result.getAsyncResult(TimeUnit.MINUTES.toMillis(1));
+            result = mockMvc.perform(asyncDispatch(result)).andReturn();
+        }
+        return result.getResponse();
+    }
+
     protected void verifyBalance(Long accountId, BigDecimal expectedBalances) {
         accountRepository.findById(accountId).ifPresent(account ->
                 assertEquals(0, account.getBalance().compareTo(expectedBalances)));
@@ -0,0 +1,136 @@
+package org.example.transfer.controller;
+
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.comm.enums.TransferStatusEnum;
+import org.example.transfer.params.req.TransferRequest;
+import org.example.transfer.util.JsonUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * transfer controller test
+ * <p>
+ * only test async submission and status polling
+ */
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "transfer.async.enabled=true",
+        "transfer.idempotency.persistent=true"
+})
+public class TransferControllerAsyncTest extends BaseControllerTest {
+
+    private static final String PERFORMANCE_ACCOUNT_PATH = "testdata/accounts_test_performance.json";
+    private static final String PERFORMANCE_RATE_PATH = "testdata/rate_test_performance.json";
+
+    /**
+     * from money(usd): 100000 - 10 - 0.1 = 99989.90
+     * to money(usd): 500 + 10 = 510
+     */
+    @Test
+    public void testAsyncTransfer_Success() throws Exception {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+        TransferRequest request = request(1L, 2L);
+
+        Map<String, Object> accepted = submit(request);
+        assertEquals(true, accepted.get("success"));
+        assertEquals(request.getRequestId(), accepted.get("data"));
+
+        Map<String, Object> result = awaitCompleted(request.getRequestId());
+        assertEquals(TransferStatusEnum.SUCCESS.name(), result.get("status"));
+        verifyBalance(1L, new BigDecimal("99989.90"));
+        verifyBalance(2L, new BigDecimal("510"));
+    }
+
+    @Test
+    public void testAsyncTransferToNotExistUser_Failed() throws Exception {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+        TransferRequest request = request(1L, 99L);
+
+        submit(request);
+
+        Map<String, Object> result = awaitCompleted(request.getRequestId());
+        assertEquals(TransferStatusEnum.FAILED.name(), result.get("status"));
+        assertEquals(ExceptionEnum.USER_NOT_EXIST.getErrorCode(), result.get("errorCode"));
+        verifyBalance(1L, new BigDecimal("100000"));
+    }
+
+    @Test
+    public void testAsyncTransferSameReqId_Rejected() throws Exception {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+        TransferRequest request = request(1L, 2L);
+
+        submit(request);
+        awaitCompleted(request.getRequestId());
+        Map<String, Object> duplicate = submit(request);
+
+        assertEquals(false, duplicate.get("success"));
+        assertEquals(ExceptionEnum.IDEMPOTENT_REQUEST.getErrorCode(), duplicate.get("errorCode"));
+        assertEquals(1, transferLogRepository.findAll().size());
+    }
+
+    @Test
+    public void testGetUnknownTransfer_NotFound() throws Exception {
+        String content = mockMvc.perform(get(TRANSFER_URL + "/unknown"))
+                .andReturn().getResponse().getContentAsString();
+        Map<String, Object> response = JsonUtils.fromJson(content, Map.class);
+
+        assertEquals(false, response.get("success"));
+        assertEquals(ExceptionEnum.NOT_FOUND.getErrorCode(), response.get("errorCode"));
+    }
+
+    private Map<String, Object> submit(TransferRequest request) throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(post(TRANSFER_URL)
+                        .param("async", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(Objects.requireNonNull(JsonUtils.toJson(request))))
+                .andReturn().getResponse();
+        if (Boolean.TRUE.equals(JsonUtils.fromJson(response.getContentAsString(), Map.class).get("success"))) {
+            assertEquals(HttpStatus.ACCEPTED.value(), response.getStatus());
+        }
+        return JsonUtils.fromJson(response.getContentAsString(), Map.class);
+    }
+
+    /**
+     * poll status until the transfer is no longer pending, at most 10 seconds
+     */
+    private Map<String, Object> awaitCompleted(String requestId) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        Map<String, Object> result;
+        do {
+            Thread.sleep(20);
+            String content = mockMvc.perform(get(TRANSFER_URL + "/" + requestId))
+                    .andReturn().getResponse().getContentAsString();
+            result = (Map<String, Object>) JsonUtils.fromJson(content, Map.class).get("data");
+        } while (TransferStatusEnum.PENDING.name().equals(result.get("status")) && System.currentTimeMillis() < deadline);
+
+        assertNotEquals(TransferStatusEnum.PENDING.name(), result.get("status"));
+        assertTrue(result.containsKey("requestId"));
+        return result;
+    }
+
+    private TransferRequest request(Long fromId, Long toId) {
+        TransferRequest request = new TransferRequest();
+        request.setRequestId(UUID.randomUUID().toString().replace("-", ""));
+        request.setFromId(fromId);
+        request.setToId(toId);
+        request.setTransferCurrency(Currency.USD);
+        request.setAmount(BigDecimal.TEN);
+        return request;
+    }
+}
@@ -45,10 +45,10 @@ public class TransferControllerDifferentTransferTypeTest extends BaseControllerT
         request.setTransferCurrency(Currency.USD);
         request.setAmount(BigDecimal.valueOf(50));
 
-        String content = mockMvc.perform(post(TRANSFER_URL)
+        String content = perform(post(TRANSFER_URL)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(Objects.requireNonNull(JsonUtils.toJson(request))))
-                .andReturn().getResponse().getContentAsString();
+                .getContentAsString();
         CommonResponse<Void> response = JsonUtils.fromJson(content, CommonResponse.class);
 
         assertNotNull(response);
@@ -69,10 +69,10 @@ public class TransferControllerDifferentTransferTypeTest extends BaseControllerT
 
         for (int i = 0; i < 20; i++) {
             request.setRequestId(UUID.randomUUID().toString().replace("-", ""));
-            String content = mockMvc.perform(post(TRANSFER_URL)
+            String content = perform(post(TRANSFER_URL)
                             .contentType(MediaType.APPLICATION_JSON)
                             .content(Objects.requireNonNull(JsonUtils.toJson(request))))
-                    .andReturn().getResponse().getContentAsString();
+                    .getContentAsString();
             CommonResponse<Void> response = JsonUtils.fromJson(content, CommonResponse.class);
             responses.add(response);
 
@@ -142,10 +142,10 @@ public class TransferControllerDifferentTransferTypeTest extends BaseControllerT
         request.setTransferCurrency(Currency.USD);
         request.setAmount(BigDecimal.valueOf(50));
 
-        String content = mockMvc.perform(post(TRANSFER_URL)
+        String content = perform(post(TRANSFER_URL)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(Objects.requireNonNull(JsonUtils.toJson(request))))
-                .andReturn().getResponse().getContentAsString();
+                .getContentAsString();
         CommonResponse<Void> response = JsonUtils.fromJson(content, CommonResponse.class);
 
         assertNotNull(response);
@@ -0,0 +1,132 @@
+package org.example.transfer.controller;
+
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.util.JsonUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * transfer controller test
+ * <p>
+ * only test the transfer history of an account
+ */
+@AutoConfigureMockMvc
+public class TransferControllerHistoryTest extends BaseControllerTest {
+
+    private static final String PERFORMANCE_ACCOUNT_PATH = "testdata/accounts_test_performance.json";
+    private static final String PERFORMANCE_RATE_PATH = "testdata/rate_test_performance.json";
+
+    /**
+     * alice sends 3 and receives 2, pages of 2 cover all 5 newest first
+     */
+    @Test
+    public void testTransfers_Paged() throws Exception {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+        send(1L, 2L, 10, Currency.USD);
+        send(2L, 1L, 1, Currency.USD);
+        send(1L, 2L, 20, Currency.USD);
+        send(2L, 1L, 2, Currency.USD);
+        send(1L, 2L, 30, Currency.USD);
+
+        List<Map<String, Object>> transfers = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        Object cursor = null;
+        do {
+            MockHttpServletRequestBuilder request = get("/api/accounts/1/transfers").param("limit", "2");
+            if (cursor != null) {
+                request.param("cursor", String.valueOf(cursor));
+            }
+            Map<String, Object> data = data(history(request));
+            List<Map<String, Object>> page = (List<Map<String, Object>>) data.get("transfers");
+            transfers.addAll(page);
+            pageSizes.add(page.size());
+            cursor = data.get("nextCursor");
+        } while (cursor != null);
+
+        assertEquals(List.of(2, 2, 1), pageSizes);
+        assertEquals(5, transfers.size());
+        for (int i = 1; i < transfers.size(); i++) {
+            assertTrue(id(transfers.get(i - 1)) > id(transfers.get(i)));
+        }
+        assertEquals(List.of(30.0, 2.0, 20.0, 1.0, 10.0),
+                transfers.stream().map(transfer -> ((Number) transfer.get("amount")).doubleValue()).toList());
+    }
+
+    @Test
+    public void testTransfers_Received() throws Exception {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+        send(1L, 2L, 10, Currency.USD);
+        send(2L, 1L, 1, Currency.USD);
+
+        Map<String, Object> data = data(history(get("/api/accounts/2/transfers")));
+
+        List<Map<String, Object>> transfers = (List<Map<String, Object>>) data.get("transfers");
+        assertEquals(2, transfers.size());
+        assertEquals(2, ((Number) transfers.get(0).get("fromAccountId")).intValue());
+        assertEquals(2, ((Number) transfers.get(1).get("toAccountId")).intValue());
+        assertNull(data.get("nextCursor"));
+    }
+
+    @Test
+    public void testTransfers_TimeRange() throws Exception {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+        send(1L, 2L, 10, Currency.USD);
+
+        Map<String, Object> before = data(history(get("/api/accounts/1/transfers")
+                .param("until", "2020-01-01T00:00:00Z")));
+        Map<String, Object> after = data(history(get("/api/accounts/1/transfers")
+                .param("since", "2020-01-01T00:00:00Z")));
+
+        Map<String, Object> between = data(history(get("/api/accounts/2/transfers")
+                .param("since", "2020-01-01T00:00:00Z")
+                .param("until", "2999-01-01T00:00:00Z")));
+
+        assertEquals(0, ((List<?>) before.get("transfers")).size());
+        assertEquals(1, ((List<?>) after.get("transfers")).size());
+        assertEquals(1, ((List<?>) between.get("transfers")).size());
+    }
+
+    @Test
+    public void testTransfersOfNotExistUser_Failed() throws Exception {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+
+        Map<String, Object> result = history(get("/api/accounts/99/transfers"));
+
+        assertEquals(false, result.get("success"));
+        assertEquals(ExceptionEnum.USER_NOT_EXIST.getErrorCode(), result.get("errorCode"));
+    }
+
+    @Test
+    public void testTransfersLimitExceeded_Failed() throws Exception {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+
+        Map<String, Object> result = history(get("/api/accounts/1/transfers").param("limit", "501"));
+
+        assertEquals(false, result.get("success"));
+        assertEquals(ExceptionEnum.PARAM_ILLEGAL.getErrorCode(), result.get("errorCode"));
+    }
+
+    private Map<String, Object> history(MockHttpServletRequestBuilder request) throws Exception {
+        return JsonUtils.fromJson(perform(request).getContentAsString(), Map.class);
+    }
+
+    private Map<String, Object> data(Map<String, Object> result) {
+        assertEquals(true, result.get("success"));
+        return (Map<String, Object>) result.get("data");
+    }
+
+    private long id(Map<String, Object> transfer) {
+        return ((Number) transfer.get("id")).longValue();
+    }
+}
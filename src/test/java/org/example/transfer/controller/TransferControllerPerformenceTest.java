@@ -1,11 +1,16 @@
 package org.example.transfer.controller;
 
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import org.example.transfer.comm.enums.Currency;
 import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.comm.enums.LockStrategyEnum;
+import org.example.transfer.config.LockConfig;
+import org.example.transfer.model.Account;
 import org.example.transfer.params.req.TransferRequest;
 import org.example.transfer.params.resp.CommonResponse;
 import org.example.transfer.util.JsonUtils;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.http.MediaType;
 
@@ -36,6 +41,12 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 @AutoConfigureMockMvc
 public class TransferControllerPerformenceTest extends BaseControllerTest {
 
+    @Autowired
+    private LockConfig lockConfig;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
     /**
      * Test the consistency of the amount after concurrent transfers
      * <p>
@@ -205,10 +216,10 @@ public class TransferControllerPerformenceTest extends BaseControllerTest {
 
         for (int i = 0; i < 21; i++) {
             request.setRequestId(UUID.randomUUID().toString().replace("-", ""));
-            String content = mockMvc.perform(post(TRANSFER_URL)
+            String content = perform(post(TRANSFER_URL)
                             .contentType(MediaType.APPLICATION_JSON)
                             .content(Objects.requireNonNull(JsonUtils.toJson(request))))
-                    .andReturn().getResponse().getContentAsString();
+                    .getContentAsString();
             CommonResponse<Void> response = JsonUtils.fromJson(content, CommonResponse.class);
             responses.add(response);
         }
@@ -284,10 +295,10 @@ public class TransferControllerPerformenceTest extends BaseControllerTest {
         List<Callable<CommonResponse<Void>>> tasks = new ArrayList<>();
         for (int i = 0; i < concurrent; i++) {
             tasks.add(() -> {
-                String content = mockMvc.perform(post(TRANSFER_URL)
+                String content = perform(post(TRANSFER_URL)
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .content(JsonUtils.toJson(request)))
-                        .andReturn().getResponse().getContentAsString();
+                        .getContentAsString();
                 return JsonUtils.fromJson(content, CommonResponse.class);
             });
         }
@@ -313,4 +324,82 @@ public class TransferControllerPerformenceTest extends BaseControllerTest {
         assertEquals(1, successCount);
         assertEquals(concurrent - 1, idempotentErrorCount);
     }
+
+    /**
+     * Compare optimistic retry, pessimistic ordered lock, atomic conditional update and serial lanes on the same scenario
+     * <p>
+     * Condition
+     * tasks: 300
+     * concurrency:50
+     * <p>
+     * Result: pessimistic lock, atomic update and serial lanes never fail by conflict, throughput and p99 of all are printed
+     */
+    @Test
+    public void testLockStrategyBenchmark() throws Exception {
+        int tasks = 300;
+        int concurrency = 50;
+        setup("testdata/accounts_test_performance.json", "testdata/rate_test_performance.json");
+
+        long[] optimistic = benchmarkLockStrategy(LockStrategyEnum.OPTIMISTIC, tasks, concurrency);
+        long[] pessimistic = benchmarkLockStrategy(LockStrategyEnum.PESSIMISTIC, tasks, concurrency);
+        long[] atomic = benchmarkLockStrategy(LockStrategyEnum.ATOMIC, tasks, concurrency);
+        long[] serial = benchmarkLockStrategy(LockStrategyEnum.SERIAL, tasks, concurrency);
+
+        System.out.printf("lock strategy benchmark, tasks:%d, concurrency:%d%n", tasks, concurrency);
+        System.out.printf("OPTIMISTIC  success:%d, elapsed:%dms, tps:%d, p99:%dms%n",
+                optimistic[0], optimistic[1], tasks * 1000L / Math.max(1, optimistic[1]), optimistic[2]);
+        System.out.printf("PESSIMISTIC success:%d, elapsed:%dms, tps:%d, p99:%dms%n",
+                pessimistic[0], pessimistic[1], tasks * 1000L / Math.max(1, pessimistic[1]), pessimistic[2]);
+        System.out.printf("ATOMIC      success:%d, elapsed:%dms, tps:%d, p99:%dms%n",
+                atomic[0], atomic[1], tasks * 1000L / Math.max(1, atomic[1]), atomic[2]);
+        System.out.printf("SERIAL      success:%d, elapsed:%dms, tps:%d, p99:%dms%n",
+                serial[0], serial[1], tasks * 1000L / Math.max(1, serial[1]), serial[2]);
+
+        assertEquals(tasks, pessimistic[0]);
+        assertEquals(tasks, atomic[0]);
+        assertEquals(tasks, serial[0]);
+        verifyBalance(1L, BigDecimal.valueOf(100000 - 300 * 1.01));
+        verifyBalance(2L, BigDecimal.valueOf(500 + 300));
+    }
+
+    /**
+     * @return [success count, elapsed ms, p99 latency ms]
+     */
+    private long[] benchmarkLockStrategy(LockStrategyEnum strategy, int tasks, int concurrency) throws Exception {
+        // reset balances, keep account ids
+        List<Account> accounts = accountRepository.findAll();
+        accounts.forEach(account -> account.setBalance(account.getId() == 1L ? BigDecimal.valueOf(100000) : BigDecimal.valueOf(500)));
+        accountRepository.saveAll(accounts);
+        transferLogRepository.deleteAll();
+        circuitBreakerRegistry.circuitBreaker("transferCircuitBreaker").reset();
+        lockConfig.setStrategy(strategy);
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        List<Callable<Long>> calls = IntStream.range(0, tasks)
+                .mapToObj(i -> (Callable<Long>) () -> {
+                    long start = System.nanoTime();
+                    CommonResponse<Void> response = send(1L, 2L, 1, Currency.USD);
+                    long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    return response.isSuccess() ? latency : -latency;
+                })
+                .toList();
+
+        long start = System.nanoTime();
+        List<Future<Long>> futures = executor.invokeAll(calls);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+
+        long successCount = 0;
+        List<Long> latencies = new ArrayList<>();
+        for (Future<Long> future : futures) {
+            long latency = future.get();
+            if (latency >= 0) {
+                successCount++;
+            }
+            latencies.add(Math.abs(latency));
+        }
+        latencies.sort(Long::compare);
+        return new long[]{successCount, elapsed, latencies.get((int) Math.ceil(latencies.size() * 0.99) - 1)};
+    }
 }
@@ -0,0 +1,220 @@
+package org.example.transfer.controller;
+
+import org.example.transfer.cache.FxRateCache;
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.model.Account;
+import org.example.transfer.recovery.BalanceRecovery;
+import org.example.transfer.util.JsonUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * transfer controller test
+ * <p>
+ * only test the streamed account statement
+ */
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "transfer.snapshot.settle=0s",
+        "transfer.enable-different-currency-transfer=true"
+})
+public class TransferControllerStatementTest extends BaseControllerTest {
+
+    private static final String PERFORMANCE_ACCOUNT_PATH = "testdata/accounts_test_performance.json";
+    private static final String PERFORMANCE_RATE_PATH = "testdata/rate_test_performance.json";
+
+    @Autowired
+    private BalanceRecovery balanceRecovery;
+
+    @Autowired
+    private FxRateCache fxRateCache;
+
+    /**
+     * alice(usd): 100000 - 10 - 0.1 = 99989.90, + 5 = 99994.90, - 20 - 0.2 = 99974.70
+     */
+    @Test
+    public void testStatementNdjson_RunningBalance() throws Exception {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+        transfer();
+
+        List<Map<String, Object>> lines = ndjson(perform(get("/api/accounts/1/statement")).getContentAsString());
+
+        assertEquals(3, lines.size());
+        assertDecimal("-10", lines.get(0).get("amount"));
+        assertDecimal("0.10", lines.get(0).get("fee"));
+        assertDecimal("99989.90", lines.get(0).get("balance"));
+        assertDecimal("5", lines.get(1).get("amount"));
+        assertDecimal("0", lines.get(1).get("fee"));
+        assertDecimal("99994.90", lines.get(1).get("balance"));
+        assertDecimal("-20", lines.get(2).get("amount"));
+        assertDecimal("99974.70", lines.get(2).get("balance"));
+        assertEquals("USD", lines.get(2).get("currency"));
+    }
+
+    /**
+     * resumed after the first line, the running balance goes on from it
+     */
+    @Test
+    public void testStatement_ResumeByCursor() throws Exception {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+        transfer();
+        List<Map<String, Object>> all = ndjson(perform(get("/api/accounts/1/statement")).getContentAsString());
+
+        List<Map<String, Object>> rest = ndjson(perform(get("/api/accounts/1/statement")
+                .param("cursor", String.valueOf(all.get(0).get("id")))).getContentAsString());
+
+        assertEquals(2, rest.size());
+        assertEquals(all.get(1).get("id"), rest.get(0).get("id"));
+        assertDecimal("99994.90", rest.get(0).get("balance"));
+        assertDecimal("99974.70", rest.get(1).get("balance"));
+    }
+
+    /**
+     * with from = SNAPSHOT the statement starts at the snapshot taken after the first transfer:
+     * alice(usd): 99989.90 in the snapshot, + 5 = 99994.90, - 20 - 0.2 = 99974.70.
+     * by default it still lists the whole history
+     */
+    @Test
+    public void testStatement_StartsAtSnapshot() throws Exception {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+        send(1L, 2L, 10, Currency.USD);
+        Thread.sleep(5);
+        balanceRecovery.snapshot();
+        Thread.sleep(5);
+        send(2L, 1L, 5, Currency.USD);
+        send(1L, 2L, 20, Currency.USD);
+
+        List<Map<String, Object>> lines = ndjson(perform(get("/api/accounts/1/statement")
+                .param("from", "SNAPSHOT")).getContentAsString());
+        List<Map<String, Object>> all = ndjson(perform(get("/api/accounts/1/statement")).getContentAsString());
+
+        assertEquals(2, lines.size());
+        assertDecimal("5", lines.get(0).get("amount"));
+        assertDecimal("99994.90", lines.get(0).get("balance"));
+        assertDecimal("-20", lines.get(1).get("amount"));
+        assertDecimal("99974.70", lines.get(1).get("balance"));
+        assertEquals(3, all.size());
+        assertDecimal("99989.90", all.get(0).get("balance"));
+        assertDecimal("99974.70", all.get(2).get("balance"));
+    }
+
+    /**
+     * dave(jpn) 990 to carol(aud) at the derived rate 0.0133333333: carol 0 + 13.20
+     */
+    @Test
+    public void testStatement_DerivedRate() throws Exception {
+        setup(PERFORMANCE_ACCOUNT_PATH, "testdata/rate_test_three.json");
+        Long daveId = accountRepository.save(account("Dave", "1000", Currency.JPN)).getId();
+        Long carolId = accountRepository.save(account("Carol", "0", Currency.AUD)).getId();
+        // the derived rate is only in the snapshot of the cache, rebuilt from the rates just loaded
+        fxRateCache.refresh();
+        send(daveId, carolId, 990, Currency.JPN);
+
+        List<Map<String, Object>> lines = ndjson(perform(get("/api/accounts/" + carolId + "/statement"))
+                .getContentAsString());
+
+        assertEquals(1, lines.size());
+        assertDecimal("13.20", lines.get(0).get("amount"));
+        assertDecimal("13.20", lines.get(0).get("balance"));
+        assertEquals("AUD", lines.get(0).get("currency"));
+    }
+
+    /**
+     * bob(usd): 500 + 10 = 510, - 5 - 0.05 = 504.95, + 20 = 524.95
+     */
+    @Test
+    public void testStatementCsv_Gzip() throws Exception {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+        transfer();
+
+        MockHttpServletResponse response = perform(get("/api/accounts/2/statement")
+                .param("format", "CSV")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(response.getContentType().startsWith("text/csv"));
+        String[] lines = gunzip(response.getContentAsByteArray()).split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("id,createdAt,fromAccountId,toAccountId,amount,fee,currency,balance", lines[0]);
+        assertTrue(lines[1].endsWith(",1,2,10.00,0.00,USD,510.00"), lines[1]);
+        assertTrue(lines[2].endsWith(",2,1,-5.00,0.05,USD,504.95"), lines[2]);
+        assertTrue(lines[3].endsWith(",1,2,20.00,0.00,USD,524.95"), lines[3]);
+    }
+
+    /**
+     * transfer.statement.timeout, not the default async timeout
+     */
+    @Test
+    public void testStatement_OwnAsyncTimeout() throws Exception {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+
+        MvcResult result = mockMvc.perform(get("/api/accounts/1/statement")).andReturn();
+        result.getAsyncResult(TimeUnit.SECONDS.toMillis(10));
+
+        assertEquals(TimeUnit.MINUTES.toMillis(10), result.getRequest().getAsyncContext().getTimeout());
+        // complete the request, open-in-view closes its entity manager on the async dispatch
+        mockMvc.perform(asyncDispatch(result));
+    }
+
+    @Test
+    public void testStatementOfNotExistUser_Failed() throws Exception {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+
+        Map<String, Object> result = JsonUtils.fromJson(
+                perform(get("/api/accounts/99/statement")).getContentAsString(), Map.class);
+
+        assertEquals(false, result.get("success"));
+        assertEquals(ExceptionEnum.USER_NOT_EXIST.getErrorCode(), result.get("errorCode"));
+    }
+
+    private Account account(String name, String balance, Currency currency) {
+        Account account = new Account();
+        account.setName(name);
+        account.setBalance(new BigDecimal(balance));
+        account.setCurrency(currency);
+        return account;
+    }
+
+    private void transfer() throws Exception {
+        send(1L, 2L, 10, Currency.USD);
+        send(2L, 1L, 5, Currency.USD);
+        send(1L, 2L, 20, Currency.USD);
+    }
+
+    private List<Map<String, Object>> ndjson(String content) {
+        return Arrays.stream(content.split("\n"))
+                .map(line -> (Map<String, Object>) JsonUtils.fromJson(line, Map.class))
+                .toList();
+    }
+
+    private String gunzip(byte[] content) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private void assertDecimal(String expected, Object actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(new BigDecimal(String.valueOf(actual))), "value " + actual);
+    }
+}
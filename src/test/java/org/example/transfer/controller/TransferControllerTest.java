@@ -8,6 +8,7 @@ import org.example.transfer.util.JsonUtils;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -25,6 +26,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 
 /**
@@ -44,10 +46,10 @@ public class TransferControllerTest extends BaseControllerTest {
         request.setTransferCurrency(Currency.USD);
         request.setAmount(BigDecimal.valueOf(50));
 
-        String content = mockMvc.perform(post(TRANSFER_URL)
+        String content = perform(post(TRANSFER_URL)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(Objects.requireNonNull(JsonUtils.toJson(request))))
-                .andReturn().getResponse().getContentAsString();
+                .getContentAsString();
         CommonResponse<Void> response = JsonUtils.fromJson(content, CommonResponse.class);
 
         assertNotNull(response);
@@ -55,6 +57,52 @@ public class TransferControllerTest extends BaseControllerTest {
         assertTrue(response.getErrorMsg().contains("not support transfer type: DIFFERENT"));
     }
 
+    @Test
+    public void testTransferAmountWithThreeDecimals_Fail() throws Exception {
+        setup(DEFAULT_ACCOUNR_PARH, DEFAULT_RATE_PARH);
+
+        TransferRequest request = new TransferRequest();
+        request.setRequestId(UUID.randomUUID().toString().replace("-", ""));
+        request.setFromId(2L);
+        request.setToId(1L);
+        request.setTransferCurrency(Currency.USD);
+        request.setAmount(new BigDecimal("10.005"));
+
+        String content = perform(post(TRANSFER_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(Objects.requireNonNull(JsonUtils.toJson(request))))
+                .getContentAsString();
+        CommonResponse<Void> response = JsonUtils.fromJson(content, CommonResponse.class);
+
+        assertNotNull(response);
+        assertEquals(ExceptionEnum.PARAM_ILLEGAL.getErrorCode(), response.getErrorCode());
+        assertTrue(response.getErrorMsg().contains("2 decimal places"));
+        assertEquals(0, transferLogRepository.findAll().size());
+    }
+
+    @Test
+    public void testAsyncTransferDisabled_Rejected() throws Exception {
+        setup(DEFAULT_ACCOUNR_PARH, DEFAULT_RATE_PARH);
+
+        TransferRequest request = new TransferRequest();
+        request.setRequestId(UUID.randomUUID().toString().replace("-", ""));
+        request.setFromId(2L);
+        request.setToId(1L);
+        request.setTransferCurrency(Currency.USD);
+        request.setAmount(BigDecimal.valueOf(50));
+
+        String content = perform(post(TRANSFER_URL)
+                        .param("async", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(Objects.requireNonNull(JsonUtils.toJson(request))))
+                .getContentAsString();
+        CommonResponse<Void> response = JsonUtils.fromJson(content, CommonResponse.class);
+
+        assertNotNull(response);
+        assertEquals(ExceptionEnum.PARAM_ILLEGAL.getErrorCode(), response.getErrorCode());
+        assertEquals(0, transferLogRepository.findAll().size());
+    }
+
     @Test
     public void testTransferAUDFromBobToAlice20Times_Fail() throws Exception {
         setup(DEFAULT_ACCOUNR_PARH, DEFAULT_RATE_PARH);
@@ -69,10 +117,10 @@ public class TransferControllerTest extends BaseControllerTest {
         for (int i = 0; i < 20; i++) {
             request.setRequestId(UUID.randomUUID().toString().replace("-", ""));
 
-            String content = mockMvc.perform(post(TRANSFER_URL)
+            String content = perform(post(TRANSFER_URL)
                             .contentType(MediaType.APPLICATION_JSON)
                             .content(Objects.requireNonNull(JsonUtils.toJson(request))))
-                    .andReturn().getResponse().getContentAsString();
+                    .getContentAsString();
             CommonResponse<Void> response = JsonUtils.fromJson(content, CommonResponse.class);
             responses.add(response);
 
@@ -108,10 +156,10 @@ public class TransferControllerTest extends BaseControllerTest {
                     latch.countDown();
                     latch.await();
 
-                    String content = mockMvc.perform(post(TRANSFER_URL)
+                    String content = perform(post(TRANSFER_URL)
                                     .contentType(MediaType.APPLICATION_JSON)
                                     .content(JsonUtils.toJson(request)))
-                            .andReturn().getResponse().getContentAsString();
+                            .getContentAsString();
 
                     return JsonUtils.fromJson(content, CommonResponse.class);
                 } catch (Exception e) {
@@ -185,4 +233,60 @@ public class TransferControllerTest extends BaseControllerTest {
         assertEquals(ExceptionEnum.PARAM_ILLEGAL.getErrorCode(), r3.getErrorCode());
         assertEquals("Sender must use base currency.", r3.getErrorMsg());
     }
+
+    /**
+     * same requestId sent again after it completed, rejected and transferred only once
+     * <p>
+     * from money(usd): 100000 - 10 - 0.1 = 99989.90
+     */
+    @Test
+    public void testTransferSameReqIdAfterCompleted_Rejected() throws Exception {
+        setup("testdata/accounts_test_performance.json", "testdata/rate_test_performance.json");
+
+        TransferRequest request = new TransferRequest();
+        request.setRequestId(UUID.randomUUID().toString().replace("-", ""));
+        request.setFromId(1L);
+        request.setToId(2L);
+        request.setTransferCurrency(Currency.USD);
+        request.setAmount(BigDecimal.valueOf(10));
+
+        List<CommonResponse<Void>> responses = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            String content = perform(post(TRANSFER_URL)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(Objects.requireNonNull(JsonUtils.toJson(request))))
+                    .getContentAsString();
+            responses.add(JsonUtils.fromJson(content, CommonResponse.class));
+        }
+
+        assertTrue(responses.get(0).isSuccess());
+        assertEquals(ExceptionEnum.IDEMPOTENT_REQUEST.getErrorCode(), responses.get(1).getErrorCode());
+        verifyBalance(1L, new BigDecimal("99989.90"));
+    }
+
+    /**
+     * the request thread is released while the transfer runs, the response is written once it completes
+     */
+    @Test
+    public void testTransferDeferred_Success() throws Exception {
+        setup("testdata/accounts_test_performance.json", "testdata/rate_test_performance.json");
+
+        TransferRequest request = new TransferRequest();
+        request.setRequestId(UUID.randomUUID().toString().replace("-", ""));
+        request.setFromId(1L);
+        request.setToId(2L);
+        request.setTransferCurrency(Currency.USD);
+        request.setAmount(BigDecimal.valueOf(10));
+
+        MvcResult started = mockMvc.perform(post(TRANSFER_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(Objects.requireNonNull(JsonUtils.toJson(request))))
+                .andReturn();
+        assertTrue(started.getRequest().isAsyncStarted());
+
+        String content = mockMvc.perform(asyncDispatch(started)).andReturn().getResponse().getContentAsString();
+        CommonResponse<Void> response = JsonUtils.fromJson(content, CommonResponse.class);
+        assertTrue(response.isSuccess());
+        verifyBalance(1L, new BigDecimal("99989.90"));
+    }
 }
@@ -0,0 +1,110 @@
+package org.example.transfer.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.config.RetryConfig;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.executor.AdaptiveRetryPolicy;
+import org.example.transfer.executor.AdaptiveRetryPolicy.RetryState;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * optimistic conflict retry policy test
+ */
+public class AdaptiveRetryPolicyTest extends BaseServiceTest {
+    @Autowired
+    private AdaptiveRetryPolicy retryPolicy;
+
+    @Autowired
+    private RetryConfig retryConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * no tracked conflicts: first backoff in [100, 300], then in [100, 3 x previous], at most 1000
+     */
+    @Test
+    public void testBackoff_DecorrelatedJitter() {
+        RetryState state = retryPolicy.start(1L, 2L);
+
+        long delay = retryPolicy.nextDelay(state);
+        assertTrue(delay >= 100 && delay <= 300, "first backoff " + delay);
+        for (int i = 1; i < retryConfig.getMaxRetries(); i++) {
+            long previous = delay;
+            delay = retryPolicy.nextDelay(state);
+            assertTrue(delay >= 100 && delay <= Math.min(1000, Math.max(100, previous * 3)), "backoff " + delay);
+        }
+        assertEquals(3, meterRegistry.get("transfer.retry.retries").counter().count());
+    }
+
+    /**
+     * every attempt on account 1 conflicts, its transfers start backing off from a higher base
+     */
+    @Test
+    public void testHotAccount_LongerBackoff() {
+        RetryState hot = retryPolicy.start(1L, 2L);
+        for (int i = 0; i < 50; i++) {
+            retryPolicy.recordAttempt(hot, true, 1);
+        }
+        double contention = retryPolicy.contention(1L);
+        assertTrue(contention > 0.9, "contention " + contention);
+        assertEquals(0, retryPolicy.contention(3L));
+
+        long base = Math.round(100 * (1 + 3 * contention));
+        assertTrue(retryPolicy.nextDelay(retryPolicy.start(1L, 3L)) >= base);
+        assertEquals(50, meterRegistry.get("transfer.retry.conflicts").counter().count());
+    }
+
+    @Test
+    public void testMaxRetries_GiveUp() {
+        RetryState state = retryPolicy.start(1L, 2L);
+        for (int i = 0; i < retryConfig.getMaxRetries(); i++) {
+            retryPolicy.nextDelay(state);
+        }
+
+        assertGiveUp(state, "max_retries");
+    }
+
+    /**
+     * 10 transfers with ratio 0.2 and 1 retry always allowed: 1 + 2 retries in the window
+     */
+    @Test
+    public void testRetryBudget_GiveUp() {
+        retryConfig.setBudgetMinRetries(1);
+        retryConfig.setBudgetWindow(Duration.ofMinutes(1));
+
+        RetryState[] states = new RetryState[10];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = retryPolicy.start(1L, 2L);
+        }
+        for (int i = 0; i < 3; i++) {
+            retryPolicy.nextDelay(states[i]);
+        }
+
+        assertGiveUp(states[3], "budget");
+    }
+
+    /**
+     * the shortest backoff does not fit in a 50ms time budget
+     */
+    @Test
+    public void testTimeout_GiveUp() {
+        retryConfig.setTimeout(Duration.ofMillis(50));
+
+        assertGiveUp(retryPolicy.start(1L, 2L), "timeout");
+    }
+
+    private void assertGiveUp(RetryState state, String reason) {
+        BusinessException e = assertThrows(BusinessException.class, () -> retryPolicy.nextDelay(state));
+        assertEquals(ExceptionEnum.OPTIMISTIC_LOCK_MAX_RETRY_ERROR.getErrorCode(), e.getErrorCode());
+        assertEquals(1, meterRegistry.get("transfer.retry.give_up").tag("reason", reason).counter().count());
+    }
+}
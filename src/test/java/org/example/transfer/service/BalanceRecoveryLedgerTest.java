@@ -0,0 +1,26 @@
+package org.example.transfer.service;
+
+import org.example.transfer.recovery.BalanceRecovery;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * balance recovery test
+ * <p>
+ * only test the ledger engine without the journal, its writer commits balances and logs in different batches
+ */
+@TestPropertySource(properties = "transfer.ledger.enabled=true")
+public class BalanceRecoveryLedgerTest extends BaseServiceTest {
+    @Autowired
+    private BalanceRecovery balanceRecovery;
+
+    @Test
+    public void testLedgerWriter_SnapshotRefused() {
+        assertThrows(IllegalStateException.class, () -> balanceRecovery.snapshot());
+        assertThrows(IllegalStateException.class, () -> balanceRecovery.verify());
+        assertThrows(IllegalStateException.class, () -> balanceRecovery.recover());
+    }
+}
@@ -0,0 +1,177 @@
+package org.example.transfer.service;
+
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.config.SnapshotConfig;
+import org.example.transfer.model.Account;
+import org.example.transfer.model.BalanceSnapshot;
+import org.example.transfer.model.BalanceSnapshotEntry;
+import org.example.transfer.model.FxRate;
+import org.example.transfer.model.TransferLog;
+import org.example.transfer.params.req.TransferRequest;
+import org.example.transfer.recovery.BalanceRecovery;
+import org.example.transfer.repository.BalanceSnapshotEntryRepository;
+import org.example.transfer.repository.BalanceSnapshotRepository;
+import org.example.transfer.util.JsonUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * balance snapshot and rebuild test
+ * <p>
+ * usd -> aud transfers enabled, no settle time, 3 rows per page so accounts and logs are read in several pages
+ */
+@TestPropertySource(properties = {
+        "transfer.enable-different-currency-transfer=true",
+        "transfer.snapshot.settle=0s",
+        "transfer.snapshot.page-size=3",
+        "transfer.snapshot.partitions=2"
+})
+public class BalanceRecoveryTest extends BaseServiceTest {
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private BalanceRecovery balanceRecovery;
+
+    @Autowired
+    private SnapshotConfig snapshotConfig;
+
+    @Autowired
+    private BalanceSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private BalanceSnapshotEntryRepository snapshotEntryRepository;
+
+    private Long carolId;
+
+    @BeforeEach
+    public void init() {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+
+        Account carol = new Account();
+        carol.setName("Carol");
+        carol.setBalance(new BigDecimal("0"));
+        carol.setCurrency(Currency.AUD);
+        carolId = accountRepository.save(carol).getId();
+    }
+
+    /**
+     * 3 transfers before the snapshot, 3 after it, the rebuilt balances match the accounts
+     * <p>
+     * snapshot: bob(usd) 500 + 2 * 10 = 520, carol(aud) 10 * 2 = 20
+     */
+    @Test
+    public void testRebuild_TailAfterSnapshot() throws Exception {
+        transferService.transfer(request(1L, 2L, 10));
+        transferService.transfer(request(1L, 2L, 10));
+        transferService.transfer(request(1L, carolId, 10));
+        BalanceSnapshot snapshot = balanceRecovery.snapshot();
+        // logs of the next millisecond are after the watermark
+        Thread.sleep(5);
+
+        transferService.transfer(request(2L, 1L, 5));
+        transferService.transfer(request(1L, carolId, 1));
+        transferService.transfer(request(1L, 2L, 7));
+
+        assertEquals(3, snapshot.getAccounts());
+        verifyEntry(snapshot, 2L, new BigDecimal("520"));
+        verifyEntry(snapshot, carolId, new BigDecimal("20"));
+        assertTrue(balanceRecovery.verify().isEmpty());
+    }
+
+    /**
+     * transfers within the settle time are taken out of the snapshot and folded by the rebuild
+     */
+    @Test
+    public void testSnapshot_WithinSettle() {
+        snapshotConfig.setSettle(Duration.ofMinutes(1));
+        transferService.transfer(request(1L, 2L, 10));
+        transferService.transfer(request(1L, carolId, 10));
+
+        BalanceSnapshot snapshot = balanceRecovery.snapshot();
+
+        verifyEntry(snapshot, 1L, new BigDecimal("100000"));
+        verifyEntry(snapshot, 2L, new BigDecimal("500"));
+        verifyEntry(snapshot, carolId, new BigDecimal("0"));
+        assertTrue(balanceRecovery.verify().isEmpty());
+    }
+
+    /**
+     * a balance changed without a transfer log is reported, then repaired
+     * <p>
+     * rebuilt bob(usd): 500 + 10 + 10 = 520
+     */
+    @Test
+    public void testRecover_RepairBalance() throws Exception {
+        transferService.transfer(request(1L, 2L, 10));
+        balanceRecovery.snapshot();
+        Thread.sleep(5);
+        transferService.transfer(request(1L, 2L, 10));
+        accountRepository.credit(2L, new BigDecimal("100"));
+
+        Map<Long, BigDecimal> mismatches = balanceRecovery.verify();
+        assertEquals(1, mismatches.size());
+        assertEquals(0, new BigDecimal("520").compareTo(mismatches.get(2L)));
+
+        assertEquals(mismatches.keySet(), balanceRecovery.recover().keySet());
+        verifyBalance(2L, new BigDecimal("520"));
+        assertTrue(balanceRecovery.verify().isEmpty());
+    }
+
+    /**
+     * only the latest 2 snapshots are kept
+     */
+    @Test
+    public void testSnapshot_Retain() {
+        balanceRecovery.snapshot();
+        BalanceSnapshot second = balanceRecovery.snapshot();
+        BalanceSnapshot third = balanceRecovery.snapshot();
+
+        assertEquals(2, snapshotRepository.count());
+        assertEquals(third.getId(), snapshotRepository.findFirstByOrderByIdDesc().orElseThrow().getId());
+        assertTrue(snapshotRepository.existsById(second.getId()));
+        assertEquals(6, snapshotEntryRepository.count());
+    }
+
+    /**
+     * jpn -> aud is derived through usd, 2 / 150 = 0.0133333333: the log keeps all 10 decimals,
+     * so the rebuilt credit is the applied one, not 990 * 0.01
+     * <p>
+     * carol(aud): 990 * 0.0133333333 = 13.20
+     */
+    @Test
+    public void testRebuild_DerivedRate() throws Exception {
+        fxRateRepository.deleteAll();
+        fxRateRepository.saveAll(JsonUtils.fromPathToObjList("testdata/rate_test_three.json", FxRate.class));
+        Account dave = new Account();
+        dave.setName("Dave");
+        dave.setBalance(new BigDecimal("1000"));
+        dave.setCurrency(Currency.JPN);
+        Long daveId = accountRepository.save(dave).getId();
+        balanceRecovery.snapshot();
+        Thread.sleep(5);
+
+        TransferRequest request = request(daveId, carolId, 990);
+        request.setTransferCurrency(Currency.JPN);
+        transferService.transfer(request);
+
+        TransferLog transferLog = transferLogRepository.findAll().get(0);
+        assertEquals(0, new BigDecimal("0.0133333333").compareTo(transferLog.getFxRate()));
+        verifyBalance(carolId, new BigDecimal("13.20"));
+        assertTrue(balanceRecovery.verify().isEmpty());
+    }
+
+    private void verifyEntry(BalanceSnapshot snapshot, Long accountId, BigDecimal expected) {
+        BalanceSnapshotEntry entry = snapshotEntryRepository.findById(new BalanceSnapshotEntry.Key(snapshot.getId(), accountId)).orElseThrow();
+        assertEquals(0, expected.compareTo(entry.getBalance()), "snapshot balance " + entry.getBalance());
+    }
+}
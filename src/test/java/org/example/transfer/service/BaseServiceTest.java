@@ -1,11 +1,71 @@
 package org.example.transfer.service;
 
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.model.Account;
+import org.example.transfer.model.FxRate;
+import org.example.transfer.params.req.TransferRequest;
+import org.example.transfer.repository.AccountRepository;
+import org.example.transfer.repository.FxRateRepository;
+import org.example.transfer.repository.TransferLogRepository;
+import org.example.transfer.util.JsonUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 @SpringBootTest
 @ActiveProfiles("test")
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 public abstract class BaseServiceTest {
-}
\ No newline at end of file
+
+    public final static String PERFORMANCE_ACCOUNT_PATH = "testdata/accounts_test_performance.json";
+    public final static String PERFORMANCE_RATE_PATH = "testdata/rate_test_performance.json";
+
+    @Autowired
+    protected AccountRepository accountRepository;
+
+    @Autowired
+    protected FxRateRepository fxRateRepository;
+
+    @Autowired
+    protected TransferLogRepository transferLogRepository;
+
+    /**
+     * default setup
+     * <p>
+     * clean and load data from json
+     *
+     * @param accountPath
+     * @param ratePath
+     */
+    protected void setup(String accountPath, String ratePath) {
+        // del old data
+        accountRepository.deleteAllAccountsNative();
+        fxRateRepository.deleteAll();
+        transferLogRepository.deleteAll();
+
+        // load new data
+        accountRepository.saveAll(JsonUtils.fromPathToObjList(accountPath, Account.class));
+        fxRateRepository.saveAll(JsonUtils.fromPathToObjList(ratePath, FxRate.class));
+    }
+
+    protected void verifyBalance(Long accountId, BigDecimal expected) {
+        Account account = accountRepository.findById(accountId).orElseThrow();
+        assertEquals(0, expected.compareTo(account.getBalance()), "balance " + account.getBalance());
+    }
+
+    protected TransferRequest request(Long fromId, Long toId, long amount) {
+        TransferRequest request = new TransferRequest();
+        request.setRequestId(UUID.randomUUID().toString().replace("-", ""));
+        request.setFromId(fromId);
+        request.setToId(toId);
+        request.setTransferCurrency(Currency.USD);
+        request.setAmount(BigDecimal.valueOf(amount));
+        return request;
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.transfer.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.transfer.cache.FxRateCache;
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.model.FxRate;
+import org.example.transfer.util.JsonUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * fx rate cache test
+ */
+public class FxRateCacheTest extends BaseServiceTest {
+    @Autowired
+    private FxRateCache fxRateCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void init() {
+        fxRateRepository.deleteAll();
+        fxRateRepository.saveAll(JsonUtils.fromPathToObjList("testdata/rate_test_performance.json", FxRate.class));
+    }
+
+    /**
+     * saved rates are in the snapshot after commit, lookup is served from memory
+     */
+    @Test
+    public void testGetRate_Hit() {
+        assertEquals(0, new BigDecimal("2").compareTo(fxRateCache.getSnapshot().get(Currency.USD, Currency.AUD)));
+
+        double hitBefore = meterRegistry.get("transfer.fx_rate.cache").tag("result", "hit").counter().count();
+        double missBefore = meterRegistry.get("transfer.fx_rate.cache").tag("result", "miss").counter().count();
+
+        assertEquals(0, new BigDecimal("2").compareTo(fxRateCache.getRate(Currency.USD, Currency.AUD)));
+        assertNull(fxRateCache.getRate(Currency.USD, Currency.JPN));
+
+        assertEquals(hitBefore + 1, meterRegistry.get("transfer.fx_rate.cache").tag("result", "hit").counter().count());
+        assertEquals(missBefore + 1, meterRegistry.get("transfer.fx_rate.cache").tag("result", "miss").counter().count());
+    }
+
+    /**
+     * updated and deleted rates swap the snapshot
+     */
+    @Test
+    public void testRateChange_SnapshotRefreshed() {
+        FxRate fxRate = fxRateRepository.findByFromCurrencyAndToCurrency(Currency.USD, Currency.AUD).orElseThrow();
+        fxRate.setRate(new BigDecimal("1.5"));
+        fxRateRepository.save(fxRate);
+        assertEquals(0, new BigDecimal("1.5").compareTo(fxRateCache.getSnapshot().get(Currency.USD, Currency.AUD)));
+
+        fxRateRepository.delete(fxRate);
+        assertNull(fxRateCache.getSnapshot().get(Currency.USD, Currency.AUD));
+        assertNull(fxRateCache.getRate(Currency.USD, Currency.AUD));
+    }
+
+    /**
+     * only usd -> aud, usd -> jpn configured
+     * <p>
+     * aud -> usd: 1 / 2 = 0.5
+     * aud -> jpn: 150 / 2 = 75, pivot usd
+     * jpn -> aud: 2 / 150 = 0.0133333333, pivot usd
+     * cny: no rate
+     */
+    @Test
+    public void testDerivedRates() {
+        fxRateRepository.deleteAll();
+        fxRateRepository.saveAll(JsonUtils.fromPathToObjList("testdata/rate_test_three.json", FxRate.class));
+
+        assertEquals(0, new BigDecimal("2").compareTo(fxRateCache.getRate(Currency.USD, Currency.AUD)));
+        assertEquals(0, new BigDecimal("150").compareTo(fxRateCache.getRate(Currency.USD, Currency.JPN)));
+        assertEquals(0, new BigDecimal("0.5").compareTo(fxRateCache.getRate(Currency.AUD, Currency.USD)));
+        assertEquals(0, new BigDecimal("75").compareTo(fxRateCache.getRate(Currency.AUD, Currency.JPN)));
+        assertEquals(0, new BigDecimal("0.0133333333").compareTo(fxRateCache.getRate(Currency.JPN, Currency.AUD)));
+        assertNull(fxRateCache.getRate(Currency.USD, Currency.CNY));
+        assertNull(fxRateCache.getRate(Currency.CNY, Currency.JPN));
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.transfer.service;
+
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.executor.KeyedSerialExecutor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * keyed serial lanes test, 2 lanes of 2 pending tasks
+ */
+@TestPropertySource(properties = {
+        "transfer.lane.lanes=2",
+        "transfer.lane.queue-capacity=2"
+})
+public class KeyedSerialExecutorTest extends BaseServiceTest {
+    @Autowired
+    private KeyedSerialExecutor keyedSerialExecutor;
+
+    /**
+     * 100 tasks of one key never overlap
+     */
+    @Test
+    public void testSameKey_Serialized() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(submitWhenFree(7L, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(1);
+                running.decrementAndGet();
+                return null;
+            }));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        assertEquals(1, maxRunning.get());
+    }
+
+    /**
+     * 1 running + 2 queued, the 4th task of the lane is rejected
+     */
+    @Test
+    public void testFullLane_ServerBusy() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> running = keyedSerialExecutor.submit(1L, () -> {
+            started.countDown();
+            await(release);
+            return null;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        keyedSerialExecutor.submit(1L, () -> null);
+        keyedSerialExecutor.submit(1L, () -> null);
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> keyedSerialExecutor.submit(1L, () -> null));
+        assertEquals(ExceptionEnum.SERVER_BUSY.getErrorCode(), ex.getErrorCode());
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * the task's exception reaches the caller as is
+     */
+    @Test
+    public void testExecute_RethrowTaskException() {
+        BusinessException ex = assertThrows(BusinessException.class, () -> keyedSerialExecutor.execute(1L, () -> {
+            throw new BusinessException(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), "Insufficient balance");
+        }));
+        assertEquals(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), ex.getErrorCode());
+    }
+
+    private <T> CompletableFuture<T> submitWhenFree(long key, Supplier<T> task) {
+        while (true) {
+            try {
+                return keyedSerialExecutor.submit(key, task);
+            } catch (BusinessException e) {
+                sleep(1);
+            }
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
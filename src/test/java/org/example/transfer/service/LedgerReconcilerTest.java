@@ -0,0 +1,145 @@
+package org.example.transfer.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.model.Account;
+import org.example.transfer.model.FxRate;
+import org.example.transfer.params.req.TransferRequest;
+import org.example.transfer.recovery.BalanceRecovery;
+import org.example.transfer.recovery.LedgerReconciler;
+import org.example.transfer.recovery.ReconciliationReport;
+import org.example.transfer.util.JsonUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * ledger reconciliation test
+ * <p>
+ * usd -> aud transfers enabled, no settle time, 2 rows per page and 3 workers
+ */
+@TestPropertySource(properties = {
+        "transfer.enable-different-currency-transfer=true",
+        "transfer.snapshot.settle=0s",
+        "transfer.reconciliation.page-size=2",
+        "transfer.reconciliation.workers=3"
+})
+public class LedgerReconcilerTest extends BaseServiceTest {
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private BalanceRecovery balanceRecovery;
+
+    @Autowired
+    private LedgerReconciler ledgerReconciler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Long carolId;
+
+    @BeforeEach
+    public void init() {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+
+        Account carol = new Account();
+        carol.setName("Carol");
+        carol.setBalance(new BigDecimal("0"));
+        carol.setCurrency(Currency.AUD);
+        carolId = accountRepository.save(carol).getId();
+    }
+
+    @Test
+    public void testNoSnapshot_Skipped() {
+        assertNull(ledgerReconciler.reconcile());
+    }
+
+    /**
+     * 5 transfers after the snapshot, every balance matches
+     */
+    @Test
+    public void testReconcile_Balanced() throws Exception {
+        balanceRecovery.snapshot();
+        // logs of the next millisecond are after the watermark
+        Thread.sleep(5);
+        transferService.transfer(request(1L, 2L, 10));
+        transferService.transfer(request(1L, 2L, 20));
+        transferService.transfer(request(2L, 1L, 5));
+        transferService.transfer(request(1L, carolId, 10));
+        transferService.transfer(request(1L, carolId, 1));
+
+        ReconciliationReport report = ledgerReconciler.reconcile();
+
+        assertEquals(5, report.logs());
+        assertEquals(3, report.accounts());
+        assertEquals(0, report.mismatched());
+        assertEquals(0, meterRegistry.get("transfer.reconciliation.mismatches").gauge().value());
+    }
+
+    /**
+     * a credit without a transfer log is reported with the sums it was checked against
+     * <p>
+     * bob(usd): 500 - 5 - 0.05 + 10 + 20 = 524.95 expected, 624.95 actual
+     */
+    @Test
+    public void testReconcile_Mismatch() throws Exception {
+        balanceRecovery.snapshot();
+        Thread.sleep(5);
+        transferService.transfer(request(1L, 2L, 10));
+        transferService.transfer(request(1L, 2L, 20));
+        transferService.transfer(request(2L, 1L, 5));
+        accountRepository.credit(2L, new BigDecimal("100"));
+
+        ReconciliationReport report = ledgerReconciler.reconcile();
+
+        assertEquals(1, report.mismatched());
+        ReconciliationReport.Mismatch mismatch = report.mismatches().get(0);
+        assertEquals(2L, mismatch.accountId());
+        assertDecimal("500", mismatch.snapshot());
+        assertDecimal("5", mismatch.debits());
+        assertDecimal("0.05", mismatch.fees());
+        assertDecimal("30", mismatch.credits());
+        assertDecimal("524.95", mismatch.expected());
+        assertDecimal("624.95", mismatch.actual());
+        assertEquals(1, meterRegistry.get("transfer.reconciliation.mismatches").gauge().value());
+    }
+
+    /**
+     * jpn -> aud is derived through usd, 2 / 150 = 0.0133333333, the credit is summed from all 10 decimals
+     * <p>
+     * carol(aud): 990 * 0.0133333333 = 13.20
+     */
+    @Test
+    public void testReconcile_DerivedRate() throws Exception {
+        fxRateRepository.deleteAll();
+        fxRateRepository.saveAll(JsonUtils.fromPathToObjList("testdata/rate_test_three.json", FxRate.class));
+        Account dave = new Account();
+        dave.setName("Dave");
+        dave.setBalance(new BigDecimal("1000"));
+        dave.setCurrency(Currency.JPN);
+        Long daveId = accountRepository.save(dave).getId();
+        balanceRecovery.snapshot();
+        Thread.sleep(5);
+
+        TransferRequest request = request(daveId, carolId, 990);
+        request.setTransferCurrency(Currency.JPN);
+        transferService.transfer(request);
+
+        ReconciliationReport report = ledgerReconciler.reconcile();
+
+        assertEquals(1, report.logs());
+        assertEquals(0, report.mismatched());
+        verifyBalance(carolId, new BigDecimal("13.20"));
+    }
+
+    private void assertDecimal(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "value " + actual);
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.transfer.service;
+
+import org.example.transfer.id.TimeOrderedIdGenerator;
+import org.example.transfer.model.TransferLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * id generator test
+ * <p>
+ * account ids from the pooled sequence, transfer log ids time-ordered
+ */
+@TestPropertySource(properties = {
+        "transfer.id.transfer-log=TIME_ORDERED",
+        "transfer.id.node-id=7"
+})
+public class TransferIdGeneratorTest extends BaseServiceTest {
+    @Autowired
+    private TransferService transferService;
+
+    @BeforeEach
+    public void init() {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+    }
+
+    /**
+     * the pooled sequence starts at 1, time-ordered log ids follow the transfer order
+     */
+    @Test
+    public void testIds_PooledAccountTimeOrderedLog() {
+        assertTrue(accountRepository.findById(1L).isPresent());
+        assertTrue(accountRepository.findById(2L).isPresent());
+
+        long start = System.currentTimeMillis();
+        List<Long> transferred = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            transferService.transfer(request(1L, 2L, i));
+            transferred.add((long) i);
+        }
+
+        List<TransferLog> logs = transferLogRepository.findAll(Sort.by("id"));
+        assertEquals(transferred, logs.stream().map(log -> log.getAmount().longValue()).toList());
+        for (TransferLog log : logs) {
+            long timestamp = TimeOrderedIdGenerator.timestamp(log.getId());
+            assertTrue(timestamp >= start && timestamp <= System.currentTimeMillis(), "timestamp " + timestamp);
+            assertEquals(7, (log.getId() >>> 12) & TimeOrderedIdGenerator.MAX_NODE_ID);
+        }
+    }
+
+    /**
+     * 8 threads x 100000 ids: all unique, increasing per thread
+     */
+    @Test
+    public void testTimeOrdered_UniqueConcurrent() throws Exception {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(1);
+        int threads = 8;
+        int perThread = 100000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Callable<long[]>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            tasks.add(() -> {
+                long[] ids = new long[perThread];
+                for (int i = 0; i < perThread; i++) {
+                    ids[i] = generator.next();
+                }
+                return ids;
+            });
+        }
+        Set<Long> unique = new HashSet<>();
+        for (Future<long[]> future : executor.invokeAll(tasks)) {
+            long[] ids = future.get();
+            for (int i = 0; i < ids.length; i++) {
+                assertTrue(i == 0 || ids[i] > ids[i - 1]);
+                unique.add(ids[i]);
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(threads * perThread, unique.size());
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.transfer.service;
+
+import org.example.transfer.comm.enums.TransferStatusEnum;
+import org.example.transfer.config.AsyncTransferConfig;
+import org.example.transfer.params.req.TransferRequest;
+import org.example.transfer.queue.QueuedTransfer;
+import org.example.transfer.queue.TransferQueue;
+import org.example.transfer.queue.TransferQueueWorker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * transfer queue test
+ * <p>
+ * only test the journal, no worker drains the queue unless a test starts one
+ */
+@TestPropertySource(properties = {
+        "transfer.async.enabled=true",
+        "transfer.async.workers=0",
+        "transfer.async.fsync=false",
+        "transfer.idempotency.persistent=true"
+})
+public class TransferQueueJournalTest extends BaseServiceTest {
+
+    @Autowired
+    private TransferQueue transferQueue;
+
+    @Autowired
+    private AsyncTransferConfig asyncTransferConfig;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private TransferQueueWorker transferQueueWorker;
+
+    @BeforeEach
+    public void init() {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+    }
+
+    /**
+     * 20000 requests (about 4MB of journal), all acked but the last 10:
+     * the journal is compacted while acking, a restart replays only the 10
+     */
+    @Test
+    public void testJournalCompactedUpToOldestUnacked() throws Exception {
+        List<String> requestIds = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            TransferRequest request = request(1L, 2L, 10);
+            transferQueue.offer(request);
+            requestIds.add(request.getRequestId());
+        }
+        for (int i = 0; i < 20000; i++) {
+            QueuedTransfer queued = transferQueue.take();
+            if (i < 19990) {
+                transferQueue.ack(queued.request().getRequestId());
+            }
+        }
+
+        assertTrue(Files.size(Paths.get(asyncTransferConfig.getJournalPath())) < 2 << 20);
+
+        transferQueue.stop();
+        transferQueue.start();
+        assertEquals(10, transferQueue.pending());
+        for (int i = 19990; i < 20000; i++) {
+            QueuedTransfer queued = transferQueue.take();
+            assertTrue(queued.recovered());
+            assertEquals(requestIds.get(i), queued.request().getRequestId());
+        }
+    }
+
+    /**
+     * the transfer of a queued request commits, then a crash before its outcome is recorded and acked:
+     * the replayed request finds its transfer in transfer_log and completes without transferring again
+     * <p>
+     * from money(usd): 100000 - 10 - 0.1 = 99989.90, to money(usd): 500 + 10 = 510
+     */
+    @Test
+    public void testReplayAfterTransferCommitted() throws Exception {
+        TransferRequest request = request(1L, 2L, 10);
+        transferQueue.offer(request);
+        transferQueue.take();
+        transferService.process(request);
+
+        transferQueue.stop();
+        transferQueue.start();
+        assertEquals(1, transferQueue.pending());
+
+        asyncTransferConfig.setWorkers(1);
+        transferQueueWorker.start();
+        try {
+            for (int i = 0; i < 500 && transferQueue.pending() > 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, transferQueue.pending());
+        } finally {
+            transferQueueWorker.stop();
+        }
+
+        assertEquals(TransferStatusEnum.SUCCESS, transferService.getStatus(request.getRequestId()).getStatus());
+        assertEquals(1, transferLogRepository.count());
+        verifyBalance(1L, new BigDecimal("99989.90"));
+        verifyBalance(2L, new BigDecimal("510"));
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.transfer.service;
+
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.exception.BusinessException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * transfer service test
+ * <p>
+ * only test conditional update statements, the lower account id is updated first
+ */
+@TestPropertySource(properties = "transfer.lock.strategy=ATOMIC")
+public class TransferServiceAtomicTest extends BaseServiceTest {
+    @Autowired
+    private TransferService transferService;
+
+    @BeforeEach
+    public void init() {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+    }
+
+    /**
+     * bob -> alice credits alice first, the failed debit of bob rolls it back
+     */
+    @Test
+    public void testInsufficientAfterCredit_RolledBack() {
+        BusinessException ex = assertThrows(BusinessException.class, () -> transferService.transfer(request(2L, 1L, 600)));
+
+        assertEquals(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), ex.getErrorCode());
+        verifyBalance(1L, new BigDecimal("100000"));
+        verifyBalance(2L, new BigDecimal("500"));
+        assertEquals(0, transferLogRepository.count());
+    }
+
+    /**
+     * 100 transfers each way at once, all of them complete
+     * <p>
+     * Alice(usd): 100000 - 100 * 1.01 + 100 * 1 = 99999
+     * Bob(usd): 500 + 100 * 1 - 100 * 1.01 = 499
+     */
+    @Test
+    public void testOppositeTransfers_AllApplied() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(CompletableFuture.runAsync(() -> transferService.transfer(request(1L, 2L, 1)), pool));
+            futures.add(CompletableFuture.runAsync(() -> transferService.transfer(request(2L, 1L, 1)), pool));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertEquals(200, transferLogRepository.count());
+        verifyBalance(1L, new BigDecimal("99999"));
+        verifyBalance(2L, new BigDecimal("499"));
+    }
+}
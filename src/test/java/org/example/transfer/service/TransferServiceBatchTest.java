@@ -0,0 +1,102 @@
+package org.example.transfer.service;
+
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.params.req.TransferRequest;
+import org.example.transfer.params.resp.BatchTransferResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * transfer service test
+ * <p>
+ * only test batch transfer, chunk-size: 2 so a batch spans several transactions
+ */
+@TestPropertySource(properties = {
+        "transfer.batch.max-size=10",
+        "transfer.batch.chunk-size=2"
+})
+public class TransferServiceBatchTest extends BaseServiceTest {
+    @Autowired
+    private TransferService transferService;
+
+    @BeforeEach
+    public void init() {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+    }
+
+    /**
+     * failed transfers do not stop the batch, results keep request order
+     * <p>
+     * from money(usd): 100000 - 10 - 0.1 - 20 - 0.2 = 99969.70
+     * to money(usd): 500 + 10 + 20 = 530
+     */
+    @Test
+    public void testBatchTransfer_MixedResults() {
+        TransferRequest first = request(1L, 2L, 10);
+        List<TransferRequest> requests = new ArrayList<>();
+        requests.add(first);
+        requests.add(request(2L, 1L, 1000));
+        requests.add(request(1L, 99L, 10));
+        requests.add(request(1L, 1L, 10));
+        requests.add(first);
+        requests.add(request(1L, 2L, 20));
+
+        List<BatchTransferResult> results = transferService.batchTransfer(requests);
+
+        assertEquals(requests.size(), results.size());
+        for (int i = 0; i < requests.size(); i++) {
+            assertEquals(requests.get(i).getRequestId(), results.get(i).getRequestId());
+        }
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), results.get(1).getErrorCode());
+        assertEquals(ExceptionEnum.USER_NOT_EXIST.getErrorCode(), results.get(2).getErrorCode());
+        assertEquals(ExceptionEnum.PARAM_ILLEGAL.getErrorCode(), results.get(3).getErrorCode());
+        assertEquals(ExceptionEnum.IDEMPOTENT_REQUEST.getErrorCode(), results.get(4).getErrorCode());
+        assertTrue(results.get(5).isSuccess());
+
+        assertEquals(2, transferLogRepository.findAll().size());
+        assertEquals(0, new BigDecimal("99969.70").compareTo(accountRepository.findById(1L).orElseThrow().getBalance()));
+        assertEquals(0, new BigDecimal("530").compareTo(accountRepository.findById(2L).orElseThrow().getBalance()));
+    }
+
+    /**
+     * same batch sent again, nothing is transferred twice
+     */
+    @Test
+    public void testBatchTransferSentTwice_TransferOnce() {
+        List<TransferRequest> requests = List.of(request(1L, 2L, 10), request(2L, 1L, 10));
+
+        transferService.batchTransfer(requests);
+        List<BatchTransferResult> results = transferService.batchTransfer(requests);
+
+        results.forEach(result -> {
+            assertFalse(result.isSuccess());
+            assertEquals(ExceptionEnum.IDEMPOTENT_REQUEST.getErrorCode(), result.getErrorCode());
+        });
+        assertEquals(2, transferLogRepository.findAll().size());
+    }
+
+    @Test
+    public void testBatchTransferTooLarge_Fail() {
+        List<TransferRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            requests.add(request(1L, 2L, 1));
+        }
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> transferService.batchTransfer(requests));
+        assertEquals(ExceptionEnum.PARAM_ILLEGAL.getErrorCode(), ex.getErrorCode());
+        assertEquals(0, transferLogRepository.findAll().size());
+    }
+}
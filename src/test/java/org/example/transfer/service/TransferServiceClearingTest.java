@@ -0,0 +1,119 @@
+package org.example.transfer.service;
+
+import org.example.transfer.clearing.ClearingEngine;
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.model.Account;
+import org.example.transfer.util.FutureUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * transfer service test
+ * <p>
+ * only test multilateral clearing, cycles are settled by calling {@link ClearingEngine#settle()}
+ */
+@TestPropertySource(properties = {
+        "transfer.clearing.enabled=true",
+        "transfer.clearing.cycle=PT1H",
+        "transfer.clearing.partitions=2"
+})
+public class TransferServiceClearingTest extends BaseServiceTest {
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private ClearingEngine clearingEngine;
+
+    @BeforeEach
+    public void init() {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+    }
+
+    /**
+     * Carol starts empty, she can pay out of what she receives in the same cycle
+     * <p>
+     * Alice(usd): 100000 - 101 + 50 = 99949
+     * Bob(usd): 500 + 100 - 101 = 499
+     * Carol(usd): 0 + 100 - 50.5 = 49.5
+     */
+    @Test
+    public void testCycle_SettledByNetPosition() {
+        Long carol = createAccount("Carol", BigDecimal.ZERO);
+        CompletableFuture<Void> first = transferService.transferAsync(request(1L, 2L, 100));
+        CompletableFuture<Void> second = transferService.transferAsync(request(2L, carol, 100));
+        CompletableFuture<Void> third = transferService.transferAsync(request(carol, 1L, 50));
+        assertFalse(first.isDone());
+
+        assertEquals(3, clearingEngine.settle());
+
+        FutureUtils.join(first);
+        FutureUtils.join(second);
+        FutureUtils.join(third);
+        assertEquals(3, transferLogRepository.count());
+        verifyBalance(1L, new BigDecimal("99949"));
+        verifyBalance(2L, new BigDecimal("499"));
+        verifyBalance(carol, new BigDecimal("49.5"));
+    }
+
+    /**
+     * Bob can not cover 606 + 1.01 with 500 + 10, all his outgoing transfers are rejected, the rest settles
+     */
+    @Test
+    public void testShortPosition_OutgoingRejected() {
+        CompletableFuture<Void> large = clearingEngine.submit(request(2L, 1L, 600));
+        CompletableFuture<Void> small = clearingEngine.submit(request(2L, 1L, 1));
+        CompletableFuture<Void> incoming = clearingEngine.submit(request(1L, 2L, 10));
+        CompletableFuture<Void> unknown = clearingEngine.submit(request(1L, 99L, 10));
+
+        assertEquals(1, clearingEngine.settle());
+
+        assertError(large, ExceptionEnum.MONEY_TRANSFER_ERROR);
+        assertError(small, ExceptionEnum.MONEY_TRANSFER_ERROR);
+        assertError(unknown, ExceptionEnum.USER_NOT_EXIST);
+        FutureUtils.join(incoming);
+        assertEquals(1, transferLogRepository.count());
+        verifyBalance(2L, new BigDecimal("510"));
+        verifyBalance(1L, new BigDecimal("99989.9"));
+    }
+
+    /**
+     * Dave is overdrawn and only receives: nothing of his can be rejected, the cycle still settles
+     * <p>
+     * Dave(usd): -50 + 10 = -40
+     */
+    @Test
+    public void testShortWithoutOutgoing_Settled() {
+        Long dave = createAccount("Dave", new BigDecimal("-50"));
+        CompletableFuture<Void> incoming = clearingEngine.submit(request(1L, dave, 10));
+
+        assertEquals(1, clearingEngine.settle());
+
+        FutureUtils.join(incoming);
+        verifyBalance(dave, new BigDecimal("-40"));
+        verifyBalance(1L, new BigDecimal("99989.9"));
+    }
+
+    private void assertError(CompletableFuture<Void> future, ExceptionEnum expected) {
+        BusinessException ex = assertThrows(BusinessException.class, () -> FutureUtils.join(future));
+        assertEquals(expected.getErrorCode(), ex.getErrorCode());
+    }
+
+    private Long createAccount(String name, BigDecimal balance) {
+        Account account = new Account();
+        account.setName(name);
+        account.setCurrency(Currency.USD);
+        account.setBalance(balance);
+        return accountRepository.save(account).getId();
+    }
+}
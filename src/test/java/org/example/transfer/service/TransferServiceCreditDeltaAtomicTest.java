@@ -0,0 +1,12 @@
+package org.example.transfer.service;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * transfer service test
+ * <p>
+ * append-only credits with conditional update statements, an unfolded credit counts in the debit's condition
+ */
+@TestPropertySource(properties = "transfer.lock.strategy=ATOMIC")
+public class TransferServiceCreditDeltaAtomicTest extends TransferServiceCreditDeltaTest {
+}
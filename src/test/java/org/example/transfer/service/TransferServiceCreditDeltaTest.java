@@ -0,0 +1,130 @@
+package org.example.transfer.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.handler.CreditDeltas;
+import org.example.transfer.model.Account;
+import org.example.transfer.repository.BalanceDeltaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * transfer service test
+ * <p>
+ * only test append-only credits, folded by calling {@link CreditDeltas#fold()}
+ */
+@TestPropertySource(properties = {
+        "transfer.credit-delta.enabled=true",
+        "transfer.credit-delta.fold-interval=PT1H"
+})
+public class TransferServiceCreditDeltaTest extends BaseServiceTest {
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private CreditDeltas creditDeltas;
+
+    @Autowired
+    private BalanceDeltaRepository balanceDeltaRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void init() {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+    }
+
+    /**
+     * to money(usd): row 500 + delta 10 = 510, then folded into the row
+     */
+    @Test
+    public void testCredit_DeltaUntilFolded() {
+        transferService.transfer(request(1L, 2L, 10));
+
+        assertEquals(1, balanceDeltaRepository.count());
+        verifyBalance(1L, new BigDecimal("99989.9"));
+        verifyBalance(2L, new BigDecimal("510"));
+
+        creditDeltas.fold();
+
+        assertEquals(0, balanceDeltaRepository.count());
+        verifyBalance(2L, new BigDecimal("510"));
+    }
+
+    /**
+     * 50 senders credit Bob at once, nobody conflicts on Bob's version
+     * <p>
+     * to money(usd): 500 + 50 * 10 = 1000
+     */
+    @Test
+    public void testConcurrentCredit_NoConflict() throws Exception {
+        int concurrent = 50;
+        List<Account> senders = new ArrayList<>();
+        for (int i = 0; i < concurrent; i++) {
+            Account sender = new Account();
+            sender.setName("sender-" + i);
+            sender.setCurrency(Currency.USD);
+            sender.setBalance(new BigDecimal("100"));
+            senders.add(sender);
+        }
+        accountRepository.saveAll(senders);
+        double conflictsBefore = meterRegistry.get("transfer.retry.conflicts").counter().count();
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrent);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Account sender : senders) {
+            tasks.add(() -> {
+                transferService.transfer(request(sender.getId(), 2L, 10));
+                return null;
+            });
+        }
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(conflictsBefore, meterRegistry.get("transfer.retry.conflicts").counter().count());
+        assertEquals(concurrent, balanceDeltaRepository.count());
+        verifyBalance(2L, new BigDecimal("1000"));
+
+        creditDeltas.fold();
+
+        assertEquals(0, balanceDeltaRepository.count());
+        verifyBalance(2L, new BigDecimal("1000"));
+        assertEquals(concurrent, meterRegistry.get("transfer.credit_delta.folded").counter().count());
+    }
+
+    /**
+     * an unfolded credit can be spent, the row goes below zero until the fold
+     * <p>
+     * to money(usd): 500 + 100 - 550 * 1.01 = 44.5
+     */
+    @Test
+    public void testSpendUnfoldedCredit_Success() {
+        transferService.transfer(request(1L, 2L, 100));
+        transferService.transfer(request(2L, 1L, 550));
+
+        verifyBalance(2L, new BigDecimal("44.5"));
+        assertTrue(balanceDeltaRepository.count() > 0);
+
+        creditDeltas.fold();
+
+        assertEquals(0, balanceDeltaRepository.count());
+        verifyBalance(2L, new BigDecimal("44.5"));
+        verifyBalance(1L, new BigDecimal("100449"));
+    }
+}
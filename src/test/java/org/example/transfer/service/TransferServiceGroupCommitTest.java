@@ -0,0 +1,104 @@
+package org.example.transfer.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.executor.GroupCommitExecutor;
+import org.example.transfer.util.FutureUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * transfer service test
+ * <p>
+ * only test group commit, a group stays open for 200ms
+ */
+@TestPropertySource(properties = {
+        "transfer.group-commit.enabled=true",
+        "transfer.group-commit.window=200ms"
+})
+public class TransferServiceGroupCommitTest extends BaseServiceTest {
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private GroupCommitExecutor groupCommitExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void init() {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+    }
+
+    /**
+     * 50 concurrent transfers are committed in a few groups, never conflict
+     * <p>
+     * from money(usd): 100000 - 50 * (10 + 0.1) = 99495
+     * to money(usd): 500 + 50 * 10 = 1000
+     */
+    @Test
+    public void testConcurrentTransfer_Grouped() throws Exception {
+        int concurrent = 50;
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrent);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < concurrent; i++) {
+            tasks.add(() -> {
+                transferService.transfer(request(1L, 2L, 10));
+                return null;
+            });
+        }
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+        executor.shutdown();
+
+        DistributionSummary groupSize = meterRegistry.get("transfer.group_commit.size").summary();
+        assertEquals(concurrent, (long) groupSize.totalAmount());
+        assertTrue(groupSize.count() < concurrent, "groups " + groupSize.count());
+        assertEquals(concurrent, transferLogRepository.count());
+        verifyBalance(1L, new BigDecimal("99495"));
+        verifyBalance(2L, new BigDecimal("1000"));
+    }
+
+    /**
+     * the second transfer of Bob is short of balance, only it is rejected
+     * <p>
+     * Bob(usd): 500 - 400 * 1.01 + 10 = 106
+     * Alice(usd): 100000 + 400 - 10 * 1.01 = 100389.9
+     */
+    @Test
+    public void testInsufficientBalance_OnlyOneRejected() {
+        CompletableFuture<Void> first = groupCommitExecutor.submit(request(2L, 1L, 400));
+        CompletableFuture<Void> second = groupCommitExecutor.submit(request(2L, 1L, 400));
+        CompletableFuture<Void> third = groupCommitExecutor.submit(request(1L, 2L, 10));
+
+        FutureUtils.join(first);
+        BusinessException ex = assertThrows(BusinessException.class, () -> FutureUtils.join(second));
+        assertEquals(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), ex.getErrorCode());
+        FutureUtils.join(third);
+
+        assertEquals(1, meterRegistry.get("transfer.group_commit.size").summary().count());
+        assertEquals(2, transferLogRepository.count());
+        verifyBalance(2L, new BigDecimal("106"));
+        verifyBalance(1L, new BigDecimal("100389.9"));
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.transfer.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.handler.HotAccountSlots;
+import org.example.transfer.model.AccountBalanceSlot;
+import org.example.transfer.params.resp.BatchTransferResult;
+import org.example.transfer.repository.AccountBalanceSlotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * transfer service test
+ * <p>
+ * only test hot accounts, Alice and Bob are split into 4 balance slots
+ */
+@TestPropertySource(properties = "transfer.hot-account.slots=4")
+public class TransferServiceHotAccountTest extends BaseServiceTest {
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private HotAccountSlots hotAccountSlots;
+
+    @Autowired
+    private AccountBalanceSlotRepository slotRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void init() {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+        hotAccountSlots.split(1L);
+        hotAccountSlots.split(2L);
+    }
+
+    /**
+     * from money(usd): 100000 -> 4 x 25000, row 0
+     */
+    @Test
+    public void testSplit_TotalUnchanged() {
+        List<AccountBalanceSlot> slots = slots(1L);
+
+        assertEquals(4, slots.size());
+        slots.forEach(slot -> assertEquals(0, new BigDecimal("25000").compareTo(slot.getBalance())));
+        verifyBalance(1L, new BigDecimal("100000"));
+        verifyBalance(2L, new BigDecimal("500"));
+    }
+
+    /**
+     * concurrent transfers between two hot accounts never conflict
+     * <p>
+     * from money(usd): 100000 - 50 * (10 + 0.1) = 99495
+     * to money(usd): 500 + 50 * 10 = 1000
+     */
+    @Test
+    public void testConcurrentTransfer_NoConflict() throws Exception {
+        double conflictsBefore = meterRegistry.get("transfer.retry.conflicts").counter().count();
+        int concurrent = 50;
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrent);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < concurrent; i++) {
+            tasks.add(() -> {
+                transferService.transfer(request(1L, 2L, 10));
+                return null;
+            });
+        }
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(conflictsBefore, meterRegistry.get("transfer.retry.conflicts").counter().count());
+        verifyBalance(1L, new BigDecimal("99495"));
+        verifyBalance(2L, new BigDecimal("1000"));
+    }
+
+    /**
+     * no slot of Bob holds 300 + 3: all slots are debited together, the rest is spread again
+     * <p>
+     * from money(usd): 500 - 303 = 197 -> 4 x 49.25
+     */
+    @Test
+    public void testDebitLargerThanSlot_Rebalanced() {
+        transferService.transfer(request(2L, 1L, 300));
+
+        verifyBalance(2L, new BigDecimal("197"));
+        slots(2L).forEach(slot -> assertEquals(0, new BigDecimal("49.25").compareTo(slot.getBalance())));
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> transferService.transfer(request(2L, 1L, 200)));
+        assertEquals(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), ex.getErrorCode());
+        verifyBalance(2L, new BigDecimal("197"));
+    }
+
+    /**
+     * one batch transaction: a rebalance, a credit to one of bob's slots, a second rebalance which must see the credit
+     * <p>
+     * to money(usd): 500 - 303 + 100 - 151.5 = 145.5
+     * from money(usd): 100000 + 300 - 101 + 150 = 100349
+     */
+    @Test
+    public void testRebalanceAfterCreditInOneTransaction_NothingLost() {
+        List<BatchTransferResult> results = transferService.batchTransfer(List.of(
+                request(2L, 1L, 300), request(1L, 2L, 100), request(2L, 1L, 150)));
+
+        results.forEach(result -> assertTrue(result.isSuccess(), result.getErrorMsg()));
+        verifyBalance(2L, new BigDecimal("145.5"));
+        verifyBalance(1L, new BigDecimal("100349"));
+    }
+
+    /**
+     * slots go back to the account row
+     */
+    @Test
+    public void testMerge_BalanceBackInRow() {
+        transferService.transfer(request(1L, 2L, 10));
+
+        hotAccountSlots.merge(2L);
+
+        assertTrue(slots(2L).isEmpty());
+        verifyBalance(2L, new BigDecimal("510"));
+        transferService.transfer(request(1L, 2L, 10));
+        verifyBalance(2L, new BigDecimal("520"));
+    }
+
+    private List<AccountBalanceSlot> slots(Long accountId) {
+        return slotRepository.findAll().stream()
+                .filter(slot -> slot.getAccountId().equals(accountId))
+                .sorted(Comparator.comparing(AccountBalanceSlot::getSlot))
+                .toList();
+    }
+}
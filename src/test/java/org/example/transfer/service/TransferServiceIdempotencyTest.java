@@ -0,0 +1,146 @@
+package org.example.transfer.service;
+
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.idempotent.IdempotencyKey;
+import org.example.transfer.idempotent.IdempotencyOutcome;
+import org.example.transfer.idempotent.IdempotencyStore;
+import org.example.transfer.params.req.TransferRequest;
+import org.example.transfer.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * transfer service test
+ * <p>
+ * only test idempotency store, replay and persistence enabled
+ */
+@TestPropertySource(properties = {
+        "transfer.idempotency.replay-result=true",
+        "transfer.idempotency.persistent=true",
+        "transfer.idempotency.max-keys=3"
+})
+public class TransferServiceIdempotencyTest extends BaseServiceTest {
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @BeforeEach
+    public void init() {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+    }
+
+    /**
+     * same requestId sent again after success, replayed without a second transfer
+     * <p>
+     * from money(usd): 100000 - 10 - 0.1 = 99989.90
+     */
+    @Test
+    public void testReplaySuccess_TransferOnce() {
+        TransferRequest request = request(1L, 2L, 10);
+
+        transferService.transfer(request);
+        transferService.transfer(request);
+
+        assertEquals(1, transferLogRepository.findAll().size());
+        assertEquals(0, new BigDecimal("99989.90").compareTo(accountRepository.findById(1L).orElseThrow().getBalance()));
+
+        IdempotencyKey key = IdempotencyKey.of(request.getRequestId());
+        assertEquals(IdempotencyOutcome.SUCCESS, idempotencyStore.get(key));
+        assertTrue(idempotencyRecordRepository.findById(key.toHex()).isPresent());
+    }
+
+    /**
+     * same requestId sent again after a business failure, the same failure is replayed
+     */
+    @Test
+    public void testReplayFailure_SameError() {
+        TransferRequest request = request(1L, 99L, 10);
+
+        BusinessException first = assertThrows(BusinessException.class, () -> transferService.transfer(request));
+        BusinessException second = assertThrows(BusinessException.class, () -> transferService.transfer(request));
+
+        assertEquals(ExceptionEnum.USER_NOT_EXIST.getErrorCode(), first.getErrorCode());
+        assertEquals(first.getErrorCode(), second.getErrorCode());
+        assertEquals(first.getErrorMsg(), second.getErrorMsg());
+    }
+
+    /**
+     * in-progress requestId is rejected, released requestId can run again
+     */
+    @Test
+    public void testInProgressRejected_ReleasedRetried() {
+        TransferRequest request = request(1L, 2L, 10);
+        IdempotencyKey key = IdempotencyKey.of(request.getRequestId());
+        assertNull(idempotencyStore.begin(key));
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> transferService.transfer(request));
+        assertEquals(ExceptionEnum.IDEMPOTENT_REQUEST.getErrorCode(), ex.getErrorCode());
+
+        idempotencyStore.release(key);
+        transferService.transfer(request);
+        assertEquals(1, transferLogRepository.findAll().size());
+    }
+
+    /**
+     * max-keys: 3, the oldest requestIds are evicted first
+     */
+    @Test
+    public void testMaxKeys_OldestEvicted() {
+        TransferRequest first = request(1L, 2L, 1);
+        TransferRequest last = first;
+        transferService.transfer(first);
+        for (int i = 0; i < 3; i++) {
+            last = request(1L, 2L, 1);
+            transferService.transfer(last);
+        }
+
+        assertEquals(3, idempotencyStore.size());
+        assertNull(idempotencyStore.get(IdempotencyKey.of(first.getRequestId())));
+        assertNotNull(idempotencyStore.get(IdempotencyKey.of(last.getRequestId())));
+    }
+
+    /**
+     * max-keys: 3, in-progress requestIds are never evicted: a new one is rejected as busy while all 3 are in
+     * progress, and evicts the first once it completed
+     */
+    @Test
+    public void testMaxKeys_InProgressKept() {
+        List<IdempotencyKey> keys = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            IdempotencyKey key = IdempotencyKey.of(request(1L, 2L, 1).getRequestId());
+            assertNull(idempotencyStore.begin(key));
+            keys.add(key);
+        }
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> transferService.transfer(request(1L, 2L, 1)));
+        assertEquals(ExceptionEnum.SERVER_BUSY.getErrorCode(), ex.getErrorCode());
+        assertEquals(0, transferLogRepository.count());
+        assertEquals(3, idempotencyStore.size());
+        keys.forEach(key -> assertEquals(IdempotencyOutcome.IN_PROGRESS, idempotencyStore.get(key)));
+
+        idempotencyStore.complete(keys.get(0), IdempotencyOutcome.SUCCESS);
+        transferService.transfer(request(1L, 2L, 1));
+        assertEquals(1, transferLogRepository.count());
+        assertNull(idempotencyStore.get(keys.get(0)));
+        assertEquals(IdempotencyOutcome.IN_PROGRESS, idempotencyStore.get(keys.get(1)));
+        assertEquals(IdempotencyOutcome.IN_PROGRESS, idempotencyStore.get(keys.get(2)));
+    }
+}
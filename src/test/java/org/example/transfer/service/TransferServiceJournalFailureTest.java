@@ -0,0 +1,63 @@
+package org.example.transfer.service;
+
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.journal.TransferJournal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * transfer service test
+ * <p>
+ * only test the ledger engine with journal records which never become durable
+ */
+@TestPropertySource(properties = {
+        "transfer.ledger.enabled=true",
+        "transfer.journal.enabled=true"
+})
+public class TransferServiceJournalFailureTest extends BaseServiceTest {
+    @Autowired
+    private TransferService transferService;
+
+    @SpyBean
+    private TransferJournal transferJournal;
+
+    @BeforeEach
+    public void init() {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+        doReturn(CompletableFuture.failedFuture(new UncheckedIOException(new IOException("force failed"))))
+                .when(transferJournal).append(any());
+    }
+
+    /**
+     * bob(usd) 500: a failed 400 transfer returns its debit, so a second 400 is not insufficient,
+     * only a transfer above the balance is
+     */
+    @Test
+    public void testNotDurable_DebitReturned() {
+        for (int i = 0; i < 2; i++) {
+            BusinessException ex = assertThrows(BusinessException.class, () -> transferService.transfer(request(2L, 1L, 400)));
+            assertEquals(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), ex.getErrorCode());
+            assertEquals(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorMsg(), ex.getErrorMsg());
+        }
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> transferService.transfer(request(2L, 1L, 600)));
+        assertEquals("Insufficient balance", ex.getErrorMsg());
+        assertEquals(0, transferLogRepository.count());
+        assertEquals(0, new BigDecimal("500").compareTo(accountRepository.findById(2L).orElseThrow().getBalance()));
+        assertEquals(0, new BigDecimal("100000").compareTo(accountRepository.findById(1L).orElseThrow().getBalance()));
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.transfer.service;
+
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.config.JournalConfig;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.journal.JournalProjector;
+import org.example.transfer.journal.JournalRecord;
+import org.example.transfer.journal.TransferJournal;
+import org.example.transfer.repository.JournalCheckpointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * transfer service test
+ * <p>
+ * only test the ledger engine with the transfer journal, 10 records per segment
+ */
+@TestPropertySource(properties = {
+        "transfer.ledger.enabled=true",
+        "transfer.journal.enabled=true",
+        "transfer.journal.segment-size=800B"
+})
+public class TransferServiceJournalTest extends BaseServiceTest {
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private TransferJournal transferJournal;
+
+    @Autowired
+    private JournalProjector journalProjector;
+
+    @Autowired
+    private JournalConfig journalConfig;
+
+    @Autowired
+    private JournalCheckpointRepository checkpointRepository;
+
+    @BeforeEach
+    public void init() {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+    }
+
+    /**
+     * 200 concurrent transfers are journaled, then projected; projected segments are deleted
+     * <p>
+     * from money(usd): 100000 - 200 * (1 + 0.01) = 99798
+     * to money(usd): 500 + 200 = 700
+     */
+    @Test
+    public void testConcurrentTransfer_JournaledAndProjected() throws Exception {
+        int concurrent = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(50);
+        List<Callable<Boolean>> tasks = IntStream.range(0, concurrent)
+                .mapToObj(i -> (Callable<Boolean>) () -> {
+                    transferService.transfer(request(1L, 2L, 1));
+                    return true;
+                })
+                .toList();
+        for (Future<Boolean> future : executor.invokeAll(tasks)) {
+            assertTrue(future.get());
+        }
+        executor.shutdown();
+
+        assertEquals(concurrent, transferJournal.durableSeq());
+        assertTrue(journalProjector.awaitProjected(10, TimeUnit.SECONDS));
+        assertEquals(concurrent, transferLogRepository.count());
+        assertEquals(concurrent, checkpointRepository.findById("projector").orElseThrow().getSeq());
+        verifyBalance(1L, new BigDecimal("99798"));
+        verifyBalance(2L, new BigDecimal("700"));
+        assertTrue(segmentFiles() <= 2, "segments " + segmentFiles());
+    }
+
+    /**
+     * a rejected transfer is not journaled
+     */
+    @Test
+    public void testInsufficientBalance_NotJournaled() {
+        BusinessException ex = assertThrows(BusinessException.class, () -> transferService.transfer(request(2L, 1L, 1000)));
+        assertEquals(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), ex.getErrorCode());
+        assertEquals(0, transferJournal.lastSeq());
+    }
+
+    /**
+     * 25 transfers journaled but not projected, then a restart with a torn record behind them:
+     * the torn record is dropped, the 25 are projected before the projector starts, the next seq is 26
+     * <p>
+     * to money(usd): 500 + 25 * 1 = 525, then 526
+     */
+    @Test
+    public void testRestart_ReplayAboveCheckpoint() throws Exception {
+        journalProjector.stop();
+        for (int i = 0; i < 25; i++) {
+            transferService.transfer(request(1L, 2L, 1));
+        }
+        assertEquals(0, transferLogRepository.count());
+        verifyBalance(2L, new BigDecimal("500"));
+        transferJournal.stop();
+
+        // segment 21 holds seq 21..30, write garbage where seq 26 would be
+        Path segment = Paths.get(journalConfig.getDirectory()).toAbsolutePath().resolve(String.format("%020d.journal", 21));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 0, 0, 0, 0, 26, 1, 2, 3}), 5 * JournalRecord.SIZE);
+        }
+
+        transferJournal.start();
+        assertEquals(25, transferJournal.lastSeq());
+        journalProjector.start();
+        assertEquals(25, journalProjector.checkpoint());
+        assertEquals(25, transferLogRepository.count());
+        verifyBalance(2L, new BigDecimal("525"));
+
+        transferService.transfer(request(1L, 2L, 1));
+        assertEquals(26, transferJournal.lastSeq());
+        assertTrue(journalProjector.awaitProjected(10, TimeUnit.SECONDS));
+        verifyBalance(2L, new BigDecimal("526"));
+    }
+
+    private long segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(Paths.get(journalConfig.getDirectory()))) {
+            return files.count();
+        }
+    }
+}
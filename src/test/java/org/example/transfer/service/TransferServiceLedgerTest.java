@@ -0,0 +1,163 @@
+package org.example.transfer.service;
+
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.config.LedgerConfig;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.ledger.JpaLedgerWriter;
+import org.example.transfer.ledger.LedgerWriter;
+import org.example.transfer.model.TransferLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * transfer service test
+ * <p>
+ * only test in-memory ledger engine
+ */
+@TestPropertySource(properties = {
+        "transfer.ledger.enabled=true",
+        "transfer.ledger.writer-max-attempts=1"
+})
+public class TransferServiceLedgerTest extends BaseServiceTest {
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private LedgerWriter ledgerWriter;
+
+    @Autowired
+    private JpaLedgerWriter jpaLedgerWriter;
+
+    @Autowired
+    private LedgerConfig ledgerConfig;
+
+    @BeforeEach
+    public void init() {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+    }
+
+    /**
+     * 1000 concurrent transfers on the same account pair, no optimistic retry failure
+     * <p>
+     * from money(usd): 100000 - 1 * 1000 - 0.01 * 1000 = 98990
+     * to money(usd): 500 + 1000 = 1500
+     */
+    @Test
+    public void testHighConcurrentTransfer_Success() throws Exception {
+        int concurrent = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(100);
+        List<Callable<Boolean>> tasks = IntStream.range(0, concurrent)
+                .mapToObj(i -> (Callable<Boolean>) () -> {
+                    transferService.transfer(request(1L, 2L, 1));
+                    return true;
+                })
+                .toList();
+
+        List<Future<Boolean>> futures = executor.invokeAll(tasks);
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        for (Future<Boolean> future : futures) {
+            assertTrue(future.get());
+        }
+
+        assertTrue(ledgerWriter.awaitFlushed(10, TimeUnit.SECONDS));
+        assertEquals(0, BigDecimal.valueOf(98990).compareTo(accountRepository.findById(1L).orElseThrow().getBalance()));
+        assertEquals(0, BigDecimal.valueOf(1500).compareTo(accountRepository.findById(2L).orElseThrow().getBalance()));
+        assertEquals(concurrent, transferLogRepository.count());
+    }
+
+    @Test
+    public void testTransferInsufficientBalance_Fail() throws Exception {
+        BusinessException ex = assertThrows(
+                BusinessException.class,
+                () -> transferService.transfer(request(2L, 1L, 500))
+        );
+
+        assertEquals(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), ex.getErrorCode());
+        assertEquals("Insufficient balance", ex.getErrorMsg());
+
+        assertTrue(ledgerWriter.awaitFlushed(10, TimeUnit.SECONDS));
+        assertEquals(0, BigDecimal.valueOf(500).compareTo(accountRepository.findById(2L).orElseThrow().getBalance()));
+    }
+
+    @Test
+    public void testTransferToNotExist_Fail() {
+        BusinessException ex = assertThrows(
+                BusinessException.class,
+                () -> transferService.transfer(request(1L, 3L, 1))
+        );
+
+        assertEquals(ExceptionEnum.USER_NOT_EXIST.getErrorCode(), ex.getErrorCode());
+        assertEquals("to account not exist", ex.getErrorMsg());
+    }
+
+    /**
+     * a log the database rejects is dead-lettered, the changes batched with it are persisted
+     * <p>
+     * from money(usd): 100000 - 10 - 0.1 = 99989.9
+     */
+    @Test
+    public void testUnpersistableLog_DeadLettered() throws Exception {
+        TransferLog rejected = new TransferLog();
+        rejected.setFromAccountId(1L);
+        rejected.setToAccountId(2L);
+        rejected.setAmount(new BigDecimal("1E+40"));
+        rejected.setFee(BigDecimal.ZERO);
+        rejected.setFromCurrency(Currency.USD);
+        rejected.setToCurrency(Currency.USD);
+        ledgerWriter.writeLog(rejected);
+        transferService.transfer(request(1L, 2L, 10));
+
+        assertTrue(ledgerWriter.awaitFlushed(10, TimeUnit.SECONDS));
+        assertEquals(1, transferLogRepository.count());
+        assertEquals(0, new BigDecimal("99989.9").compareTo(accountRepository.findById(1L).orElseThrow().getBalance()));
+        List<String> deadLetters = Files.readAllLines(Paths.get(ledgerConfig.getDeadLetterPath()));
+        assertEquals(1, deadLetters.size());
+        assertTrue(deadLetters.get(0).contains("\"type\":\"log\""), deadLetters.get(0));
+        assertEquals(1, jpaLedgerWriter.getDeadLetters());
+    }
+
+    /**
+     * the dead-lettered log is repaired in the file, the replay persists it and empties the file
+     */
+    @Test
+    public void testDeadLetter_Replayed() throws Exception {
+        TransferLog rejected = new TransferLog();
+        rejected.setFromAccountId(1L);
+        rejected.setToAccountId(2L);
+        rejected.setAmount(new BigDecimal("1E+40"));
+        rejected.setFee(BigDecimal.ZERO);
+        rejected.setFromCurrency(Currency.USD);
+        rejected.setToCurrency(Currency.USD);
+        ledgerWriter.writeLog(rejected);
+        assertTrue(ledgerWriter.awaitFlushed(10, TimeUnit.SECONDS));
+        Path path = Paths.get(ledgerConfig.getDeadLetterPath());
+        Files.writeString(path, Files.readString(path).replaceAll("\"amount\":[^,}]+", "\"amount\":10"));
+
+        assertEquals(1, jpaLedgerWriter.replayDeadLetters().get(10, TimeUnit.SECONDS));
+        assertEquals(1, transferLogRepository.count());
+        assertEquals(0, new BigDecimal("10").compareTo(transferLogRepository.findAll().get(0).getAmount()));
+        assertEquals(0, jpaLedgerWriter.getDeadLetters());
+        assertFalse(Files.exists(path));
+    }
+}
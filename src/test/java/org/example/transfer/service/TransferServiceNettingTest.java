@@ -0,0 +1,93 @@
+package org.example.transfer.service;
+
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.params.req.TransferRequest;
+import org.example.transfer.params.resp.BatchTransferResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * transfer service test
+ * <p>
+ * only test bilateral netting of batch chunks, ATOMIC so every balance write bumps the account version
+ */
+@TestPropertySource(properties = {
+        "transfer.netting.enabled=true",
+        "transfer.lock.strategy=ATOMIC",
+        "transfer.batch.max-size=100",
+        "transfer.batch.chunk-size=100"
+})
+public class TransferServiceNettingTest extends BaseServiceTest {
+    @Autowired
+    private TransferService transferService;
+
+    @BeforeEach
+    public void init() {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+    }
+
+    /**
+     * 100 transfers back and forth, one balance write per account, one log per transfer
+     * <p>
+     * Alice(usd): 100000 - 50 * 10.1 + 50 * 5 = 99745
+     * Bob(usd): 500 + 50 * 10 - 50 * 5.05 = 747.5
+     */
+    @Test
+    public void testChattyPair_OneWritePerAccount() {
+        long aliceVersion = version(1L);
+        long bobVersion = version(2L);
+        List<TransferRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            requests.add(request(1L, 2L, 10));
+            requests.add(request(2L, 1L, 5));
+        }
+
+        List<BatchTransferResult> results = transferService.batchTransfer(requests);
+
+        assertTrue(results.stream().allMatch(BatchTransferResult::isSuccess));
+        assertEquals(100, transferLogRepository.count());
+        assertEquals(aliceVersion + 1, version(1L));
+        assertEquals(bobVersion + 1, version(2L));
+        verifyBalance(1L, new BigDecimal("99745"));
+        verifyBalance(2L, new BigDecimal("747.5"));
+    }
+
+    /**
+     * each transfer is checked against the running balance of its sender
+     * <p>
+     * Bob(usd): 500 - 404 = 96, 96 < 404 rejected, 96 + 300 = 396, 396 - 303 = 93
+     * Alice(usd): 100000 + 400 - 303 + 300 = 100397
+     */
+    @Test
+    public void testRunningBalance_OnlyShortTransferRejected() {
+        List<BatchTransferResult> results = transferService.batchTransfer(List.of(
+                request(2L, 1L, 400),
+                request(2L, 1L, 400),
+                request(1L, 2L, 300),
+                request(2L, 1L, 300)));
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), results.get(1).getErrorCode());
+        assertTrue(results.get(2).isSuccess());
+        assertTrue(results.get(3).isSuccess());
+        assertEquals(3, transferLogRepository.count());
+        verifyBalance(2L, new BigDecimal("93"));
+        verifyBalance(1L, new BigDecimal("100397"));
+    }
+
+    private long version(Long accountId) {
+        Long version = accountRepository.findById(accountId).orElseThrow().getVersion();
+        return version == null ? 0 : version;
+    }
+}
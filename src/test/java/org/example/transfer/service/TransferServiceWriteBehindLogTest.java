@@ -0,0 +1,200 @@
+package org.example.transfer.service;
+
+import org.example.transfer.comm.enums.Currency;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.config.TransferLogConfig;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.handler.TransferLogWriter;
+import org.example.transfer.model.TransferLog;
+import org.example.transfer.model.TransferLogCommit;
+import org.example.transfer.repository.TransferLogCommitRepository;
+import org.example.transfer.util.JsonUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * transfer service test
+ * <p>
+ * only test write-behind transfer logs
+ */
+@TestPropertySource(properties = {
+        "transfer.transfer-log.write-behind=true",
+        "transfer.transfer-log.batch-size=20"
+})
+public class TransferServiceWriteBehindLogTest extends BaseServiceTest {
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private TransferLogWriter transferLogWriter;
+
+    @Autowired
+    private StatementService statementService;
+
+    @Autowired
+    private TransferLogConfig transferLogConfig;
+
+    @Autowired
+    private TransferLogCommitRepository transferLogCommitRepository;
+
+    @BeforeEach
+    public void init() {
+        setup(PERFORMANCE_ACCOUNT_PATH, PERFORMANCE_RATE_PATH);
+    }
+
+    /**
+     * 50 transfers: balances are committed at once, the logs are inserted by the writer in journal order
+     */
+    @Test
+    public void testTransfer_LogsInsertedBehind() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            transferService.transfer(request(1L, 2L, 10));
+        }
+
+        assertTrue(transferLogWriter.awaitFlushed(10, TimeUnit.SECONDS));
+        List<TransferLog> logs = transferLogRepository.findAll();
+        assertEquals(50, logs.size());
+        assertEquals(50L, transferLogRepository.findMaxJournalSeq());
+        assertEquals(50, logs.stream().map(TransferLog::getJournalSeq).distinct().count());
+        assertEquals(0, new BigDecimal("1000").compareTo(accountRepository.findById(2L).orElseThrow().getBalance()));
+    }
+
+    /**
+     * the balances commit before their logs, a statement is refused before it starts
+     */
+    @Test
+    public void testStatement_Refused() throws Exception {
+        BusinessException ex = assertThrows(BusinessException.class, () -> statementService.checkAccount(1L));
+        assertEquals(ExceptionEnum.STATEMENT_NOT_SUPPORT.getErrorCode(), ex.getErrorCode());
+    }
+
+    /**
+     * a rolled back transfer journals nothing
+     */
+    @Test
+    public void testInsufficientBalance_NoLog() throws Exception {
+        BusinessException ex = assertThrows(BusinessException.class, () -> transferService.transfer(request(2L, 1L, 1000)));
+        assertEquals(ExceptionEnum.MONEY_TRANSFER_ERROR.getErrorCode(), ex.getErrorCode());
+        transferService.transfer(request(1L, 2L, 10));
+
+        assertTrue(transferLogWriter.awaitFlushed(10, TimeUnit.SECONDS));
+        assertEquals(1, transferLogRepository.count());
+        assertEquals(1L, transferLogRepository.findMaxJournalSeq());
+    }
+
+    /**
+     * restart with 2 inserted and 3 journaled and committed logs: only the 3 above the highest inserted position are replayed
+     */
+    @Test
+    public void testRestart_ReplayNotInserted() throws Exception {
+        transferService.transfer(request(1L, 2L, 10));
+        transferService.transfer(request(1L, 2L, 10));
+        assertTrue(transferLogWriter.awaitFlushed(10, TimeUnit.SECONDS));
+        transferLogWriter.stop();
+
+        // crash after journaling 2 inserted logs and 3 more
+        Path journal = Paths.get(transferLogConfig.getJournalPath()).toAbsolutePath();
+        StringBuilder lines = new StringBuilder();
+        for (long seq = 1; seq <= 5; seq++) {
+            TransferLog transferLog = new TransferLog();
+            transferLog.setFromAccountId(1L);
+            transferLog.setToAccountId(2L);
+            transferLog.setAmount(BigDecimal.TEN);
+            transferLog.setFee(new BigDecimal("0.1"));
+            transferLog.setFxRate(BigDecimal.ONE);
+            transferLog.setFromCurrency(Currency.USD);
+            transferLog.setToCurrency(Currency.USD);
+            transferLog.setJournalSeq(seq);
+            lines.append('L').append(JsonUtils.toJson(transferLog)).append('\n');
+        }
+        lines.append("C3-5\n").append("L{\"fromAccountId\":1,\"toAcc");
+        Files.writeString(journal, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        transferLogWriter.start();
+        assertTrue(transferLogWriter.awaitFlushed(10, TimeUnit.SECONDS));
+        assertEquals(5, transferLogRepository.count());
+
+        // new logs continue after the journaled positions
+        transferService.transfer(request(1L, 2L, 10));
+        assertTrue(transferLogWriter.awaitFlushed(10, TimeUnit.SECONDS));
+        assertEquals(6L, transferLogRepository.findMaxJournalSeq());
+    }
+
+    /**
+     * logs 4 and 5 have a commit marker, 6 was aborted. 3 and 7 have no marker, only 3 has a commit row:
+     * 3, 4, 5 are replayed, 7 was rolled back after its fsync
+     */
+    @Test
+    public void testRestart_AbortedNotReplayed() throws Exception {
+        transferService.transfer(request(1L, 2L, 10));
+        transferService.transfer(request(1L, 2L, 10));
+        assertTrue(transferLogWriter.awaitFlushed(10, TimeUnit.SECONDS));
+        transferLogWriter.stop();
+
+        TransferLogCommit commit = new TransferLogCommit();
+        commit.setFirstSeq(3L);
+        commit.setLastSeq(3L);
+        transferLogCommitRepository.save(commit);
+        Path journal = Paths.get(transferLogConfig.getJournalPath()).toAbsolutePath();
+        StringBuilder lines = new StringBuilder();
+        for (long seq = 3; seq <= 7; seq++) {
+            lines.append('L').append(JsonUtils.toJson(journaled(seq))).append('\n');
+        }
+        lines.append("C4-5\n").append("A6-6\n");
+        Files.writeString(journal, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        transferLogWriter.start();
+        assertTrue(transferLogWriter.awaitFlushed(10, TimeUnit.SECONDS));
+        assertEquals(5, transferLogRepository.count());
+        assertEquals(5L, transferLogRepository.findMaxJournalSeq());
+
+        // the rolled back position is not reused
+        transferService.transfer(request(1L, 2L, 10));
+        assertTrue(transferLogWriter.awaitFlushed(10, TimeUnit.SECONDS));
+        assertEquals(8L, transferLogRepository.findMaxJournalSeq());
+    }
+
+    /**
+     * the journal is written before the commit, a journal error fails the transfer and rolls it back
+     */
+    @Test
+    public void testJournalError_TransferFailed() throws Exception {
+        transferLogWriter.stop();
+        try {
+            BusinessException ex = assertThrows(BusinessException.class, () -> transferService.transfer(request(1L, 2L, 10)));
+            assertEquals(ExceptionEnum.INTERNAL_SERVER_ERROR.getErrorCode(), ex.getErrorCode());
+            assertEquals(0, new BigDecimal("500").compareTo(accountRepository.findById(2L).orElseThrow().getBalance()));
+            assertEquals(0, transferLogRepository.count());
+        } finally {
+            transferLogWriter.start();
+        }
+    }
+
+    private TransferLog journaled(long seq) {
+        TransferLog transferLog = new TransferLog();
+        transferLog.setFromAccountId(1L);
+        transferLog.setToAccountId(2L);
+        transferLog.setAmount(BigDecimal.TEN);
+        transferLog.setFee(new BigDecimal("0.1"));
+        transferLog.setFxRate(BigDecimal.ONE);
+        transferLog.setFromCurrency(Currency.USD);
+        transferLog.setToCurrency(Currency.USD);
+        transferLog.setJournalSeq(seq);
+        return transferLog;
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.transfer.service;
+
+import jakarta.persistence.OptimisticLockException;
+import org.example.transfer.comm.enums.ExceptionEnum;
+import org.example.transfer.exception.BusinessException;
+import org.example.transfer.executor.OptimisticRetryExecutor;
+import org.example.transfer.executor.TransferTaskExecutor;
+import org.example.transfer.util.FutureUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * transfer task executor test, 1 transfer in flight, 1 waiting, 500ms timeout
+ */
+@TestPropertySource(properties = {
+        "transfer.executor.max-in-flight=1",
+        "transfer.executor.max-waiting=1",
+        "transfer.executor.timeout=500ms"
+})
+public class TransferTaskExecutorTest extends BaseServiceTest {
+    @Autowired
+    private TransferTaskExecutor transferTaskExecutor;
+
+    @Autowired
+    private OptimisticRetryExecutor optimisticRetryExecutor;
+
+    /**
+     * 1 in flight + 1 waiting, the 3rd transfer is rejected
+     */
+    @Test
+    public void testFullWaiting_ServerBusy() throws Exception {
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        CompletableFuture<Void> running = transferTaskExecutor.admit(() -> release);
+        CompletableFuture<Void> waiting = transferTaskExecutor.admit(() -> CompletableFuture.completedFuture(null));
+
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> transferTaskExecutor.admit(() -> CompletableFuture.completedFuture(null)));
+        assertEquals(ExceptionEnum.SERVER_BUSY.getErrorCode(), ex.getErrorCode());
+
+        release.complete(null);
+        running.get(5, TimeUnit.SECONDS);
+        waiting.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * the slot frees after the waiting transfer's timeout, it fails without starting
+     */
+    @Test
+    public void testWaitedPastTimeout_NotStarted() throws Exception {
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        transferTaskExecutor.admit(() -> release);
+        AtomicBoolean started = new AtomicBoolean();
+        CompletableFuture<Void> waiting = transferTaskExecutor.admit(() -> {
+            started.set(true);
+            return CompletableFuture.completedFuture(null);
+        });
+
+        Thread.sleep(600);
+        release.complete(null);
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> FutureUtils.join(waiting));
+        assertEquals(ExceptionEnum.SERVER_BUSY.getErrorCode(), ex.getErrorCode());
+        assertFalse(started.get());
+        // the slot is free again
+        transferTaskExecutor.admit(() -> CompletableFuture.completedFuture(null)).get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * the executor shuts down while an attempt conflicts, the retry can not be scheduled and the transfer fails
+     */
+    @Test
+    public void testRetryRejected_Failed() throws Exception {
+        CountDownLatch attempting = new CountDownLatch(1);
+        CountDownLatch conflict = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<Void> result = optimisticRetryExecutor.executeWithRetryAsync(() -> {
+            attempts.incrementAndGet();
+            attempting.countDown();
+            try {
+                conflict.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new OptimisticLockException("conflict");
+        }, 1L, 2L);
+        assertTrue(attempting.await(5, TimeUnit.SECONDS));
+
+        Thread stopping = new Thread(transferTaskExecutor::stop);
+        stopping.start();
+        Thread.sleep(100);
+        conflict.countDown();
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, ex.getCause());
+        assertEquals(1, attempts.get());
+        stopping.join();
+    }
+}